@@ -0,0 +1,62 @@
+package com.example.demo.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+
+/**
+ * Tracks how far the read replica is behind the primary, from {@code SHOW REPLICA STATUS}. Read-only
+ * transactions use the replica only while the last check found it within
+ * {@code app.datasource.replica.max-lag}; a failed check, stopped replication or too much lag sends
+ * them to the primary until a later check finds the replica caught up.
+ */
+public class ReplicaLagMonitor {
+
+    private final JdbcOperations replica;
+    private final long maxLagMillis;
+    private volatile double lagMillis = Double.NaN;
+
+    public ReplicaLagMonitor(JdbcOperations replica, MeterRegistry meterRegistry, Duration maxLag) {
+        this.replica = replica;
+        this.maxLagMillis = maxLag.toMillis();
+        Gauge.builder("voucher.replica.lag", this, monitor -> monitor.lagMillis)
+                .description("How far the read replica was behind the primary at the last check")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    /** False until the first successful check, and whenever the lag is unknown. */
+    public boolean isReplicaCurrent() {
+        return lagMillis <= maxLagMillis;
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.replica.lag-check-interval-ms:1000}")
+    public void check() {
+        lagMillis = readLagMillis();
+    }
+
+    private double readLagMillis() {
+        List<Map<String, Object>> channels;
+        try {
+            channels = replica.queryForList("SHOW REPLICA STATUS");
+        } catch (DataAccessException ex) {
+            return Double.NaN;
+        }
+        // No channel means the server is not replicating (e.g. promoted after a failover), so it is
+        // behind nothing. Seconds_Behind_Source is NULL while a channel is stopped.
+        double worst = 0;
+        for (Map<String, Object> channel : channels) {
+            Object seconds = channel.get("Seconds_Behind_Source");
+            if (seconds == null) {
+                return Double.NaN;
+            }
+            worst = Math.max(worst, ((Number) seconds).doubleValue() * 1000);
+        }
+        return worst;
+    }
+}
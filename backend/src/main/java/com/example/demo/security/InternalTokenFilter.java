@@ -6,6 +6,7 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.Set;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
@@ -15,6 +16,18 @@ import org.springframework.web.filter.OncePerRequestFilter;
 @Component
 public class InternalTokenFilter extends OncePerRequestFilter {
 
+    static final Set<String> INTERNAL_PATHS = Set.of(
+            "/vouchers/validate",
+            "/vouchers/validate/batch",
+            "/vouchers/claim",
+            "/vouchers/claim/async",
+            "/vouchers/claim/batch",
+            "/vouchers/claim/confirm",
+            "/vouchers/claim/reserve",
+            "/vouchers/claim/stacked",
+            "/vouchers/claim/status"
+    );
+
     private final String internalToken;
 
     public InternalTokenFilter(@Value("${app.internal-token}") String internalToken) {
@@ -23,8 +36,7 @@ public class InternalTokenFilter extends OncePerRequestFilter {
 
     @Override
     protected boolean shouldNotFilter(HttpServletRequest request) {
-        String path = request.getRequestURI();
-        return !("/vouchers/validate".equals(path) || "/vouchers/claim".equals(path));
+        return !INTERNAL_PATHS.contains(request.getRequestURI());
     }
 
     @Override
@@ -0,0 +1,138 @@
+package com.example.demo.voucher.api;
+
+import com.example.demo.voucher.service.ActiveVoucherCatalog;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+import tools.jackson.databind.ObjectMapper;
+
+/**
+ * {@code GET /vouchers/active} response bodies, serialized and gzipped once per catalog view and
+ * then copied straight to the servlet output stream. Every request between two catalog changes gets
+ * the same bytes, so none of them runs Jackson or the compressor, and a client sending back the
+ * body's ETag gets a 304 decided from the cached tag alone.
+ */
+@Component
+public class ActiveVoucherBodies {
+
+    private static final String QUALITY_ZERO = "q=0";
+
+    private final ObjectMapper objectMapper;
+    private final AtomicReference<Bodies> cached = new AtomicReference<>(new Bodies(null, null, null, null, null));
+
+    public ActiveVoucherBodies(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /** Writes the body for {@code view}, or a 304 when the client already holds it. */
+    public void write(ActiveVoucherCatalog.View view, ServletWebRequest request) throws IOException {
+        HttpServletResponse response = request.getResponse();
+        Bodies bodies = bodiesFor(view);
+        boolean gzip = acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (request.checkNotModified(gzip ? bodies.gzipEtag() : bodies.identityEtag())) {
+            return;
+        }
+        byte[] body = gzip ? bodies.gzip() : bodies.identity();
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    Bodies bodiesFor(ActiveVoucherCatalog.View view) throws IOException {
+        // Keyed on the view itself: the catalog hands out one View instance per list, so an identity
+        // check cannot match a body rendered from another list.
+        Bodies current = cached.get();
+        if (current.view() == view) {
+            return current;
+        }
+        byte[] identity = objectMapper.writeValueAsBytes(view.vouchers());
+        // Strong tags from the content, so every instance serving the same list agrees on them.
+        String tag = DigestUtils.md5DigestAsHex(identity);
+        Bodies rendered = new Bodies(view, identity, gzip(identity), "\"" + tag + "\"", "\"" + tag + "-gzip\"");
+        // A request still holding an older view must not replace a newer one's bodies.
+        cached.compareAndSet(current, rendered);
+        return rendered;
+    }
+
+    /**
+     * True when the client lists gzip in {@code Accept-Encoding} without refusing it through {@code q=0}.
+     * Scans the header in place, so the common case allocates nothing.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        int length = acceptEncoding.length();
+        int start = 0;
+        while (start < length) {
+            int end = acceptEncoding.indexOf(',', start);
+            if (end < 0) {
+                end = length;
+            }
+            int semicolon = acceptEncoding.indexOf(';', start);
+            int nameEnd = semicolon < 0 || semicolon > end ? end : semicolon;
+            if (isGzip(acceptEncoding, start, nameEnd)) {
+                return nameEnd == end || !isQualityZero(acceptEncoding, nameEnd + 1, end);
+            }
+            start = end + 1;
+        }
+        return false;
+    }
+
+    private static boolean isGzip(String header, int from, int to) {
+        while (from < to && header.charAt(from) == ' ') {
+            from++;
+        }
+        while (to > from && header.charAt(to - 1) == ' ') {
+            to--;
+        }
+        return to - from == 4 && header.regionMatches(true, from, "gzip", 0, 4);
+    }
+
+    /** True for {@code q=0} with up to three decimal zeros, ignoring spaces. */
+    private static boolean isQualityZero(String header, int from, int to) {
+        int matched = 0;
+        int zeros = -1;
+        for (int i = from; i < to; i++) {
+            char c = header.charAt(i);
+            if (c == ' ') {
+                continue;
+            }
+            if (matched < QUALITY_ZERO.length()) {
+                if (c != QUALITY_ZERO.charAt(matched)) {
+                    return false;
+                }
+                matched++;
+            } else if (zeros < 0 && c == '.') {
+                zeros = 0;
+            } else if (zeros >= 0 && zeros < 3 && c == '0') {
+                zeros++;
+            } else {
+                return false;
+            }
+        }
+        return matched == QUALITY_ZERO.length();
+    }
+
+    private static byte[] gzip(byte[] identity) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(identity.length / 4 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(identity);
+        }
+        return compressed.toByteArray();
+    }
+
+    record Bodies(ActiveVoucherCatalog.View view, byte[] identity, byte[] gzip, String identityEtag, String gzipEtag) {
+    }
+}
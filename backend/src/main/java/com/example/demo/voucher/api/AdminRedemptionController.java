@@ -0,0 +1,43 @@
+package com.example.demo.voucher.api;
+
+import com.example.demo.voucher.repository.VoucherRedemptionExport;
+import com.example.demo.voucher.service.RedemptionExportFormat;
+import com.example.demo.voucher.service.RedemptionExportService;
+import java.time.Instant;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+@RestController
+@RequestMapping("/admin/redemptions")
+public class AdminRedemptionController {
+
+    private final RedemptionExportService redemptionExportService;
+
+    public AdminRedemptionController(RedemptionExportService redemptionExportService) {
+        this.redemptionExportService = redemptionExportService;
+    }
+
+    // Rows are written as they are read from the database, so the export starts at once and never
+    // sits in memory as a whole.
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportRedemptions(
+            @RequestParam(value = "code", required = false) String code,
+            @RequestParam(value = "from", required = false) Instant from,
+            @RequestParam(value = "to", required = false) Instant to,
+            @RequestParam(value = "format", defaultValue = "ndjson") String format
+    ) {
+        RedemptionExportFormat exportFormat = RedemptionExportFormat.of(format);
+        VoucherRedemptionExport.Filter filter = redemptionExportService.filter(code, from, to);
+        StreamingResponseBody body = out -> redemptionExportService.export(filter, exportFormat, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.contentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"redemptions." + exportFormat.extension() + "\"")
+                .body(body);
+    }
+}
@@ -8,6 +8,7 @@ import com.example.demo.voucher.service.VoucherService;
 import jakarta.validation.Valid;
 import java.util.List;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -17,11 +18,14 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping("/admin/vouchers")
 public class AdminVoucherController {
 
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final VoucherService voucherService;
 
     public AdminVoucherController(VoucherService voucherService) {
@@ -34,9 +38,25 @@ public class AdminVoucherController {
         return voucherService.createVoucher(request);
     }
 
+    // Polling clients send back the ETag, taken from the page, and get a 304 without a body. Without
+    // cursor or limit the whole list comes back, as it did before paging. The token for the next page,
+    // if any, comes back in a header so the body stays a plain array.
     @GetMapping
-    public List<CreateVoucherResponse> listVouchers(@RequestParam(value = "status", required = false) VoucherStatus status) {
-        return voucherService.getAdminVouchers(status);
+    public ResponseEntity<List<CreateVoucherResponse>> listVouchers(
+            @RequestParam(value = "status", required = false) VoucherStatus status,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            WebRequest request
+    ) {
+        VoucherService.AdminVoucherPage page = voucherService.getAdminVouchers(status, cursor, limit);
+        if (request.checkNotModified(page.etag())) {
+            return null;
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.vouchers());
     }
 
     @PutMapping("/{id}")
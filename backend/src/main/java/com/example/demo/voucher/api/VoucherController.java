@@ -1,33 +1,89 @@
 package com.example.demo.voucher.api;
 
+import com.example.demo.voucher.api.dto.ValidateVoucherBatchRequest;
 import com.example.demo.voucher.api.dto.ValidateVoucherRequest;
 import com.example.demo.voucher.api.dto.ValidateVoucherResponse;
+import com.example.demo.voucher.api.dto.ClaimBatchAbortedResponse;
+import com.example.demo.voucher.api.dto.ClaimHoldResponse;
+import com.example.demo.voucher.api.dto.ClaimStackedVouchersRequest;
+import com.example.demo.voucher.api.dto.ClaimStackedVouchersResponse;
+import com.example.demo.voucher.api.dto.ClaimTicketResponse;
+import com.example.demo.voucher.api.dto.ClaimVoucherBatchRequest;
 import com.example.demo.voucher.api.dto.ClaimVoucherRequest;
 import com.example.demo.voucher.api.dto.ClaimVoucherResponse;
-import com.example.demo.voucher.api.dto.VoucherPublicResponse;
+import com.example.demo.voucher.api.dto.ConfirmClaimRequest;
+import com.example.demo.voucher.api.dto.VoucherRecommendationResponse;
+import com.example.demo.voucher.domain.ClaimOutboxStatus;
+import com.example.demo.voucher.service.BulkClaimService;
+import com.example.demo.voucher.service.ClaimHoldService;
+import com.example.demo.voucher.service.ClaimOutboxService;
+import com.example.demo.voucher.service.VoucherCodes;
+import com.example.demo.voucher.service.VoucherRecommendations;
 import com.example.demo.voucher.service.VoucherService;
 import jakarta.validation.Valid;
-import java.util.Locale;
+import java.io.IOException;
+import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.databind.ObjectMapper;
 
 @RestController
 @RequestMapping("/vouchers")
 public class VoucherController {
 
+    private static final Logger log = LoggerFactory.getLogger(VoucherController.class);
+
     private final VoucherService voucherService;
+    private final ClaimOutboxService claimOutboxService;
+    private final BulkClaimService bulkClaimService;
+    private final ClaimHoldService claimHoldService;
+    private final ObjectMapper objectMapper;
+    private final ActiveVoucherBodies activeVoucherBodies;
+    private final VoucherRecommendations voucherRecommendations;
 
-    public VoucherController(VoucherService voucherService) {
+    public VoucherController(
+            VoucherService voucherService,
+            ClaimOutboxService claimOutboxService,
+            BulkClaimService bulkClaimService,
+            ClaimHoldService claimHoldService,
+            ObjectMapper objectMapper,
+            ActiveVoucherBodies activeVoucherBodies,
+            VoucherRecommendations voucherRecommendations
+    ) {
         this.voucherService = voucherService;
+        this.claimOutboxService = claimOutboxService;
+        this.bulkClaimService = bulkClaimService;
+        this.claimHoldService = claimHoldService;
+        this.objectMapper = objectMapper;
+        this.activeVoucherBodies = activeVoucherBodies;
+        this.voucherRecommendations = voucherRecommendations;
     }
 
     @GetMapping("/active")
-    public List<VoucherPublicResponse> getActiveVouchers() {
-        return voucherService.getActiveVouchers();
+    public void getActiveVouchers(ServletWebRequest request) throws IOException {
+        activeVoucherBodies.write(voucherService.getActiveVoucherView(), request);
+    }
+
+    @GetMapping("/recommendations")
+    public List<VoucherRecommendationResponse> getRecommendations(
+            @RequestParam("orderAmount") BigDecimal orderAmount,
+            @RequestParam(value = "limit", defaultValue = "3") int limit
+    ) {
+        return voucherRecommendations.recommend(orderAmount, limit);
     }
 
     @PostMapping("/validate")
@@ -35,6 +91,11 @@ public class VoucherController {
         return voucherService.validateVoucher(request);
     }
 
+    @PostMapping("/validate/batch")
+    public List<ValidateVoucherResponse> validateVouchers(@Valid @RequestBody ValidateVoucherBatchRequest request) {
+        return voucherService.validateVouchers(request);
+    }
+
     @PostMapping("/claim")
     public ClaimVoucherResponse claimVoucher(@Valid @RequestBody ClaimVoucherRequest request) {
         try {
@@ -43,7 +104,7 @@ public class VoucherController {
             return new ClaimVoucherResponse(
                     false,
                     false,
-                    request.code().trim().toUpperCase(Locale.ROOT),
+                    VoucherCodes.normalize(request.code()),
                     request.orderId().trim(),
                     request.orderAmount(),
                     null,
@@ -52,5 +113,67 @@ public class VoucherController {
             );
         }
     }
-}
 
+    // Results are written as each chunk settles, so a large batch starts answering before it is done.
+    // The first chunk settles before the 200 is committed, so a failure up front still gets an error
+    // status; a later failure ends the array with a ClaimBatchAbortedResponse instead of cutting it off.
+    @PostMapping("/claim/batch")
+    public ResponseEntity<StreamingResponseBody> claimVoucherBatch(@Valid @RequestBody ClaimVoucherBatchRequest request) {
+        List<ClaimVoucherRequest> claims = request.claims();
+        int firstChunkEnd = Math.min(bulkClaimService.chunkSize(), claims.size());
+        List<ClaimVoucherResponse> firstChunk = bulkClaimService.claimChunk(claims.subList(0, firstChunkEnd));
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+                generator.writeStartArray();
+                firstChunk.forEach(generator::writePOJO);
+                generator.flush();
+                try {
+                    bulkClaimService.claim(claims.subList(firstChunkEnd, claims.size()), responses -> {
+                        responses.forEach(generator::writePOJO);
+                        generator.flush();
+                    });
+                } catch (RuntimeException ex) {
+                    log.warn("Bulk claim of {} items aborted mid-stream", claims.size(), ex);
+                    generator.writePOJO(ClaimBatchAbortedResponse.INSTANCE);
+                }
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    @PostMapping("/claim/stacked")
+    public ClaimStackedVouchersResponse claimStackedVouchers(@Valid @RequestBody ClaimStackedVouchersRequest request) {
+        return voucherService.claimStackedVouchers(request);
+    }
+
+    @PostMapping("/claim/reserve")
+    public ClaimHoldResponse reserveClaim(@Valid @RequestBody ClaimVoucherRequest request) {
+        return claimHoldService.reserve(request);
+    }
+
+    @PostMapping("/claim/confirm")
+    public ClaimVoucherResponse confirmClaim(@Valid @RequestBody ConfirmClaimRequest request) {
+        return claimHoldService.confirm(request);
+    }
+
+    @PostMapping("/claim/async")
+    public ResponseEntity<ClaimTicketResponse> claimVoucherAsync(@Valid @RequestBody ClaimVoucherRequest request) {
+        return ResponseEntity.accepted().body(claimOutboxService.enqueue(request));
+    }
+
+    @GetMapping("/claim/status")
+    public ResponseEntity<?> getClaimStatus(
+            @RequestParam("code") String code,
+            @RequestParam("orderId") String orderId
+    ) {
+        ClaimTicketResponse ticket = claimOutboxService.status(code, orderId);
+        if (ticket == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", "claim ticket not found"));
+        }
+        if (ticket.status() == ClaimOutboxStatus.PENDING) {
+            return ResponseEntity.accepted().body(ticket);
+        }
+        return ResponseEntity.ok(ticket.result());
+    }
+}
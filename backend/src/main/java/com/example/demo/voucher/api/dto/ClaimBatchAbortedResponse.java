@@ -0,0 +1,11 @@
+package com.example.demo.voucher.api.dto;
+
+/**
+ * Last element of a {@code POST /vouchers/claim/batch} array that stopped early: the items before it
+ * are settled, the items after it were not answered and should be resent.
+ */
+public record ClaimBatchAbortedResponse(String error) {
+
+    public static final ClaimBatchAbortedResponse INSTANCE =
+            new ClaimBatchAbortedResponse("batch aborted; resend the items after this point");
+}
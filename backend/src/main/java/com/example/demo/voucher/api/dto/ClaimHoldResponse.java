@@ -0,0 +1,17 @@
+package com.example.demo.voucher.api.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public record ClaimHoldResponse(
+        boolean success,
+        boolean idempotent,
+        String code,
+        String orderId,
+        BigDecimal orderAmount,
+        BigDecimal discountApplied,
+        Integer quotaRemaining,
+        LocalDateTime expiresAt,
+        String message
+) {
+}
@@ -0,0 +1,28 @@
+package com.example.demo.voucher.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import java.math.BigDecimal;
+import java.util.List;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+public record ClaimStackedVouchersRequest(
+        @NotEmpty
+        @Size(max = 10)
+        List<@NotBlank @Size(max = 64) String> codes,
+
+        @NotBlank
+        @Size(max = 64)
+        String orderId,
+
+        @NotNull
+        @DecimalMin("0.00")
+        @JsonAlias("subtotal")
+        BigDecimal orderAmount,
+
+        Long buyerId
+) {
+}
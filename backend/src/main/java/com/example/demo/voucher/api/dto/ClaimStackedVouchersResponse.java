@@ -0,0 +1,15 @@
+package com.example.demo.voucher.api.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public record ClaimStackedVouchersResponse(
+        boolean success,
+        boolean idempotent,
+        String orderId,
+        BigDecimal orderAmount,
+        BigDecimal totalDiscount,
+        List<ClaimVoucherResponse> claims,
+        String message
+) {
+}
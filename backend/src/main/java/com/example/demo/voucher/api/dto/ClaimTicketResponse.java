@@ -0,0 +1,11 @@
+package com.example.demo.voucher.api.dto;
+
+import com.example.demo.voucher.domain.ClaimOutboxStatus;
+
+public record ClaimTicketResponse(
+        String code,
+        String orderId,
+        ClaimOutboxStatus status,
+        ClaimVoucherResponse result
+) {
+}
@@ -0,0 +1,14 @@
+package com.example.demo.voucher.api.dto;
+
+import java.util.List;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+public record ClaimVoucherBatchRequest(
+        @NotEmpty
+        @Size(max = 50000)
+        List<@Valid @NotNull ClaimVoucherRequest> claims
+) {
+}
@@ -0,0 +1,15 @@
+package com.example.demo.voucher.api.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+
+public record ConfirmClaimRequest(
+        @NotBlank
+        @Size(max = 64)
+        String code,
+
+        @NotBlank
+        @Size(max = 64)
+        String orderId
+) {
+}
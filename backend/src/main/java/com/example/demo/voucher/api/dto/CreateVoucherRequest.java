@@ -4,6 +4,7 @@ import com.example.demo.voucher.domain.DiscountType;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -32,7 +33,14 @@ public record CreateVoucherRequest(
 
         @NotNull
         @Min(1)
-        Integer quotaTotal
+        Integer quotaTotal,
+
+        @Min(1)
+        @Max(64)
+        Integer quotaStripes,
+
+        @Min(1)
+        Integer maxClaimsPerBuyer
 ) {
 }
 
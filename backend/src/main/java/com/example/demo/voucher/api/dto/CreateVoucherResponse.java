@@ -15,7 +15,8 @@ public record CreateVoucherResponse(
         BigDecimal minSpend,
         Integer quotaTotal,
         Integer quotaRemaining,
-        VoucherStatus status
+        VoucherStatus status,
+        Integer maxClaimsPerBuyer
 ) {
 }
 
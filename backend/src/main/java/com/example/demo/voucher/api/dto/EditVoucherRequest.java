@@ -26,6 +26,12 @@ public record EditVoucherRequest(
 
         @NotNull(message = "quotaTotal cannot be null")
         @Min(value = 1, message = "quotaTotal must be >= 1")
-        Integer quotaTotal
+        Integer quotaTotal,
+
+        @Min(value = 1, message = "maxClaimsPerBuyer must be >= 1")
+        Integer maxClaimsPerBuyer,
+
+        // maxClaimsPerBuyer left out keeps the current limit; this removes it.
+        boolean clearMaxClaimsPerBuyer
 ) {
 }
@@ -0,0 +1,16 @@
+package com.example.demo.voucher.api.dto;
+
+import com.example.demo.voucher.domain.DiscountType;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public record VoucherRecommendationResponse(
+        String code,
+        DiscountType discountType,
+        BigDecimal discountValue,
+        BigDecimal minSpend,
+        BigDecimal discountAmount,
+        Integer quotaRemaining,
+        LocalDateTime endAt
+) {
+}
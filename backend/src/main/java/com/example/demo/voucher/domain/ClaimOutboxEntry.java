@@ -0,0 +1,77 @@
+package com.example.demo.voucher.domain;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.CreationTimestamp;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+@Entity
+@Table(
+        name = "voucher_claim_outbox",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_claim_outbox_code_order", columnNames = {"code", "order_id"})
+        },
+        indexes = {
+                @Index(name = "idx_claim_outbox_status_code", columnList = "status, code, id"),
+                @Index(name = "idx_claim_outbox_status_processed_at", columnList = "status, processed_at")
+        }
+)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ClaimOutboxEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 64)
+    private String code;
+
+    @Column(name = "order_id", nullable = false, length = 64)
+    private String orderId;
+
+    @Column(name = "buyer_id")
+    private Long buyerId;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal orderAmount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private ClaimOutboxStatus status;
+
+    private Boolean success;
+
+    private Boolean idempotent;
+
+    @Column(precision = 19, scale = 2)
+    private BigDecimal discountApplied;
+
+    private Integer quotaRemaining;
+
+    @Column(length = 255)
+    private String message;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private Instant createdAt;
+
+    private Instant processedAt;
+}
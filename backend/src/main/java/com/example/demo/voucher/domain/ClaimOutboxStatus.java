@@ -0,0 +1,6 @@
+package com.example.demo.voucher.domain;
+
+public enum ClaimOutboxStatus {
+    PENDING,
+    DONE
+}
@@ -0,0 +1,39 @@
+package com.example.demo.voucher.domain;
+
+import java.math.BigDecimal;
+
+/**
+ * Amounts as {@code long} counts of minor units (hundredths), the scale of every money column. Only
+ * non-negative amounts with at most two decimal places and under 10^16 convert; anything else comes
+ * back as {@link #NOT_EXACT} and stays a {@link BigDecimal}.
+ */
+public final class Money {
+
+    public static final long NOT_EXACT = Long.MIN_VALUE;
+
+    private static final int MAX_DIGITS = 18;
+
+    private Money() {
+    }
+
+    // The range is checked on the amount as given, so an amount that cannot convert allocates nothing.
+    // One that can costs the moved copy, which HotSpot usually removes once this is inlined; only an
+    // amount written with more than two places, like 1.500, is stripped of its trailing zeros.
+    public static long toMinor(BigDecimal amount) {
+        if (amount.signum() < 0 || amount.precision() - amount.scale() > MAX_DIGITS - 2) {
+            return NOT_EXACT;
+        }
+        BigDecimal minor = amount.movePointRight(2);
+        if (minor.scale() > 0) {
+            minor = minor.stripTrailingZeros();
+            if (minor.scale() > 0) {
+                return NOT_EXACT;
+            }
+        }
+        return minor.longValue();
+    }
+
+    public static BigDecimal toDecimal(long minor) {
+        return BigDecimal.valueOf(minor, 2);
+    }
+}
@@ -17,6 +17,7 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 import jakarta.persistence.UniqueConstraint;
 import jakarta.persistence.Version;
@@ -26,6 +27,11 @@ import jakarta.persistence.Version;
         name = "vouchers",
         uniqueConstraints = {
                 @UniqueConstraint(name = "uk_vouchers_code", columnNames = {"code"})
+        },
+        indexes = {
+                @Index(name = "idx_vouchers_status_end_at", columnList = "status, end_at, start_at"),
+                @Index(name = "idx_vouchers_status_created_at_id", columnList = "status, created_at, id"),
+                @Index(name = "idx_vouchers_created_at_id", columnList = "created_at, id")
         }
 )
 @Getter
@@ -64,6 +70,13 @@ public class Voucher {
     @Column(nullable = false)
     private Integer quotaRemaining;
 
+    @Builder.Default
+    @Column(nullable = false)
+    private Integer quotaStripes = 1;
+
+    @Column(name = "max_claims_per_buyer")
+    private Integer maxClaimsPerBuyer;
+
     @Enumerated(EnumType.STRING)
     @Column(nullable = false, length = 16)
     private VoucherStatus status;
@@ -0,0 +1,45 @@
+package com.example.demo.voucher.domain;
+
+import java.io.Serializable;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+
+/** Redemptions and live holds a buyer has against a voucher with a per-buyer limit. */
+@Entity
+@Table(name = "voucher_buyer_claims")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class VoucherBuyerClaims {
+
+    @EmbeddedId
+    private Key id;
+
+    @Column(nullable = false)
+    private Integer claims;
+
+    @Embeddable
+    @Getter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+
+        @Column(name = "voucher_id", nullable = false)
+        private Long voucherId;
+
+        @Column(name = "buyer_id", nullable = false)
+        private Long buyerId;
+    }
+}
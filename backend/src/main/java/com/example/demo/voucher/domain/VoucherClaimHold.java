@@ -0,0 +1,67 @@
+package com.example.demo.voucher.domain;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.CreationTimestamp;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+@Entity
+@Table(
+        name = "voucher_claim_holds",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_claim_holds_voucher_order", columnNames = {"voucher_id", "order_id"})
+        },
+        indexes = {
+                @Index(name = "idx_claim_holds_expires_at", columnList = "expires_at, voucher_id")
+        }
+)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class VoucherClaimHold {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "voucher_id", nullable = false)
+    private Voucher voucher;
+
+    @Column(name = "order_id", nullable = false, length = 64)
+    private String orderId;
+
+    @Column(name = "buyer_id")
+    private Long buyerId;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal orderAmount;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal discountApplied;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private Instant createdAt;
+}
@@ -30,7 +30,10 @@ import jakarta.persistence.UniqueConstraint;
                 )
         },
         indexes = {
-                @Index(name = "idx_redemptions_order_id", columnList = "order_id")
+                @Index(name = "idx_redemptions_order_id", columnList = "order_id"),
+                @Index(name = "idx_redemptions_lease_id", columnList = "lease_id"),
+                @Index(name = "idx_redemptions_voucher_claimed_at", columnList = "voucher_id, claimed_at"),
+                @Index(name = "idx_redemptions_claimed_at", columnList = "claimed_at")
         }
 )
 @Getter
@@ -54,6 +57,9 @@ public class VoucherRedemption {
     @Column(name = "buyer_id")
     private Long buyerId;
 
+    @Column(name = "lease_id")
+    private Long leaseId;
+
     @Column(nullable = false, precision = 19, scale = 2)
     private BigDecimal orderAmount;
 
@@ -0,0 +1,54 @@
+package com.example.demo.voucher.repository;
+
+import com.example.demo.voucher.domain.ClaimOutboxEntry;
+import com.example.demo.voucher.domain.ClaimOutboxStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface ClaimOutboxRepository extends JpaRepository<ClaimOutboxEntry, Long> {
+
+    Optional<ClaimOutboxEntry> findByCodeAndOrderId(String code, String orderId);
+
+    @Transactional
+    @Query("SELECT DISTINCT e.code FROM ClaimOutboxEntry e WHERE e.status = :status ORDER BY e.code")
+    List<String> findCodesByStatus(@Param("status") ClaimOutboxStatus status, Limit limit);
+
+    // -2 is Hibernate's SKIP LOCKED timeout, so concurrent workers take disjoint rows.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT e FROM ClaimOutboxEntry e WHERE e.code = :code AND e.status = :status ORDER BY e.id")
+    List<ClaimOutboxEntry> findByCodeAndStatusForUpdate(
+            @Param("code") String code,
+            @Param("status") ClaimOutboxStatus status,
+            Limit limit
+    );
+
+    @Modifying
+    @Query("DELETE FROM ClaimOutboxEntry e WHERE e.status = :status AND e.processedAt < :cutoff")
+    int deleteByStatusAndProcessedAtBefore(@Param("status") ClaimOutboxStatus status, @Param("cutoff") Instant cutoff);
+
+    @Modifying
+    @Query(value = """
+            INSERT INTO voucher_claim_outbox (code, order_id, buyer_id, order_amount, status)
+            VALUES (:code, :orderId, :buyerId, :orderAmount, 'PENDING')
+            ON DUPLICATE KEY UPDATE id = id
+            """, nativeQuery = true)
+    int insertIfAbsent(
+            @Param("code") String code,
+            @Param("orderId") String orderId,
+            @Param("buyerId") Long buyerId,
+            @Param("orderAmount") BigDecimal orderAmount
+    );
+}
@@ -0,0 +1,67 @@
+package com.example.demo.voucher.repository;
+
+import com.example.demo.voucher.domain.VoucherBuyerClaims;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface VoucherBuyerClaimsRepository extends JpaRepository<VoucherBuyerClaims, VoucherBuyerClaims.Key> {
+
+    List<VoucherBuyerClaims> findByIdVoucherIdInAndIdBuyerId(Collection<Long> voucherIds, Long buyerId);
+
+    @Modifying
+    @Query(value = """
+            UPDATE voucher_buyer_claims
+            SET claims = claims + 1
+            WHERE voucher_id = :voucherId
+              AND buyer_id = :buyerId
+              AND claims < :limit
+            """, nativeQuery = true)
+    int incrementIfBelow(
+            @Param("voucherId") Long voucherId,
+            @Param("buyerId") Long buyerId,
+            @Param("limit") int limit
+    );
+
+    @Modifying
+    @Query(value = """
+            INSERT INTO voucher_buyer_claims (voucher_id, buyer_id, claims)
+            VALUES (:voucherId, :buyerId, 1)
+            ON DUPLICATE KEY UPDATE claims = claims
+            """, nativeQuery = true)
+    int insertFirstClaim(@Param("voucherId") Long voucherId, @Param("buyerId") Long buyerId);
+
+    @Modifying
+    @Query(value = """
+            UPDATE voucher_buyer_claims
+            SET claims = GREATEST(claims - :count, 0)
+            WHERE voucher_id = :voucherId
+              AND buyer_id = :buyerId
+            """, nativeQuery = true)
+    int release(
+            @Param("voucherId") Long voucherId,
+            @Param("buyerId") Long buyerId,
+            @Param("count") int count
+    );
+
+    /** Rebuilds a voucher's counters from its redemptions and live holds. */
+    @Modifying
+    @Query(value = """
+            INSERT INTO voucher_buyer_claims (voucher_id, buyer_id, claims)
+            SELECT :voucherId, claimed.buyer_id, COUNT(*)
+            FROM (
+                SELECT buyer_id FROM voucher_redemptions WHERE voucher_id = :voucherId AND buyer_id IS NOT NULL
+                UNION ALL
+                SELECT buyer_id FROM voucher_claim_holds WHERE voucher_id = :voucherId AND buyer_id IS NOT NULL
+            ) claimed
+            GROUP BY claimed.buyer_id
+            """, nativeQuery = true)
+    int backfill(@Param("voucherId") Long voucherId);
+
+    @Modifying
+    @Query("DELETE FROM VoucherBuyerClaims c WHERE c.id.voucherId = :voucherId")
+    int deleteByVoucherId(@Param("voucherId") Long voucherId);
+}
@@ -0,0 +1,51 @@
+package com.example.demo.voucher.repository;
+
+import com.example.demo.voucher.domain.VoucherClaimHold;
+import jakarta.persistence.LockModeType;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface VoucherClaimHoldRepository extends JpaRepository<VoucherClaimHold, Long> {
+
+    Optional<VoucherClaimHold> findByVoucherIdAndOrderId(Long voucherId, String orderId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT h FROM VoucherClaimHold h WHERE h.voucher.id = :voucherId AND h.orderId = :orderId")
+    Optional<VoucherClaimHold> findByVoucherIdAndOrderIdForUpdate(
+            @Param("voucherId") Long voucherId,
+            @Param("orderId") String orderId
+    );
+
+    // A range scan over idx_claim_holds_expires_at, which also carries voucher_id. Read on the primary:
+    // the sweep loops until it comes back short.
+    @Transactional
+    @Query("SELECT DISTINCT h.voucher.id FROM VoucherClaimHold h WHERE h.expiresAt <= :now")
+    List<Long> findVoucherIdsExpiredBy(@Param("now") LocalDateTime now, Limit limit);
+
+    @Query("""
+            SELECT h.buyerId AS buyerId, COUNT(h) AS holds
+            FROM VoucherClaimHold h
+            WHERE h.voucher.id = :voucherId AND h.expiresAt <= :now AND h.buyerId IS NOT NULL
+            GROUP BY h.buyerId
+            """)
+    List<BuyerHolds> countExpiredByBuyer(@Param("voucherId") Long voucherId, @Param("now") LocalDateTime now);
+
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM VoucherClaimHold h WHERE h.voucher.id = :voucherId AND h.expiresAt <= :now")
+    int deleteExpired(@Param("voucherId") Long voucherId, @Param("now") LocalDateTime now);
+
+    interface BuyerHolds {
+
+        Long getBuyerId();
+
+        Long getHolds();
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.demo.voucher.repository;
+
+import com.example.demo.voucher.domain.VoucherQuotaBucket;
+import jakarta.persistence.LockModeType;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface VoucherQuotaBucketRepository extends JpaRepository<VoucherQuotaBucket, Long> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM VoucherQuotaBucket b WHERE b.voucher.id = :voucherId ORDER BY b.bucketNo")
+    List<VoucherQuotaBucket> findByVoucherIdForUpdate(@Param("voucherId") Long voucherId);
+
+    @Query("SELECT COALESCE(SUM(b.quotaRemaining), 0) FROM VoucherQuotaBucket b WHERE b.voucher.id = :voucherId")
+    long sumQuotaRemaining(@Param("voucherId") Long voucherId);
+
+    @Query("""
+            SELECT b.voucher.id AS voucherId, SUM(b.quotaRemaining) AS quotaRemaining
+            FROM VoucherQuotaBucket b
+            WHERE b.voucher.id IN :voucherIds
+            GROUP BY b.voucher.id
+            """)
+    List<QuotaSum> sumQuotaRemainingByVoucherIds(@Param("voucherIds") Collection<Long> voucherIds);
+
+    @Modifying(flushAutomatically = true)
+    @Query("""
+            UPDATE VoucherQuotaBucket b
+            SET b.quotaRemaining = b.quotaRemaining - 1
+            WHERE b.voucher.id = :voucherId
+              AND b.bucketNo = :bucketNo
+              AND b.quotaRemaining > 0
+            """)
+    int decrementIfAvailable(
+            @Param("voucherId") Long voucherId,
+            @Param("bucketNo") Integer bucketNo
+    );
+
+    @Modifying(flushAutomatically = true)
+    @Query("""
+            UPDATE VoucherQuotaBucket b
+            SET b.quotaRemaining = b.quotaRemaining + 1
+            WHERE b.voucher.id = :voucherId
+              AND b.bucketNo = :bucketNo
+            """)
+    int increment(
+            @Param("voucherId") Long voucherId,
+            @Param("bucketNo") Integer bucketNo
+    );
+
+    interface QuotaSum {
+
+        Long getVoucherId();
+
+        Long getQuotaRemaining();
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.demo.voucher.repository;
+
+import com.example.demo.voucher.domain.VoucherQuotaLease;
+import jakarta.persistence.LockModeType;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface VoucherQuotaLeaseRepository extends JpaRepository<VoucherQuotaLease, Long> {
+
+    @Transactional
+    @Query("SELECT l.id FROM VoucherQuotaLease l WHERE l.expiresAt < :cutoff ORDER BY l.expiresAt")
+    List<Long> findIdsExpiredBefore(@Param("cutoff") LocalDateTime cutoff);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT l FROM VoucherQuotaLease l WHERE l.id = :leaseId")
+    Optional<VoucherQuotaLease> findByIdForUpdate(@Param("leaseId") Long leaseId);
+
+    /** Records the units the owning node still holds; a no-op once the lease was returned. */
+    @Transactional
+    @Modifying
+    @Query("UPDATE VoucherQuotaLease l SET l.unitsLeft = :unitsLeft WHERE l.id = :leaseId")
+    int updateUnitsLeft(@Param("leaseId") Long leaseId, @Param("unitsLeft") int unitsLeft);
+
+    @Query("""
+            SELECT l.voucher.id AS voucherId, SUM(l.unitsLeft) AS units
+            FROM VoucherQuotaLease l
+            WHERE l.voucher.id IN :voucherIds
+            GROUP BY l.voucher.id
+            """)
+    List<VoucherUnits> sumUnitsLeftByVoucherIds(@Param("voucherIds") Collection<Long> voucherIds);
+
+    interface VoucherUnits {
+
+        Long getVoucherId();
+
+        Long getUnits();
+    }
+}
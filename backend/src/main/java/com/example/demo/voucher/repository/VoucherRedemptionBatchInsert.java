@@ -0,0 +1,13 @@
+package com.example.demo.voucher.repository;
+
+import com.example.demo.voucher.domain.VoucherRedemption;
+import java.util.List;
+
+public interface VoucherRedemptionBatchInsert {
+
+    /**
+     * Inserts the redemptions as one JDBC batch. Identity keys keep Hibernate from batching these
+     * inserts itself; the entities are not attached to the persistence context.
+     */
+    void insertAll(List<VoucherRedemption> redemptions);
+}
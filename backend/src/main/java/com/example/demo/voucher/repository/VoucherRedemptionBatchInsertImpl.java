@@ -0,0 +1,32 @@
+package com.example.demo.voucher.repository;
+
+import com.example.demo.voucher.domain.VoucherRedemption;
+import java.sql.Types;
+import java.util.List;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+class VoucherRedemptionBatchInsertImpl implements VoucherRedemptionBatchInsert {
+
+    private static final String INSERT_SQL = """
+            INSERT INTO voucher_redemptions (voucher_id, order_id, buyer_id, lease_id, order_amount, discount_applied)
+            VALUES (?, ?, ?, ?, ?, ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    VoucherRedemptionBatchInsertImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void insertAll(List<VoucherRedemption> redemptions) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, redemptions, redemptions.size(), (ps, redemption) -> {
+            ps.setLong(1, redemption.getVoucher().getId());
+            ps.setString(2, redemption.getOrderId());
+            ps.setObject(3, redemption.getBuyerId(), Types.BIGINT);
+            ps.setObject(4, redemption.getLeaseId(), Types.BIGINT);
+            ps.setBigDecimal(5, redemption.getOrderAmount());
+            ps.setBigDecimal(6, redemption.getDiscountApplied());
+        });
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.demo.voucher.repository;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.function.Consumer;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface VoucherRedemptionExport {
+
+    /**
+     * Hands every redemption matching {@code filter} to {@code rows}, oldest claim first, straight off a
+     * streaming result set: one row is in memory at a time, and no entity is built.
+     */
+    @Transactional(readOnly = true)
+    void exportRedemptions(Filter filter, Consumer<Row> rows);
+
+    /** Any part may be null; {@code from} is inclusive and {@code to} exclusive. */
+    record Filter(String code, Instant from, Instant to) {
+    }
+
+    record Row(
+            Long id,
+            String voucherCode,
+            String orderId,
+            Long buyerId,
+            BigDecimal orderAmount,
+            BigDecimal discountApplied,
+            Instant claimedAt
+    ) {
+    }
+}
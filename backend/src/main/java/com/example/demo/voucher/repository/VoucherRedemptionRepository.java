@@ -1,11 +1,77 @@
 package com.example.demo.voucher.repository;
 
 import com.example.demo.voucher.domain.VoucherRedemption;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
-public interface VoucherRedemptionRepository extends JpaRepository<VoucherRedemption, Long> {
+public interface VoucherRedemptionRepository extends JpaRepository<VoucherRedemption, Long>, VoucherRedemptionBatchInsert,
+        VoucherRedemptionExport {
 
     Optional<VoucherRedemption> findByVoucherIdAndOrderId(Long voucherId, String orderId);
-}
 
+    // Answers claim retries, so it reads the primary even with a read replica configured.
+    @Transactional
+    Optional<VoucherRedemption> findByVoucherCodeAndOrderId(String code, String orderId);
+
+    List<VoucherRedemption> findByVoucherIdAndOrderIdIn(Long voucherId, Collection<String> orderIds);
+
+    List<VoucherRedemption> findByOrderIdAndVoucherIdIn(String orderId, Collection<Long> voucherIds);
+
+    long countByLeaseId(Long leaseId);
+
+    /**
+     * Inserts the redemption unless one exists for the order; returns 0 for the duplicate. Only the
+     * unique key is tolerated, unlike INSERT IGNORE, and the 0 relies on useAffectedRows=true.
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO voucher_redemptions (voucher_id, order_id, buyer_id, order_amount, discount_applied, claimed_at)
+            VALUES (:voucherId, :orderId, :buyerId, :orderAmount, :discountApplied, :claimedAt)
+            ON DUPLICATE KEY UPDATE id = id
+            """, nativeQuery = true)
+    int insertIfAbsent(
+            @Param("voucherId") Long voucherId,
+            @Param("orderId") String orderId,
+            @Param("buyerId") Long buyerId,
+            @Param("orderAmount") BigDecimal orderAmount,
+            @Param("discountApplied") BigDecimal discountApplied,
+            @Param("claimedAt") Instant claimedAt
+    );
+
+    /**
+     * Inserts a leased claim's redemption from its lease row, share-locking that row: claims on one
+     * lease run side by side, while returning the lease locks it exclusively and waits them out.
+     * Returns 0 for a duplicate order and for a lease that was already returned or swept.
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO voucher_redemptions (voucher_id, order_id, buyer_id, lease_id, order_amount, discount_applied, claimed_at)
+            SELECT l.voucher_id, :orderId, :buyerId, l.id, :orderAmount, :discountApplied, :claimedAt
+            FROM voucher_quota_leases l
+            WHERE l.id = :leaseId
+              AND l.voucher_id = :voucherId
+            FOR SHARE
+            ON DUPLICATE KEY UPDATE voucher_redemptions.id = voucher_redemptions.id
+            """, nativeQuery = true)
+    int insertFromLease(
+            @Param("leaseId") Long leaseId,
+            @Param("voucherId") Long voucherId,
+            @Param("orderId") String orderId,
+            @Param("buyerId") Long buyerId,
+            @Param("orderAmount") BigDecimal orderAmount,
+            @Param("discountApplied") BigDecimal discountApplied,
+            @Param("claimedAt") Instant claimedAt
+    );
+
+    @Modifying
+    @Query("DELETE FROM VoucherRedemption r WHERE r.voucher.id = :voucherId AND r.orderId = :orderId")
+    int deleteByVoucherIdAndOrderId(@Param("voucherId") Long voucherId, @Param("orderId") String orderId);
+}
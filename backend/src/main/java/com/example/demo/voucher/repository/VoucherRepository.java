@@ -3,42 +3,139 @@ package com.example.demo.voucher.repository;
 import com.example.demo.voucher.domain.Voucher;
 import com.example.demo.voucher.domain.VoucherStatus;
 import jakarta.persistence.LockModeType;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 public interface VoucherRepository extends JpaRepository<Voucher, Long> {
 
     Optional<Voucher> findByCode(String code);
 
+    List<Voucher> findByCodeIn(Collection<String> codes);
+
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("SELECT v FROM Voucher v WHERE v.code = :code")
     Optional<Voucher> findByCodeForUpdate(@Param("code") String code);
 
-    List<Voucher> findAllByOrderByCreatedAtDesc();
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("SELECT v FROM Voucher v WHERE v.code = :code")
+    Optional<Voucher> findByCodeForShare(@Param("code") String code);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT v FROM Voucher v WHERE v.id = :id")
+    Optional<Voucher> findByIdForUpdate(@Param("id") Long id);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT v FROM Voucher v WHERE v.id IN :ids ORDER BY v.id")
+    List<Voucher> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT v.id AS id, v.code AS code, v.quotaStripes AS quotaStripes FROM Voucher v WHERE v.code IN :codes")
+    List<VoucherKey> findKeysByCodeIn(@Param("codes") Collection<String> codes);
+
+    @Query("SELECT v.quotaStripes FROM Voucher v WHERE v.code = :code")
+    Optional<Integer> findQuotaStripesByCode(@Param("code") String code);
+
+    // Admin listing pages, newest first. Each "PageAfter" query continues below the (createdAt, id) of
+    // the previous page's last voucher, so a deep page costs the same as the first.
+
+    List<Voucher> findAllByOrderByCreatedAtDescIdDesc(Limit limit);
+
+    @Query("""
+            SELECT v FROM Voucher v
+            WHERE v.createdAt < :createdAt OR (v.createdAt = :createdAt AND v.id < :id)
+            ORDER BY v.createdAt DESC, v.id DESC
+            """)
+    List<Voucher> findPageAfter(@Param("createdAt") Instant createdAt, @Param("id") Long id, Limit limit);
+
+    List<Voucher> findByStatusOrderByCreatedAtDescIdDesc(VoucherStatus status, Limit limit);
+
+    @Query("""
+            SELECT v FROM Voucher v
+            WHERE v.status = :status
+              AND (v.createdAt < :createdAt OR (v.createdAt = :createdAt AND v.id < :id))
+            ORDER BY v.createdAt DESC, v.id DESC
+            """)
+    List<Voucher> findByStatusPageAfter(
+            @Param("status") VoucherStatus status,
+            @Param("createdAt") Instant createdAt,
+            @Param("id") Long id,
+            Limit limit
+    );
 
-    List<Voucher> findByStatusOrderByCreatedAtDesc(VoucherStatus status);
+    /** Vouchers marked expired, or past their end but not yet swept by the expiry job. */
+    @Query("""
+            SELECT v FROM Voucher v
+            WHERE v.status = :expiredStatus OR v.endAt < :now
+            ORDER BY v.createdAt DESC, v.id DESC
+            """)
+    List<Voucher> findExpired(@Param("expiredStatus") VoucherStatus expiredStatus, @Param("now") LocalDateTime now, Limit limit);
 
-    List<Voucher> findByStatusAndStartAtLessThanEqualAndEndAtGreaterThanEqualAndQuotaRemainingGreaterThan(
-            VoucherStatus status,
-            LocalDateTime startAt,
-            LocalDateTime endAt,
-            Integer quotaRemaining
+    @Query("""
+            SELECT v FROM Voucher v
+            WHERE (v.status = :expiredStatus OR v.endAt < :now)
+              AND (v.createdAt < :createdAt OR (v.createdAt = :createdAt AND v.id < :id))
+            ORDER BY v.createdAt DESC, v.id DESC
+            """)
+    List<Voucher> findExpiredPageAfter(
+            @Param("expiredStatus") VoucherStatus expiredStatus,
+            @Param("now") LocalDateTime now,
+            @Param("createdAt") Instant createdAt,
+            @Param("id") Long id,
+            Limit limit
     );
 
+    List<Voucher> findByStatusAndEndAtGreaterThanEqual(VoucherStatus status, LocalDateTime endAt);
+
+    // A projection, so the stored row is read even while the voucher sits in the persistence context.
+    @Query("SELECT v.status AS status, v.startAt AS startAt, v.endAt AS endAt FROM Voucher v WHERE v.id = :id")
+    Optional<VoucherState> findStateById(@Param("id") Long id);
+
+    @Query("SELECT v.id AS id, v.quotaRemaining AS quotaRemaining, v.quotaStripes AS quotaStripes FROM Voucher v WHERE v.id IN :ids")
+    List<VoucherQuota> findQuotaByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Transactional
+    @Query("""
+            SELECT v.id AS id, v.code AS code, v.startAt AS startAt, v.endAt AS endAt
+            FROM Voucher v
+            WHERE v.status <> :expiredStatus
+            """)
+    List<VoucherWindow> findUnexpiredWindows(@Param("expiredStatus") VoucherStatus expiredStatus);
+
+    // Read on the primary, like the other lookups that drive background writes: a lagging replica would
+    // keep handing back ids that are already expired.
+    @Transactional
+    @Query("""
+            SELECT v.id FROM Voucher v
+            WHERE v.status <> :expiredStatus
+              AND v.endAt < :now
+            """)
+    List<Long> findIdsToExpire(
+            @Param("expiredStatus") VoucherStatus expiredStatus,
+            @Param("now") LocalDateTime now,
+            Limit limit
+    );
+
+    /** Marks one chunk of vouchers expired in its own short transaction. */
+    @Transactional
     @Modifying(clearAutomatically = true, flushAutomatically = true)
     @Query("""
             UPDATE Voucher v
             SET v.status = :expiredStatus
-            WHERE v.endAt < :now
+            WHERE v.id IN :ids
+              AND v.endAt < :now
               AND v.status <> :expiredStatus
             """)
     int markExpiredVouchers(
+            @Param("ids") Collection<Long> ids,
             @Param("expiredStatus") VoucherStatus expiredStatus,
             @Param("now") LocalDateTime now
     );
@@ -46,7 +143,8 @@ public interface VoucherRepository extends JpaRepository<Voucher, Long> {
     @Modifying(clearAutomatically = true, flushAutomatically = true)
     @Query("""
             UPDATE Voucher v
-            SET v.quotaRemaining = v.quotaRemaining - 1
+            SET v.quotaRemaining = v.quotaRemaining - 1,
+                v.version = v.version + 1
             WHERE v.id = :voucherId
               AND v.status = :status
               AND v.startAt <= :now
@@ -58,5 +156,51 @@ public interface VoucherRepository extends JpaRepository<Voucher, Long> {
             @Param("status") VoucherStatus status,
             @Param("now") LocalDateTime now
     );
-}
 
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("""
+            UPDATE Voucher v
+            SET v.quotaRemaining = v.quotaRemaining + 1,
+                v.version = v.version + 1
+            WHERE v.id = :voucherId
+            """)
+    int incrementQuota(@Param("voucherId") Long voucherId);
+
+    interface VoucherQuota {
+
+        Long getId();
+
+        Integer getQuotaRemaining();
+
+        Integer getQuotaStripes();
+    }
+
+    interface VoucherState {
+
+        VoucherStatus getStatus();
+
+        LocalDateTime getStartAt();
+
+        LocalDateTime getEndAt();
+    }
+
+    interface VoucherWindow {
+
+        Long getId();
+
+        String getCode();
+
+        LocalDateTime getStartAt();
+
+        LocalDateTime getEndAt();
+    }
+
+    interface VoucherKey {
+
+        Long getId();
+
+        String getCode();
+
+        Integer getQuotaStripes();
+    }
+}
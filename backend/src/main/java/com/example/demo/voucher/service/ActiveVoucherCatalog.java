@@ -0,0 +1,207 @@
+package com.example.demo.voucher.service;
+
+import com.example.demo.voucher.api.dto.VoucherPublicResponse;
+import com.example.demo.voucher.domain.Voucher;
+import com.example.demo.voucher.domain.VoucherStatus;
+import com.example.demo.voucher.repository.VoucherRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Process-wide snapshot of the public voucher catalog, served from memory by
+ * {@code GET /vouchers/active}. Each refresh builds a new immutable snapshot and swaps it in, so
+ * readers never lock or see a half-built catalog.
+ *
+ * <p>Each refresh reads the active vouchers that have not ended, one range of the
+ * {@code (status, end_at)} index, and takes remaining quota from the same rows, overlaid with buckets
+ * and outstanding leases. Quota changes with every claim, so every catalog row has to be read each
+ * refresh anyway; pulling only changed definitions would save no reads and would need an index on
+ * {@code updated_at}, which every claim writes. Vouchers are kept from before their start until their
+ * end and filtered by the clock on each read, so a sale opens and closes on time between refreshes.
+ *
+ * <p>A read never sees a snapshot as old as {@code max-staleness}; a stale reader refreshes inline, and
+ * {@code 0s} refreshes on every read.
+ */
+@Component
+public class ActiveVoucherCatalog {
+
+    private final VoucherRepository voucherRepository;
+    private final StripedQuotaService stripedQuotaService;
+    private final QuotaLeaseService quotaLeaseService;
+    private final long maxStalenessMillis;
+    private final Clock clock;
+    private final Timer refreshes;
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(Snapshot.EMPTY);
+    private final AtomicReference<CachedView> currentView = new AtomicReference<>(CachedView.EMPTY);
+    private final Object refreshLock = new Object();
+
+    public ActiveVoucherCatalog(
+            VoucherRepository voucherRepository,
+            StripedQuotaService stripedQuotaService,
+            QuotaLeaseService quotaLeaseService,
+            MeterRegistry meterRegistry,
+            @Value("${app.voucher.catalog.max-staleness:1s}") Duration maxStaleness,
+            Clock clock
+    ) {
+        this.voucherRepository = voucherRepository;
+        this.stripedQuotaService = stripedQuotaService;
+        this.quotaLeaseService = quotaLeaseService;
+        this.maxStalenessMillis = maxStaleness.toMillis();
+        this.clock = clock;
+        this.refreshes = Timer.builder("voucher.catalog.refresh")
+                .description("Time taken to rebuild the active catalog")
+                .register(meterRegistry);
+        Gauge.builder("voucher.catalog.lag", this, ActiveVoucherCatalog::lagMillis)
+                .description("Age of the active catalog snapshot being served")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    public List<VoucherPublicResponse> activeVouchers() {
+        return view().vouchers();
+    }
+
+    /**
+     * The vouchers on sale now, with a version that changes only when the list does. The list is
+     * rebuilt when a refresh swaps the snapshot or a voucher in it starts or ends. A new view is
+     * published with a compare-and-set on the one it replaces, so two readers racing to rebuild never
+     * hand out two different lists under one version; the loser returns the winner's view.
+     */
+    public View view() {
+        Snapshot current = current();
+        LocalDateTime now = LocalDateTime.now(clock);
+        while (true) {
+            CachedView cached = currentView.get();
+            if (cached.snapshot() == current && now.isBefore(cached.validUntil())) {
+                return cached.view();
+            }
+            List<VoucherPublicResponse> active = new ArrayList<>(current.entries().size());
+            LocalDateTime validUntil = LocalDateTime.MAX;
+            for (Entry entry : current.entries()) {
+                if (now.isBefore(entry.startAt())) {
+                    validUntil = earliest(validUntil, entry.startAt());
+                } else if (!now.isAfter(entry.endAt())) {
+                    active.add(entry.response());
+                    validUntil = earliest(validUntil, entry.endAt().plusNanos(1));
+                }
+            }
+            View previous = cached.view();
+            View next = previous.vouchers().equals(active) ? previous : new View(previous.version() + 1, List.copyOf(active));
+            if (currentView.compareAndSet(cached, new CachedView(current, validUntil, next))) {
+                return next;
+            }
+        }
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot.get();
+        if (isStale(current)) {
+            synchronized (refreshLock) {
+                current = snapshot.get();
+                if (isStale(current)) {
+                    current = rebuild();
+                }
+            }
+        }
+        return current;
+    }
+
+    private static LocalDateTime earliest(LocalDateTime a, LocalDateTime b) {
+        return b.isBefore(a) ? b : a;
+    }
+
+    @Scheduled(fixedDelayString = "${app.voucher.catalog.refresh-interval-ms:500}")
+    public void refresh() {
+        synchronized (refreshLock) {
+            rebuild();
+        }
+    }
+
+    private Snapshot rebuild() {
+        long startedAt = clock.millis();
+        Snapshot next = refreshes.record(() -> build(startedAt));
+        snapshot.set(next);
+        return next;
+    }
+
+    private Snapshot build(long startedAt) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        List<Voucher> vouchers = voucherRepository.findByStatusAndEndAtGreaterThanEqual(VoucherStatus.ACTIVE, now);
+        Map<Long, Integer> remaining = remainingQuota(vouchers);
+        List<Entry> entries = new ArrayList<>();
+        for (Voucher voucher : vouchers) {
+            Integer quota = remaining.get(voucher.getId());
+            if (quota != null && quota > 0) {
+                entries.add(entry(voucher, quota));
+            }
+        }
+        entries.sort(Comparator.comparing(Entry::id));
+        return new Snapshot(List.copyOf(entries), startedAt);
+    }
+
+    private Map<Long, Integer> remainingQuota(List<Voucher> vouchers) {
+        Map<Long, Integer> remaining = new HashMap<>();
+        if (vouchers.isEmpty()) {
+            return remaining;
+        }
+        List<Long> stripedIds = new ArrayList<>();
+        for (Voucher voucher : vouchers) {
+            remaining.put(voucher.getId(), voucher.getQuotaRemaining());
+            if (stripedQuotaService.isStriped(voucher)) {
+                stripedIds.add(voucher.getId());
+            }
+        }
+        stripedQuotaService.overlayBuckets(remaining, stripedIds);
+        quotaLeaseService.outstandingByVoucherId(remaining.keySet())
+                .forEach((voucherId, units) -> remaining.merge(voucherId, units, Integer::sum));
+        return remaining;
+    }
+
+    private boolean isStale(Snapshot current) {
+        return clock.millis() - current.refreshedAt() >= maxStalenessMillis;
+    }
+
+    private double lagMillis() {
+        Snapshot current = snapshot.get();
+        return current == Snapshot.EMPTY ? 0 : clock.millis() - current.refreshedAt();
+    }
+
+    private record Snapshot(List<Entry> entries, long refreshedAt) {
+        static final Snapshot EMPTY = new Snapshot(List.of(), 0);
+    }
+
+    public record View(long version, List<VoucherPublicResponse> vouchers) {
+    }
+
+    private record CachedView(Snapshot snapshot, LocalDateTime validUntil, View view) {
+        static final CachedView EMPTY = new CachedView(null, LocalDateTime.MIN, new View(0, List.of()));
+    }
+
+    private static Entry entry(Voucher voucher, int quotaRemaining) {
+        return new Entry(voucher.getId(), voucher.getStartAt(), voucher.getEndAt(), new VoucherPublicResponse(
+                voucher.getCode(),
+                voucher.getDiscountType(),
+                voucher.getDiscountValue(),
+                voucher.getMinSpend(),
+                quotaRemaining,
+                voucher.getStartAt(),
+                voucher.getEndAt()
+        ));
+    }
+
+    private record Entry(Long id, LocalDateTime startAt, LocalDateTime endAt, VoucherPublicResponse response) {
+    }
+}
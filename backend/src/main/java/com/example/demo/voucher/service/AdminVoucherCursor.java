@@ -0,0 +1,36 @@
+package com.example.demo.voucher.service;
+
+import com.example.demo.voucher.domain.Voucher;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Where the admin listing continues: the {@code (createdAt, id)} of the last voucher on the previous
+ * page. Clients get it as an opaque URL-safe token.
+ */
+record AdminVoucherCursor(Instant createdAt, Long id) {
+
+    static AdminVoucherCursor of(Voucher voucher) {
+        return new AdminVoucherCursor(voucher.getCreatedAt(), voucher.getId());
+    }
+
+    String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((createdAt + "|" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static AdminVoucherCursor decode(String token) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = decoded.indexOf('|');
+            return new AdminVoucherCursor(
+                    Instant.parse(decoded.substring(0, separator)),
+                    Long.valueOf(decoded.substring(separator + 1))
+            );
+        } catch (IllegalArgumentException | DateTimeException | IndexOutOfBoundsException ex) {
+            throw new IllegalArgumentException("invalid cursor", ex);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.demo.voucher.service;
+
+import com.example.demo.voucher.api.dto.ClaimVoucherRequest;
+import com.example.demo.voucher.api.dto.ClaimVoucherResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+/**
+ * Claims for settlement jobs that submit thousands of orders at once. The list is settled in chunks
+ * of {@code app.voucher.bulk-claim.chunk-size}; inside a chunk the claims are grouped by code and each
+ * group goes through {@link VoucherClaimProcessor#claimBatch}, i.e. one transaction, one voucher row
+ * lock, one JDBC batch insert and one quota write per code.
+ */
+@Service
+public class BulkClaimService {
+
+    private final VoucherClaimProcessor voucherClaimProcessor;
+    private final VoucherPolicy voucherPolicy;
+    private final ClaimReplayCache claimReplayCache;
+    private final int chunkSize;
+
+    public BulkClaimService(
+            VoucherClaimProcessor voucherClaimProcessor,
+            VoucherPolicy voucherPolicy,
+            ClaimReplayCache claimReplayCache,
+            @Value("${app.voucher.bulk-claim.chunk-size:1000}") int chunkSize
+    ) {
+        this.voucherClaimProcessor = voucherClaimProcessor;
+        this.voucherPolicy = voucherPolicy;
+        this.claimReplayCache = claimReplayCache;
+        this.chunkSize = chunkSize;
+    }
+
+    public int chunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Settles {@code requests} and hands each chunk's responses to {@code sink} in input order as soon
+     * as the chunk is done, so callers can stream them out while later chunks are still running.
+     */
+    public void claim(List<ClaimVoucherRequest> requests, Consumer<List<ClaimVoucherResponse>> sink) {
+        for (int from = 0; from < requests.size(); from += chunkSize) {
+            sink.accept(claimChunk(requests.subList(from, Math.min(from + chunkSize, requests.size()))));
+        }
+    }
+
+    /** Settles one chunk of at most {@link #chunkSize()} claims and returns the responses in input order. */
+    public List<ClaimVoucherResponse> claimChunk(List<ClaimVoucherRequest> chunk) {
+        List<ClaimVoucherResponse> responses = settleChunk(chunk);
+        responses.forEach(claimReplayCache::record);
+        return responses;
+    }
+
+    private List<ClaimVoucherResponse> settleChunk(List<ClaimVoucherRequest> chunk) {
+        Map<String, List<Integer>> positionsByCode = new LinkedHashMap<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            positionsByCode.computeIfAbsent(voucherPolicy.normalizeCode(chunk.get(i).code()), code -> new ArrayList<>()).add(i);
+        }
+
+        ClaimVoucherResponse[] responses = new ClaimVoucherResponse[chunk.size()];
+        positionsByCode.forEach((code, positions) -> {
+            List<ClaimVoucherRequest> group = positions.stream().map(chunk::get).toList();
+            List<ClaimVoucherResponse> settled = settle(code, group);
+            for (int i = 0; i < positions.size(); i++) {
+                responses[positions.get(i)] = settled.get(i);
+            }
+        });
+        return Arrays.asList(responses);
+    }
+
+    private List<ClaimVoucherResponse> settle(String code, List<ClaimVoucherRequest> group) {
+        try {
+            return voucherClaimProcessor.claimBatch(code, group);
+        } catch (DataIntegrityViolationException ex) {
+            // An order in the group was redeemed elsewhere after the batch checked it; the batch rolled
+            // back, so settle this group claim by claim and let each resolve its own duplicate.
+            return group.stream().map(voucherClaimProcessor::claim).toList();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.demo.voucher.service;
+
+import com.example.demo.voucher.api.dto.ClaimVoucherRequest;
+import com.example.demo.voucher.api.dto.ClaimVoucherResponse;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+/**
+ * Group commit for claims. With {@code app.voucher.claim-strategy=BATCHED} claims for the same code
+ * that arrive within {@code app.voucher.claim-batch.window} of each other are settled together by
+ * {@link VoucherClaimProcessor#claimBatch}, so the voucher row is locked once per batch instead of
+ * once per claim.
+ *
+ * <p>The first claim into an empty batch leads it: it waits out the window (or until the batch is
+ * full), runs the batch on its own thread and hands every other caller its response.
+ */
+@Service
+public class ClaimBatcher {
+
+    private final VoucherClaimProcessor voucherClaimProcessor;
+    private final VoucherPolicy voucherPolicy;
+    private final boolean enabled;
+    private final long windowNanos;
+    private final int maxSize;
+    private final DistributionSummary batchSize;
+    private final Timer batchWait;
+
+    private final Map<String, PendingBatch> batches = new ConcurrentHashMap<>();
+
+    public ClaimBatcher(
+            VoucherClaimProcessor voucherClaimProcessor,
+            VoucherPolicy voucherPolicy,
+            MeterRegistry meterRegistry,
+            @Value("${app.voucher.claim-strategy:LOCKING}") ClaimStrategy claimStrategy,
+            @Value("${app.voucher.claim-batch.window:2ms}") Duration window,
+            @Value("${app.voucher.claim-batch.max-size:100}") int maxSize
+    ) {
+        this.voucherClaimProcessor = voucherClaimProcessor;
+        this.voucherPolicy = voucherPolicy;
+        this.enabled = claimStrategy == ClaimStrategy.BATCHED;
+        this.windowNanos = window.toNanos();
+        this.maxSize = maxSize;
+        this.batchSize = DistributionSummary.builder("voucher.claim.batch.size")
+                .description("Claims settled per batch transaction")
+                .register(meterRegistry);
+        this.batchWait = Timer.builder("voucher.claim.batch.wait")
+                .description("Time a claim spent queued before its batch started")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public ClaimVoucherResponse claim(ClaimVoucherRequest request) {
+        String code = voucherPolicy.normalizeCode(request.code());
+        PendingClaim claim = new PendingClaim(request, System.nanoTime());
+        PendingBatch batch = batches.compute(code, (key, current) -> {
+            PendingBatch target = current == null || current.claims.size() >= maxSize ? new PendingBatch() : current;
+            claim.leader = target.claims.isEmpty();
+            target.claims.add(claim);
+            if (target.claims.size() >= maxSize) {
+                target.full.countDown();
+            }
+            return target;
+        });
+
+        if (claim.leader) {
+            run(code, batch);
+        }
+        try {
+            return claim.response.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    private void run(String code, PendingBatch batch) {
+        try {
+            batch.full.await(windowNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        // Once the batch leaves the map no claim can join it, so its list is final from here on.
+        batches.remove(code, batch);
+
+        List<PendingClaim> claims = batch.claims;
+        long startedAt = System.nanoTime();
+        for (PendingClaim claim : claims) {
+            batchWait.record(startedAt - claim.enqueuedAt, TimeUnit.NANOSECONDS);
+        }
+        batchSize.record(claims.size());
+
+        List<ClaimVoucherRequest> requests = claims.stream().map(claim -> claim.request).toList();
+        List<ClaimVoucherResponse> responses;
+        try {
+            responses = settle(code, requests);
+        } catch (RuntimeException | Error ex) {
+            // Every claim in the batch, the leader's included, is waiting on its future.
+            claims.forEach(claim -> claim.response.completeExceptionally(ex));
+            return;
+        }
+        for (int i = 0; i < claims.size(); i++) {
+            claims.get(i).response.complete(responses.get(i));
+        }
+    }
+
+    private List<ClaimVoucherResponse> settle(String code, List<ClaimVoucherRequest> requests) {
+        try {
+            return voucherClaimProcessor.claimBatch(code, requests);
+        } catch (DataIntegrityViolationException ex) {
+            // A redemption for one of these orders was committed outside the batch; the batch rolled
+            // back, so settle the claims one by one and let each resolve its own duplicate.
+            return requests.stream().map(voucherClaimProcessor::claim).toList();
+        }
+    }
+
+    private static final class PendingBatch {
+
+        private final List<PendingClaim> claims = new ArrayList<>();
+        private final CountDownLatch full = new CountDownLatch(1);
+    }
+
+    private static final class PendingClaim {
+
+        private final ClaimVoucherRequest request;
+        private final long enqueuedAt;
+        private final CompletableFuture<ClaimVoucherResponse> response = new CompletableFuture<>();
+        private boolean leader;
+
+        private PendingClaim(ClaimVoucherRequest request, long enqueuedAt) {
+            this.request = request;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.demo.voucher.service;
+
+import com.example.demo.voucher.api.dto.ClaimHoldResponse;
+import com.example.demo.voucher.api.dto.ClaimVoucherRequest;
+import com.example.demo.voucher.api.dto.ClaimVoucherResponse;
+import com.example.demo.voucher.api.dto.ConfirmClaimRequest;
+import com.example.demo.voucher.repository.VoucherClaimHoldRepository;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Two-phase claims. {@link #reserve} takes a unit of quota for an order under a short-lived hold
+ * while the order is still at checkout; {@link #confirm} turns the hold into a redemption once payment
+ * succeeds, without contending for the voucher row. Holds that are never confirmed are given back by
+ * {@link #releaseExpired}.
+ */
+@Service
+public class ClaimHoldService {
+
+    private final VoucherClaimProcessor voucherClaimProcessor;
+    private final VoucherClaimHoldRepository voucherClaimHoldRepository;
+    private final VoucherPolicy voucherPolicy;
+    private final ClaimReplayCache claimReplayCache;
+    private final Duration ttl;
+    private final int vouchersPerSweep;
+    private final Clock clock;
+
+    public ClaimHoldService(
+            VoucherClaimProcessor voucherClaimProcessor,
+            VoucherClaimHoldRepository voucherClaimHoldRepository,
+            VoucherPolicy voucherPolicy,
+            ClaimReplayCache claimReplayCache,
+            @Value("${app.voucher.claim-hold.ttl:5m}") Duration ttl,
+            @Value("${app.voucher.claim-hold.vouchers-per-sweep:100}") int vouchersPerSweep,
+            Clock clock
+    ) {
+        this.voucherClaimProcessor = voucherClaimProcessor;
+        this.voucherClaimHoldRepository = voucherClaimHoldRepository;
+        this.voucherPolicy = voucherPolicy;
+        this.claimReplayCache = claimReplayCache;
+        this.ttl = ttl;
+        this.vouchersPerSweep = vouchersPerSweep;
+        this.clock = clock;
+    }
+
+    public ClaimHoldResponse reserve(ClaimVoucherRequest request) {
+        return voucherClaimProcessor.reserveHold(request, LocalDateTime.now(clock).plus(ttl));
+    }
+
+    public ClaimVoucherResponse confirm(ConfirmClaimRequest request) {
+        ClaimVoucherResponse response = voucherClaimProcessor.confirmHold(
+                voucherPolicy.normalizeCode(request.code()),
+                request.orderId().trim()
+        );
+        claimReplayCache.record(response);
+        return response;
+    }
+
+    @Scheduled(fixedDelayString = "${app.voucher.claim-hold.sweep-interval-ms:1000}")
+    public void releaseExpired() {
+        LocalDateTime now = LocalDateTime.now(clock);
+        List<Long> voucherIds;
+        do {
+            voucherIds = voucherClaimHoldRepository.findVoucherIdsExpiredBy(now, Limit.of(vouchersPerSweep));
+            voucherIds.forEach(voucherId -> voucherClaimProcessor.releaseExpiredHolds(voucherId, now));
+        } while (voucherIds.size() == vouchersPerSweep);
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.demo.voucher.service;
+
+import com.example.demo.voucher.api.dto.ClaimTicketResponse;
+import com.example.demo.voucher.api.dto.ClaimVoucherRequest;
+import com.example.demo.voucher.api.dto.ClaimVoucherResponse;
+import com.example.demo.voucher.domain.ClaimOutboxEntry;
+import com.example.demo.voucher.domain.ClaimOutboxStatus;
+import com.example.demo.voucher.repository.ClaimOutboxRepository;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Accepted-then-poll claims. {@link #enqueue} records the claim in {@code voucher_claim_outbox} and
+ * returns straight away; {@link #drain} settles pending entries code by code through
+ * {@link VoucherClaimProcessor#settleQueued}, so a hot code costs one row lock per batch rather than
+ * one request thread and connection per claim. A code whose batch fails is skipped for a doubling
+ * back-off while the other codes keep draining; its entries stay pending until a batch goes through.
+ */
+@Service
+public class ClaimOutboxService {
+
+    private static final Logger log = LoggerFactory.getLogger(ClaimOutboxService.class);
+
+    private final ClaimOutboxRepository claimOutboxRepository;
+    private final VoucherClaimProcessor voucherClaimProcessor;
+    private final VoucherPolicy voucherPolicy;
+    private final int batchSize;
+    private final int codesPerPoll;
+    private final Duration retention;
+    private final Duration failureBackoff;
+    private final Duration maxFailureBackoff;
+    private final Clock clock;
+    private final Map<String, Backoff> backoffs = new ConcurrentHashMap<>();
+
+    public ClaimOutboxService(
+            ClaimOutboxRepository claimOutboxRepository,
+            VoucherClaimProcessor voucherClaimProcessor,
+            VoucherPolicy voucherPolicy,
+            @Value("${app.voucher.claim-outbox.batch-size:200}") int batchSize,
+            @Value("${app.voucher.claim-outbox.codes-per-poll:50}") int codesPerPoll,
+            @Value("${app.voucher.claim-outbox.retention:24h}") Duration retention,
+            @Value("${app.voucher.claim-outbox.failure-backoff:1s}") Duration failureBackoff,
+            @Value("${app.voucher.claim-outbox.max-failure-backoff:1m}") Duration maxFailureBackoff,
+            Clock clock
+    ) {
+        this.claimOutboxRepository = claimOutboxRepository;
+        this.voucherClaimProcessor = voucherClaimProcessor;
+        this.voucherPolicy = voucherPolicy;
+        this.batchSize = batchSize;
+        this.codesPerPoll = codesPerPoll;
+        this.retention = retention;
+        this.failureBackoff = failureBackoff;
+        this.maxFailureBackoff = maxFailureBackoff;
+        this.clock = clock;
+    }
+
+    @Transactional
+    public ClaimTicketResponse enqueue(ClaimVoucherRequest request) {
+        String code = voucherPolicy.normalizeCode(request.code());
+        String orderId = request.orderId().trim();
+        if (claimOutboxRepository.insertIfAbsent(code, orderId, request.buyerId(), request.orderAmount()) == 1) {
+            return new ClaimTicketResponse(code, orderId, ClaimOutboxStatus.PENDING, null);
+        }
+        // Same (code, orderId) queued before: report the original ticket, not this payload.
+        return claimOutboxRepository.findByCodeAndOrderId(code, orderId)
+                .map(ClaimOutboxService::toTicket)
+                .orElseThrow(() -> new IllegalStateException("outbox insert ignored without a duplicate"));
+    }
+
+    /** Returns the ticket for {@code (code, orderId)}, or {@code null} when nothing was queued. */
+    @Transactional(readOnly = true)
+    public ClaimTicketResponse status(String code, String orderId) {
+        return claimOutboxRepository.findByCodeAndOrderId(voucherPolicy.normalizeCode(code), orderId.trim())
+                .map(ClaimOutboxService::toTicket)
+                .orElse(null);
+    }
+
+    @Scheduled(fixedDelayString = "${app.voucher.claim-outbox.poll-interval-ms:100}")
+    public void drain() {
+        Instant now = Instant.now(clock);
+        for (String code : claimOutboxRepository.findCodesByStatus(ClaimOutboxStatus.PENDING, Limit.of(codesPerPoll))) {
+            Backoff backoff = backoffs.get(code);
+            if (backoff != null && now.isBefore(backoff.retryAt())) {
+                continue;
+            }
+            try {
+                settle(code);
+                backoffs.remove(code);
+            } catch (RuntimeException ex) {
+                // The failed batch rolled back, so its entries are still pending; retry them later.
+                Duration delay = backoff == null ? failureBackoff : min(backoff.delay().multipliedBy(2), maxFailureBackoff);
+                backoffs.put(code, new Backoff(delay, now.plus(delay)));
+                log.warn("Could not settle queued claims for {}, retrying in {}", code, delay, ex);
+            }
+        }
+    }
+
+    private void settle(String code) {
+        // A full batch means more entries may be waiting for this code.
+        int settled;
+        do {
+            settled = voucherClaimProcessor.settleQueued(code, batchSize);
+        } while (settled == batchSize);
+    }
+
+    @Scheduled(fixedDelayString = "${app.voucher.claim-outbox.purge-interval-ms:3600000}")
+    @Transactional
+    public void purgeSettled() {
+        claimOutboxRepository.deleteByStatusAndProcessedAtBefore(ClaimOutboxStatus.DONE, Instant.now(clock).minus(retention));
+    }
+
+    private static Duration min(Duration a, Duration b) {
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+
+    private static ClaimTicketResponse toTicket(ClaimOutboxEntry entry) {
+        ClaimVoucherResponse result = entry.getStatus() == ClaimOutboxStatus.DONE
+                ? new ClaimVoucherResponse(
+                        entry.getSuccess(),
+                        entry.getIdempotent(),
+                        entry.getCode(),
+                        entry.getOrderId(),
+                        entry.getOrderAmount(),
+                        entry.getDiscountApplied(),
+                        entry.getQuotaRemaining(),
+                        entry.getMessage()
+                )
+                : null;
+        return new ClaimTicketResponse(entry.getCode(), entry.getOrderId(), entry.getStatus(), result);
+    }
+
+    private record Backoff(Duration delay, Instant retryAt) {
+    }
+}
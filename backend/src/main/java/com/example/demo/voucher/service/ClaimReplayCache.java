@@ -0,0 +1,169 @@
+package com.example.demo.voucher.service;
+
+import com.example.demo.voucher.api.dto.ClaimVoucherRequest;
+import com.example.demo.voucher.api.dto.ClaimVoucherResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Answers claim retries for orders this instance has already seen granted, without a transaction.
+ * Entries are keyed by normalized code and orderId (codes are unique and never change) and only
+ * ever added after the claim committed, so a hit is always a real redemption. A miss falls through
+ * to the normal claim path, which checks the database, so other instances' grants stay correct.
+ *
+ * <p>A Bloom filter sits in front of the LRU map so first-time claims, the common case, skip the
+ * map lock. The filter is rebuilt from the map once evictions have left it too full.
+ */
+@Service
+public class ClaimReplayCache {
+
+    private static final String ALREADY_CLAIMED = "already claimed for this orderId";
+
+    private final int maxEntries;
+    private final Map<String, Replay> entries;
+    private final Counter hits;
+    private final Counter misses;
+    private volatile BloomFilter filter;
+    private long added;
+
+    public ClaimReplayCache(
+            MeterRegistry meterRegistry,
+            @Value("${app.voucher.replay-cache.max-entries:100000}") int maxEntries
+    ) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Replay> eldest) {
+                return size() > ClaimReplayCache.this.maxEntries;
+            }
+        };
+        this.filter = new BloomFilter(Math.max(maxEntries, 1));
+        this.hits = Counter.builder("voucher.claim.replay")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("voucher.claim.replay")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("voucher.claim.replay.hit.ratio", this, ClaimReplayCache::hitRatio)
+                .register(meterRegistry);
+    }
+
+    /** Returns the idempotent response for a known order, or {@code null} to claim normally. */
+    public ClaimVoucherResponse lookup(String code, ClaimVoucherRequest request) {
+        if (maxEntries <= 0) {
+            return null;
+        }
+        String orderId = request.orderId().trim();
+        String key = key(code, orderId);
+        Replay replay = null;
+        if (filter.mightContain(key)) {
+            synchronized (entries) {
+                replay = entries.get(key);
+            }
+        }
+        if (replay == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return new ClaimVoucherResponse(true, true, code, orderId, replay.orderAmount, replay.discountApplied, replay.quotaRemaining, ALREADY_CLAIMED);
+    }
+
+    /** Remembers the order if {@code response} proves a committed redemption for it. */
+    public void record(ClaimVoucherResponse response) {
+        if (maxEntries <= 0 || !response.success()) {
+            return;
+        }
+        String key = key(response.code(), response.orderId());
+        synchronized (entries) {
+            if (entries.put(key, new Replay(response.orderAmount(), response.discountApplied(), response.quotaRemaining())) != null) {
+                return;
+            }
+            added++;
+            if (added > 2L * maxEntries) {
+                BloomFilter rebuilt = new BloomFilter(maxEntries);
+                entries.keySet().forEach(rebuilt::put);
+                filter = rebuilt;
+                added = entries.size();
+                return;
+            }
+        }
+        filter.put(key);
+    }
+
+    double hitRatio() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0 : hits.count() / total;
+    }
+
+    private static String key(String code, String orderId) {
+        return code + '\n' + orderId;
+    }
+
+    private record Replay(BigDecimal orderAmount, BigDecimal discountApplied, Integer quotaRemaining) {
+    }
+
+    /** About 1% false positives at {@code expectedEntries}: 10 bits per entry, 7 probes. */
+    static final class BloomFilter {
+
+        private static final int PROBES = 7;
+
+        private final AtomicLongArray words;
+        private final long bits;
+
+        BloomFilter(int expectedEntries) {
+            this.words = new AtomicLongArray((int) Math.max(1, (expectedEntries * 10L + 63) / 64));
+            this.bits = words.length() * 64L;
+        }
+
+        void put(String key) {
+            long hash = hash(key);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= PROBES; i++) {
+                long bit = Math.floorMod(h1 + (long) i * h2, bits);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long current = words.get(word);
+                while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+                    current = words.get(word);
+                }
+            }
+        }
+
+        boolean mightContain(String key) {
+            long hash = hash(key);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= PROBES; i++) {
+                long bit = Math.floorMod(h1 + (long) i * h2, bits);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // 64-bit FNV-1a followed by the murmur3 finalizer, split into two 32-bit halves.
+        private static long hash(String key) {
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < key.length(); i++) {
+                hash ^= key.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            hash ^= hash >>> 33;
+            hash *= 0xff51afd7ed558ccdL;
+            hash ^= hash >>> 33;
+            hash *= 0xc4ceb9fe1a85ec53L;
+            hash ^= hash >>> 33;
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.demo.voucher.service;
+
+public enum ClaimStrategy {
+    /** Lock the voucher row, check idempotency, insert, then decrement through dirty checking. */
+    LOCKING,
+    /** Guarded single-statement decrement followed by an insert that relies on the unique key. */
+    CONDITIONAL_UPDATE,
+    /** Hand out units from a node-local quota lease; see {@link QuotaLeaseService}. */
+    LEASED,
+    /** Queue claims per code briefly and settle each batch under one row lock; see {@link ClaimBatcher}. */
+    BATCHED
+}
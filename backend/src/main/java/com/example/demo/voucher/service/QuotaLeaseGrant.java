@@ -0,0 +1,11 @@
+package com.example.demo.voucher.service;
+
+import java.time.LocalDateTime;
+
+public record QuotaLeaseGrant(
+        Long leaseId,
+        Long voucherId,
+        int units,
+        LocalDateTime expiresAt
+) {
+}
@@ -0,0 +1,228 @@
+package com.example.demo.voucher.service;
+
+import com.example.demo.voucher.api.dto.ClaimVoucherRequest;
+import com.example.demo.voucher.api.dto.ClaimVoucherResponse;
+import com.example.demo.voucher.repository.VoucherQuotaLeaseRepository;
+import jakarta.annotation.PreDestroy;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Node-local quota leasing. With {@code app.voucher.claim-strategy=LEASED} each instance moves a block
+ * of quota off the voucher row in one transaction and hands units out from an in-memory counter, so a
+ * claim only has to insert its redemption. Every sweep checkpoints the counter into the lease's
+ * {@code units_left}, which is what other nodes count as outstanding.
+ *
+ * <p>Leases stop being used at their expiry. Drained, expired and shutdown leases are returned once
+ * their in-flight claims finish; leases left behind by a crashed node are swept after a grace period.
+ * The sweep runs whatever the current claim strategy is, so leases left behind when a deployment moves
+ * off {@code LEASED} still give their units back.
+ */
+@Service
+public class QuotaLeaseService {
+
+    private final VoucherClaimProcessor voucherClaimProcessor;
+    private final VoucherQuotaLeaseRepository voucherQuotaLeaseRepository;
+    private final VoucherPolicy voucherPolicy;
+    private final boolean enabled;
+    private final int blockSize;
+    private final Duration ttl;
+    private final Duration grace;
+    private final String owner;
+    private final Clock clock;
+
+    private final Map<String, LocalLease> leases = new ConcurrentHashMap<>();
+    private final Map<String, Object> refillLocks = new ConcurrentHashMap<>();
+    private final Collection<LocalLease> retired = new ConcurrentLinkedQueue<>();
+
+    public QuotaLeaseService(
+            VoucherClaimProcessor voucherClaimProcessor,
+            VoucherQuotaLeaseRepository voucherQuotaLeaseRepository,
+            VoucherPolicy voucherPolicy,
+            @Value("${app.voucher.claim-strategy:LOCKING}") ClaimStrategy claimStrategy,
+            @Value("${app.voucher.lease.block-size:50}") int blockSize,
+            @Value("${app.voucher.lease.ttl:30s}") Duration ttl,
+            @Value("${app.voucher.lease.grace:30s}") Duration grace,
+            @Value("${app.voucher.lease.owner:}") String owner,
+            Clock clock
+    ) {
+        this.voucherClaimProcessor = voucherClaimProcessor;
+        this.voucherQuotaLeaseRepository = voucherQuotaLeaseRepository;
+        this.voucherPolicy = voucherPolicy;
+        this.enabled = claimStrategy == ClaimStrategy.LEASED;
+        this.blockSize = blockSize;
+        this.ttl = ttl;
+        this.grace = grace;
+        this.owner = owner == null || owner.isBlank() ? UUID.randomUUID().toString() : owner.trim();
+        this.clock = clock;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public ClaimVoucherResponse claim(ClaimVoucherRequest request) {
+        String code = voucherPolicy.normalizeCode(request.code());
+        LocalLease lease = takeUnit(code);
+        if (lease == null) {
+            return voucherClaimProcessor.claim(request);
+        }
+
+        ClaimVoucherResponse response;
+        boolean consumed = false;
+        try {
+            response = voucherClaimProcessor.claimFromLease(request, lease.leaseId, lease.units.get());
+            consumed = response.success() && !response.idempotent();
+        } finally {
+            lease.finish(consumed);
+        }
+        if (VoucherClaimProcessor.LEASE_LOST.equals(response.message())) {
+            // The lease was returned or swept under this node; its units are back on the voucher row.
+            retire(code, lease);
+            return voucherClaimProcessor.claim(request);
+        }
+        return response;
+    }
+
+    /** Units leased out but not yet redeemed, per voucher, as of each owner's last checkpoint. */
+    public Map<Long, Integer> outstandingByVoucherId(Collection<Long> voucherIds) {
+        Map<Long, Integer> outstanding = new HashMap<>();
+        if (voucherIds.isEmpty()) {
+            return outstanding;
+        }
+        for (VoucherQuotaLeaseRepository.VoucherUnits left : voucherQuotaLeaseRepository.sumUnitsLeftByVoucherIds(voucherIds)) {
+            outstanding.put(left.getVoucherId(), Math.toIntExact(left.getUnits()));
+        }
+        return outstanding;
+    }
+
+    public int outstanding(Long voucherId) {
+        return outstandingByVoucherId(List.of(voucherId)).getOrDefault(voucherId, 0);
+    }
+
+    @Scheduled(fixedDelayString = "${app.voucher.lease.sweep-interval-ms:5000}")
+    public void returnLeases() {
+        LocalDateTime now = LocalDateTime.now(clock);
+        leases.forEach((code, lease) -> {
+            if (lease.isLive(now)) {
+                voucherQuotaLeaseRepository.updateUnitsLeft(lease.leaseId, lease.units.get());
+            } else {
+                retire(code, lease);
+            }
+        });
+
+        Iterator<LocalLease> it = retired.iterator();
+        while (it.hasNext()) {
+            LocalLease lease = it.next();
+            if (lease.inFlight.get() == 0) {
+                voucherClaimProcessor.returnLease(lease.leaseId);
+                it.remove();
+            }
+        }
+
+        for (Long leaseId : voucherQuotaLeaseRepository.findIdsExpiredBefore(now.minus(grace))) {
+            voucherClaimProcessor.returnLease(leaseId);
+        }
+    }
+
+    @PreDestroy
+    public void returnAllLeases() {
+        leases.forEach(this::retire);
+        for (LocalLease lease : retired) {
+            voucherClaimProcessor.returnLease(lease.leaseId);
+        }
+        retired.clear();
+    }
+
+    private LocalLease takeUnit(String code) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        LocalLease lease = leases.get(code);
+        if (lease != null && lease.tryTake(now)) {
+            return lease;
+        }
+
+        synchronized (refillLocks.computeIfAbsent(code, key -> new Object())) {
+            lease = leases.get(code);
+            if (lease != null && lease.tryTake(now)) {
+                return lease;
+            }
+            if (lease != null) {
+                retire(code, lease);
+            }
+
+            QuotaLeaseGrant grant = voucherClaimProcessor.acquireLease(code, owner, blockSize, now.plus(ttl));
+            if (grant == null) {
+                return null;
+            }
+            LocalLease fresh = new LocalLease(grant.leaseId(), grant.units(), grant.expiresAt());
+            fresh.tryTake(now);
+            leases.put(code, fresh);
+            return fresh;
+        }
+    }
+
+    private void retire(String code, LocalLease lease) {
+        if (leases.remove(code, lease)) {
+            lease.closed = true;
+            retired.add(lease);
+        }
+    }
+
+    private static final class LocalLease {
+
+        private final Long leaseId;
+        private final LocalDateTime expiresAt;
+        private final AtomicInteger units;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private volatile boolean closed;
+
+        private LocalLease(Long leaseId, int units, LocalDateTime expiresAt) {
+            this.leaseId = leaseId;
+            this.units = new AtomicInteger(units);
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isLive(LocalDateTime now) {
+            return now.isBefore(expiresAt) && units.get() > 0;
+        }
+
+        private boolean tryTake(LocalDateTime now) {
+            // inFlight is raised before closed is read so a retiring sweeper either sees this claim
+            // in flight or this claim sees the lease closed.
+            inFlight.incrementAndGet();
+            if (closed || !now.isBefore(expiresAt)) {
+                inFlight.decrementAndGet();
+                return false;
+            }
+            int current = units.get();
+            while (current > 0) {
+                if (units.compareAndSet(current, current - 1)) {
+                    return true;
+                }
+                current = units.get();
+            }
+            inFlight.decrementAndGet();
+            return false;
+        }
+
+        private void finish(boolean consumed) {
+            if (!consumed) {
+                units.incrementAndGet();
+            }
+            inFlight.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.demo.voucher.service;
+
+import java.util.Locale;
+
+public enum RedemptionExportFormat {
+    NDJSON("application/x-ndjson", "ndjson"),
+    CSV("text/csv", "csv");
+
+    private final String contentType;
+    private final String extension;
+
+    RedemptionExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String contentType() {
+        return contentType;
+    }
+
+    public String extension() {
+        return extension;
+    }
+
+    public static RedemptionExportFormat of(String format) {
+        for (RedemptionExportFormat candidate : values()) {
+            if (candidate.extension.equals(format.trim().toLowerCase(Locale.ROOT))) {
+                return candidate;
+            }
+        }
+        throw new IllegalArgumentException("format must be ndjson or csv");
+    }
+}
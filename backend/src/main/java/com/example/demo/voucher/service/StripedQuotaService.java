@@ -0,0 +1,118 @@
+package com.example.demo.voucher.service;
+
+import com.example.demo.voucher.domain.Voucher;
+import com.example.demo.voucher.domain.VoucherQuotaBucket;
+import com.example.demo.voucher.repository.VoucherQuotaBucketRepository;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import org.springframework.stereotype.Service;
+
+/**
+ * Spreads the remaining quota of a striped voucher over {@code voucher_quota_buckets} rows so that
+ * concurrent claims contend on different rows instead of the single {@code vouchers} row.
+ *
+ * <p>For striped vouchers the buckets are authoritative; {@code Voucher.quotaRemaining} is only a
+ * snapshot refreshed on admin writes.
+ */
+@Service
+public class StripedQuotaService {
+
+    private final VoucherQuotaBucketRepository voucherQuotaBucketRepository;
+
+    public StripedQuotaService(VoucherQuotaBucketRepository voucherQuotaBucketRepository) {
+        this.voucherQuotaBucketRepository = voucherQuotaBucketRepository;
+    }
+
+    public boolean isStriped(Voucher voucher) {
+        return voucher.getQuotaStripes() != null && voucher.getQuotaStripes() > 1;
+    }
+
+    public void createBuckets(Voucher voucher) {
+        int stripes = voucher.getQuotaStripes();
+        List<VoucherQuotaBucket> buckets = new ArrayList<>(stripes);
+        for (int bucketNo = 0; bucketNo < stripes; bucketNo++) {
+            buckets.add(VoucherQuotaBucket.builder()
+                    .voucher(voucher)
+                    .bucketNo(bucketNo)
+                    .quotaRemaining(share(voucher.getQuotaRemaining(), stripes, bucketNo))
+                    .build());
+        }
+        voucherQuotaBucketRepository.saveAll(buckets);
+    }
+
+    /**
+     * Takes one unit from the bucket picked by {@code orderId}, falling over to sibling buckets when
+     * it is empty. Returns the bucket that was decremented, or empty when every bucket is drained.
+     */
+    public OptionalInt tryConsume(Voucher voucher, String orderId) {
+        int stripes = voucher.getQuotaStripes();
+        int home = Math.floorMod(orderId.hashCode(), stripes);
+        for (int i = 0; i < stripes; i++) {
+            int bucketNo = (home + i) % stripes;
+            if (voucherQuotaBucketRepository.decrementIfAvailable(voucher.getId(), bucketNo) == 1) {
+                return OptionalInt.of(bucketNo);
+            }
+        }
+        return OptionalInt.empty();
+    }
+
+    public void release(Voucher voucher, int bucketNo) {
+        voucherQuotaBucketRepository.increment(voucher.getId(), bucketNo);
+    }
+
+    public int remaining(Voucher voucher) {
+        if (!isStriped(voucher)) {
+            return voucher.getQuotaRemaining();
+        }
+        return Math.toIntExact(voucherQuotaBucketRepository.sumQuotaRemaining(voucher.getId()));
+    }
+
+    public Map<Long, Integer> remainingByVoucherId(Collection<Voucher> vouchers) {
+        Map<Long, Integer> remaining = new HashMap<>();
+        List<Long> stripedIds = new ArrayList<>();
+        for (Voucher voucher : vouchers) {
+            remaining.put(voucher.getId(), voucher.getQuotaRemaining());
+            if (isStriped(voucher)) {
+                stripedIds.add(voucher.getId());
+            }
+        }
+        overlayBuckets(remaining, stripedIds);
+        return remaining;
+    }
+
+    /** Replaces the entries of {@code remaining} for {@code stripedIds} with their bucket sums. */
+    public void overlayBuckets(Map<Long, Integer> remaining, Collection<Long> stripedIds) {
+        if (!stripedIds.isEmpty()) {
+            for (VoucherQuotaBucketRepository.QuotaSum sum : voucherQuotaBucketRepository.sumQuotaRemainingByVoucherIds(stripedIds)) {
+                remaining.put(sum.getVoucherId(), Math.toIntExact(sum.getQuotaRemaining()));
+            }
+        }
+    }
+
+    /**
+     * Locks every bucket of the voucher and returns their combined remaining quota. Used by admin
+     * writes so the snapshot on {@code Voucher} can be refreshed before it is recomputed.
+     */
+    public int lockAndSum(Voucher voucher) {
+        int sum = 0;
+        for (VoucherQuotaBucket bucket : voucherQuotaBucketRepository.findByVoucherIdForUpdate(voucher.getId())) {
+            sum += bucket.getQuotaRemaining();
+        }
+        return sum;
+    }
+
+    public void redistribute(Voucher voucher) {
+        List<VoucherQuotaBucket> buckets = voucherQuotaBucketRepository.findByVoucherIdForUpdate(voucher.getId());
+        for (VoucherQuotaBucket bucket : buckets) {
+            bucket.setQuotaRemaining(share(voucher.getQuotaRemaining(), buckets.size(), bucket.getBucketNo()));
+        }
+    }
+
+    static int share(int quota, int stripes, int bucketNo) {
+        return quota / stripes + (bucketNo < quota % stripes ? 1 : 0);
+    }
+}
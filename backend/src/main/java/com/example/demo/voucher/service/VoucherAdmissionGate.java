@@ -0,0 +1,132 @@
+package com.example.demo.voucher.service;
+
+import com.example.demo.voucher.api.dto.ClaimVoucherResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Remembers, per code, that claims are currently hopeless (sold out, inactive, expired or outside the
+ * active window) so {@link VoucherService} can turn them away without a transaction or a row lock.
+ * A zero TTL disables the gate.
+ *
+ * <p>Codes are closed from the outcomes this instance observes and opened again by admin edits here,
+ * once the edit has committed.
+ * Every entry expires after {@code app.voucher.admission-gate.ttl}, which bounds how long quota given
+ * back elsewhere (lease returns, another instance's admin edit) can go unseen.
+ */
+@Component
+public class VoucherAdmissionGate {
+
+    static final String QUOTA_EXHAUSTED = "voucher quota exhausted";
+    static final String NOT_STARTED = "voucher not in active period";
+    static final String INACTIVE = "voucher inactive";
+    static final String EXPIRED = "voucher expired";
+
+    private static final Set<String> CLOSING_REASONS = Set.of(QUOTA_EXHAUSTED, INACTIVE, EXPIRED);
+
+    private final Map<String, Closed> closed = new ConcurrentHashMap<>();
+    private final Map<String, Counter> rejections;
+    private final long ttlMillis;
+    private final Clock clock;
+
+    public VoucherAdmissionGate(
+            MeterRegistry meterRegistry,
+            @Value("${app.voucher.admission-gate.ttl:5s}") Duration ttl,
+            Clock clock
+    ) {
+        this.rejections = Stream.of(QUOTA_EXHAUSTED, NOT_STARTED, INACTIVE, EXPIRED).collect(Collectors.toUnmodifiableMap(
+                Function.identity(),
+                reason -> meterRegistry.counter("voucher.admission.rejected", "reason", reason)
+        ));
+        this.ttlMillis = ttl.toMillis();
+        this.clock = clock;
+    }
+
+    /** Returns why {@code code} is closed, or {@code null} when requests should go to the database. */
+    public Closed check(String code) {
+        Closed entry = closed.get(code);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.until() <= clock.millis()) {
+            closed.remove(code, entry);
+            return null;
+        }
+        rejections.get(entry.reason()).increment();
+        return entry;
+    }
+
+    /**
+     * Closes the code when {@code message} proves nobody can claim it right now. A window that has not
+     * opened yet is handled by {@link #closeUntilStart}, since only the voucher knows when it opens.
+     */
+    public void observe(String code, String message, Integer quotaRemaining) {
+        if (CLOSING_REASONS.contains(message)) {
+            close(code, message, quotaRemaining);
+        }
+    }
+
+    public void observe(ClaimVoucherResponse response) {
+        if (response.success()) {
+            if (!response.idempotent() && Integer.valueOf(0).equals(response.quotaRemaining())) {
+                close(response.code(), QUOTA_EXHAUSTED, 0);
+            }
+            return;
+        }
+        observe(response.code(), response.message(), response.quotaRemaining());
+    }
+
+    public void close(String code, String reason, Integer quotaRemaining) {
+        closeUntil(code, reason, quotaRemaining, Long.MAX_VALUE);
+    }
+
+    /** Closes the code until {@code startAt} at the latest, so a sale opens on time. */
+    public void closeUntilStart(String code, LocalDateTime startAt, Integer quotaRemaining) {
+        closeUntil(code, NOT_STARTED, quotaRemaining, startAt.atZone(clock.getZone()).toInstant().toEpochMilli());
+    }
+
+    private void closeUntil(String code, String reason, Integer quotaRemaining, long deadline) {
+        long now = clock.millis();
+        long until = Math.min(now + ttlMillis, deadline);
+        if (until > now) {
+            closed.put(code, new Closed(reason, quotaRemaining, until));
+        }
+    }
+
+    public void open(String code) {
+        closed.remove(code);
+    }
+
+    /**
+     * Opens the code once the current transaction commits, or straight away outside one. Opening
+     * earlier would let a concurrent claim read the pre-edit row and close the code again for a TTL.
+     */
+    public void openAfterCommit(String code) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            open(code);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                open(code);
+            }
+        });
+    }
+
+    public record Closed(String reason, Integer quotaRemaining, long until) {
+    }
+}
@@ -0,0 +1,789 @@
+package com.example.demo.voucher.service;
+
+import com.example.demo.voucher.api.dto.ClaimHoldResponse;
+import com.example.demo.voucher.api.dto.ClaimStackedVouchersResponse;
+import com.example.demo.voucher.api.dto.ClaimVoucherRequest;
+import com.example.demo.voucher.api.dto.ClaimVoucherResponse;
+import com.example.demo.voucher.domain.ClaimOutboxEntry;
+import com.example.demo.voucher.domain.ClaimOutboxStatus;
+import com.example.demo.voucher.domain.Voucher;
+import com.example.demo.voucher.domain.VoucherClaimHold;
+import com.example.demo.voucher.domain.VoucherQuotaLease;
+import com.example.demo.voucher.domain.VoucherRedemption;
+import com.example.demo.voucher.domain.VoucherStatus;
+import com.example.demo.voucher.repository.ClaimOutboxRepository;
+import com.example.demo.voucher.repository.VoucherBuyerClaimsRepository;
+import com.example.demo.voucher.repository.VoucherClaimHoldRepository;
+import com.example.demo.voucher.repository.VoucherQuotaLeaseRepository;
+import com.example.demo.voucher.repository.VoucherRedemptionRepository;
+import com.example.demo.voucher.repository.VoucherRepository;
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Transactional side of voucher claims. {@link VoucherService} decides which of these entry points a
+ * request goes through; everything here runs inside its own transaction.
+ */
+@Service
+public class VoucherClaimProcessor {
+
+    static final String BUYER_LIMIT_REACHED = "buyer claim limit reached";
+    static final String LEASE_LOST = "quota lease lost";
+
+    private final VoucherRepository voucherRepository;
+    private final VoucherRedemptionRepository voucherRedemptionRepository;
+    private final VoucherQuotaLeaseRepository voucherQuotaLeaseRepository;
+    private final ClaimOutboxRepository claimOutboxRepository;
+    private final VoucherClaimHoldRepository voucherClaimHoldRepository;
+    private final VoucherBuyerClaimsRepository voucherBuyerClaimsRepository;
+    private final VoucherPolicy voucherPolicy;
+    private final StripedQuotaService stripedQuotaService;
+    private final ClaimStrategy claimStrategy;
+    private final Clock clock;
+
+    public VoucherClaimProcessor(
+            VoucherRepository voucherRepository,
+            VoucherRedemptionRepository voucherRedemptionRepository,
+            VoucherQuotaLeaseRepository voucherQuotaLeaseRepository,
+            ClaimOutboxRepository claimOutboxRepository,
+            VoucherClaimHoldRepository voucherClaimHoldRepository,
+            VoucherBuyerClaimsRepository voucherBuyerClaimsRepository,
+            VoucherPolicy voucherPolicy,
+            StripedQuotaService stripedQuotaService,
+            @Value("${app.voucher.claim-strategy:LOCKING}") ClaimStrategy claimStrategy,
+            Clock clock
+    ) {
+        this.voucherRepository = voucherRepository;
+        this.voucherRedemptionRepository = voucherRedemptionRepository;
+        this.voucherQuotaLeaseRepository = voucherQuotaLeaseRepository;
+        this.claimOutboxRepository = claimOutboxRepository;
+        this.voucherClaimHoldRepository = voucherClaimHoldRepository;
+        this.voucherBuyerClaimsRepository = voucherBuyerClaimsRepository;
+        this.voucherPolicy = voucherPolicy;
+        this.stripedQuotaService = stripedQuotaService;
+        this.claimStrategy = claimStrategy;
+        this.clock = clock;
+    }
+
+    // READ_COMMITTED so the idempotency lookup sees rows committed while we waited on the voucher
+    // row lock, and so striped claims do not keep locks on buckets they found empty.
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public ClaimVoucherResponse claim(ClaimVoucherRequest request) {
+        String code = voucherPolicy.normalizeCode(request.code());
+        String orderId = request.orderId().trim();
+        Long buyerId = request.buyerId();
+        BigDecimal orderAmount = request.orderAmount();
+        LocalDateTime now = LocalDateTime.now(clock);
+
+        if (claimStrategy == ClaimStrategy.CONDITIONAL_UPDATE) {
+            return claimWithConditionalUpdate(code, orderId, buyerId, orderAmount, now);
+        }
+
+        if (voucherRepository.findQuotaStripesByCode(code).orElse(1) > 1) {
+            Voucher voucher = voucherRepository.findByCode(code).orElse(null);
+            if (voucher == null) {
+                return new ClaimVoucherResponse(false, false, code, orderId, orderAmount, null, null, "voucher not found");
+            }
+            return claimFromStripes(voucher, code, orderId, buyerId, orderAmount, now);
+        }
+
+        Voucher voucher = voucherRepository.findByCodeForUpdate(code).orElse(null);
+        if (voucher == null) {
+            return new ClaimVoucherResponse(false, false, code, orderId, orderAmount, null, null, "voucher not found");
+        }
+
+        VoucherRedemption existing = voucherRedemptionRepository
+                .findByVoucherIdAndOrderId(voucher.getId(), orderId)
+                .orElse(null);
+        if (existing != null) {
+            return alreadyClaimed(code, orderId, existing, voucher.getQuotaRemaining());
+        }
+
+        // A live hold for the order already owns a unit and a buyer slot, so the claim settles it on
+        // the hold's terms, as confirmHold would, rather than taking another.
+        VoucherClaimHold hold = voucherClaimHoldRepository
+                .findByVoucherIdAndOrderIdForUpdate(voucher.getId(), orderId)
+                .orElse(null);
+        if (hold != null && now.isBefore(hold.getExpiresAt())) {
+            voucherClaimHoldRepository.delete(hold);
+            voucherRedemptionRepository.save(VoucherRedemption.builder()
+                    .voucher(voucher)
+                    .orderId(orderId)
+                    .buyerId(hold.getBuyerId())
+                    .orderAmount(hold.getOrderAmount())
+                    .discountApplied(hold.getDiscountApplied())
+                    .build());
+            return new ClaimVoucherResponse(true, false, code, orderId, hold.getOrderAmount(), hold.getDiscountApplied(), voucher.getQuotaRemaining(), "ok");
+        }
+
+        String error = voucherPolicy.validateVoucherUsability(voucher, orderAmount, now);
+        if (error != null) {
+            return new ClaimVoucherResponse(false, false, code, orderId, orderAmount, null, voucher.getQuotaRemaining(), error);
+        }
+
+        if (!takeBuyerSlot(voucher, buyerId)) {
+            return new ClaimVoucherResponse(false, false, code, orderId, orderAmount, null, voucher.getQuotaRemaining(), BUYER_LIMIT_REACHED);
+        }
+
+        BigDecimal discount = voucherPolicy.calculateDiscount(orderAmount, voucher.getDiscountType(), voucher.getDiscountValue());
+
+        try {
+            voucherRedemptionRepository.save(VoucherRedemption.builder()
+                    .voucher(voucher)
+                    .orderId(orderId)
+                    .buyerId(buyerId)
+                    .orderAmount(orderAmount)
+                    .discountApplied(discount)
+                    .build());
+        } catch (DataIntegrityViolationException ex) {
+            releaseBuyerSlot(voucher, buyerId);
+            VoucherRedemption retryExisting = voucherRedemptionRepository
+                    .findByVoucherIdAndOrderId(voucher.getId(), orderId)
+                    .orElseThrow(() -> ex);
+            return alreadyClaimed(code, orderId, retryExisting, voucher.getQuotaRemaining());
+        }
+
+        int remainingAfter = voucher.getQuotaRemaining() - 1;
+        voucher.setQuotaRemaining(remainingAfter);
+
+        return new ClaimVoucherResponse(true, false, code, orderId, orderAmount, discount, remainingAfter, "ok");
+    }
+
+    /**
+     * Settles a batch of claims for one code under a single voucher row lock. Responses come back in
+     * request order and match what claiming the requests one by one would have produced.
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public List<ClaimVoucherResponse> claimBatch(String code, List<ClaimVoucherRequest> requests) {
+        LocalDateTime now = LocalDateTime.now(clock);
+
+        if (voucherRepository.findQuotaStripesByCode(code).orElse(1) > 1) {
+            Voucher voucher = voucherRepository.findByCode(code).orElse(null);
+            if (voucher != null) {
+                return requests.stream()
+                        .map(request -> claimFromStripes(voucher, code, request.orderId().trim(), request.buyerId(), request.orderAmount(), now))
+                        .toList();
+            }
+        }
+
+        Voucher voucher = voucherRepository.findByCodeForUpdate(code).orElse(null);
+        if (voucher == null) {
+            return requests.stream()
+                    .map(request -> new ClaimVoucherResponse(false, false, code, request.orderId().trim(), request.orderAmount(), null, null, "voucher not found"))
+                    .toList();
+        }
+
+        Map<String, VoucherRedemption> redeemed = new HashMap<>();
+        List<String> orderIds = requests.stream().map(request -> request.orderId().trim()).distinct().toList();
+        for (VoucherRedemption existing : voucherRedemptionRepository.findByVoucherIdAndOrderIdIn(voucher.getId(), orderIds)) {
+            redeemed.put(existing.getOrderId(), existing);
+        }
+
+        int remaining = voucher.getQuotaRemaining();
+        List<VoucherRedemption> granted = new ArrayList<>();
+        List<ClaimVoucherResponse> responses = new ArrayList<>(requests.size());
+        for (ClaimVoucherRequest request : requests) {
+            String orderId = request.orderId().trim();
+            BigDecimal orderAmount = request.orderAmount();
+
+            VoucherRedemption existing = redeemed.get(orderId);
+            if (existing != null) {
+                responses.add(alreadyClaimed(code, orderId, existing, remaining));
+                continue;
+            }
+
+            String error = voucherPolicy.validateVoucherUsability(voucher, remaining, orderAmount, now);
+            if (error == null && !takeBuyerSlot(voucher, request.buyerId())) {
+                error = BUYER_LIMIT_REACHED;
+            }
+            if (error != null) {
+                responses.add(new ClaimVoucherResponse(false, false, code, orderId, orderAmount, null, remaining, error));
+                continue;
+            }
+
+            BigDecimal discount = voucherPolicy.calculateDiscount(orderAmount, voucher.getDiscountType(), voucher.getDiscountValue());
+            VoucherRedemption redemption = VoucherRedemption.builder()
+                    .voucher(voucher)
+                    .orderId(orderId)
+                    .buyerId(request.buyerId())
+                    .orderAmount(orderAmount)
+                    .discountApplied(discount)
+                    .build();
+            granted.add(redemption);
+            redeemed.put(orderId, redemption);
+            remaining--;
+            responses.add(new ClaimVoucherResponse(true, false, code, orderId, orderAmount, discount, remaining, "ok"));
+        }
+
+        if (!granted.isEmpty()) {
+            voucherRedemptionRepository.insertAll(granted);
+            voucher.setQuotaRemaining(remaining);
+        }
+        return responses;
+    }
+
+    /**
+     * Settles up to {@code limit} queued claims for one code through {@link #claimBatch} and records
+     * each outcome on its outbox entry in the same transaction. Returns how many entries were settled.
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public int settleQueued(String code, int limit) {
+        List<ClaimOutboxEntry> entries = claimOutboxRepository
+                .findByCodeAndStatusForUpdate(code, ClaimOutboxStatus.PENDING, Limit.of(limit));
+        if (entries.isEmpty()) {
+            return 0;
+        }
+
+        List<ClaimVoucherResponse> responses = claimBatch(code, entries.stream()
+                .map(entry -> new ClaimVoucherRequest(entry.getCode(), entry.getOrderId(), entry.getOrderAmount(), entry.getBuyerId()))
+                .toList());
+        Instant processedAt = Instant.now(clock);
+        for (int i = 0; i < entries.size(); i++) {
+            ClaimOutboxEntry entry = entries.get(i);
+            ClaimVoucherResponse response = responses.get(i);
+            entry.setStatus(ClaimOutboxStatus.DONE);
+            entry.setSuccess(response.success());
+            entry.setIdempotent(response.idempotent());
+            entry.setDiscountApplied(response.discountApplied());
+            entry.setQuotaRemaining(response.quotaRemaining());
+            entry.setMessage(response.message());
+            entry.setProcessedAt(processedAt);
+        }
+        return entries.size();
+    }
+
+    /**
+     * Claims every code in {@code codes} for one order, or none of them. Voucher rows are locked in id
+     * order so stacks sharing codes cannot deadlock, and each discount is calculated on what the codes
+     * before it left of the order amount, so the total never exceeds it. Codes the order already holds
+     * count as claimed.
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public ClaimStackedVouchersResponse claimStacked(List<String> codes, String orderId, BigDecimal orderAmount, Long buyerId) {
+        LocalDateTime now = LocalDateTime.now(clock);
+
+        Map<String, Long> voucherIds = new HashMap<>();
+        List<Long> rowLocked = new ArrayList<>();
+        List<Long> striped = new ArrayList<>();
+        for (VoucherRepository.VoucherKey key : voucherRepository.findKeysByCodeIn(codes)) {
+            voucherIds.put(key.getCode(), key.getId());
+            if (key.getQuotaStripes() != null && key.getQuotaStripes() > 1) {
+                striped.add(key.getId());
+            } else {
+                rowLocked.add(key.getId());
+            }
+        }
+        List<ClaimVoucherResponse> rejected = new ArrayList<>();
+        for (String code : codes) {
+            if (!voucherIds.containsKey(code)) {
+                rejected.add(new ClaimVoucherResponse(false, false, code, orderId, orderAmount, null, null, "voucher not found"));
+            }
+        }
+        if (!rejected.isEmpty()) {
+            return stackRejected(orderId, orderAmount, rejected);
+        }
+
+        Map<Long, Voucher> vouchers = new HashMap<>();
+        Map<Long, Integer> available = new HashMap<>();
+        if (!rowLocked.isEmpty()) {
+            for (Voucher voucher : voucherRepository.findAllByIdForUpdate(rowLocked)) {
+                vouchers.put(voucher.getId(), voucher);
+                available.put(voucher.getId(), voucher.getQuotaRemaining());
+            }
+        }
+        // Striped vouchers are guarded by their buckets, not their row: locking the row here would
+        // deadlock against a striped claim that holds a bucket while it inserts its redemption.
+        Collections.sort(striped);
+        for (Voucher voucher : voucherRepository.findAllById(striped)) {
+            vouchers.put(voucher.getId(), voucher);
+        }
+        for (Long voucherId : striped) {
+            available.put(voucherId, stripedQuotaService.lockAndSum(vouchers.get(voucherId)));
+        }
+
+        Map<Long, VoucherRedemption> redeemed = new HashMap<>();
+        for (VoucherRedemption existing : voucherRedemptionRepository.findByOrderIdAndVoucherIdIn(orderId, vouchers.keySet())) {
+            redeemed.put(existing.getVoucher().getId(), existing);
+        }
+
+        BigDecimal payable = orderAmount;
+        List<VoucherRedemption> granted = new ArrayList<>();
+        List<ClaimVoucherResponse> claims = new ArrayList<>(codes.size());
+        for (String code : codes) {
+            Voucher voucher = vouchers.get(voucherIds.get(code));
+            int quotaRemaining = available.get(voucher.getId());
+
+            VoucherRedemption existing = redeemed.get(voucher.getId());
+            if (existing != null) {
+                claims.add(alreadyClaimed(code, orderId, existing, quotaRemaining));
+                payable = payable.subtract(existing.getDiscountApplied());
+                continue;
+            }
+
+            String error = voucherPolicy.validateVoucherUsability(voucher, quotaRemaining, orderAmount, now);
+            if (error == null && !takeBuyerSlot(voucher, buyerId)) {
+                error = BUYER_LIMIT_REACHED;
+            }
+            if (error != null) {
+                rejected.add(new ClaimVoucherResponse(false, false, code, orderId, orderAmount, null, quotaRemaining, error));
+                continue;
+            }
+
+            BigDecimal discount = voucherPolicy.calculateDiscount(payable.max(BigDecimal.ZERO), voucher.getDiscountType(), voucher.getDiscountValue());
+            granted.add(VoucherRedemption.builder()
+                    .voucher(voucher)
+                    .orderId(orderId)
+                    .buyerId(buyerId)
+                    .orderAmount(orderAmount)
+                    .discountApplied(discount)
+                    .build());
+            payable = payable.subtract(discount);
+            claims.add(new ClaimVoucherResponse(true, false, code, orderId, orderAmount, discount, quotaRemaining - 1, "ok"));
+        }
+        if (!rejected.isEmpty()) {
+            // The stack commits nothing, so hand back the buyer slots the accepted codes took.
+            granted.forEach(redemption -> releaseBuyerSlot(redemption.getVoucher(), buyerId));
+            return stackRejected(orderId, orderAmount, rejected);
+        }
+
+        for (VoucherRedemption redemption : granted) {
+            Voucher voucher = redemption.getVoucher();
+            if (stripedQuotaService.isStriped(voucher)) {
+                // Every bucket is locked and their sum was positive, so this always finds a unit.
+                stripedQuotaService.tryConsume(voucher, orderId);
+            } else {
+                voucher.setQuotaRemaining(voucher.getQuotaRemaining() - 1);
+            }
+        }
+        boolean idempotent = granted.isEmpty();
+        if (!idempotent) {
+            voucherRedemptionRepository.insertAll(granted);
+        }
+
+        BigDecimal totalDiscount = claims.stream()
+                .map(ClaimVoucherResponse::discountApplied)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return new ClaimStackedVouchersResponse(
+                true,
+                idempotent,
+                orderId,
+                orderAmount,
+                totalDiscount,
+                claims,
+                idempotent ? "already claimed for this orderId" : "ok"
+        );
+    }
+
+    /**
+     * Takes one unit of quota off the voucher and parks it in a hold for this order until
+     * {@code expiresAt}. The discount is fixed now, so {@link #confirmHold} only has to write it down.
+     * Reserving again for the same order returns the existing hold with its expiry moved out.
+     *
+     * <p>Striped vouchers are not supported: their claims lock a bucket before the voucher row, and
+     * the hold sweeper needs the opposite order.
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public ClaimHoldResponse reserveHold(ClaimVoucherRequest request, LocalDateTime expiresAt) {
+        String code = voucherPolicy.normalizeCode(request.code());
+        String orderId = request.orderId().trim();
+        BigDecimal orderAmount = request.orderAmount();
+        LocalDateTime now = LocalDateTime.now(clock);
+
+        if (voucherRepository.findQuotaStripesByCode(code).orElse(1) > 1) {
+            return new ClaimHoldResponse(false, false, code, orderId, orderAmount, null, null, null, "holds are not supported for striped vouchers");
+        }
+        Voucher voucher = voucherRepository.findByCodeForUpdate(code).orElse(null);
+        if (voucher == null) {
+            return new ClaimHoldResponse(false, false, code, orderId, orderAmount, null, null, null, "voucher not found");
+        }
+
+        VoucherRedemption redemption = voucherRedemptionRepository
+                .findByVoucherIdAndOrderId(voucher.getId(), orderId)
+                .orElse(null);
+        if (redemption != null) {
+            return new ClaimHoldResponse(true, true, code, orderId, redemption.getOrderAmount(), redemption.getDiscountApplied(), voucher.getQuotaRemaining(), null, "already claimed for this orderId");
+        }
+
+        // A hold the sweeper has not reached yet still owns its unit, so it can simply be renewed.
+        VoucherClaimHold hold = voucherClaimHoldRepository
+                .findByVoucherIdAndOrderId(voucher.getId(), orderId)
+                .orElse(null);
+        if (hold != null) {
+            hold.setExpiresAt(expiresAt);
+            return new ClaimHoldResponse(true, true, code, orderId, hold.getOrderAmount(), hold.getDiscountApplied(), voucher.getQuotaRemaining(), expiresAt, "already held for this orderId");
+        }
+
+        String error = voucherPolicy.validateVoucherUsability(voucher, orderAmount, now);
+        if (error == null && !takeBuyerSlot(voucher, request.buyerId())) {
+            error = BUYER_LIMIT_REACHED;
+        }
+        if (error != null) {
+            return new ClaimHoldResponse(false, false, code, orderId, orderAmount, null, voucher.getQuotaRemaining(), null, error);
+        }
+
+        BigDecimal discount = voucherPolicy.calculateDiscount(orderAmount, voucher.getDiscountType(), voucher.getDiscountValue());
+        int remainingAfter = voucher.getQuotaRemaining() - 1;
+        voucher.setQuotaRemaining(remainingAfter);
+        voucherClaimHoldRepository.save(VoucherClaimHold.builder()
+                .voucher(voucher)
+                .orderId(orderId)
+                .buyerId(request.buyerId())
+                .orderAmount(orderAmount)
+                .discountApplied(discount)
+                .expiresAt(expiresAt)
+                .build());
+        return new ClaimHoldResponse(true, false, code, orderId, orderAmount, discount, remainingAfter, expiresAt, "held");
+    }
+
+    /**
+     * Turns a live hold into a redemption. The voucher row is only share-locked, so confirms do not
+     * queue behind each other; it is still taken before the hold so the sweeper, which locks the
+     * voucher first, cannot deadlock with us.
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public ClaimVoucherResponse confirmHold(String code, String orderId) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        Voucher voucher = voucherRepository.findByCodeForShare(code).orElse(null);
+        if (voucher == null) {
+            return new ClaimVoucherResponse(false, false, code, orderId, null, null, null, "voucher not found");
+        }
+
+        // An order that was also claimed directly keeps that redemption; its hold expires unused.
+        VoucherRedemption existing = voucherRedemptionRepository
+                .findByVoucherIdAndOrderId(voucher.getId(), orderId)
+                .orElse(null);
+        if (existing != null) {
+            return alreadyClaimed(code, orderId, existing, voucher.getQuotaRemaining());
+        }
+
+        VoucherClaimHold hold = voucherClaimHoldRepository
+                .findByVoucherIdAndOrderIdForUpdate(voucher.getId(), orderId)
+                .orElse(null);
+        if (hold == null) {
+            return new ClaimVoucherResponse(false, false, code, orderId, null, null, voucher.getQuotaRemaining(), "hold not found");
+        }
+        if (!now.isBefore(hold.getExpiresAt())) {
+            // Left for the sweeper, which gives the unit back under the exclusive row lock.
+            return new ClaimVoucherResponse(false, false, code, orderId, hold.getOrderAmount(), null, voucher.getQuotaRemaining(), "hold expired");
+        }
+
+        // Leased and conditional-update claims insert under at most a shared voucher lock, so one can
+        // land between the lookup above and this insert. It keeps its redemption; the hold is expired
+        // now so the sweeper gives its unit and buyer slot back, which needs the exclusive row lock.
+        int inserted = voucherRedemptionRepository.insertIfAbsent(
+                voucher.getId(),
+                orderId,
+                hold.getBuyerId(),
+                hold.getOrderAmount(),
+                hold.getDiscountApplied(),
+                Instant.now(clock)
+        );
+        if (inserted == 0) {
+            hold.setExpiresAt(now);
+            VoucherRedemption raced = voucherRedemptionRepository
+                    .findByVoucherIdAndOrderId(voucher.getId(), orderId)
+                    .orElseThrow(() -> new IllegalStateException("redemption insert ignored without a duplicate"));
+            return alreadyClaimed(code, orderId, raced, voucher.getQuotaRemaining());
+        }
+        voucherClaimHoldRepository.delete(hold);
+        return new ClaimVoucherResponse(true, false, code, orderId, hold.getOrderAmount(), hold.getDiscountApplied(), voucher.getQuotaRemaining(), "ok");
+    }
+
+    /** Deletes the voucher's holds that expired by {@code now} and gives their units back. */
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public int releaseExpiredHolds(Long voucherId, LocalDateTime now) {
+        Voucher voucher = voucherRepository.findByIdForUpdate(voucherId).orElse(null);
+        if (voucher == null) {
+            return 0;
+        }
+        if (voucher.getMaxClaimsPerBuyer() != null) {
+            for (VoucherClaimHoldRepository.BuyerHolds expired : voucherClaimHoldRepository.countExpiredByBuyer(voucherId, now)) {
+                voucherBuyerClaimsRepository.release(voucherId, expired.getBuyerId(), Math.toIntExact(expired.getHolds()));
+            }
+        }
+        int released = voucherClaimHoldRepository.deleteExpired(voucherId, now);
+        voucher.setQuotaRemaining(voucher.getQuotaRemaining() + released);
+        return released;
+    }
+
+    private static ClaimStackedVouchersResponse stackRejected(
+            String orderId,
+            BigDecimal orderAmount,
+            List<ClaimVoucherResponse> rejected
+    ) {
+        return new ClaimStackedVouchersResponse(false, false, orderId, orderAmount, null, rejected, "voucher stack rejected");
+    }
+
+    private ClaimVoucherResponse claimWithConditionalUpdate(
+            String code,
+            String orderId,
+            Long buyerId,
+            BigDecimal orderAmount,
+            LocalDateTime now
+    ) {
+        Voucher voucher = voucherRepository.findByCode(code).orElse(null);
+        if (voucher == null) {
+            return new ClaimVoucherResponse(false, false, code, orderId, orderAmount, null, null, "voucher not found");
+        }
+        if (stripedQuotaService.isStriped(voucher)) {
+            return claimFromStripes(voucher, code, orderId, buyerId, orderAmount, now);
+        }
+
+        // A retried order is only looked up once something rejects it: the insert below reports the
+        // duplicate, so a first claim costs no idempotency read.
+        String error = voucherPolicy.validateVoucherUsability(voucher, orderAmount, now);
+        if (error != null) {
+            return claimRejected(voucher, code, orderId, orderAmount, voucher.getQuotaRemaining(), error);
+        }
+
+        // The decrement runs before the insert: inserting a redemption takes a shared lock on the
+        // parent voucher row, and upgrading that to the decrement's exclusive lock deadlocks.
+        if (voucherRepository.decrementQuotaIfClaimable(voucher.getId(), VoucherStatus.ACTIVE, now) == 0) {
+            return claimRejected(voucher, code, orderId, orderAmount, 0, rejectionWithoutQuota(voucher, now));
+        }
+        if (!takeBuyerSlot(voucher, buyerId)) {
+            voucherRepository.incrementQuota(voucher.getId());
+            return claimRejected(voucher, code, orderId, orderAmount, voucher.getQuotaRemaining(), BUYER_LIMIT_REACHED);
+        }
+
+        BigDecimal discount = voucherPolicy.calculateDiscount(orderAmount, voucher.getDiscountType(), voucher.getDiscountValue());
+        int inserted = voucherRedemptionRepository.insertIfAbsent(
+                voucher.getId(),
+                orderId,
+                buyerId,
+                orderAmount,
+                discount,
+                Instant.now(clock)
+        );
+        if (inserted == 0) {
+            voucherRepository.incrementQuota(voucher.getId());
+            releaseBuyerSlot(voucher, buyerId);
+            VoucherRedemption raced = voucherRedemptionRepository
+                    .findByVoucherIdAndOrderId(voucher.getId(), orderId)
+                    .orElseThrow(() -> new IllegalStateException("redemption insert ignored without a duplicate"));
+            return alreadyClaimed(code, orderId, raced, voucher.getQuotaRemaining());
+        }
+
+        return new ClaimVoucherResponse(true, false, code, orderId, orderAmount, discount, Math.max(0, voucher.getQuotaRemaining() - 1), "ok");
+    }
+
+    // A conditional quota write that matched nothing may have lost to a disable, an expiry or an edit
+    // of the window rather than to other claims, so the stored state is read again to name the reason.
+    private String rejectionWithoutQuota(Voucher voucher, LocalDateTime now) {
+        return voucherRepository.findStateById(voucher.getId())
+                .map(state -> voucherPolicy.rejectionWithoutQuota(state, now))
+                .orElse("voucher not found");
+    }
+
+    private ClaimVoucherResponse claimRejected(
+            Voucher voucher,
+            String code,
+            String orderId,
+            BigDecimal orderAmount,
+            Integer quotaRemaining,
+            String error
+    ) {
+        return voucherRedemptionRepository
+                .findByVoucherIdAndOrderId(voucher.getId(), orderId)
+                .map(existing -> alreadyClaimed(code, orderId, existing, quotaRemaining))
+                .orElseGet(() -> new ClaimVoucherResponse(false, false, code, orderId, orderAmount, null, quotaRemaining, error));
+    }
+
+    private ClaimVoucherResponse claimFromStripes(
+            Voucher voucher,
+            String code,
+            String orderId,
+            Long buyerId,
+            BigDecimal orderAmount,
+            LocalDateTime now
+    ) {
+        // As in the conditional path, a retried order is found through the insert, not a lookup first.
+        String error = voucherPolicy.validateVoucherUsability(voucher, orderAmount, now);
+        if (error != null) {
+            return claimRejected(voucher, code, orderId, orderAmount, stripedQuotaService.remaining(voucher), error);
+        }
+
+        OptionalInt bucket = stripedQuotaService.tryConsume(voucher, orderId);
+        if (bucket.isEmpty()) {
+            // Buckets do not carry the voucher's status, so an empty set may hide a disable or expiry.
+            return claimRejected(voucher, code, orderId, orderAmount, 0, rejectionWithoutQuota(voucher, now));
+        }
+        if (!takeBuyerSlot(voucher, buyerId)) {
+            stripedQuotaService.release(voucher, bucket.getAsInt());
+            return claimRejected(voucher, code, orderId, orderAmount, stripedQuotaService.remaining(voucher), BUYER_LIMIT_REACHED);
+        }
+
+        BigDecimal discount = voucherPolicy.calculateDiscount(orderAmount, voucher.getDiscountType(), voucher.getDiscountValue());
+        int inserted = voucherRedemptionRepository.insertIfAbsent(
+                voucher.getId(),
+                orderId,
+                buyerId,
+                orderAmount,
+                discount,
+                Instant.now(clock)
+        );
+        if (inserted == 0) {
+            stripedQuotaService.release(voucher, bucket.getAsInt());
+            releaseBuyerSlot(voucher, buyerId);
+            VoucherRedemption raced = voucherRedemptionRepository
+                    .findByVoucherIdAndOrderId(voucher.getId(), orderId)
+                    .orElseThrow(() -> new IllegalStateException("redemption insert ignored without a duplicate"));
+            return alreadyClaimed(code, orderId, raced, stripedQuotaService.remaining(voucher));
+        }
+
+        return new ClaimVoucherResponse(true, false, code, orderId, orderAmount, discount, stripedQuotaService.remaining(voucher), "ok");
+    }
+
+    /**
+     * Claims against a unit this node already took off its in-memory lease counter. The voucher is
+     * read without a lock and the redemption is inserted from the lease row under a shared lock, so
+     * claims on one lease never queue behind each other. A lease returned or swept under this node
+     * inserts nothing and answers {@link #LEASE_LOST} rather than spending quota the voucher already
+     * has back; a retried order is only looked up once the insert has reported nothing inserted.
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public ClaimVoucherResponse claimFromLease(ClaimVoucherRequest request, Long leaseId, int leasedUnitsLeft) {
+        String code = voucherPolicy.normalizeCode(request.code());
+        String orderId = request.orderId().trim();
+        BigDecimal orderAmount = request.orderAmount();
+        LocalDateTime now = LocalDateTime.now(clock);
+
+        Voucher voucher = voucherRepository.findByCode(code).orElse(null);
+        if (voucher == null) {
+            return new ClaimVoucherResponse(false, false, code, orderId, orderAmount, null, null, "voucher not found");
+        }
+        int visibleQuota = voucher.getQuotaRemaining() + leasedUnitsLeft;
+
+        // The leased unit is already reserved for this claim, so only the status, window and
+        // minimum spend checks can still reject it.
+        String error = voucherPolicy.validateVoucherUsability(voucher, 1, orderAmount, now);
+        if (error != null) {
+            return claimRejected(voucher, code, orderId, orderAmount, visibleQuota, error);
+        }
+
+        BigDecimal discount = voucherPolicy.calculateDiscount(orderAmount, voucher.getDiscountType(), voucher.getDiscountValue());
+        int inserted = voucherRedemptionRepository.insertFromLease(
+                leaseId,
+                voucher.getId(),
+                orderId,
+                request.buyerId(),
+                orderAmount,
+                discount,
+                Instant.now(clock)
+        );
+        if (inserted == 0) {
+            return claimRejected(voucher, code, orderId, orderAmount, visibleQuota, LEASE_LOST);
+        }
+        // After the insert, which share-locks the voucher through its foreign key: a locking claim
+        // takes the voucher row before the buyer counter, so taking the counter first could deadlock.
+        if (!takeBuyerSlot(voucher, request.buyerId())) {
+            voucherRedemptionRepository.deleteByVoucherIdAndOrderId(voucher.getId(), orderId);
+            return new ClaimVoucherResponse(false, false, code, orderId, orderAmount, null, visibleQuota, BUYER_LIMIT_REACHED);
+        }
+
+        return new ClaimVoucherResponse(true, false, code, orderId, orderAmount, discount, visibleQuota, "ok");
+    }
+
+    /**
+     * Moves up to {@code units} of quota from the voucher row into a lease owned by {@code owner}.
+     * Returns {@code null} when the voucher cannot be leased (missing, striped, not claimable, or
+     * drained).
+     */
+    @Transactional
+    public QuotaLeaseGrant acquireLease(String code, String owner, int units, LocalDateTime expiresAt) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        Voucher voucher = voucherRepository.findByCodeForUpdate(code).orElse(null);
+        if (voucher == null || stripedQuotaService.isStriped(voucher) || !voucherPolicy.isClaimable(voucher, now)) {
+            return null;
+        }
+
+        int granted = Math.min(units, voucher.getQuotaRemaining());
+        voucher.setQuotaRemaining(voucher.getQuotaRemaining() - granted);
+        VoucherQuotaLease lease = voucherQuotaLeaseRepository.save(VoucherQuotaLease.builder()
+                .voucher(voucher)
+                .owner(owner)
+                .unitsGranted(granted)
+                .unitsLeft(granted)
+                .expiresAt(expiresAt)
+                .build());
+        return new QuotaLeaseGrant(lease.getId(), voucher.getId(), granted, expiresAt);
+    }
+
+    /**
+     * Gives the unused part of a lease back to its voucher. The lease row is locked first, the order
+     * leased claims take it in, which waits out claims still in flight and fences off later ones. Used
+     * units are counted from the redemptions tagged with the lease rather than read from
+     * {@code units_left}, which only holds the owner's last checkpoint, so a lease abandoned by a
+     * crashed node is settled exactly.
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public int returnLease(Long leaseId) {
+        VoucherQuotaLease lease = voucherQuotaLeaseRepository.findByIdForUpdate(leaseId).orElse(null);
+        if (lease == null) {
+            return 0;
+        }
+        Voucher voucher = voucherRepository.findByIdForUpdate(lease.getVoucher().getId()).orElseThrow();
+
+        long used = voucherRedemptionRepository.countByLeaseId(leaseId);
+        int unused = (int) Math.max(0, lease.getUnitsGranted() - used);
+        voucher.setQuotaRemaining(voucher.getQuotaRemaining() + unused);
+        voucherQuotaLeaseRepository.delete(lease);
+        return unused;
+    }
+
+    /**
+     * Counts one more claim against the buyer's limit on {@code voucher}, or returns {@code false} if
+     * the limit is reached. Claims without a buyer, and vouchers without a limit, are not counted.
+     */
+    private boolean takeBuyerSlot(Voucher voucher, Long buyerId) {
+        Integer limit = voucher.getMaxClaimsPerBuyer();
+        if (limit == null || buyerId == null) {
+            return true;
+        }
+        if (voucherBuyerClaimsRepository.incrementIfBelow(voucher.getId(), buyerId, limit) == 1
+                || voucherBuyerClaimsRepository.insertFirstClaim(voucher.getId(), buyerId) == 1) {
+            return true;
+        }
+        // The row was created by a concurrent claim after the first update missed it; under
+        // READ_COMMITTED the retry sees it.
+        return voucherBuyerClaimsRepository.incrementIfBelow(voucher.getId(), buyerId, limit) == 1;
+    }
+
+    private void releaseBuyerSlot(Voucher voucher, Long buyerId) {
+        if (voucher.getMaxClaimsPerBuyer() != null && buyerId != null) {
+            voucherBuyerClaimsRepository.release(voucher.getId(), buyerId, 1);
+        }
+    }
+
+    static ClaimVoucherResponse alreadyClaimed(
+            String code,
+            String orderId,
+            VoucherRedemption redemption,
+            Integer quotaRemaining
+    ) {
+        return new ClaimVoucherResponse(
+                true,
+                true,
+                code,
+                orderId,
+                redemption.getOrderAmount(),
+                redemption.getDiscountApplied(),
+                quotaRemaining,
+                "already claimed for this orderId"
+        );
+    }
+}
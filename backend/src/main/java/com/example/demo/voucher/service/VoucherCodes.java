@@ -0,0 +1,91 @@
+package com.example.demo.voucher.service;
+
+import java.util.Locale;
+
+/**
+ * Voucher code normalization ({@code trim}, then upper case) that only builds a new string when the
+ * code actually changes. Codes are almost always ASCII; anything else takes the {@link String} route,
+ * so every method agrees with {@code code.trim().toUpperCase(Locale.ROOT)}.
+ */
+public final class VoucherCodes {
+
+    private VoucherCodes() {
+    }
+
+    /** The normalized code; {@code code} itself when it is already normalized. */
+    public static String normalize(String code) {
+        int start = start(code);
+        int end = end(code, start);
+        for (int i = start; i < end; i++) {
+            char c = code.charAt(i);
+            if (c >= 0x80 || c >= 'a' && c <= 'z') {
+                return code.trim().toUpperCase(Locale.ROOT);
+            }
+        }
+        return start == 0 && end == code.length() ? code : code.substring(start, end);
+    }
+
+    /** {@code normalize(code).hashCode()}, computed over the raw characters. */
+    public static int hash(String code) {
+        int start = start(code);
+        int end = end(code, start);
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            char c = code.charAt(i);
+            if (c >= 0x80) {
+                return normalize(code).hashCode();
+            }
+            hash = 31 * hash + upper(c);
+        }
+        return hash;
+    }
+
+    /** True when {@code code} normalizes to {@code normalized}, compared over the raw characters. */
+    public static boolean matches(String code, String normalized) {
+        int start = start(code);
+        int end = end(code, start);
+        if (end - start != normalized.length()) {
+            // Upper-casing can change the length of a non-ASCII code.
+            return !isAscii(code, start, end) && normalize(code).equals(normalized);
+        }
+        for (int i = start; i < end; i++) {
+            char c = code.charAt(i);
+            if (c >= 0x80) {
+                return normalize(code).equals(normalized);
+            }
+            if (upper(c) != normalized.charAt(i - start)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int start(String code) {
+        int start = 0;
+        while (start < code.length() && code.charAt(start) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private static int end(String code, int start) {
+        int end = code.length();
+        while (end > start && code.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    private static boolean isAscii(String code, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (code.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static char upper(char c) {
+        return c >= 'a' && c <= 'z' ? (char) (c - ('a' - 'A')) : c;
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.demo.voucher.service;
+
+import com.example.demo.voucher.domain.VoucherStatus;
+import com.example.demo.voucher.repository.VoucherRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Writes {@code EXPIRED} to vouchers whose window has closed. Request paths never wait for this:
+ * they read the effective status from {@code endAt} (see {@link VoucherPolicy#effectiveStatus}), so
+ * the stored status only keeps the admin status filter cheap. Each chunk is its own short
+ * transaction, so no more than one chunk of rows is locked at a time.
+ *
+ * <p>{@link VoucherTimerWheel} expires vouchers on time as their end passes; the periodic sweep is a
+ * backstop for vouchers this instance never scheduled, such as ones edited on another instance.
+ */
+@Service
+public class VoucherExpiryService {
+
+    private final VoucherRepository voucherRepository;
+    private final int chunkSize;
+    private final Clock clock;
+    private final Counter expired;
+    private final Timer duration;
+
+    public VoucherExpiryService(
+            VoucherRepository voucherRepository,
+            MeterRegistry meterRegistry,
+            @Value("${app.voucher.expiry.chunk-size:500}") int chunkSize,
+            Clock clock
+    ) {
+        this.voucherRepository = voucherRepository;
+        this.chunkSize = chunkSize;
+        this.clock = clock;
+        this.expired = Counter.builder("voucher.expiry.expired")
+                .description("Vouchers marked expired by the expiry job")
+                .register(meterRegistry);
+        this.duration = Timer.builder("voucher.expiry.duration")
+                .description("Time taken by one expiry pass")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.voucher.expiry.sweep-interval-ms:900000}")
+    public void expireVouchers() {
+        duration.record(() -> {
+            LocalDateTime now = LocalDateTime.now(clock);
+            int total = 0;
+            List<Long> ids;
+            do {
+                ids = voucherRepository.findIdsToExpire(VoucherStatus.EXPIRED, now, Limit.of(chunkSize));
+                if (!ids.isEmpty()) {
+                    total += voucherRepository.markExpiredVouchers(ids, VoucherStatus.EXPIRED, now);
+                }
+            } while (ids.size() == chunkSize);
+            expired.increment(total);
+        });
+    }
+
+    /** Expires the given vouchers now, a chunk per transaction. Ids whose end has not passed are skipped. */
+    public void expire(List<Long> voucherIds) {
+        duration.record(() -> {
+            LocalDateTime now = LocalDateTime.now(clock);
+            int total = 0;
+            for (int from = 0; from < voucherIds.size(); from += chunkSize) {
+                List<Long> chunk = voucherIds.subList(from, Math.min(from + chunkSize, voucherIds.size()));
+                total += voucherRepository.markExpiredVouchers(chunk, VoucherStatus.EXPIRED, now);
+            }
+            expired.increment(total);
+        });
+    }
+}
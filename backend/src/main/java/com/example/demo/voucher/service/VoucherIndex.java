@@ -0,0 +1,219 @@
+package com.example.demo.voucher.service;
+
+import com.example.demo.voucher.api.dto.ClaimVoucherResponse;
+import com.example.demo.voucher.domain.DiscountType;
+import com.example.demo.voucher.domain.Money;
+import com.example.demo.voucher.domain.Voucher;
+import com.example.demo.voucher.domain.VoucherStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.UnaryOperator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Compact, immutable copies of the vouchers {@code validateVoucher} has looked up, keyed by normalized
+ * code, so repeat validations never reach the database. A zero TTL disables the index.
+ *
+ * <p>Claims made here lower the cached quota; admin writes invalidate the code up to the row version
+ * they will commit, so a lookup that read the row before the write cannot put the old copy back.
+ * Every entry expires after {@code app.voucher.index.ttl}, which bounds how long changes made on
+ * other instances go unseen. Validation is advisory: claims always check the row.
+ *
+ * <p>Entries live in an open-addressing table probed with the code as the client sent it (see
+ * {@link VoucherCodes}), so a lookup builds no strings and takes no lock. Writers are serialized; a
+ * table that fills up is rebuilt without its expired entries and swapped in whole.
+ */
+@Component
+public class VoucherIndex {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private volatile AtomicReferenceArray<Slot> table = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+    private int occupied;
+    private final long ttlMillis;
+    private final Clock clock;
+    private final Counter hits;
+    private final Counter misses;
+
+    public VoucherIndex(
+            MeterRegistry meterRegistry,
+            @Value("${app.voucher.index.ttl:5s}") Duration ttl,
+            Clock clock
+    ) {
+        this.ttlMillis = ttl.toMillis();
+        this.clock = clock;
+        this.hits = meterRegistry.counter("voucher.index.lookups", "result", "hit");
+        this.misses = meterRegistry.counter("voucher.index.lookups", "result", "miss");
+    }
+
+    /**
+     * Returns the indexed copy of {@code code}, or {@code null} when it has to be read from the database.
+     * {@code code} may be raw request input; it is matched as if normalized.
+     */
+    public IndexedVoucher get(String code) {
+        AtomicReferenceArray<Slot> slots = table;
+        int hash = VoucherCodes.hash(code);
+        int mask = slots.length() - 1;
+        Slot slot;
+        for (int i = spread(hash) & mask; ; i = (i + 1) & mask) {
+            slot = slots.get(i);
+            if (slot == null || slot.hash() == hash && VoucherCodes.matches(code, slot.code())) {
+                break;
+            }
+        }
+        if (slot == null || slot.voucher() == null || slot.until() <= clock.millis()) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return slot.voucher();
+    }
+
+    /**
+     * Indexes {@code voucher} as just read, unless a newer version is already indexed or was
+     * announced by {@link #invalidate}. Returns the copy either way.
+     */
+    public IndexedVoucher put(Voucher voucher, int quotaRemaining) {
+        IndexedVoucher indexed = IndexedVoucher.of(voucher, quotaRemaining);
+        long now = clock.millis();
+        update(indexed.code(), current -> current == null || current.until() <= now || indexed.version() >= current.version()
+                ? new Slot(indexed.code(), indexed.code().hashCode(), indexed, indexed.version(), now + ttlMillis)
+                : current);
+        return indexed;
+    }
+
+    /**
+     * Drops the voucher being written and, until the TTL runs out, refuses any copy older than the
+     * version the write commits.
+     */
+    public void invalidate(Voucher voucher) {
+        String code = voucher.getCode();
+        Slot tombstone = new Slot(code, code.hashCode(), null, versionOf(voucher) + 1, clock.millis() + ttlMillis);
+        update(code, current -> tombstone);
+    }
+
+    private static long versionOf(Voucher voucher) {
+        return voucher.getVersion() == null ? 0 : voucher.getVersion();
+    }
+
+    /** Quota only goes down through claims, so the lower of the two counts is the fresher one. */
+    public void observe(ClaimVoucherResponse response) {
+        Integer quotaRemaining = response.quotaRemaining();
+        if (quotaRemaining == null) {
+            return;
+        }
+        update(response.code(), slot -> slot == null
+                || slot.voucher() == null
+                || slot.voucher().quotaRemaining() <= quotaRemaining
+                ? slot
+                : new Slot(slot.code(), slot.hash(), slot.voucher().withQuotaRemaining(quotaRemaining), slot.version(), slot.until()));
+    }
+
+    private synchronized void update(String code, UnaryOperator<Slot> change) {
+        AtomicReferenceArray<Slot> slots = table;
+        int hash = code.hashCode();
+        int i = indexOf(slots, code, hash);
+        Slot current = slots.get(i);
+        Slot next = change.apply(current);
+        if (next == current) {
+            return;
+        }
+        if (current == null) {
+            if ((occupied + 1) * 2 > slots.length()) {
+                slots = rebuild();
+                i = indexOf(slots, code, hash);
+            }
+            occupied++;
+        }
+        slots.set(i, next);
+    }
+
+    // Called with the lock held. Readers keep probing the old table until the new one is published.
+    private AtomicReferenceArray<Slot> rebuild() {
+        AtomicReferenceArray<Slot> old = table;
+        long now = clock.millis();
+        int live = 0;
+        for (int i = 0; i < old.length(); i++) {
+            Slot slot = old.get(i);
+            if (slot != null && slot.until() > now) {
+                live++;
+            }
+        }
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < (live + 1) * 4) {
+            capacity <<= 1;
+        }
+        AtomicReferenceArray<Slot> rebuilt = new AtomicReferenceArray<>(capacity);
+        for (int i = 0; i < old.length(); i++) {
+            Slot slot = old.get(i);
+            if (slot != null && slot.until() > now) {
+                rebuilt.set(indexOf(rebuilt, slot.code(), slot.hash()), slot);
+            }
+        }
+        occupied = live;
+        table = rebuilt;
+        return rebuilt;
+    }
+
+    private static int indexOf(AtomicReferenceArray<Slot> slots, String code, int hash) {
+        int mask = slots.length() - 1;
+        int i = spread(hash) & mask;
+        while (true) {
+            Slot slot = slots.get(i);
+            if (slot == null || slot.hash() == hash && slot.code().equals(code)) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private record Slot(String code, int hash, IndexedVoucher voucher, long version, long until) {
+    }
+
+    public record IndexedVoucher(
+            Long id,
+            String code,
+            long version,
+            VoucherStatus status,
+            DiscountType discountType,
+            BigDecimal discountValue,
+            long discountValueMinor,
+            BigDecimal minSpend,
+            LocalDateTime startAt,
+            LocalDateTime endAt,
+            Integer maxClaimsPerBuyer,
+            int quotaRemaining
+    ) {
+        static IndexedVoucher of(Voucher voucher, int quotaRemaining) {
+            return new IndexedVoucher(
+                    voucher.getId(),
+                    voucher.getCode(),
+                    versionOf(voucher),
+                    voucher.getStatus(),
+                    voucher.getDiscountType(),
+                    voucher.getDiscountValue(),
+                    Money.toMinor(voucher.getDiscountValue()),
+                    voucher.getMinSpend(),
+                    voucher.getStartAt(),
+                    voucher.getEndAt(),
+                    voucher.getMaxClaimsPerBuyer(),
+                    quotaRemaining
+            );
+        }
+
+        IndexedVoucher withQuotaRemaining(int quotaRemaining) {
+            return new IndexedVoucher(
+                    id, code, version, status, discountType, discountValue, discountValueMinor, minSpend, startAt, endAt, maxClaimsPerBuyer, quotaRemaining);
+        }
+    }
+}
@@ -1,19 +1,20 @@
 package com.example.demo.voucher.service;
 
 import com.example.demo.voucher.domain.DiscountType;
+import com.example.demo.voucher.domain.Money;
 import com.example.demo.voucher.domain.Voucher;
 import com.example.demo.voucher.domain.VoucherStatus;
+import com.example.demo.voucher.repository.VoucherRepository;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
-import java.util.Locale;
 import org.springframework.stereotype.Component;
 
 @Component
 public class VoucherPolicy {
 
     public String normalizeCode(String code) {
-        return code.trim().toUpperCase(Locale.ROOT);
+        return VoucherCodes.normalize(code);
     }
 
     public void validateVoucherDefinition(LocalDateTime startAt, LocalDateTime endAt, DiscountType discountType, BigDecimal discountValue) {
@@ -37,32 +38,131 @@ public class VoucherPolicy {
         }
     }
 
+    /**
+     * The voucher's status as of {@code now}. A voucher past its end reads as expired even before the
+     * expiry job has written that to its row.
+     */
+    public VoucherStatus effectiveStatus(Voucher voucher, LocalDateTime now) {
+        return now.isAfter(voucher.getEndAt()) ? VoucherStatus.EXPIRED : voucher.getStatus();
+    }
+
     public String validateVoucherUsability(Voucher voucher, BigDecimal orderAmount, LocalDateTime now) {
-        if (voucher.getStatus() == VoucherStatus.EXPIRED) {
+        return validateVoucherUsability(voucher, voucher.getQuotaRemaining(), orderAmount, now);
+    }
+
+    public String validateVoucherUsability(Voucher voucher, int quotaRemaining, BigDecimal orderAmount, LocalDateTime now) {
+        return validateUsability(
+                voucher.getStatus(),
+                voucher.getStartAt(),
+                voucher.getEndAt(),
+                voucher.getMinSpend(),
+                quotaRemaining,
+                orderAmount,
+                now
+        );
+    }
+
+    public String validateVoucherUsability(VoucherIndex.IndexedVoucher voucher, BigDecimal orderAmount, LocalDateTime now) {
+        return validateUsability(
+                voucher.status(),
+                voucher.startAt(),
+                voucher.endAt(),
+                voucher.minSpend(),
+                voucher.quotaRemaining(),
+                orderAmount,
+                now
+        );
+    }
+
+    /** Why a voucher with no quota left cannot be claimed: its status or window when those fail first. */
+    public String rejectionWithoutQuota(VoucherRepository.VoucherState state, LocalDateTime now) {
+        return validateUsability(state.getStatus(), state.getStartAt(), state.getEndAt(), null, 0, BigDecimal.ZERO, now);
+    }
+
+    private String validateUsability(
+            VoucherStatus storedStatus,
+            LocalDateTime startAt,
+            LocalDateTime endAt,
+            BigDecimal minSpend,
+            int quotaRemaining,
+            BigDecimal orderAmount,
+            LocalDateTime now
+    ) {
+        if (now.isAfter(endAt) || storedStatus == VoucherStatus.EXPIRED) {
             return "voucher expired";
         }
-        if (voucher.getStatus() != VoucherStatus.ACTIVE) {
+        if (storedStatus != VoucherStatus.ACTIVE) {
             return "voucher inactive";
         }
-        if (now.isBefore(voucher.getStartAt()) || now.isAfter(voucher.getEndAt())) {
+        if (now.isBefore(startAt)) {
             return "voucher not in active period";
         }
-        if (voucher.getQuotaRemaining() <= 0) {
+        if (quotaRemaining <= 0) {
             return "voucher quota exhausted";
         }
-        if (voucher.getMinSpend() != null && orderAmount.compareTo(voucher.getMinSpend()) < 0) {
+        if (minSpend != null && orderAmount.compareTo(minSpend) < 0) {
             return "minimum spend not met";
         }
         return null;
     }
 
+    public boolean isClaimable(Voucher voucher, LocalDateTime now) {
+        return voucher.getStatus() == VoucherStatus.ACTIVE
+                && !now.isBefore(voucher.getStartAt())
+                && !now.isAfter(voucher.getEndAt())
+                && voucher.getQuotaRemaining() > 0;
+    }
+
+    /**
+     * The discount for an order, at two decimals, HALF_UP. A fixed discount is picked between the two
+     * amounts without arithmetic; a percentage of amounts that fit in minor units is worked out as
+     * {@code long}s. The result is identical either way.
+     */
     public BigDecimal calculateDiscount(BigDecimal orderAmount, DiscountType discountType, BigDecimal discountValue) {
-        BigDecimal discount;
-        if (discountType == DiscountType.PERCENT) {
-            discount = orderAmount.multiply(discountValue).divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP);
-        } else {
-            discount = discountValue;
+        if (discountType != DiscountType.PERCENT) {
+            return fixedDiscount(orderAmount, discountValue);
         }
+        return percentDiscount(orderAmount, discountValue, Money.toMinor(discountValue));
+    }
+
+    public BigDecimal calculateDiscount(BigDecimal orderAmount, VoucherIndex.IndexedVoucher voucher) {
+        if (voucher.discountType() != DiscountType.PERCENT) {
+            return fixedDiscount(orderAmount, voucher.discountValue());
+        }
+        return percentDiscount(orderAmount, voucher.discountValue(), voucher.discountValueMinor());
+    }
+
+    // A fixed discount is one of the two amounts as given. Comparing them allocates nothing, and neither
+    // does setScale on an amount that already has two places, so this needs no minor-unit form.
+    private static BigDecimal fixedDiscount(BigDecimal orderAmount, BigDecimal discountValue) {
+        BigDecimal discount = discountValue.compareTo(orderAmount) > 0 ? orderAmount : discountValue;
+        return discount.setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private BigDecimal percentDiscount(BigDecimal orderAmount, BigDecimal discountValue, long discountValueMinor) {
+        long orderAmountMinor = Money.toMinor(orderAmount);
+        if (orderAmountMinor == Money.NOT_EXACT || discountValueMinor == Money.NOT_EXACT) {
+            return decimalPercentDiscount(orderAmount, discountValue);
+        }
+        return Money.toDecimal(calculateDiscount(orderAmountMinor, DiscountType.PERCENT, discountValueMinor));
+    }
+
+    /** {@link #calculateDiscount(BigDecimal, DiscountType, BigDecimal)} in minor units; both amounts non-negative. */
+    public long calculateDiscount(long orderAmount, DiscountType discountType, long discountValue) {
+        if (discountType != DiscountType.PERCENT) {
+            return Math.min(discountValue, orderAmount);
+        }
+        if (discountValue >= 10_000) {
+            return orderAmount;
+        }
+        // orderAmount * discountValue / 10_000, split so that neither product can overflow.
+        long whole = orderAmount / 10_000;
+        long rest = orderAmount % 10_000;
+        return whole * discountValue + (rest * discountValue + 5_000) / 10_000;
+    }
+
+    private static BigDecimal decimalPercentDiscount(BigDecimal orderAmount, BigDecimal discountValue) {
+        BigDecimal discount = orderAmount.multiply(discountValue).divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP);
         if (discount.compareTo(orderAmount) > 0) {
             return orderAmount.setScale(2, RoundingMode.HALF_UP);
         }
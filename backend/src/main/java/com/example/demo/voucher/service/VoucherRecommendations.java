@@ -0,0 +1,163 @@
+package com.example.demo.voucher.service;
+
+import com.example.demo.voucher.api.dto.VoucherPublicResponse;
+import com.example.demo.voucher.api.dto.VoucherRecommendationResponse;
+import com.example.demo.voucher.domain.DiscountType;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import org.springframework.stereotype.Component;
+
+/**
+ * The best vouchers on sale for an order amount, without pricing every voucher in the catalog.
+ *
+ * <p>PERCENT and FIXED vouchers are kept apart, each sorted by minimum spend, with the top
+ * {@link #MAX_LIMIT} by discount value of every prefix worked out in advance. Within one type a larger
+ * value never gives a smaller discount, so a binary search for the vouchers the amount qualifies for
+ * leads straight to that type's best candidates, and at most {@code limit} of each are priced. The
+ * ranking is rebuilt once per catalog view, reusing every prefix before the first voucher whose
+ * place or value changed.
+ */
+@Component
+public class VoucherRecommendations {
+
+    public static final int MAX_LIMIT = 10;
+
+    private static final Comparator<VoucherPublicResponse> BY_MIN_SPEND =
+            Comparator.comparing(VoucherRecommendations::minSpend).thenComparing(VoucherPublicResponse::code);
+    private static final Comparator<VoucherPublicResponse> BY_VALUE =
+            Comparator.comparing(VoucherPublicResponse::discountValue).reversed().thenComparing(VoucherPublicResponse::code);
+    private static final Comparator<VoucherRecommendationResponse> BEST_FIRST =
+            Comparator.comparing(VoucherRecommendationResponse::discountAmount).reversed()
+                    .thenComparing(VoucherRecommendationResponse::code);
+
+    private final ActiveVoucherCatalog activeVoucherCatalog;
+    private final VoucherPolicy voucherPolicy;
+    private final AtomicReference<Ranking> cached = new AtomicReference<>(Ranking.EMPTY);
+
+    public VoucherRecommendations(ActiveVoucherCatalog activeVoucherCatalog, VoucherPolicy voucherPolicy) {
+        this.activeVoucherCatalog = activeVoucherCatalog;
+        this.voucherPolicy = voucherPolicy;
+    }
+
+    /** Up to {@code limit} vouchers usable on {@code orderAmount}, largest discount first. */
+    public List<VoucherRecommendationResponse> recommend(BigDecimal orderAmount, int limit) {
+        if (orderAmount.signum() < 0) {
+            throw new IllegalArgumentException("orderAmount must be >= 0");
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_LIMIT);
+        }
+        Ranking ranking = rankingFor(activeVoucherCatalog.view());
+        List<VoucherRecommendationResponse> candidates = new ArrayList<>(2 * limit);
+        addCandidates(candidates, ranking.percent(), orderAmount, limit);
+        addCandidates(candidates, ranking.fixed(), orderAmount, limit);
+        candidates.sort(BEST_FIRST);
+        return candidates.size() > limit ? List.copyOf(candidates.subList(0, limit)) : candidates;
+    }
+
+    Ranking rankingFor(ActiveVoucherCatalog.View view) {
+        // Keyed on the view itself, not its version number, so a ranking is never served for another list.
+        Ranking current = cached.get();
+        if (current.view() == view) {
+            return current;
+        }
+        List<VoucherPublicResponse> percent = new ArrayList<>();
+        List<VoucherPublicResponse> fixed = new ArrayList<>();
+        for (VoucherPublicResponse voucher : view.vouchers()) {
+            (voucher.discountType() == DiscountType.PERCENT ? percent : fixed).add(voucher);
+        }
+        Ranking next = new Ranking(view, current.percent().rebuild(percent), current.fixed().rebuild(fixed));
+        cached.compareAndSet(current, next);
+        return next;
+    }
+
+    private void addCandidates(List<VoucherRecommendationResponse> candidates, Ordering ordering, BigDecimal orderAmount, int limit) {
+        int qualifying = ordering.qualifying(orderAmount);
+        if (qualifying == 0) {
+            return;
+        }
+        int[] best = ordering.best()[qualifying - 1];
+        for (int i = 0; i < Math.min(limit, best.length); i++) {
+            VoucherPublicResponse voucher = ordering.vouchers()[best[i]];
+            candidates.add(new VoucherRecommendationResponse(
+                    voucher.code(),
+                    voucher.discountType(),
+                    voucher.discountValue(),
+                    voucher.minSpend(),
+                    voucherPolicy.calculateDiscount(orderAmount, voucher.discountType(), voucher.discountValue()),
+                    voucher.quotaRemaining(),
+                    voucher.endAt()
+            ));
+        }
+    }
+
+    private static BigDecimal minSpend(VoucherPublicResponse voucher) {
+        return voucher.minSpend() == null ? BigDecimal.ZERO : voucher.minSpend();
+    }
+
+    record Ranking(ActiveVoucherCatalog.View view, Ordering percent, Ordering fixed) {
+        static final Ranking EMPTY = new Ranking(null, Ordering.EMPTY, Ordering.EMPTY);
+    }
+
+    /**
+     * One discount type's vouchers by minimum spend; {@code best[i]} holds the indexes of the top
+     * {@link #MAX_LIMIT} of {@code vouchers[0..i]} by discount value.
+     */
+    record Ordering(VoucherPublicResponse[] vouchers, int[][] best) {
+        static final Ordering EMPTY = new Ordering(new VoucherPublicResponse[0], new int[0][]);
+
+        Ordering rebuild(List<VoucherPublicResponse> current) {
+            VoucherPublicResponse[] sorted = current.toArray(new VoucherPublicResponse[0]);
+            Arrays.sort(sorted, BY_MIN_SPEND);
+            // best[i] depends only on the codes and values up to i, not on quota, so a quota change
+            // reuses every prefix.
+            int unchanged = 0;
+            while (unchanged < Math.min(vouchers.length, sorted.length) && sameRank(vouchers[unchanged], sorted[unchanged])) {
+                unchanged++;
+            }
+            int[][] next = Arrays.copyOf(best, sorted.length);
+            for (int i = unchanged; i < sorted.length; i++) {
+                next[i] = withCandidate(i == 0 ? new int[0] : next[i - 1], i, sorted);
+            }
+            return new Ordering(sorted, next);
+        }
+
+        /** How many vouchers {@code orderAmount} meets the minimum spend of. */
+        int qualifying(BigDecimal orderAmount) {
+            int low = 0;
+            int high = vouchers.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (minSpend(vouchers[mid]).compareTo(orderAmount) <= 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private static int[] withCandidate(int[] top, int candidate, VoucherPublicResponse[] vouchers) {
+            int position = top.length;
+            while (position > 0 && BY_VALUE.compare(vouchers[candidate], vouchers[top[position - 1]]) < 0) {
+                position--;
+            }
+            if (position == MAX_LIMIT) {
+                return top;
+            }
+            int[] next = new int[Math.min(top.length + 1, MAX_LIMIT)];
+            System.arraycopy(top, 0, next, 0, position);
+            next[position] = candidate;
+            System.arraycopy(top, position, next, position + 1, next.length - position - 1);
+            return next;
+        }
+
+        private static boolean sameRank(VoucherPublicResponse previous, VoucherPublicResponse current) {
+            return previous.code().equals(current.code()) && previous.discountValue().compareTo(current.discountValue()) == 0;
+        }
+    }
+}
@@ -2,169 +2,357 @@ package com.example.demo.voucher.service;
 
 import com.example.demo.voucher.api.dto.CreateVoucherRequest;
 import com.example.demo.voucher.api.dto.CreateVoucherResponse;
+import com.example.demo.voucher.api.dto.ClaimStackedVouchersRequest;
+import com.example.demo.voucher.api.dto.ClaimStackedVouchersResponse;
 import com.example.demo.voucher.api.dto.ClaimVoucherRequest;
 import com.example.demo.voucher.api.dto.ClaimVoucherResponse;
 import com.example.demo.voucher.api.dto.EditVoucherRequest;
+import com.example.demo.voucher.api.dto.ValidateVoucherBatchRequest;
 import com.example.demo.voucher.api.dto.ValidateVoucherRequest;
 import com.example.demo.voucher.api.dto.ValidateVoucherResponse;
 import com.example.demo.voucher.api.dto.VoucherPublicResponse;
 import com.example.demo.voucher.domain.DiscountType;
 import com.example.demo.voucher.domain.Voucher;
-import com.example.demo.voucher.domain.VoucherRedemption;
 import com.example.demo.voucher.domain.VoucherStatus;
+import com.example.demo.voucher.repository.VoucherBuyerClaimsRepository;
 import com.example.demo.voucher.repository.VoucherRedemptionRepository;
 import com.example.demo.voucher.repository.VoucherRepository;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.Clock;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.DigestUtils;
 
 @Service
 public class VoucherService {
 
+    public static final int DEFAULT_ADMIN_PAGE_SIZE = 100;
+    public static final int MAX_ADMIN_PAGE_SIZE = 500;
+
     private final VoucherRepository voucherRepository;
     private final VoucherRedemptionRepository voucherRedemptionRepository;
+    private final VoucherBuyerClaimsRepository voucherBuyerClaimsRepository;
     private final VoucherPolicy voucherPolicy;
+    private final StripedQuotaService stripedQuotaService;
+    private final VoucherClaimProcessor voucherClaimProcessor;
+    private final QuotaLeaseService quotaLeaseService;
+    private final ClaimBatcher claimBatcher;
+    private final ClaimReplayCache claimReplayCache;
+    private final VoucherAdmissionGate voucherAdmissionGate;
+    private final VoucherTimerWheel voucherTimerWheel;
+    private final ActiveVoucherCatalog activeVoucherCatalog;
+    private final VoucherIndex voucherIndex;
     private final Clock clock;
 
     public VoucherService(
             VoucherRepository voucherRepository,
             VoucherRedemptionRepository voucherRedemptionRepository,
+            VoucherBuyerClaimsRepository voucherBuyerClaimsRepository,
             VoucherPolicy voucherPolicy,
+            StripedQuotaService stripedQuotaService,
+            VoucherClaimProcessor voucherClaimProcessor,
+            QuotaLeaseService quotaLeaseService,
+            ClaimBatcher claimBatcher,
+            ClaimReplayCache claimReplayCache,
+            VoucherAdmissionGate voucherAdmissionGate,
+            VoucherTimerWheel voucherTimerWheel,
+            ActiveVoucherCatalog activeVoucherCatalog,
+            VoucherIndex voucherIndex,
             Clock clock
     ) {
         this.voucherRepository = voucherRepository;
         this.voucherRedemptionRepository = voucherRedemptionRepository;
+        this.voucherBuyerClaimsRepository = voucherBuyerClaimsRepository;
         this.voucherPolicy = voucherPolicy;
+        this.stripedQuotaService = stripedQuotaService;
+        this.voucherClaimProcessor = voucherClaimProcessor;
+        this.quotaLeaseService = quotaLeaseService;
+        this.claimBatcher = claimBatcher;
+        this.claimReplayCache = claimReplayCache;
+        this.voucherAdmissionGate = voucherAdmissionGate;
+        this.voucherTimerWheel = voucherTimerWheel;
+        this.activeVoucherCatalog = activeVoucherCatalog;
+        this.voucherIndex = voucherIndex;
         this.clock = clock;
     }
 
-    @Transactional
     public List<VoucherPublicResponse> getActiveVouchers() {
-        LocalDateTime now = LocalDateTime.now(clock);
-        expireVouchers(now);
-        return voucherRepository
-                .findByStatusAndStartAtLessThanEqualAndEndAtGreaterThanEqualAndQuotaRemainingGreaterThan(
-                        VoucherStatus.ACTIVE,
-                        now,
-                        now,
-                        0
-                )
-                .stream()
-                .map(v -> new VoucherPublicResponse(
-                        v.getCode(),
-                        v.getDiscountType(),
-                        v.getDiscountValue(),
-                        v.getMinSpend(),
-                        v.getQuotaRemaining(),
-                        v.getStartAt(),
-                        v.getEndAt()
-                ))
-                .toList();
+        return activeVoucherCatalog.activeVouchers();
     }
 
-    @Transactional
-    public List<CreateVoucherResponse> getAdminVouchers(VoucherStatus status) {
+    public ActiveVoucherCatalog.View getActiveVoucherView() {
+        return activeVoucherCatalog.view();
+    }
+
+    /**
+     * The admin listing, newest first. Without a {@code cursor} or {@code limit} it is the whole list,
+     * as before paging existed. Otherwise it is one page of {@code limit} vouchers (default
+     * {@value #DEFAULT_ADMIN_PAGE_SIZE}): {@code cursor} is the {@code nextCursor} of the previous page,
+     * or null for the first, and the last page has no {@code nextCursor}.
+     */
+    @Transactional(readOnly = true)
+    public AdminVoucherPage getAdminVouchers(VoucherStatus status, String cursor, Integer limit) {
         LocalDateTime now = LocalDateTime.now(clock);
-        expireVouchers(now);
+        if (cursor == null && limit == null) {
+            List<Voucher> vouchers = findAdminVouchers(status, null, now, Limit.unlimited()).stream()
+                    .filter(v -> isListedAs(v, status, now))
+                    .toList();
+            return new AdminVoucherPage(toAdminResponses(vouchers, now), null);
+        }
+        int pageSize = limit == null ? DEFAULT_ADMIN_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > MAX_ADMIN_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_ADMIN_PAGE_SIZE);
+        }
+        AdminVoucherCursor position = cursor == null ? null : AdminVoucherCursor.decode(cursor);
+
+        // Vouchers that ended but are not yet marked EXPIRED are few; dropping them here keeps the
+        // query on the (status, created_at, id) index. When they do thin out a fetch, the next fetch
+        // continues after the last row read until the page is full, so the cursor never skips a match.
+        List<Voucher> vouchers = new ArrayList<>(pageSize);
+        boolean more = true;
+        while (more && vouchers.size() < pageSize) {
+            // One extra row tells whether another page follows.
+            List<Voucher> rows = findAdminVouchers(status, position, now, Limit.of(pageSize + 1));
+            more = rows.size() > pageSize;
+            for (Voucher row : rows) {
+                if (vouchers.size() == pageSize) {
+                    more = true;
+                    break;
+                }
+                position = AdminVoucherCursor.of(row);
+                if (isListedAs(row, status, now)) {
+                    vouchers.add(row);
+                }
+            }
+        }
+        return new AdminVoucherPage(toAdminResponses(vouchers, now), more ? position.encode() : null);
+    }
 
-        List<Voucher> vouchers = status == null
-                ? voucherRepository.findAllByOrderByCreatedAtDesc()
-                : voucherRepository.findByStatusOrderByCreatedAtDesc(status);
+    private List<Voucher> findAdminVouchers(VoucherStatus status, AdminVoucherCursor after, LocalDateTime now, Limit limit) {
+        if (status == null) {
+            return after == null
+                    ? voucherRepository.findAllByOrderByCreatedAtDescIdDesc(limit)
+                    : voucherRepository.findPageAfter(after.createdAt(), after.id(), limit);
+        }
+        if (status == VoucherStatus.EXPIRED) {
+            return after == null
+                    ? voucherRepository.findExpired(VoucherStatus.EXPIRED, now, limit)
+                    : voucherRepository.findExpiredPageAfter(VoucherStatus.EXPIRED, now, after.createdAt(), after.id(), limit);
+        }
+        return after == null
+                ? voucherRepository.findByStatusOrderByCreatedAtDescIdDesc(status, limit)
+                : voucherRepository.findByStatusPageAfter(status, after.createdAt(), after.id(), limit);
+    }
 
+    private boolean isListedAs(Voucher voucher, VoucherStatus status, LocalDateTime now) {
+        return status == null || status == VoucherStatus.EXPIRED || voucherPolicy.effectiveStatus(voucher, now) == status;
+    }
+
+    private List<CreateVoucherResponse> toAdminResponses(List<Voucher> vouchers, LocalDateTime now) {
+        Map<Long, Integer> remaining = remainingQuota(vouchers);
         return vouchers.stream()
-                .map(VoucherService::toCreateVoucherResponse)
+                .map(v -> toCreateVoucherResponse(v, remaining.get(v.getId()), voucherPolicy.effectiveStatus(v, now)))
                 .toList();
     }
 
-    @Transactional
     public ClaimVoucherResponse claimVoucher(ClaimVoucherRequest request) {
         String code = voucherPolicy.normalizeCode(request.code());
-        String orderId = request.orderId().trim();
-        Long buyerId = request.buyerId();
-        BigDecimal orderAmount = request.orderAmount();
-        LocalDateTime now = LocalDateTime.now(clock);
-        expireVouchers(now);
-
-        Voucher voucher = voucherRepository.findByCodeForUpdate(code).orElse(null);
-        if (voucher == null) {
-            return new ClaimVoucherResponse(false, false, code, orderId, orderAmount, null, null, "voucher not found");
+        ClaimVoucherResponse replay = claimReplayCache.lookup(code, request);
+        if (replay != null) {
+            return replay;
         }
-
-        VoucherRedemption existing = voucherRedemptionRepository
-                .findByVoucherIdAndOrderId(voucher.getId(), orderId)
-                .orElse(null);
-        if (existing != null) {
-            return new ClaimVoucherResponse(
-                    true,
-                    true,
-                    code,
-                    orderId,
-                    existing.getOrderAmount(),
-                    existing.getDiscountApplied(),
-                    voucher.getQuotaRemaining(),
-                    "already claimed for this orderId"
-            );
+        VoucherAdmissionGate.Closed closed = voucherAdmissionGate.check(code);
+        if (closed != null) {
+            return rejectAtGate(code, request, closed);
         }
 
-        String error = voucherPolicy.validateVoucherUsability(voucher, orderAmount, now);
-        if (error != null) {
-            return new ClaimVoucherResponse(false, false, code, orderId, orderAmount, null, voucher.getQuotaRemaining(), error);
+        ClaimVoucherResponse response;
+        if (quotaLeaseService.isEnabled()) {
+            response = quotaLeaseService.claim(request);
+        } else if (claimBatcher.isEnabled()) {
+            response = claimBatcher.claim(request);
+        } else {
+            response = voucherClaimProcessor.claim(request);
+        }
+        claimReplayCache.record(response);
+        voucherAdmissionGate.observe(response);
+        voucherIndex.observe(response);
+        if (VoucherAdmissionGate.NOT_STARTED.equals(response.message())) {
+            voucherRepository.findByCode(code)
+                    .ifPresent(voucher -> voucherAdmissionGate.closeUntilStart(code, voucher.getStartAt(), response.quotaRemaining()));
         }
+        return response;
+    }
+
+    private ClaimVoucherResponse rejectAtGate(String code, ClaimVoucherRequest request, VoucherAdmissionGate.Closed closed) {
+        String orderId = request.orderId().trim();
+        // An order that already holds the voucher still gets its idempotent answer; finding that out
+        // is a single indexed read with no lock.
+        return voucherRedemptionRepository.findByVoucherCodeAndOrderId(code, orderId)
+                .map(existing -> VoucherClaimProcessor.alreadyClaimed(code, orderId, existing, closed.quotaRemaining()))
+                .orElseGet(() -> new ClaimVoucherResponse(
+                        false,
+                        false,
+                        code,
+                        orderId,
+                        request.orderAmount(),
+                        null,
+                        closed.quotaRemaining(),
+                        closed.reason()
+                ));
+    }
 
-        BigDecimal discount = voucherPolicy.calculateDiscount(orderAmount, voucher.getDiscountType(), voucher.getDiscountValue());
+    /**
+     * Claims several codes for one order in a single transaction: either every code is claimed or
+     * none is. Stacked claims always lock the voucher rows directly, whatever the claim strategy.
+     */
+    public ClaimStackedVouchersResponse claimStackedVouchers(ClaimStackedVouchersRequest request) {
+        List<String> codes = request.codes().stream().map(voucherPolicy::normalizeCode).toList();
+        if (new HashSet<>(codes).size() != codes.size()) {
+            throw new IllegalArgumentException("duplicate voucher code");
+        }
+        String orderId = request.orderId().trim();
 
+        ClaimStackedVouchersResponse response;
         try {
-            voucherRedemptionRepository.save(VoucherRedemption.builder()
-                    .voucher(voucher)
-                    .orderId(orderId)
-                    .buyerId(buyerId)
-                    .orderAmount(orderAmount)
-                    .discountApplied(discount)
-                    .build());
+            response = voucherClaimProcessor.claimStacked(codes, orderId, request.orderAmount(), request.buyerId());
         } catch (DataIntegrityViolationException ex) {
-            VoucherRedemption retryExisting = voucherRedemptionRepository
-                    .findByVoucherIdAndOrderId(voucher.getId(), orderId)
-                    .orElseThrow(() -> ex);
-            return new ClaimVoucherResponse(
-                    true,
-                    true,
-                    code,
-                    orderId,
-                    retryExisting.getOrderAmount(),
-                    retryExisting.getDiscountApplied(),
-                    voucher.getQuotaRemaining(),
-                    "already claimed for this orderId"
-            );
+            // One of the codes was redeemed for this order outside the stack after it was checked. The
+            // stack rolled back; running it again sees that redemption as already claimed.
+            response = voucherClaimProcessor.claimStacked(codes, orderId, request.orderAmount(), request.buyerId());
         }
-
-        int remainingAfter = voucher.getQuotaRemaining() - 1;
-        voucher.setQuotaRemaining(remainingAfter);
-
-        return new ClaimVoucherResponse(true, false, code, orderId, orderAmount, discount, remainingAfter, "ok");
+        response.claims().forEach(claimReplayCache::record);
+        return response;
     }
 
-    @Transactional
+    /**
+     * Served from {@link VoucherIndex}, looked up with the code as sent; only a code it does not hold
+     * is normalized and read from the database.
+     */
     public ValidateVoucherResponse validateVoucher(ValidateVoucherRequest request) {
-        String code = voucherPolicy.normalizeCode(request.code());
+        VoucherIndex.IndexedVoucher voucher = voucherIndex.get(request.code());
+        String code = voucher == null ? voucherPolicy.normalizeCode(request.code()) : voucher.code();
         BigDecimal orderAmount = request.orderAmount();
+        VoucherAdmissionGate.Closed closed = voucherAdmissionGate.check(code);
+        if (closed != null) {
+            return new ValidateVoucherResponse(false, code, orderAmount, null, closed.reason());
+        }
+        if (voucher == null) {
+            Voucher loaded = voucherRepository.findByCode(code).orElse(null);
+            if (loaded != null) {
+                int quotaRemaining = stripedQuotaService.remaining(loaded) + quotaLeaseService.outstanding(loaded.getId());
+                voucher = voucherIndex.put(loaded, quotaRemaining);
+            }
+        }
+        ValidateVoucherResponse response = validate(code, voucher, orderAmount, LocalDateTime.now(clock));
+        return applyBuyerLimits(request.buyerId(), List.of(response), Collections.singletonMap(code, voucher)).get(0);
+    }
+
+    /**
+     * Validates every code in a cart against one order amount, answering in request order. Codes the
+     * index holds are answered from memory; the rest are read together with one {@code IN} query.
+     */
+    public List<ValidateVoucherResponse> validateVouchers(ValidateVoucherBatchRequest request) {
+        List<String> codes = new ArrayList<>(request.codes().size());
+        Map<String, VoucherIndex.IndexedVoucher> vouchers = new HashMap<>();
+        Map<String, VoucherAdmissionGate.Closed> closedCodes = new HashMap<>();
+        Set<String> toLoad = new HashSet<>();
+        for (String requested : request.codes()) {
+            VoucherIndex.IndexedVoucher voucher = voucherIndex.get(requested);
+            String code = voucher == null ? voucherPolicy.normalizeCode(requested) : voucher.code();
+            codes.add(code);
+            VoucherAdmissionGate.Closed closed = voucherAdmissionGate.check(code);
+            if (closed != null) {
+                closedCodes.put(code, closed);
+            } else if (voucher != null) {
+                vouchers.put(code, voucher);
+            } else {
+                toLoad.add(code);
+            }
+        }
+        if (!toLoad.isEmpty()) {
+            List<Voucher> loaded = voucherRepository.findByCodeIn(toLoad);
+            Map<Long, Integer> remaining = remainingQuota(loaded);
+            loaded.forEach(voucher -> vouchers.put(voucher.getCode(), voucherIndex.put(voucher, remaining.get(voucher.getId()))));
+        }
+
         LocalDateTime now = LocalDateTime.now(clock);
-        expireVouchers(now);
+        List<ValidateVoucherResponse> responses = new ArrayList<>(codes.size());
+        for (String code : codes) {
+            VoucherAdmissionGate.Closed closed = closedCodes.get(code);
+            responses.add(closed == null
+                    ? validate(code, vouchers.get(code), request.orderAmount(), now)
+                    : new ValidateVoucherResponse(false, code, request.orderAmount(), null, closed.reason()));
+        }
+        return applyBuyerLimits(request.buyerId(), responses, vouchers);
+    }
 
-        Voucher voucher = voucherRepository.findByCode(code).orElse(null);
+    /**
+     * Turns a valid answer into {@code buyer claim limit reached} when the buyer already holds as many
+     * claims as the voucher allows. Every limited voucher's counter is read with one query; without a
+     * {@code buyerId}, or with no limited voucher among the valid answers, nothing is read.
+     */
+    private List<ValidateVoucherResponse> applyBuyerLimits(
+            Long buyerId,
+            List<ValidateVoucherResponse> responses,
+            Map<String, VoucherIndex.IndexedVoucher> vouchers
+    ) {
+        if (buyerId == null) {
+            return responses;
+        }
+        Set<Long> limited = new HashSet<>();
+        for (ValidateVoucherResponse response : responses) {
+            VoucherIndex.IndexedVoucher voucher = vouchers.get(response.code());
+            if (response.valid() && voucher.maxClaimsPerBuyer() != null) {
+                limited.add(voucher.id());
+            }
+        }
+        if (limited.isEmpty()) {
+            return responses;
+        }
+        Map<Long, Integer> claims = new HashMap<>();
+        voucherBuyerClaimsRepository.findByIdVoucherIdInAndIdBuyerId(limited, buyerId)
+                .forEach(counter -> claims.put(counter.getId().getVoucherId(), counter.getClaims()));
+
+        List<ValidateVoucherResponse> limitedResponses = new ArrayList<>(responses.size());
+        for (ValidateVoucherResponse response : responses) {
+            VoucherIndex.IndexedVoucher voucher = vouchers.get(response.code());
+            boolean reached = response.valid()
+                    && limited.contains(voucher.id())
+                    && claims.getOrDefault(voucher.id(), 0) >= voucher.maxClaimsPerBuyer();
+            limitedResponses.add(reached
+                    ? new ValidateVoucherResponse(false, response.code(), response.orderAmount(), null, VoucherClaimProcessor.BUYER_LIMIT_REACHED)
+                    : response);
+        }
+        return limitedResponses;
+    }
+
+    private ValidateVoucherResponse validate(String code, VoucherIndex.IndexedVoucher voucher, BigDecimal orderAmount, LocalDateTime now) {
         if (voucher == null) {
             return new ValidateVoucherResponse(false, code, orderAmount, null, "voucher not found");
         }
-
         String error = voucherPolicy.validateVoucherUsability(voucher, orderAmount, now);
         if (error != null) {
+            if (VoucherAdmissionGate.NOT_STARTED.equals(error)) {
+                voucherAdmissionGate.closeUntilStart(code, voucher.startAt(), voucher.quotaRemaining());
+            } else {
+                voucherAdmissionGate.observe(code, error, voucher.quotaRemaining());
+            }
             return new ValidateVoucherResponse(false, code, orderAmount, null, error);
         }
 
-        BigDecimal discount = voucherPolicy.calculateDiscount(orderAmount, voucher.getDiscountType(), voucher.getDiscountValue());
+        BigDecimal discount = voucherPolicy.calculateDiscount(orderAmount, voucher);
         return new ValidateVoucherResponse(true, code, orderAmount, discount, "ok");
     }
 
@@ -187,6 +375,8 @@ public class VoucherService {
                 .minSpend(request.minSpend())
                 .quotaTotal(request.quotaTotal())
                 .quotaRemaining(request.quotaTotal())
+                .quotaStripes(request.quotaStripes() == null ? 1 : Math.min(request.quotaStripes(), request.quotaTotal()))
+                .maxClaimsPerBuyer(request.maxClaimsPerBuyer())
                 .status(VoucherStatus.ACTIVE)
                 .build();
 
@@ -197,6 +387,11 @@ public class VoucherService {
             throw new IllegalArgumentException("voucher code already exists");
         }
 
+        if (stripedQuotaService.isStriped(saved)) {
+            stripedQuotaService.createBuckets(saved);
+        }
+        voucherTimerWheel.schedule(saved);
+
         return toCreateVoucherResponse(saved);
     }
 
@@ -208,13 +403,19 @@ public class VoucherService {
                 request.discountType(),
                 request.discountValue()
         );
+        if (request.clearMaxClaimsPerBuyer() && request.maxClaimsPerBuyer() != null) {
+            throw new IllegalArgumentException("maxClaimsPerBuyer cannot be set and cleared at once");
+        }
 
         LocalDateTime now = LocalDateTime.now(clock);
-        expireVouchers(now);
-
         Voucher voucher = voucherRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("voucher not found"));
 
+        boolean striped = stripedQuotaService.isStriped(voucher);
+        if (striped) {
+            voucher.setQuotaRemaining(stripedQuotaService.lockAndSum(voucher));
+        }
+
         voucherPolicy.ensureVoucherEditable(voucher, now, request.quotaTotal());
         int claimed = voucher.getQuotaTotal() - voucher.getQuotaRemaining();
 
@@ -225,6 +426,14 @@ public class VoucherService {
         voucher.setMinSpend(request.minSpend());
         voucher.setQuotaTotal(request.quotaTotal());
         voucher.setQuotaRemaining(request.quotaTotal() - claimed);
+        updateBuyerLimit(voucher, request.maxClaimsPerBuyer(), request.clearMaxClaimsPerBuyer());
+
+        if (striped) {
+            stripedQuotaService.redistribute(voucher);
+        }
+        voucherAdmissionGate.openAfterCommit(voucher.getCode());
+        voucherIndex.invalidate(voucher);
+        voucherTimerWheel.schedule(voucher);
 
         return toCreateVoucherResponse(voucher);
     }
@@ -232,24 +441,50 @@ public class VoucherService {
     @Transactional
     public void disableVoucher(Long id) {
         LocalDateTime now = LocalDateTime.now(clock);
-        expireVouchers(now);
-
         Voucher voucher = voucherRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("voucher not found"));
 
         if (voucher.getStatus() == VoucherStatus.EXPIRED || now.isAfter(voucher.getEndAt())) {
             voucher.setStatus(VoucherStatus.EXPIRED);
+            voucherAdmissionGate.close(voucher.getCode(), VoucherAdmissionGate.EXPIRED, voucher.getQuotaRemaining());
+            voucherIndex.invalidate(voucher);
             return;
         }
 
         voucher.setStatus(VoucherStatus.INACTIVE);
+        voucherAdmissionGate.close(voucher.getCode(), VoucherAdmissionGate.INACTIVE, voucher.getQuotaRemaining());
+        voucherIndex.invalidate(voucher);
+    }
+
+    // A limit left out of the edit is kept; only an explicit clear removes it. Counters are only kept
+    // while a limit is set, so turning one on rebuilds them from history.
+    private void updateBuyerLimit(Voucher voucher, Integer maxClaimsPerBuyer, boolean clear) {
+        boolean wasLimited = voucher.getMaxClaimsPerBuyer() != null;
+        if (clear) {
+            voucher.setMaxClaimsPerBuyer(null);
+            if (wasLimited) {
+                voucherBuyerClaimsRepository.deleteByVoucherId(voucher.getId());
+            }
+        } else if (maxClaimsPerBuyer != null) {
+            voucher.setMaxClaimsPerBuyer(maxClaimsPerBuyer);
+            if (!wasLimited) {
+                voucherBuyerClaimsRepository.backfill(voucher.getId());
+            }
+        }
     }
 
-    private void expireVouchers(LocalDateTime now) {
-        voucherRepository.markExpiredVouchers(VoucherStatus.EXPIRED, now);
+    private Map<Long, Integer> remainingQuota(List<Voucher> vouchers) {
+        Map<Long, Integer> remaining = stripedQuotaService.remainingByVoucherId(vouchers);
+        quotaLeaseService.outstandingByVoucherId(remaining.keySet())
+                .forEach((voucherId, units) -> remaining.merge(voucherId, units, Integer::sum));
+        return remaining;
     }
 
     private static CreateVoucherResponse toCreateVoucherResponse(Voucher voucher) {
+        return toCreateVoucherResponse(voucher, voucher.getQuotaRemaining(), voucher.getStatus());
+    }
+
+    private static CreateVoucherResponse toCreateVoucherResponse(Voucher voucher, Integer quotaRemaining, VoucherStatus status) {
         return new CreateVoucherResponse(
                 voucher.getId(),
                 voucher.getCode(),
@@ -259,9 +494,21 @@ public class VoucherService {
                 voucher.getEndAt(),
                 voucher.getMinSpend(),
                 voucher.getQuotaTotal(),
-                voucher.getQuotaRemaining(),
-                voucher.getStatus()
+                quotaRemaining,
+                status,
+                voucher.getMaxClaimsPerBuyer()
         );
     }
-}
 
+    public record AdminVoucherPage(List<CreateVoucherResponse> vouchers, String nextCursor) {
+
+        /**
+         * Entity tag taken from the page itself, so it moves with anything the page shows (quota in
+         * buckets and leases, a voucher ending) and with nothing else.
+         */
+        public String etag() {
+            String content = vouchers + "|" + nextCursor;
+            return DigestUtils.md5DigestAsHex(content.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
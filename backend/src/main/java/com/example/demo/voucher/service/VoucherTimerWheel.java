@@ -0,0 +1,170 @@
+package com.example.demo.voucher.service;
+
+import com.example.demo.voucher.domain.Voucher;
+import com.example.demo.voucher.domain.VoucherStatus;
+import com.example.demo.voucher.repository.VoucherRepository;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Hashed timer wheel holding every voucher's start and end. Each slot is one tick wide; a transition
+ * further out than one turn of the wheel waits out the extra turns in its slot. Advancing costs one
+ * slot per tick, whatever the number of vouchers.
+ *
+ * <p>Loaded from the database at startup and kept current by admin creates and edits. When a voucher
+ * starts, its code is reopened at the admission gate; when it ends, it is written {@code EXPIRED}
+ * through {@link VoucherExpiryService}, which batches the ids that fall due together.
+ */
+@Service
+public class VoucherTimerWheel {
+
+    private final VoucherRepository voucherRepository;
+    private final VoucherExpiryService voucherExpiryService;
+    private final VoucherAdmissionGate voucherAdmissionGate;
+    private final long tickMillis;
+    private final List<List<Transition>> wheel;
+    private final int mask;
+    private final Map<Long, List<Transition>> byVoucher = new HashMap<>();
+    private final Clock clock;
+    private long currentTick;
+
+    public VoucherTimerWheel(
+            VoucherRepository voucherRepository,
+            VoucherExpiryService voucherExpiryService,
+            VoucherAdmissionGate voucherAdmissionGate,
+            @Value("${app.voucher.timer-wheel.tick-ms:100}") long tickMillis,
+            @Value("${app.voucher.timer-wheel.slots:512}") int slots,
+            Clock clock
+    ) {
+        this.voucherRepository = voucherRepository;
+        this.voucherExpiryService = voucherExpiryService;
+        this.voucherAdmissionGate = voucherAdmissionGate;
+        this.tickMillis = tickMillis;
+        int size = Integer.highestOneBit(Math.max(slots, 1) * 2 - 1);
+        this.wheel = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            wheel.add(new ArrayList<>());
+        }
+        this.mask = size - 1;
+        this.clock = clock;
+        this.currentTick = clock.millis() / tickMillis;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        for (VoucherRepository.VoucherWindow window : voucherRepository.findUnexpiredWindows(VoucherStatus.EXPIRED)) {
+            schedule(window.getId(), window.getCode(), window.getStartAt(), window.getEndAt());
+        }
+    }
+
+    /** Replaces whatever was scheduled for {@code voucher} with its current window. */
+    public void schedule(Voucher voucher) {
+        schedule(voucher.getId(), voucher.getCode(), voucher.getStartAt(), voucher.getEndAt());
+    }
+
+    public synchronized void schedule(Long voucherId, String code, LocalDateTime startAt, LocalDateTime endAt) {
+        cancel(voucherId);
+        List<Transition> transitions = new ArrayList<>(2);
+        long startTick = ceilDiv(epochMillis(startAt), tickMillis);
+        if (startTick > currentTick) {
+            transitions.add(add(new Transition(voucherId, code, false), startTick));
+        }
+        // A voucher is expired once now is after endAt, i.e. from the first tick that starts later.
+        transitions.add(add(new Transition(voucherId, code, true), epochMillis(endAt) / tickMillis + 1));
+        byVoucher.put(voucherId, transitions);
+    }
+
+    public synchronized void cancel(Long voucherId) {
+        List<Transition> transitions = byVoucher.remove(voucherId);
+        if (transitions != null) {
+            transitions.forEach(transition -> transition.cancelled = true);
+        }
+    }
+
+    /** Fires every transition due up to now. Ticks missed while the scheduler was held up are caught up. */
+    @Scheduled(fixedRateString = "${app.voucher.timer-wheel.tick-ms:100}")
+    public void advance() {
+        List<String> started = new ArrayList<>();
+        List<Long> ended = new ArrayList<>();
+        synchronized (this) {
+            long targetTick = clock.millis() / tickMillis;
+            while (currentTick < targetTick) {
+                currentTick++;
+                Iterator<Transition> slot = wheel.get((int) (currentTick & mask)).iterator();
+                while (slot.hasNext()) {
+                    Transition transition = slot.next();
+                    if (transition.cancelled) {
+                        slot.remove();
+                    } else if (transition.rounds > 0) {
+                        transition.rounds--;
+                    } else {
+                        slot.remove();
+                        forget(transition);
+                        if (transition.end) {
+                            ended.add(transition.voucherId);
+                        } else {
+                            started.add(transition.code);
+                        }
+                    }
+                }
+            }
+        }
+        started.forEach(voucherAdmissionGate::open);
+        if (!ended.isEmpty()) {
+            voucherExpiryService.expire(ended);
+        }
+    }
+
+    synchronized int pending() {
+        return byVoucher.values().stream().mapToInt(List::size).sum();
+    }
+
+    private Transition add(Transition transition, long deadlineTick) {
+        long tick = Math.max(deadlineTick, currentTick + 1);
+        transition.rounds = (tick - currentTick - 1) / wheel.size();
+        wheel.get((int) (tick & mask)).add(transition);
+        return transition;
+    }
+
+    // Live transitions are always indexed; cancel() drops the index entry only after marking them.
+    private void forget(Transition transition) {
+        List<Transition> transitions = byVoucher.get(transition.voucherId);
+        transitions.remove(transition);
+        if (transitions.isEmpty()) {
+            byVoucher.remove(transition.voucherId);
+        }
+    }
+
+    private long epochMillis(LocalDateTime time) {
+        return time.atZone(clock.getZone()).toInstant().toEpochMilli();
+    }
+
+    private static long ceilDiv(long x, long y) {
+        return -Math.floorDiv(-x, y);
+    }
+
+    private static final class Transition {
+
+        private final Long voucherId;
+        private final String code;
+        private final boolean end;
+        private long rounds;
+        private boolean cancelled;
+
+        private Transition(Long voucherId, String code, boolean end) {
+            this.voucherId = voucherId;
+            this.code = code;
+            this.end = end;
+        }
+    }
+}
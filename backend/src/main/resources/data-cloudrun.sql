@@ -7,6 +7,7 @@ INSERT INTO vouchers (
     min_spend,
     quota_total,
     quota_remaining,
+    quota_stripes,
     status,
     version,
     created_at,
@@ -21,6 +22,7 @@ SELECT
     100000.00,
     50,
     50,
+    1,
     'ACTIVE',
     0,
     CURRENT_TIMESTAMP(),
@@ -0,0 +1,4 @@
+-- The redemption export reads a claimed_at range, for one voucher or for all of them, in claimed_at
+-- order; each index serves one of the two shapes without a sort.
+CREATE INDEX idx_redemptions_voucher_claimed_at ON voucher_redemptions (voucher_id, claimed_at);
+CREATE INDEX idx_redemptions_claimed_at ON voucher_redemptions (claimed_at);
@@ -0,0 +1,3 @@
+-- Pruning deletes DONE entries processed before the retention cutoff. Nearly every entry is DONE, so
+-- without processed_at in the index the prune reads the whole table.
+CREATE INDEX idx_claim_outbox_status_processed_at ON voucher_claim_outbox (status, processed_at);
@@ -0,0 +1,13 @@
+ALTER TABLE vouchers
+    ADD COLUMN quota_stripes INT NOT NULL DEFAULT 1;
+
+CREATE TABLE voucher_quota_buckets (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    voucher_id BIGINT NOT NULL,
+    bucket_no INT NOT NULL,
+    quota_remaining INT NOT NULL,
+    CONSTRAINT pk_voucher_quota_buckets PRIMARY KEY (id),
+    CONSTRAINT uk_quota_buckets_voucher_bucket UNIQUE (voucher_id, bucket_no),
+    CONSTRAINT fk_quota_buckets_voucher FOREIGN KEY (voucher_id) REFERENCES vouchers (id) ON DELETE RESTRICT ON UPDATE RESTRICT,
+    CONSTRAINT chk_quota_buckets_quota_remaining CHECK (quota_remaining >= 0)
+) ENGINE = InnoDB;
@@ -0,0 +1,22 @@
+CREATE TABLE voucher_quota_leases (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    voucher_id BIGINT NOT NULL,
+    owner VARCHAR(64) NOT NULL,
+    units_granted INT NOT NULL,
+    -- Units the owning node still holds, as of its last sweep; claims count units off in memory.
+    units_left INT NOT NULL,
+    expires_at DATETIME(6) NOT NULL,
+    created_at TIMESTAMP(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+    CONSTRAINT pk_voucher_quota_leases PRIMARY KEY (id),
+    CONSTRAINT fk_quota_leases_voucher FOREIGN KEY (voucher_id) REFERENCES vouchers (id) ON DELETE RESTRICT ON UPDATE RESTRICT,
+    CONSTRAINT chk_quota_leases_units_granted CHECK (units_granted > 0),
+    CONSTRAINT chk_quota_leases_units_left CHECK (units_left >= 0)
+) ENGINE = InnoDB;
+
+CREATE INDEX idx_quota_leases_voucher_id ON voucher_quota_leases (voucher_id);
+CREATE INDEX idx_quota_leases_expires_at ON voucher_quota_leases (expires_at);
+
+ALTER TABLE voucher_redemptions
+    ADD COLUMN lease_id BIGINT NULL;
+
+CREATE INDEX idx_redemptions_lease_id ON voucher_redemptions (lease_id);
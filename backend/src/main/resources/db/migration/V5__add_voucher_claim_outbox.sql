@@ -0,0 +1,19 @@
+CREATE TABLE voucher_claim_outbox (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    code VARCHAR(64) NOT NULL,
+    order_id VARCHAR(64) NOT NULL,
+    buyer_id BIGINT NULL,
+    order_amount DECIMAL(19, 2) NOT NULL,
+    status VARCHAR(16) NOT NULL,
+    success BOOLEAN NULL,
+    idempotent BOOLEAN NULL,
+    discount_applied DECIMAL(19, 2) NULL,
+    quota_remaining INT NULL,
+    message VARCHAR(255) NULL,
+    created_at TIMESTAMP(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+    processed_at TIMESTAMP(6) NULL,
+    CONSTRAINT pk_voucher_claim_outbox PRIMARY KEY (id),
+    CONSTRAINT uk_claim_outbox_code_order UNIQUE (code, order_id)
+) ENGINE = InnoDB;
+
+CREATE INDEX idx_claim_outbox_status_code ON voucher_claim_outbox (status, code, id);
@@ -0,0 +1,16 @@
+CREATE TABLE voucher_claim_holds (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    voucher_id BIGINT NOT NULL,
+    order_id VARCHAR(64) NOT NULL,
+    buyer_id BIGINT NULL,
+    order_amount DECIMAL(19, 2) NOT NULL,
+    discount_applied DECIMAL(19, 2) NOT NULL,
+    expires_at DATETIME(6) NOT NULL,
+    created_at TIMESTAMP(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+    CONSTRAINT pk_voucher_claim_holds PRIMARY KEY (id),
+    CONSTRAINT uk_claim_holds_voucher_order UNIQUE (voucher_id, order_id),
+    CONSTRAINT fk_claim_holds_voucher FOREIGN KEY (voucher_id) REFERENCES vouchers (id) ON DELETE RESTRICT ON UPDATE RESTRICT
+) ENGINE = InnoDB;
+
+-- voucher_id rides along so the sweeper's expired-voucher scan never reads the table itself.
+CREATE INDEX idx_claim_holds_expires_at ON voucher_claim_holds (expires_at, voucher_id);
@@ -0,0 +1,14 @@
+ALTER TABLE vouchers
+    ADD COLUMN max_claims_per_buyer INT NULL;
+
+-- One row per (voucher, buyer) with a limit, so enforcing it is a primary-key update rather than a
+-- count over the buyer's redemptions. Like every other child of vouchers, the counters must be cleared
+-- explicitly before a voucher can be deleted rather than disappearing with it.
+CREATE TABLE voucher_buyer_claims (
+    voucher_id BIGINT NOT NULL,
+    buyer_id BIGINT NOT NULL,
+    claims INT NOT NULL,
+    CONSTRAINT pk_voucher_buyer_claims PRIMARY KEY (voucher_id, buyer_id),
+    CONSTRAINT fk_buyer_claims_voucher FOREIGN KEY (voucher_id) REFERENCES vouchers (id) ON DELETE RESTRICT ON UPDATE RESTRICT,
+    CONSTRAINT chk_buyer_claims_claims CHECK (claims >= 0)
+) ENGINE = InnoDB;
@@ -0,0 +1,10 @@
+-- Access paths over vouchers, status first so each query reads only its own status's rows:
+--   * active catalog: status = ACTIVE, end_at range; start_at is checked in the index before any row
+--     is read.
+--   * expiry: status <> EXPIRED, end_at checked in the index; every column it reads is in the index.
+--   * admin list: pages by (created_at, id), newest first, with or without a status filter. Naming id
+--     keeps the tie-break in the index, so every page is one backward range scan.
+-- quota_remaining is left out on purpose: it changes on every claim, and no query filters on it.
+CREATE INDEX idx_vouchers_status_end_at ON vouchers (status, end_at, start_at);
+CREATE INDEX idx_vouchers_status_created_at_id ON vouchers (status, created_at, id);
+CREATE INDEX idx_vouchers_created_at_id ON vouchers (created_at, id);
@@ -0,0 +1,71 @@
+package com.example.demo.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.zaxxer.hikari.HikariDataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.jdbc.autoconfigure.DataSourceProperties;
+
+class ReplicaDataSourceConfigTest {
+
+    private final ReplicaDataSourceConfig config = new ReplicaDataSourceConfig();
+
+    @Test
+    void readOnlyConnectionsShouldGoToTheReplicaOnlyWhileItIsCurrent() throws SQLException {
+        DataSource primary = dataSource();
+        DataSource replica = dataSource();
+        ReplicaLagMonitor monitor = mock(ReplicaLagMonitor.class);
+        DataSource routing = config.dataSource(primary, replica, monitor);
+
+        when(monitor.isReplicaCurrent()).thenReturn(true);
+        use(routing, true);
+        use(routing, false);
+        verify(replica, times(1)).getConnection();
+
+        when(monitor.isReplicaCurrent()).thenReturn(false);
+        use(routing, true);
+        verify(replica, times(1)).getConnection();
+    }
+
+    @Test
+    void replicaPoolShouldBeReadOnlyAndNamed() {
+        try (HikariDataSource replica = config.replicaDataSource("jdbc:mysql://replica:3306/voucherpromo", "app", "secret")) {
+            assertThat(replica.getJdbcUrl()).isEqualTo("jdbc:mysql://replica:3306/voucherpromo");
+            assertThat(replica.getUsername()).isEqualTo("app");
+            assertThat(replica.isReadOnly()).isTrue();
+            assertThat(replica.getPoolName()).isEqualTo("replica");
+        }
+    }
+
+    @Test
+    void primaryPoolShouldBeBuiltFromTheDatasourceProperties() {
+        DataSourceProperties properties = new DataSourceProperties();
+        properties.setUrl("jdbc:mysql://primary:3306/voucherpromo");
+        properties.setUsername("app");
+
+        try (HikariDataSource primary = config.primaryDataSource(properties)) {
+            assertThat(primary.getJdbcUrl()).isEqualTo("jdbc:mysql://primary:3306/voucherpromo");
+            assertThat(primary.isReadOnly()).isFalse();
+        }
+    }
+
+    private static DataSource dataSource() throws SQLException {
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenAnswer(invocation -> mock(Connection.class));
+        return dataSource;
+    }
+
+    private static void use(DataSource dataSource, boolean readOnly) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setReadOnly(readOnly);
+            connection.createStatement();
+        }
+    }
+}
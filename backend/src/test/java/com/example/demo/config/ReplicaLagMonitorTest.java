@@ -0,0 +1,84 @@
+package com.example.demo.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcOperations;
+
+class ReplicaLagMonitorTest {
+
+    private final JdbcOperations replica = mock(JdbcOperations.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ReplicaLagMonitor monitor = new ReplicaLagMonitor(replica, meterRegistry, Duration.ofSeconds(2));
+
+    @Test
+    void replicaShouldNotBeUsedBeforeTheFirstCheck() {
+        assertThat(monitor.isReplicaCurrent()).isFalse();
+        assertThat(lag()).isNaN();
+    }
+
+    @Test
+    void replicaShouldBeCurrentOnlyWithinTheLagLimit() {
+        when(replica.queryForList("SHOW REPLICA STATUS"))
+                .thenReturn(List.of(channel(1L)))
+                .thenReturn(List.of(channel(0L), channel(3L)));
+
+        monitor.check();
+        assertThat(monitor.isReplicaCurrent()).isTrue();
+        assertThat(lag()).isEqualTo(1000.0);
+
+        monitor.check();
+        assertThat(monitor.isReplicaCurrent()).isFalse();
+        assertThat(lag()).isEqualTo(3000.0);
+    }
+
+    @Test
+    void stoppedReplicationShouldSendReadsToThePrimary() {
+        when(replica.queryForList("SHOW REPLICA STATUS")).thenReturn(List.of(channel(0L), channel(null)));
+
+        monitor.check();
+
+        assertThat(monitor.isReplicaCurrent()).isFalse();
+        assertThat(lag()).isNaN();
+    }
+
+    @Test
+    void aFailedCheckShouldSendReadsToThePrimary() {
+        when(replica.queryForList("SHOW REPLICA STATUS"))
+                .thenReturn(List.of(channel(0L)))
+                .thenThrow(new DataAccessResourceFailureException("replica down"));
+
+        monitor.check();
+        monitor.check();
+
+        assertThat(monitor.isReplicaCurrent()).isFalse();
+    }
+
+    @Test
+    void aServerThatIsNotReplicatingShouldCountAsCurrent() {
+        when(replica.queryForList("SHOW REPLICA STATUS")).thenReturn(List.of());
+
+        monitor.check();
+
+        assertThat(monitor.isReplicaCurrent()).isTrue();
+        assertThat(lag()).isZero();
+    }
+
+    private double lag() {
+        return meterRegistry.get("voucher.replica.lag").gauge().value();
+    }
+
+    private static Map<String, Object> channel(Long secondsBehindSource) {
+        Map<String, Object> channel = new HashMap<>();
+        channel.put("Seconds_Behind_Source", secondsBehindSource);
+        return channel;
+    }
+}
@@ -13,7 +13,8 @@ public abstract class MySqlTestcontainersBase {
     static final MySQLContainer<?> mysql = new MySQLContainer<>("mysql:8.0")
             .withDatabaseName("voucherpromo_test")
             .withUsername("test")
-            .withPassword("test");
+            .withPassword("test")
+            .withUrlParam("useAffectedRows", "true");
 
     @DynamicPropertySource
     static void registerProperties(DynamicPropertyRegistry registry) {
@@ -6,7 +6,10 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 
 import jakarta.servlet.FilterChain;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
 
@@ -67,4 +70,21 @@ class InternalTokenFilterTest {
         verify(chain).doFilter(request, response);
         assertThat(response.getStatus()).isEqualTo(200);
     }
+
+    @ParameterizedTest
+    @MethodSource("internalPaths")
+    void doFilter_internalPath_missingToken_returns401(String path) throws Exception {
+        InternalTokenFilter filter = new InternalTokenFilter("secret");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain chain = mock(FilterChain.class);
+
+        filter.doFilter(new MockHttpServletRequest("POST", path), response, chain);
+
+        verifyNoInteractions(chain);
+        assertThat(response.getStatus()).isEqualTo(401);
+    }
+
+    static Stream<String> internalPaths() {
+        return InternalTokenFilter.INTERNAL_PATHS.stream().sorted();
+    }
 }
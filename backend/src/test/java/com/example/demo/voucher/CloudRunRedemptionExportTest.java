@@ -0,0 +1,92 @@
+package com.example.demo.voucher;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.demo.voucher.domain.DiscountType;
+import com.example.demo.voucher.domain.Voucher;
+import com.example.demo.voucher.domain.VoucherStatus;
+import com.example.demo.voucher.repository.VoucherRedemptionExport;
+import com.example.demo.voucher.repository.VoucherRedemptionRepository;
+import com.example.demo.voucher.repository.VoucherRepository;
+import com.example.demo.voucher.service.RedemptionExportFormat;
+import com.example.demo.voucher.service.RedemptionExportService;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+/** Runs the redemption export against the in-memory H2 database of the cloudrun profile. */
+@SpringBootTest
+@ActiveProfiles("cloudrun")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+class CloudRunRedemptionExportTest {
+
+    private static final Instant DAY = Instant.parse("2026-02-18T00:00:00Z");
+
+    @Autowired
+    private RedemptionExportService redemptionExportService;
+
+    @Autowired
+    private VoucherRepository voucherRepository;
+
+    @Autowired
+    private VoucherRedemptionRepository voucherRedemptionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void exportShouldStreamRedemptionsFromH2() throws IOException {
+        Long voucherId = saveVoucher("CLOUDRUN");
+        insertRedemption(voucherId, "ORDER-2", DAY.plusSeconds(200));
+        insertRedemption(voucherId, "ORDER-1", DAY.plusSeconds(100));
+
+        List<VoucherRedemptionExport.Row> rows = new ArrayList<>();
+        voucherRedemptionRepository.exportRedemptions(redemptionExportService.filter("cloudrun", null, null), rows::add);
+
+        assertThat(rows).extracting(VoucherRedemptionExport.Row::orderId).containsExactly("ORDER-1", "ORDER-2");
+        assertThat(rows.get(0).claimedAt()).isEqualTo(DAY.plusSeconds(100));
+        assertThat(export(redemptionExportService.filter("cloudrun", null, null), RedemptionExportFormat.CSV).lines())
+                .hasSize(3)
+                .first().isEqualTo("id,voucher_code,order_id,buyer_id,order_amount,discount_applied,claimed_at");
+    }
+
+    private String export(VoucherRedemptionExport.Filter filter, RedemptionExportFormat format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        redemptionExportService.export(filter, format, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private Long saveVoucher(String code) {
+        LocalDateTime now = LocalDateTime.now();
+        return voucherRepository.save(Voucher.builder()
+                .code(code)
+                .discountType(DiscountType.FIXED)
+                .discountValue(new BigDecimal("10.00"))
+                .startAt(now.minusDays(1))
+                .endAt(now.plusDays(1))
+                .minSpend(null)
+                .quotaTotal(10)
+                .quotaRemaining(10)
+                .status(VoucherStatus.ACTIVE)
+                .build()).getId();
+    }
+
+    private void insertRedemption(Long voucherId, String orderId, Instant claimedAt) {
+        jdbcTemplate.update("""
+                INSERT INTO voucher_redemptions (voucher_id, order_id, buyer_id, order_amount, discount_applied, claimed_at)
+                VALUES (?, ?, 123, 100.00, 10.00, ?)
+                """, voucherId, orderId, Timestamp.from(claimedAt));
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.demo.voucher;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest(properties = "app.voucher.claim-strategy=CONDITIONAL_UPDATE")
+class ConditionalUpdateClaimConcurrencyTest extends VoucherClaimConcurrencyTest {
+}
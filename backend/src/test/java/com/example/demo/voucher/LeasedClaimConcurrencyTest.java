@@ -0,0 +1,18 @@
+package com.example.demo.voucher;
+
+import com.example.demo.voucher.service.QuotaLeaseService;
+import org.junit.jupiter.api.AfterEach;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest(properties = "app.voucher.claim-strategy=LEASED")
+class LeasedClaimConcurrencyTest extends VoucherClaimConcurrencyTest {
+
+    @Autowired
+    private QuotaLeaseService quotaLeaseService;
+
+    @AfterEach
+    void returnLeases() {
+        quotaLeaseService.returnAllLeases();
+    }
+}
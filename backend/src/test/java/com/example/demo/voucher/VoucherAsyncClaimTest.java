@@ -0,0 +1,98 @@
+package com.example.demo.voucher;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.demo.it.MySqlTestcontainersBase;
+import com.example.demo.voucher.api.dto.ClaimTicketResponse;
+import com.example.demo.voucher.api.dto.ClaimVoucherRequest;
+import com.example.demo.voucher.domain.ClaimOutboxStatus;
+import com.example.demo.voucher.domain.DiscountType;
+import com.example.demo.voucher.domain.Voucher;
+import com.example.demo.voucher.domain.VoucherStatus;
+import com.example.demo.voucher.repository.ClaimOutboxRepository;
+import com.example.demo.voucher.repository.VoucherRedemptionRepository;
+import com.example.demo.voucher.repository.VoucherRepository;
+import com.example.demo.voucher.service.ClaimOutboxService;
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+@SpringBootTest(properties = {
+        "app.voucher.claim-outbox.poll-interval-ms=3600000",
+        "app.voucher.claim-outbox.batch-size=3"
+})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+class VoucherAsyncClaimTest extends MySqlTestcontainersBase {
+
+    @Autowired
+    private ClaimOutboxService claimOutboxService;
+
+    @Autowired
+    private ClaimOutboxRepository claimOutboxRepository;
+
+    @Autowired
+    private VoucherRepository voucherRepository;
+
+    @Autowired
+    private VoucherRedemptionRepository voucherRedemptionRepository;
+
+    @Autowired
+    private Clock clock;
+
+    @BeforeEach
+    void cleanup() {
+        claimOutboxRepository.deleteAll();
+        voucherRedemptionRepository.deleteAll();
+        voucherRepository.deleteAll();
+    }
+
+    @Test
+    void queuedClaims_areSettledInBatchesAndReportedByStatus() {
+        LocalDateTime now = LocalDateTime.now(clock);
+        voucherRepository.save(Voucher.builder()
+                .code("ASYNC5")
+                .discountType(DiscountType.FIXED)
+                .discountValue(new BigDecimal("10.00"))
+                .startAt(now.minusDays(1))
+                .endAt(now.plusDays(1))
+                .quotaTotal(5)
+                .quotaRemaining(5)
+                .status(VoucherStatus.ACTIVE)
+                .build());
+
+        List<ClaimTicketResponse> tickets = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            tickets.add(claimOutboxService.enqueue(new ClaimVoucherRequest("async5", "ORDER-" + i, new BigDecimal("100.00"), 123L)));
+        }
+        ClaimTicketResponse repeated = claimOutboxService.enqueue(new ClaimVoucherRequest("ASYNC5", "ORDER-0", new BigDecimal("999.00"), 123L));
+
+        assertThat(tickets).extracting(ClaimTicketResponse::status).containsOnly(ClaimOutboxStatus.PENDING);
+        assertThat(repeated.status()).isEqualTo(ClaimOutboxStatus.PENDING);
+        assertThat(claimOutboxRepository.count()).isEqualTo(8);
+
+        claimOutboxService.drain();
+
+        long granted = 0;
+        for (int i = 0; i < 8; i++) {
+            ClaimTicketResponse ticket = claimOutboxService.status("ASYNC5", "ORDER-" + i);
+            assertThat(ticket.status()).isEqualTo(ClaimOutboxStatus.DONE);
+            if (ticket.result().success()) {
+                granted++;
+            } else {
+                assertThat(ticket.result().message()).isEqualTo("voucher quota exhausted");
+            }
+        }
+        assertThat(granted).isEqualTo(5);
+        assertThat(claimOutboxService.status("ASYNC5", "ORDER-0").result().success()).isTrue();
+        assertThat(voucherRepository.findByCode("ASYNC5").orElseThrow().getQuotaRemaining()).isZero();
+        assertThat(voucherRedemptionRepository.count()).isEqualTo(5);
+        assertThat(claimOutboxService.status("ASYNC5", "ORDER-99")).isNull();
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.demo.voucher;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.demo.it.MySqlTestcontainersBase;
+import com.example.demo.voucher.api.dto.ClaimVoucherRequest;
+import com.example.demo.voucher.api.dto.ClaimVoucherResponse;
+import com.example.demo.voucher.domain.DiscountType;
+import com.example.demo.voucher.domain.Voucher;
+import com.example.demo.voucher.domain.VoucherStatus;
+import com.example.demo.voucher.repository.VoucherRedemptionRepository;
+import com.example.demo.voucher.repository.VoucherRepository;
+import com.example.demo.voucher.service.BulkClaimService;
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+@SpringBootTest(properties = "app.voucher.bulk-claim.chunk-size=4")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+class VoucherBulkClaimTest extends MySqlTestcontainersBase {
+
+    @Autowired
+    private BulkClaimService bulkClaimService;
+
+    @Autowired
+    private VoucherRepository voucherRepository;
+
+    @Autowired
+    private VoucherRedemptionRepository voucherRedemptionRepository;
+
+    @Autowired
+    private Clock clock;
+
+    @BeforeEach
+    void cleanup() {
+        voucherRedemptionRepository.deleteAll();
+        voucherRepository.deleteAll();
+    }
+
+    @Test
+    void bulkClaim_settlesMixedCodesAcrossChunksInInputOrder() {
+        saveVoucher("BULKA", 3);
+        saveVoucher("BULKB", 10);
+
+        List<ClaimVoucherRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            requests.add(new ClaimVoucherRequest(i % 2 == 0 ? "bulka" : "bulkb", "ORDER-" + i, new BigDecimal("100.00"), 123L));
+        }
+        requests.add(new ClaimVoucherRequest("BULKB", "ORDER-1", new BigDecimal("100.00"), 123L));
+        requests.add(new ClaimVoucherRequest("MISSING", "ORDER-1", new BigDecimal("100.00"), 123L));
+
+        List<ClaimVoucherResponse> responses = new ArrayList<>();
+        bulkClaimService.claim(requests, responses::addAll);
+
+        assertThat(responses).extracting(ClaimVoucherResponse::orderId)
+                .containsExactlyElementsOf(requests.stream().map(ClaimVoucherRequest::orderId).toList());
+        assertThat(responses.subList(0, 10)).extracting(ClaimVoucherResponse::message).containsExactly(
+                "ok", "ok", "ok", "ok", "ok", "ok",
+                "voucher quota exhausted", "ok", "voucher quota exhausted", "ok"
+        );
+        assertThat(responses.get(10).idempotent()).isTrue();
+        assertThat(responses.get(11).message()).isEqualTo("voucher not found");
+        assertThat(voucherRepository.findByCode("BULKA").orElseThrow().getQuotaRemaining()).isZero();
+        assertThat(voucherRepository.findByCode("BULKB").orElseThrow().getQuotaRemaining()).isEqualTo(5);
+        assertThat(voucherRedemptionRepository.count()).isEqualTo(8);
+    }
+
+    private void saveVoucher(String code, int quota) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        voucherRepository.save(Voucher.builder()
+                .code(code)
+                .discountType(DiscountType.FIXED)
+                .discountValue(new BigDecimal("10.00"))
+                .startAt(now.minusDays(1))
+                .endAt(now.plusDays(1))
+                .minSpend(null)
+                .quotaTotal(quota)
+                .quotaRemaining(quota)
+                .status(VoucherStatus.ACTIVE)
+                .build());
+    }
+}
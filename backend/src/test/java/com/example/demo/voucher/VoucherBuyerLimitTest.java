@@ -0,0 +1,177 @@
+package com.example.demo.voucher;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.demo.it.MySqlTestcontainersBase;
+import com.example.demo.voucher.api.dto.ClaimVoucherRequest;
+import com.example.demo.voucher.api.dto.ClaimVoucherResponse;
+import com.example.demo.voucher.domain.DiscountType;
+import com.example.demo.voucher.domain.Voucher;
+import com.example.demo.voucher.domain.VoucherStatus;
+import com.example.demo.voucher.repository.VoucherRepository;
+import com.example.demo.voucher.service.VoucherService;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+class VoucherBuyerLimitTest extends MySqlTestcontainersBase {
+
+    private static final String LIMIT_CHECK = """
+            UPDATE voucher_buyer_claims
+            SET claims = claims + 1
+            WHERE voucher_id = ? AND buyer_id = ? AND claims < ?
+            """;
+
+    private static final String HISTORY_COUNT = """
+            SELECT COUNT(*) FROM voucher_redemptions WHERE voucher_id = ? AND buyer_id = ?
+            """;
+
+    @Autowired
+    private VoucherService voucherService;
+
+    @Autowired
+    private VoucherRepository voucherRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private Clock clock;
+
+    // Plain deletes: the benchmark leaves tens of thousands of redemptions behind.
+    @BeforeEach
+    @AfterEach
+    void cleanup() {
+        jdbcTemplate.update("DELETE FROM voucher_redemptions");
+        jdbcTemplate.update("DELETE FROM voucher_buyer_claims");
+        jdbcTemplate.update("DELETE FROM vouchers");
+    }
+
+    @Test
+    void concurrentClaimsBySameBuyer_stopAtTheLimit() throws Exception {
+        saveVoucher("PERBUYER", 50, 3);
+
+        int workers = 20;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        List<Future<ClaimVoucherResponse>> futures = new ArrayList<>();
+        for (int i = 0; i < workers; i++) {
+            int idx = i;
+            futures.add(executor.submit(() -> {
+                start.await();
+                return voucherService.claimVoucher(new ClaimVoucherRequest("PERBUYER", "ORDER-" + idx, new BigDecimal("100.00"), 7L));
+            }));
+        }
+        start.countDown();
+
+        int success = 0;
+        for (Future<ClaimVoucherResponse> f : futures) {
+            ClaimVoucherResponse response = f.get();
+            if (response.success()) {
+                success++;
+            } else {
+                assertThat(response.message()).isEqualTo("buyer claim limit reached");
+            }
+        }
+        executor.shutdownNow();
+
+        assertThat(success).isEqualTo(3);
+        assertThat(voucherService.claimVoucher(new ClaimVoucherRequest("PERBUYER", "OTHER-1", new BigDecimal("100.00"), 8L)).success()).isTrue();
+        assertThat(voucherRepository.findByCode("PERBUYER").orElseThrow().getQuotaRemaining()).isEqualTo(46);
+    }
+
+    // Benchmark: the rows InnoDB reads for the limit check must not grow with the buyer's history,
+    // while the COUNT(*) it replaces reads one index entry per past redemption.
+    @Test
+    void limitCheckReadsTheSameRowsWhateverTheRedemptionHistory() throws SQLException {
+        Long shortHistory = seedHistory("SHORT", 10);
+        Long longHistory = seedHistory("LONG", 20_000);
+
+        long shortCheck = handlerReads(LIMIT_CHECK, shortHistory, 7L, Integer.MAX_VALUE);
+        long longCheck = handlerReads(LIMIT_CHECK, longHistory, 7L, Integer.MAX_VALUE);
+        long shortCount = handlerReads(HISTORY_COUNT, shortHistory, 7L);
+        long longCount = handlerReads(HISTORY_COUNT, longHistory, 7L);
+
+        assertThat(longCheck).isEqualTo(shortCheck);
+        assertThat(longCount).isGreaterThan(shortCount + 10_000);
+    }
+
+    private Long seedHistory(String code, int redemptions) {
+        Long voucherId = saveVoucher(code, redemptions + 10, Integer.MAX_VALUE);
+        List<Object[]> rows = new ArrayList<>(redemptions);
+        for (int i = 0; i < redemptions; i++) {
+            rows.add(new Object[] {voucherId, code + "-" + i, 7L});
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO voucher_redemptions (voucher_id, order_id, buyer_id, order_amount, discount_applied) VALUES (?, ?, ?, 100.00, 10.00)",
+                rows
+        );
+        jdbcTemplate.update("INSERT INTO voucher_buyer_claims (voucher_id, buyer_id, claims) VALUES (?, 7, ?)", voucherId, redemptions);
+        return voucherId;
+    }
+
+    /** Handler_read_* delta for one execution of {@code sql}, measured on a single session. */
+    private long handlerReads(String sql, Object... params) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            long before = sessionHandlerReads(connection);
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                for (int i = 0; i < params.length; i++) {
+                    statement.setObject(i + 1, params[i]);
+                }
+                statement.execute();
+            }
+            return sessionHandlerReads(connection) - before;
+        }
+    }
+
+    private static long sessionHandlerReads(Connection connection) throws SQLException {
+        long total = 0;
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SHOW SESSION STATUS LIKE 'Handler_read%'")) {
+            while (rs.next()) {
+                total += rs.getLong(2);
+            }
+        }
+        return total;
+    }
+
+    private Long saveVoucher(String code, int quota, int maxClaimsPerBuyer) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        return voucherRepository.save(Voucher.builder()
+                .code(code)
+                .discountType(DiscountType.FIXED)
+                .discountValue(new BigDecimal("10.00"))
+                .startAt(now.minusDays(1))
+                .endAt(now.plusDays(1))
+                .minSpend(null)
+                .quotaTotal(quota)
+                .quotaRemaining(quota)
+                .maxClaimsPerBuyer(maxClaimsPerBuyer)
+                .status(VoucherStatus.ACTIVE)
+                .build()).getId();
+    }
+}
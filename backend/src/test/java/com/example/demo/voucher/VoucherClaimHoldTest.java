@@ -0,0 +1,154 @@
+package com.example.demo.voucher;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.demo.it.MySqlTestcontainersBase;
+import com.example.demo.voucher.api.dto.ClaimHoldResponse;
+import com.example.demo.voucher.api.dto.ClaimVoucherRequest;
+import com.example.demo.voucher.api.dto.ClaimVoucherResponse;
+import com.example.demo.voucher.api.dto.ConfirmClaimRequest;
+import com.example.demo.voucher.domain.DiscountType;
+import com.example.demo.voucher.domain.Voucher;
+import com.example.demo.voucher.domain.VoucherStatus;
+import com.example.demo.voucher.repository.VoucherClaimHoldRepository;
+import com.example.demo.voucher.repository.VoucherRedemptionRepository;
+import com.example.demo.voucher.repository.VoucherRepository;
+import com.example.demo.voucher.service.ClaimHoldService;
+import com.example.demo.voucher.service.VoucherClaimProcessor;
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+class VoucherClaimHoldTest extends MySqlTestcontainersBase {
+
+    @Autowired
+    private ClaimHoldService claimHoldService;
+
+    @Autowired
+    private VoucherClaimProcessor voucherClaimProcessor;
+
+    @Autowired
+    private VoucherRepository voucherRepository;
+
+    @Autowired
+    private VoucherRedemptionRepository voucherRedemptionRepository;
+
+    @Autowired
+    private VoucherClaimHoldRepository voucherClaimHoldRepository;
+
+    @Autowired
+    private Clock clock;
+
+    @BeforeEach
+    @AfterEach
+    void cleanup() {
+        voucherClaimHoldRepository.deleteAll();
+        voucherRedemptionRepository.deleteAll();
+        voucherRepository.deleteAll();
+    }
+
+    @Test
+    void concurrentReservesNeverHoldMoreThanQuota_andConfirmsRedeemEveryHold() throws Exception {
+        saveVoucher("HOLD5", 5);
+
+        int workers = 20;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        List<Future<ClaimHoldResponse>> futures = new ArrayList<>();
+        for (int i = 0; i < workers; i++) {
+            int idx = i;
+            futures.add(executor.submit(() -> {
+                start.await();
+                return claimHoldService.reserve(new ClaimVoucherRequest("HOLD5", "ORDER-" + idx, new BigDecimal("100.00"), 123L));
+            }));
+        }
+        start.countDown();
+
+        List<String> held = new ArrayList<>();
+        for (Future<ClaimHoldResponse> f : futures) {
+            ClaimHoldResponse response = f.get();
+            if (response.success()) {
+                held.add(response.orderId());
+            } else {
+                assertThat(response.message()).isEqualTo("voucher quota exhausted");
+            }
+        }
+        executor.shutdownNow();
+
+        assertThat(held).hasSize(5);
+        assertThat(voucherRepository.findByCode("HOLD5").orElseThrow().getQuotaRemaining()).isZero();
+
+        for (String orderId : held) {
+            ClaimVoucherResponse confirmed = claimHoldService.confirm(new ConfirmClaimRequest("HOLD5", orderId));
+            assertThat(confirmed.success()).isTrue();
+            assertThat(confirmed.discountApplied()).isEqualByComparingTo("10.00");
+        }
+        assertThat(claimHoldService.confirm(new ConfirmClaimRequest("HOLD5", held.get(0))).idempotent()).isTrue();
+        assertThat(voucherClaimHoldRepository.count()).isZero();
+        assertThat(voucherRedemptionRepository.count()).isEqualTo(5);
+        assertThat(voucherRepository.findByCode("HOLD5").orElseThrow().getQuotaRemaining()).isZero();
+    }
+
+    @Test
+    void expiredHoldsAreReleasedByTheSweeper_andCannotBeConfirmed() {
+        saveVoucher("SWEEP", 3);
+        LocalDateTime past = LocalDateTime.now(clock).minusSeconds(1);
+        voucherClaimProcessor.reserveHold(new ClaimVoucherRequest("SWEEP", "ORDER-1", new BigDecimal("100.00"), null), past);
+        voucherClaimProcessor.reserveHold(new ClaimVoucherRequest("SWEEP", "ORDER-2", new BigDecimal("100.00"), null), past);
+        claimHoldService.reserve(new ClaimVoucherRequest("SWEEP", "ORDER-3", new BigDecimal("100.00"), null));
+
+        ClaimVoucherResponse late = claimHoldService.confirm(new ConfirmClaimRequest("SWEEP", "ORDER-1"));
+        claimHoldService.releaseExpired();
+
+        assertThat(late.success()).isFalse();
+        assertThat(late.message()).isIn("hold expired", "hold not found");
+        assertThat(voucherClaimHoldRepository.count()).isEqualTo(1);
+        assertThat(voucherRepository.findByCode("SWEEP").orElseThrow().getQuotaRemaining()).isEqualTo(2);
+        assertThat(claimHoldService.confirm(new ConfirmClaimRequest("SWEEP", "ORDER-3")).success()).isTrue();
+    }
+
+    @Test
+    void directClaimForAHeldOrder_settlesTheHoldWithoutTakingAnotherUnit() {
+        saveVoucher("HELD", 3);
+        ClaimVoucherRequest request = new ClaimVoucherRequest("HELD", "ORDER-1", new BigDecimal("100.00"), null);
+        claimHoldService.reserve(request);
+
+        ClaimVoucherResponse claimed = voucherClaimProcessor.claim(request);
+
+        assertThat(claimed.success()).isTrue();
+        assertThat(claimed.idempotent()).isFalse();
+        assertThat(voucherClaimHoldRepository.count()).isZero();
+        assertThat(voucherRedemptionRepository.count()).isEqualTo(1);
+        assertThat(voucherRepository.findByCode("HELD").orElseThrow().getQuotaRemaining()).isEqualTo(2);
+        assertThat(claimHoldService.confirm(new ConfirmClaimRequest("HELD", "ORDER-1")).idempotent()).isTrue();
+    }
+
+    private void saveVoucher(String code, int quota) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        voucherRepository.save(Voucher.builder()
+                .code(code)
+                .discountType(DiscountType.FIXED)
+                .discountValue(new BigDecimal("10.00"))
+                .startAt(now.minusDays(1))
+                .endAt(now.plusDays(1))
+                .minSpend(null)
+                .quotaTotal(quota)
+                .quotaRemaining(quota)
+                .status(VoucherStatus.ACTIVE)
+                .build());
+    }
+}
@@ -0,0 +1,424 @@
+package com.example.demo.voucher;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.demo.it.MySqlTestcontainersBase;
+import com.example.demo.voucher.domain.ClaimOutboxStatus;
+import com.example.demo.voucher.domain.Voucher;
+import com.example.demo.voucher.domain.VoucherRedemption;
+import com.example.demo.voucher.domain.VoucherStatus;
+import com.example.demo.voucher.repository.ClaimOutboxRepository;
+import com.example.demo.voucher.repository.VoucherBuyerClaimsRepository;
+import com.example.demo.voucher.repository.VoucherClaimHoldRepository;
+import com.example.demo.voucher.repository.VoucherQuotaBucketRepository;
+import com.example.demo.voucher.repository.VoucherQuotaLeaseRepository;
+import com.example.demo.voucher.repository.VoucherRedemptionExport;
+import com.example.demo.voucher.repository.VoucherRedemptionRepository;
+import com.example.demo.voucher.repository.VoucherRepository;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Query-plan regression suite: calls every repository query against a million vouchers and their
+ * child rows, records the SQL and parameters each one actually sends through the data source, and
+ * fails if EXPLAIN shows any of it reading a whole table or sorting its result. The seed is shaped
+ * like a long-running deployment: almost everything expired, a few percent live.
+ *
+ * <p>{@code findExpired} is left out: most of the table matches it, so its pages are read in
+ * {@code created_at} order and filtered rather than found through an index on the filter. Plain
+ * {@code INSERT ... VALUES} statements are recorded but have no plan to check.
+ */
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class VoucherQueryPlanTest extends MySqlTestcontainersBase {
+
+    // 10^6 vouchers. Out of every 200: 194 expired, 4 live, 1 not started yet, 1 disabled.
+    private static final String SEED = """
+            INSERT INTO vouchers (code, discount_type, discount_value, start_at, end_at, min_spend,
+                                  quota_total, quota_remaining, quota_stripes, status, created_at, updated_at)
+            WITH digits (d) AS (SELECT 0 UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3 UNION ALL SELECT 4
+                                UNION ALL SELECT 5 UNION ALL SELECT 6 UNION ALL SELECT 7 UNION ALL SELECT 8 UNION ALL SELECT 9),
+                 seq (n) AS (SELECT 1 + d1.d + 10 * d2.d + 100 * d3.d + 1000 * d4.d + 10000 * d5.d + 100000 * d6.d
+                             FROM digits d1, digits d2, digits d3, digits d4, digits d5, digits d6)
+            SELECT CONCAT('PLAN', n), 'FIXED', 10.00,
+                   CASE WHEN n % 200 = 198 THEN ? + INTERVAL 1 DAY ELSE ? - INTERVAL ((n % 1000) + 30) DAY END,
+                   CASE WHEN n % 200 < 194 THEN ? - INTERVAL ((n % 1000) + 1) DAY ELSE ? + INTERVAL ((n % 30) + 2) DAY END,
+                   NULL, 100, n % 100, 1,
+                   CASE WHEN n % 200 < 194 THEN 'EXPIRED' WHEN n % 200 = 199 THEN 'INACTIVE' ELSE 'ACTIVE' END,
+                   ? - INTERVAL n SECOND, ? - INTERVAL n SECOND
+            FROM seq
+            """;
+
+    // Child rows hang off disjoint slices of the vouchers: 200k redemptions (1 in 10 leased), 100k
+    // holds that are mostly live, 100k outbox entries that are mostly done, 10k leases with 40k
+    // buckets, and 100k buyer counters.
+    private static final String REDEMPTIONS_SEED = """
+            INSERT INTO voucher_redemptions (voucher_id, order_id, buyer_id, lease_id, order_amount, discount_applied, claimed_at)
+            SELECT id, CONCAT('ORDER', id), id % 50000, CASE WHEN id % 50 = 0 THEN id % 10000 + 1 END,
+                   100.00, 10.00, created_at + INTERVAL 1 HOUR
+            FROM vouchers
+            WHERE id % 5 = 0
+            """;
+    private static final String HOLDS_SEED = """
+            INSERT INTO voucher_claim_holds (voucher_id, order_id, buyer_id, order_amount, discount_applied, expires_at)
+            SELECT id, CONCAT('ORDER', id), id % 50000, 100.00, 10.00, ? + INTERVAL ((id % 1000) - 5) SECOND
+            FROM vouchers
+            WHERE id % 10 = 1
+            """;
+    private static final String OUTBOX_SEED = """
+            INSERT INTO voucher_claim_outbox (code, order_id, buyer_id, order_amount, status, processed_at)
+            SELECT code, CONCAT('ORDER', id), id % 50000, 100.00,
+                   CASE WHEN id % 1000 = 2 THEN 'PENDING' ELSE 'DONE' END,
+                   CASE WHEN id % 1000 = 2 THEN NULL ELSE ? - INTERVAL (id % 1000) HOUR END
+            FROM vouchers
+            WHERE id % 10 = 2
+            """;
+    private static final String LEASES_SEED = """
+            INSERT INTO voucher_quota_leases (voucher_id, owner, units_granted, units_left, expires_at)
+            SELECT id, CONCAT('node-', id % 8), 50, 10, ? + INTERVAL ((id % 600) - 10) SECOND
+            FROM vouchers
+            WHERE id % 100 = 3
+            """;
+    private static final String BUCKETS_SEED = """
+            INSERT INTO voucher_quota_buckets (voucher_id, bucket_no, quota_remaining)
+            SELECT v.id, b.n, 25
+            FROM vouchers v, (SELECT 0 AS n UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3) b
+            WHERE v.id % 100 = 4
+            """;
+    private static final String BUYER_CLAIMS_SEED = """
+            INSERT INTO voucher_buyer_claims (voucher_id, buyer_id, claims)
+            SELECT id, id % 50000, 1
+            FROM vouchers
+            WHERE id % 10 = 5
+            """;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private RecordingDataSource recordingDataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private VoucherRepository voucherRepository;
+
+    @Autowired
+    private VoucherRedemptionRepository voucherRedemptionRepository;
+
+    @Autowired
+    private VoucherClaimHoldRepository voucherClaimHoldRepository;
+
+    @Autowired
+    private ClaimOutboxRepository claimOutboxRepository;
+
+    @Autowired
+    private VoucherQuotaLeaseRepository voucherQuotaLeaseRepository;
+
+    @Autowired
+    private VoucherQuotaBucketRepository voucherQuotaBucketRepository;
+
+    @Autowired
+    private VoucherBuyerClaimsRepository voucherBuyerClaimsRepository;
+
+    private LocalDateTime now;
+
+    // The container lives for this class only, so the seed is not cleaned up.
+    @BeforeAll
+    void seed() {
+        now = LocalDateTime.now();
+        jdbcTemplate.update(SEED, now, now, now, now, now, now);
+        jdbcTemplate.update(REDEMPTIONS_SEED);
+        jdbcTemplate.update(HOLDS_SEED, now);
+        jdbcTemplate.update(OUTBOX_SEED, now);
+        jdbcTemplate.update(LEASES_SEED, now);
+        jdbcTemplate.update(BUCKETS_SEED);
+        jdbcTemplate.update(BUYER_CLAIMS_SEED);
+        jdbcTemplate.execute("ANALYZE TABLE vouchers, voucher_redemptions, voucher_claim_holds, voucher_claim_outbox, "
+                + "voucher_quota_leases, voucher_quota_buckets, voucher_buyer_claims");
+    }
+
+    @Test
+    void voucherRepositoryQueriesUseAnIndexWithoutSorting() {
+        Instant createdAt = Instant.now().minusSeconds(500_000);
+        List<String> regressions = new ArrayList<>();
+
+        explain(regressions, "findByCode", () -> voucherRepository.findByCode("PLAN12345"));
+        explain(regressions, "findByCodeIn", () -> voucherRepository.findByCodeIn(List.of("PLAN1", "PLAN2")));
+        explain(regressions, "findByCodeForUpdate", () -> voucherRepository.findByCodeForUpdate("PLAN12345"));
+        explain(regressions, "findByCodeForShare", () -> voucherRepository.findByCodeForShare("PLAN12345"));
+        explain(regressions, "findByIdForUpdate", () -> voucherRepository.findByIdForUpdate(12345L));
+        explain(regressions, "findAllByIdForUpdate", () -> voucherRepository.findAllByIdForUpdate(List.of(3L, 1L, 2L)));
+        explain(regressions, "findKeysByCodeIn", () -> voucherRepository.findKeysByCodeIn(List.of("PLAN1", "PLAN2")));
+        explain(regressions, "findQuotaStripesByCode", () -> voucherRepository.findQuotaStripesByCode("PLAN12345"));
+        explain(regressions, "findAllByOrderByCreatedAtDescIdDesc",
+                () -> voucherRepository.findAllByOrderByCreatedAtDescIdDesc(Limit.of(101)));
+        explain(regressions, "findPageAfter", () -> voucherRepository.findPageAfter(createdAt, 500_000L, Limit.of(101)));
+        explain(regressions, "findByStatusOrderByCreatedAtDescIdDesc(ACTIVE)",
+                () -> voucherRepository.findByStatusOrderByCreatedAtDescIdDesc(VoucherStatus.ACTIVE, Limit.of(101)));
+        explain(regressions, "findByStatusOrderByCreatedAtDescIdDesc(INACTIVE)",
+                () -> voucherRepository.findByStatusOrderByCreatedAtDescIdDesc(VoucherStatus.INACTIVE, Limit.of(101)));
+        explain(regressions, "findByStatusPageAfter",
+                () -> voucherRepository.findByStatusPageAfter(VoucherStatus.ACTIVE, createdAt, 500_000L, Limit.of(101)));
+        explain(regressions, "findByStatusAndEndAtGreaterThanEqual",
+                () -> voucherRepository.findByStatusAndEndAtGreaterThanEqual(VoucherStatus.ACTIVE, now));
+        explain(regressions, "findStateById", () -> voucherRepository.findStateById(12345L));
+        explain(regressions, "findQuotaByIdIn", () -> voucherRepository.findQuotaByIdIn(List.of(1L, 2L)));
+        explain(regressions, "findUnexpiredWindows", () -> voucherRepository.findUnexpiredWindows(VoucherStatus.EXPIRED));
+        explain(regressions, "findIdsToExpire",
+                () -> voucherRepository.findIdsToExpire(VoucherStatus.EXPIRED, now, Limit.of(500)));
+        explain(regressions, "markExpiredVouchers",
+                () -> voucherRepository.markExpiredVouchers(List.of(1L, 2L), VoucherStatus.EXPIRED, now));
+        explain(regressions, "decrementQuotaIfClaimable",
+                () -> voucherRepository.decrementQuotaIfClaimable(12345L, VoucherStatus.ACTIVE, now));
+        explain(regressions, "incrementQuota", () -> voucherRepository.incrementQuota(12345L));
+
+        assertThat(regressions).isEmpty();
+    }
+
+    @Test
+    void redemptionQueriesUseAnIndexWithoutSorting() {
+        Instant from = Instant.now().minus(Duration.ofDays(3));
+        List<String> regressions = new ArrayList<>();
+
+        explain(regressions, "findByVoucherIdAndOrderId",
+                () -> voucherRedemptionRepository.findByVoucherIdAndOrderId(12345L, "ORDER12345"));
+        explain(regressions, "findByVoucherCodeAndOrderId",
+                () -> voucherRedemptionRepository.findByVoucherCodeAndOrderId("PLAN12345", "ORDER12345"));
+        explain(regressions, "findByVoucherIdAndOrderIdIn",
+                () -> voucherRedemptionRepository.findByVoucherIdAndOrderIdIn(12345L, List.of("ORDER1", "ORDER2")));
+        explain(regressions, "findByOrderIdAndVoucherIdIn",
+                () -> voucherRedemptionRepository.findByOrderIdAndVoucherIdIn("ORDER12345", List.of(12345L, 12350L)));
+        explain(regressions, "countByLeaseId", () -> voucherRedemptionRepository.countByLeaseId(7L));
+        explain(regressions, "insertIfAbsent", () -> voucherRedemptionRepository.insertIfAbsent(
+                12345L, "ORDER12345", 7L, new BigDecimal("100.00"), new BigDecimal("10.00"), Instant.now()));
+        explain(regressions, "insertFromLease", () -> voucherRedemptionRepository.insertFromLease(
+                7L, 3L, "ORDER12345", 7L, new BigDecimal("100.00"), new BigDecimal("10.00"), Instant.now()));
+        explain(regressions, "VoucherRedemptionRepository.deleteByVoucherIdAndOrderId",
+                () -> voucherRedemptionRepository.deleteByVoucherIdAndOrderId(12345L, "ORDER12345"));
+        explain(regressions, "insertAll", () -> voucherRedemptionRepository.insertAll(List.of(VoucherRedemption.builder()
+                .voucher(Voucher.builder().id(12345L).build())
+                .orderId("ORDER-PLAN")
+                .orderAmount(new BigDecimal("100.00"))
+                .discountApplied(new BigDecimal("10.00"))
+                .build())));
+        explain(regressions, "exportRedemptions(range)", () -> voucherRedemptionRepository.exportRedemptions(
+                new VoucherRedemptionExport.Filter(null, from, from.plus(Duration.ofHours(1))), row -> { }));
+        explain(regressions, "exportRedemptions(code, range)", () -> voucherRedemptionRepository.exportRedemptions(
+                new VoucherRedemptionExport.Filter("PLAN12345", from, from.plus(Duration.ofDays(1))), row -> { }));
+
+        assertThat(regressions).isEmpty();
+    }
+
+    @Test
+    void holdOutboxAndQuotaQueriesUseAnIndexWithoutSorting() {
+        List<String> regressions = new ArrayList<>();
+
+        explain(regressions, "VoucherClaimHoldRepository.findByVoucherIdAndOrderId",
+                () -> voucherClaimHoldRepository.findByVoucherIdAndOrderId(12341L, "ORDER12341"));
+        explain(regressions, "findByVoucherIdAndOrderIdForUpdate",
+                () -> voucherClaimHoldRepository.findByVoucherIdAndOrderIdForUpdate(12341L, "ORDER12341"));
+        explain(regressions, "findVoucherIdsExpiredBy", () -> voucherClaimHoldRepository.findVoucherIdsExpiredBy(now, Limit.of(100)));
+        explain(regressions, "countExpiredByBuyer", () -> voucherClaimHoldRepository.countExpiredByBuyer(12341L, now));
+        explain(regressions, "deleteExpired", () -> voucherClaimHoldRepository.deleteExpired(12341L, now));
+
+        explain(regressions, "ClaimOutboxRepository.findByCodeAndOrderId",
+                () -> claimOutboxRepository.findByCodeAndOrderId("PLAN12342", "ORDER12342"));
+        explain(regressions, "findCodesByStatus", () -> claimOutboxRepository.findCodesByStatus(ClaimOutboxStatus.PENDING, Limit.of(100)));
+        explain(regressions, "findByCodeAndStatusForUpdate (SKIP LOCKED)",
+                () -> claimOutboxRepository.findByCodeAndStatusForUpdate("PLAN12342", ClaimOutboxStatus.PENDING, Limit.of(100)));
+        explain(regressions, "deleteByStatusAndProcessedAtBefore", () -> claimOutboxRepository.deleteByStatusAndProcessedAtBefore(
+                ClaimOutboxStatus.DONE, Instant.now().minus(Duration.ofHours(900))));
+        explain(regressions, "ClaimOutboxRepository.insertIfAbsent",
+                () -> claimOutboxRepository.insertIfAbsent("PLAN12342", "ORDER12342", 7L, new BigDecimal("100.00")));
+
+        explain(regressions, "VoucherQuotaLeaseRepository.findByIdForUpdate", () -> voucherQuotaLeaseRepository.findByIdForUpdate(7L));
+        explain(regressions, "findIdsExpiredBefore", () -> voucherQuotaLeaseRepository.findIdsExpiredBefore(now.minusSeconds(5)));
+        explain(regressions, "updateUnitsLeft", () -> voucherQuotaLeaseRepository.updateUnitsLeft(7L, 3));
+        explain(regressions, "sumUnitsLeftByVoucherIds", () -> voucherQuotaLeaseRepository.sumUnitsLeftByVoucherIds(List.of(3L, 103L)));
+
+        explain(regressions, "VoucherQuotaBucketRepository.findByVoucherIdForUpdate",
+                () -> voucherQuotaBucketRepository.findByVoucherIdForUpdate(12304L));
+        explain(regressions, "sumQuotaRemaining", () -> voucherQuotaBucketRepository.sumQuotaRemaining(12304L));
+        explain(regressions, "sumQuotaRemainingByVoucherIds",
+                () -> voucherQuotaBucketRepository.sumQuotaRemainingByVoucherIds(List.of(12304L, 12404L)));
+        explain(regressions, "decrementIfAvailable", () -> voucherQuotaBucketRepository.decrementIfAvailable(12304L, 2));
+        explain(regressions, "increment", () -> voucherQuotaBucketRepository.increment(12304L, 2));
+
+        explain(regressions, "findByIdVoucherIdInAndIdBuyerId",
+                () -> voucherBuyerClaimsRepository.findByIdVoucherIdInAndIdBuyerId(List.of(12345L, 12346L), 12345L));
+        explain(regressions, "incrementIfBelow", () -> voucherBuyerClaimsRepository.incrementIfBelow(12345L, 12345L, 3));
+        explain(regressions, "insertFirstClaim", () -> voucherBuyerClaimsRepository.insertFirstClaim(12345L, 12345L));
+        explain(regressions, "release", () -> voucherBuyerClaimsRepository.release(12345L, 12345L, 1));
+        explain(regressions, "backfill", () -> voucherBuyerClaimsRepository.backfill(12341L));
+        explain(regressions, "VoucherBuyerClaimsRepository.deleteByVoucherId", () -> voucherBuyerClaimsRepository.deleteByVoucherId(12345L));
+
+        assertThat(regressions).isEmpty();
+    }
+
+    /**
+     * Runs {@code call} in a transaction that is rolled back, so the seed stays as it is, and EXPLAINs
+     * every statement it sent with the parameters it bound.
+     */
+    private void explain(List<String> regressions, String query, Runnable call) {
+        TransactionTemplate rollback = new TransactionTemplate(transactionManager);
+        List<RecordedStatement> statements = recordingDataSource.record(() -> rollback.executeWithoutResult(status -> {
+            status.setRollbackOnly();
+            call.run();
+        }));
+        assertThat(statements).as(query + " sent no SQL").isNotEmpty();
+
+        Map<String, List<Object>> distinct = new LinkedHashMap<>();
+        statements.forEach(statement -> distinct.putIfAbsent(statement.sql(), statement.params()));
+        distinct.forEach((sql, params) -> {
+            for (Map<String, Object> row : jdbcTemplate.queryForList("EXPLAIN " + sql, params.toArray())) {
+                String table = String.valueOf(row.get("table"));
+                String extra = String.valueOf(row.get("Extra"));
+                // INSERT targets and derived tables have no access path of their own to check.
+                if ("INSERT".equals(row.get("select_type")) || table.startsWith("<")) {
+                    continue;
+                }
+                if ("ALL".equals(row.get("type")) || extra.contains("Using filesort")) {
+                    regressions.add(query + ": table=" + table + ", type=" + row.get("type") + ", key=" + row.get("key")
+                            + ", extra=" + extra + "\n    " + sql);
+                }
+            }
+        });
+    }
+
+    record RecordedStatement(String sql, List<Object> params) {
+    }
+
+    /**
+     * Wraps the application's data source so the statements prepared through it, by Hibernate and by
+     * the JdbcTemplate-backed repository fragments alike, can be recorded with their bound parameters.
+     */
+    static final class RecordingDataSource extends DelegatingDataSource {
+
+        private final List<RecordedStatement> recorded = new CopyOnWriteArrayList<>();
+        private volatile boolean recording;
+
+        RecordingDataSource(DataSource target) {
+            super(target);
+        }
+
+        synchronized List<RecordedStatement> record(Runnable calls) {
+            recorded.clear();
+            recording = true;
+            try {
+                calls.run();
+            } finally {
+                recording = false;
+            }
+            return List.copyOf(recorded);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return wrap(super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return wrap(super.getConnection(username, password));
+        }
+
+        private Connection wrap(Connection connection) {
+            return proxy(Connection.class, connection, (method, args, result) -> {
+                if (recording && "prepareStatement".equals(method.getName())
+                        && result instanceof PreparedStatement prepared && args[0] instanceof String sql) {
+                    return wrap(prepared, sql);
+                }
+                return result;
+            });
+        }
+
+        private PreparedStatement wrap(PreparedStatement statement, String sql) {
+            Map<Integer, Object> params = new TreeMap<>();
+            return proxy(PreparedStatement.class, statement, (method, args, result) -> {
+                String name = method.getName();
+                if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                    params.put(index, "setNull".equals(name) ? null : args[1]);
+                } else if ("clearParameters".equals(name)) {
+                    params.clear();
+                } else if (name.startsWith("execute") || "addBatch".equals(name)) {
+                    recorded.add(new RecordedStatement(sql, new ArrayList<>(params.values())));
+                }
+                return result;
+            });
+        }
+
+        private static <T> T proxy(Class<T> type, T target, AfterCall afterCall) {
+            InvocationHandler handler = (proxy, method, args) -> {
+                if ("equals".equals(method.getName()) && args != null && args.length == 1) {
+                    return proxy == args[0];
+                }
+                if ("hashCode".equals(method.getName()) && args == null) {
+                    return System.identityHashCode(proxy);
+                }
+                Object result;
+                try {
+                    result = method.invoke(target, args);
+                } catch (InvocationTargetException ex) {
+                    throw ex.getCause();
+                }
+                return afterCall.apply(method, args, result);
+            };
+            return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, handler));
+        }
+
+        @FunctionalInterface
+        private interface AfterCall {
+
+            Object apply(Method method, Object[] args, Object result) throws Throwable;
+        }
+    }
+
+    @TestConfiguration(proxyBeanMethods = false)
+    static class RecordingDataSourceConfig {
+
+        @Bean
+        static BeanPostProcessor recordingDataSourcePostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource && "dataSource".equals(beanName)
+                            ? new RecordingDataSource(dataSource)
+                            : bean;
+                }
+            };
+        }
+    }
+}
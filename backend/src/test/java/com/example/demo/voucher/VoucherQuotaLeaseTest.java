@@ -0,0 +1,144 @@
+package com.example.demo.voucher;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.demo.it.MySqlTestcontainersBase;
+import com.example.demo.voucher.api.dto.ClaimVoucherRequest;
+import com.example.demo.voucher.api.dto.ClaimVoucherResponse;
+import com.example.demo.voucher.api.dto.VoucherPublicResponse;
+import com.example.demo.voucher.domain.DiscountType;
+import com.example.demo.voucher.domain.Voucher;
+import com.example.demo.voucher.domain.VoucherRedemption;
+import com.example.demo.voucher.domain.VoucherStatus;
+import com.example.demo.voucher.repository.VoucherQuotaLeaseRepository;
+import com.example.demo.voucher.repository.VoucherRedemptionRepository;
+import com.example.demo.voucher.repository.VoucherRepository;
+import com.example.demo.voucher.service.QuotaLeaseGrant;
+import com.example.demo.voucher.service.QuotaLeaseService;
+import com.example.demo.voucher.service.VoucherClaimProcessor;
+import com.example.demo.voucher.service.VoucherService;
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+@SpringBootTest(properties = {
+        "app.voucher.claim-strategy=LEASED",
+        "app.voucher.lease.block-size=3",
+        "app.voucher.lease.grace=0s",
+        "app.voucher.catalog.max-staleness=0s"
+})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+class VoucherQuotaLeaseTest extends MySqlTestcontainersBase {
+
+    @Autowired
+    private VoucherService voucherService;
+
+    @Autowired
+    private QuotaLeaseService quotaLeaseService;
+
+    @Autowired
+    private VoucherClaimProcessor voucherClaimProcessor;
+
+    @Autowired
+    private VoucherRepository voucherRepository;
+
+    @Autowired
+    private VoucherRedemptionRepository voucherRedemptionRepository;
+
+    @Autowired
+    private VoucherQuotaLeaseRepository voucherQuotaLeaseRepository;
+
+    @Autowired
+    private Clock clock;
+
+    @BeforeEach
+    void cleanup() {
+        voucherRedemptionRepository.deleteAll();
+        voucherQuotaLeaseRepository.deleteAll();
+        voucherRepository.deleteAll();
+    }
+
+    @AfterEach
+    void returnLeases() {
+        quotaLeaseService.returnAllLeases();
+    }
+
+    @Test
+    void leasedClaims_reportQuotaIncludingLeasedUnitsAndSettleOnReturn() {
+        saveVoucher("LEASE10", 10);
+
+        ClaimVoucherRequest req = new ClaimVoucherRequest("LEASE10", "ORDER-1", new BigDecimal("100.00"), 123L);
+        ClaimVoucherResponse first = voucherService.claimVoucher(req);
+        ClaimVoucherResponse second = voucherService.claimVoucher(req);
+
+        assertThat(first.success()).isTrue();
+        assertThat(first.idempotent()).isFalse();
+        assertThat(second.idempotent()).isTrue();
+        assertThat(voucherRepository.findByCode("LEASE10").orElseThrow().getQuotaRemaining()).isEqualTo(7);
+        // Outstanding units are read from units_left, which the sweep checkpoints from memory.
+        quotaLeaseService.returnLeases();
+        assertThat(voucherQuotaLeaseRepository.findAll()).singleElement().satisfies(lease -> assertThat(lease.getUnitsLeft()).isEqualTo(2));
+        assertThat(voucherService.getActiveVouchers())
+                .extracting(VoucherPublicResponse::quotaRemaining)
+                .containsExactly(9);
+
+        quotaLeaseService.returnAllLeases();
+
+        assertThat(voucherRepository.findByCode("LEASE10").orElseThrow().getQuotaRemaining()).isEqualTo(9);
+        assertThat(voucherQuotaLeaseRepository.count()).isZero();
+    }
+
+    @Test
+    void abandonedLease_isSettledFromTaggedRedemptions() {
+        Voucher voucher = saveVoucher("CRASHED", 10);
+        LocalDateTime now = LocalDateTime.now(clock);
+        QuotaLeaseGrant grant = voucherClaimProcessor.acquireLease("CRASHED", "other-node", 4, now.minusSeconds(1));
+        voucherRedemptionRepository.save(VoucherRedemption.builder()
+                .voucher(voucher)
+                .orderId("ORDER-1")
+                .leaseId(grant.leaseId())
+                .orderAmount(new BigDecimal("100.00"))
+                .discountApplied(new BigDecimal("10.00"))
+                .build());
+
+        quotaLeaseService.returnLeases();
+
+        assertThat(voucherRepository.findByCode("CRASHED").orElseThrow().getQuotaRemaining()).isEqualTo(9);
+        assertThat(voucherQuotaLeaseRepository.count()).isZero();
+    }
+
+    @Test
+    void claimAgainstReturnedLease_isFencedOff() {
+        saveVoucher("FENCED", 10);
+        QuotaLeaseGrant grant = voucherClaimProcessor.acquireLease("FENCED", "other-node", 4, LocalDateTime.now(clock).plusSeconds(30));
+        voucherClaimProcessor.returnLease(grant.leaseId());
+
+        ClaimVoucherResponse resp = voucherClaimProcessor.claimFromLease(
+                new ClaimVoucherRequest("FENCED", "ORDER-1", new BigDecimal("100.00"), null), grant.leaseId(), 3);
+
+        assertThat(resp.success()).isFalse();
+        assertThat(resp.message()).isEqualTo("quota lease lost");
+        assertThat(voucherRedemptionRepository.count()).isZero();
+        assertThat(voucherRepository.findByCode("FENCED").orElseThrow().getQuotaRemaining()).isEqualTo(10);
+    }
+
+    private Voucher saveVoucher(String code, int quota) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        return voucherRepository.save(Voucher.builder()
+                .code(code)
+                .discountType(DiscountType.FIXED)
+                .discountValue(new BigDecimal("10.00"))
+                .startAt(now.minusDays(1))
+                .endAt(now.plusDays(1))
+                .quotaTotal(quota)
+                .quotaRemaining(quota)
+                .status(VoucherStatus.ACTIVE)
+                .build());
+    }
+}
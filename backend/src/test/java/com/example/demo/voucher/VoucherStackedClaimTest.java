@@ -0,0 +1,124 @@
+package com.example.demo.voucher;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.demo.it.MySqlTestcontainersBase;
+import com.example.demo.voucher.api.dto.ClaimStackedVouchersRequest;
+import com.example.demo.voucher.api.dto.ClaimStackedVouchersResponse;
+import com.example.demo.voucher.domain.DiscountType;
+import com.example.demo.voucher.domain.Voucher;
+import com.example.demo.voucher.domain.VoucherStatus;
+import com.example.demo.voucher.repository.VoucherRedemptionRepository;
+import com.example.demo.voucher.repository.VoucherRepository;
+import com.example.demo.voucher.service.VoucherService;
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+class VoucherStackedClaimTest extends MySqlTestcontainersBase {
+
+    @Autowired
+    private VoucherService voucherService;
+
+    @Autowired
+    private VoucherRepository voucherRepository;
+
+    @Autowired
+    private VoucherRedemptionRepository voucherRedemptionRepository;
+
+    @Autowired
+    private Clock clock;
+
+    @BeforeEach
+    void cleanup() {
+        voucherRedemptionRepository.deleteAll();
+        voucherRepository.deleteAll();
+    }
+
+    @Test
+    void stacksListingCodesInOppositeOrders_neverDeadlock() throws Exception {
+        saveVoucher("SHIP", DiscountType.FIXED, "15.00", 20);
+        saveVoucher("PCT10", DiscountType.PERCENT, "10.00", 20);
+
+        int workers = 20;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        List<Future<ClaimStackedVouchersResponse>> futures = new ArrayList<>();
+
+        for (int i = 0; i < workers; i++) {
+            int idx = i;
+            List<String> codes = idx % 2 == 0 ? List.of("SHIP", "PCT10") : List.of("PCT10", "SHIP");
+            futures.add(executor.submit(() -> {
+                start.await();
+                return voucherService.claimStackedVouchers(
+                        new ClaimStackedVouchersRequest(codes, "ORDER-" + idx, new BigDecimal("100.00"), 123L)
+                );
+            }));
+        }
+
+        start.countDown();
+
+        for (Future<ClaimStackedVouchersResponse> f : futures) {
+            ClaimStackedVouchersResponse response = f.get();
+            assertThat(response.success()).isTrue();
+            assertThat(response.totalDiscount()).isIn(new BigDecimal("23.50"), new BigDecimal("25.00"));
+        }
+
+        executor.shutdownNow();
+
+        assertThat(voucherRepository.findByCode("SHIP").orElseThrow().getQuotaRemaining()).isZero();
+        assertThat(voucherRepository.findByCode("PCT10").orElseThrow().getQuotaRemaining()).isZero();
+        assertThat(voucherRedemptionRepository.count()).isEqualTo(40);
+    }
+
+    @Test
+    void stackWithAnExhaustedCode_claimsNothing() {
+        saveVoucher("SHIP", DiscountType.FIXED, "15.00", 5);
+        saveVoucher("GONE", DiscountType.FIXED, "5.00", 0);
+
+        ClaimStackedVouchersResponse rejected = voucherService.claimStackedVouchers(
+                new ClaimStackedVouchersRequest(List.of("SHIP", "GONE"), "ORDER-1", new BigDecimal("100.00"), 123L)
+        );
+        ClaimStackedVouchersResponse retried = voucherService.claimStackedVouchers(
+                new ClaimStackedVouchersRequest(List.of("SHIP"), "ORDER-1", new BigDecimal("100.00"), 123L)
+        );
+        ClaimStackedVouchersResponse replayed = voucherService.claimStackedVouchers(
+                new ClaimStackedVouchersRequest(List.of("SHIP"), "ORDER-1", new BigDecimal("100.00"), 123L)
+        );
+
+        assertThat(rejected.success()).isFalse();
+        assertThat(rejected.claims()).hasSize(1);
+        assertThat(retried.success()).isTrue();
+        assertThat(replayed.idempotent()).isTrue();
+        assertThat(voucherRepository.findByCode("SHIP").orElseThrow().getQuotaRemaining()).isEqualTo(4);
+        assertThat(voucherRedemptionRepository.count()).isEqualTo(1);
+    }
+
+    private void saveVoucher(String code, DiscountType discountType, String discountValue, int quota) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        voucherRepository.save(Voucher.builder()
+                .code(code)
+                .discountType(discountType)
+                .discountValue(new BigDecimal(discountValue))
+                .startAt(now.minusDays(1))
+                .endAt(now.plusDays(1))
+                .minSpend(null)
+                .quotaTotal(quota)
+                .quotaRemaining(quota)
+                .status(VoucherStatus.ACTIVE)
+                .build());
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.demo.voucher;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.demo.it.MySqlTestcontainersBase;
+import com.example.demo.voucher.api.dto.ClaimVoucherRequest;
+import com.example.demo.voucher.api.dto.ClaimVoucherResponse;
+import com.example.demo.voucher.api.dto.CreateVoucherRequest;
+import com.example.demo.voucher.domain.DiscountType;
+import com.example.demo.voucher.repository.VoucherQuotaBucketRepository;
+import com.example.demo.voucher.repository.VoucherRedemptionRepository;
+import com.example.demo.voucher.repository.VoucherRepository;
+import com.example.demo.voucher.service.VoucherService;
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+@SpringBootTest(properties = "app.voucher.catalog.max-staleness=0s")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+class VoucherStripedQuotaConcurrencyTest extends MySqlTestcontainersBase {
+
+    @Autowired
+    private VoucherService voucherService;
+
+    @Autowired
+    private VoucherRepository voucherRepository;
+
+    @Autowired
+    private VoucherRedemptionRepository voucherRedemptionRepository;
+
+    @Autowired
+    private VoucherQuotaBucketRepository voucherQuotaBucketRepository;
+
+    @Autowired
+    private Clock clock;
+
+    @BeforeEach
+    void cleanup() {
+        voucherRedemptionRepository.deleteAll();
+        voucherQuotaBucketRepository.deleteAll();
+        voucherRepository.deleteAll();
+    }
+
+    @Test
+    void stripedQuota_parallelClaims_neverOversell() throws Exception {
+        LocalDateTime now = LocalDateTime.now(clock);
+        voucherService.createVoucher(new CreateVoucherRequest(
+                "STRIPED10",
+                DiscountType.FIXED,
+                new BigDecimal("5.00"),
+                now.minusDays(1),
+                now.plusDays(1),
+                null,
+                10,
+                4,
+                null
+        ));
+
+        int workers = 40;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        List<Future<Boolean>> futures = new ArrayList<>();
+
+        for (int i = 0; i < workers; i++) {
+            int idx = i;
+            futures.add(executor.submit(() -> {
+                start.await();
+                ClaimVoucherResponse resp = voucherService.claimVoucher(
+                        new ClaimVoucherRequest("STRIPED10", "ORDER-" + idx, new BigDecimal("100.00"), 123L)
+                );
+                return resp.success() && !resp.idempotent();
+            }));
+        }
+
+        start.countDown();
+
+        int successCount = 0;
+        for (Future<Boolean> f : futures) {
+            if (Boolean.TRUE.equals(f.get())) {
+                successCount++;
+            }
+        }
+
+        executor.shutdownNow();
+
+        assertThat(successCount).isEqualTo(10);
+        Long voucherId = voucherRepository.findByCode("STRIPED10").orElseThrow().getId();
+        assertThat(voucherQuotaBucketRepository.sumQuotaRemaining(voucherId)).isZero();
+        assertThat(voucherRedemptionRepository.count()).isEqualTo(10);
+        assertThat(voucherService.getActiveVouchers()).isEmpty();
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.demo.voucher.api;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.demo.voucher.api.dto.VoucherPublicResponse;
+import com.example.demo.voucher.domain.DiscountType;
+import com.example.demo.voucher.service.ActiveVoucherCatalog;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+class ActiveVoucherBodiesTest {
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().build();
+    private final ActiveVoucherBodies bodies = new ActiveVoucherBodies(objectMapper);
+
+    @Test
+    void writeShouldServeGzipOnlyToClientsThatAcceptIt() throws IOException {
+        ActiveVoucherCatalog.View view = view(1, 3);
+
+        MockHttpServletResponse identity = new MockHttpServletResponse();
+        bodies.write(view, request(null, null, identity));
+        MockHttpServletResponse gzip = new MockHttpServletResponse();
+        bodies.write(view, request("br, gzip;q=0.8", null, gzip));
+
+        assertThat(identity.getHeader("Content-Encoding")).isNull();
+        assertThat(identity.getHeader("Vary")).isEqualTo("Accept-Encoding");
+        assertThat(identity.getContentType()).isEqualTo("application/json");
+        assertThat(identity.getContentAsString()).isEqualTo(objectMapper.writeValueAsString(view.vouchers()));
+        assertThat(gzip.getHeader("Content-Encoding")).isEqualTo("gzip");
+        assertThat(gunzip(gzip.getContentAsByteArray())).isEqualTo(identity.getContentAsString());
+        assertThat(gzip.getContentLength()).isEqualTo(gzip.getContentAsByteArray().length);
+    }
+
+    @Test
+    void writeShouldAnswerNotModifiedToAClientHoldingTheSameRepresentation() throws IOException {
+        ActiveVoucherCatalog.View view = view(1, 3);
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        bodies.write(view, request("gzip", null, first));
+        String gzipTag = first.getHeader("ETag");
+
+        MockHttpServletResponse again = new MockHttpServletResponse();
+        bodies.write(view, request("gzip", gzipTag, again));
+        MockHttpServletResponse identity = new MockHttpServletResponse();
+        bodies.write(view, request(null, gzipTag, identity));
+        MockHttpServletResponse changed = new MockHttpServletResponse();
+        bodies.write(view(2, 4), request("gzip", gzipTag, changed));
+
+        assertThat(again.getStatus()).isEqualTo(304);
+        assertThat(again.getContentAsByteArray()).isEmpty();
+        assertThat(again.getHeader("ETag")).isEqualTo(gzipTag);
+        assertThat(identity.getStatus()).isEqualTo(200);
+        assertThat(identity.getHeader("ETag")).isNotEqualTo(gzipTag);
+        assertThat(changed.getStatus()).isEqualTo(200);
+        assertThat(changed.getHeader("ETag")).isNotEqualTo(gzipTag);
+    }
+
+    @Test
+    void bodiesShouldBeRenderedOncePerCatalogView() throws IOException {
+        ActiveVoucherCatalog.View view = view(1, 3);
+        ActiveVoucherBodies.Bodies first = bodies.bodiesFor(view);
+
+        assertThat(bodies.bodiesFor(view)).isSameAs(first);
+        assertThat(new String(bodies.bodiesFor(view(2, 1)).identity(), StandardCharsets.UTF_8)).contains("CODE0").doesNotContain("CODE1");
+    }
+
+    @Test
+    void bodiesShouldNotBeSharedBetweenListsWithTheSameVersion() throws IOException {
+        ActiveVoucherBodies.Bodies three = bodies.bodiesFor(view(5, 3));
+        ActiveVoucherBodies.Bodies one = bodies.bodiesFor(view(5, 1));
+
+        assertThat(one.identityEtag()).isNotEqualTo(three.identityEtag());
+        assertThat(new String(one.identity(), StandardCharsets.UTF_8)).doesNotContain("CODE1");
+    }
+
+    @Test
+    void acceptsGzipShouldHonourQualityZero() {
+        assertThat(ActiveVoucherBodies.acceptsGzip(null)).isFalse();
+        assertThat(ActiveVoucherBodies.acceptsGzip("identity, deflate")).isFalse();
+        assertThat(ActiveVoucherBodies.acceptsGzip("GZIP")).isTrue();
+        assertThat(ActiveVoucherBodies.acceptsGzip("deflate, gzip ; q=0.5")).isTrue();
+        assertThat(ActiveVoucherBodies.acceptsGzip("gzip;q=0")).isFalse();
+        assertThat(ActiveVoucherBodies.acceptsGzip("gzip; q=0.000")).isFalse();
+        assertThat(ActiveVoucherBodies.acceptsGzip("gzip;q=0.")).isFalse();
+        assertThat(ActiveVoucherBodies.acceptsGzip("gzip;q=0.0000")).isTrue();
+        assertThat(ActiveVoucherBodies.acceptsGzip("gzip;q=1")).isTrue();
+        assertThat(ActiveVoucherBodies.acceptsGzip("gzip;Q=0")).isTrue();
+        assertThat(ActiveVoucherBodies.acceptsGzip("deflate;q=0, x-gzip, gzipx, br ")).isFalse();
+        assertThat(ActiveVoucherBodies.acceptsGzip(", ,  gzip  ")).isTrue();
+    }
+
+    // Benchmark: bytes allocated per request for a 50-voucher list, serializing and compressing every
+    // time (as before) against copying the cached bodies. Both write to the same discarding response.
+    @Test
+    void cachedBodiesShouldAllocateAFractionOfRenderingPerRequest() throws IOException {
+        ActiveVoucherCatalog.View view = view(1, 50);
+        MockHttpServletResponse response = discardingResponse();
+        ServletWebRequest request = request("gzip", null, response);
+        int requests = 2_000;
+
+        long rendering = allocatedPerRequest(requests, () -> renderEveryTime(view, response));
+        long cached = allocatedPerRequest(requests, () -> bodies.write(view, request));
+
+        assertThat(cached * 5).isLessThan(rendering);
+    }
+
+    private void renderEveryTime(ActiveVoucherCatalog.View view, MockHttpServletResponse response) throws IOException {
+        response.setContentType("application/json");
+        response.setHeader("Content-Encoding", "gzip");
+        try (GZIPOutputStream out = new GZIPOutputStream(response.getOutputStream())) {
+            objectMapper.writeValue(out, view.vouchers());
+        }
+    }
+
+    private static long allocatedPerRequest(int requests, Request request) throws IOException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < requests; i++) {
+            request.run();
+        }
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < requests; i++) {
+            request.run();
+        }
+        return (threads.getCurrentThreadAllocatedBytes() - before) / requests;
+    }
+
+    private static MockHttpServletResponse discardingResponse() {
+        return new MockHttpServletResponse() {
+            private final ServletOutputStream discard = new ServletOutputStream() {
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setWriteListener(WriteListener writeListener) {
+                    // Writes never block.
+                }
+
+                @Override
+                public void write(int b) {
+                    // Discarded.
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    // Discarded.
+                }
+            };
+
+            @Override
+            public ServletOutputStream getOutputStream() {
+                return discard;
+            }
+        };
+    }
+
+    private static ServletWebRequest request(String acceptEncoding, String ifNoneMatch, MockHttpServletResponse response) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/vouchers/active");
+        if (acceptEncoding != null) {
+            request.addHeader("Accept-Encoding", acceptEncoding);
+        }
+        if (ifNoneMatch != null) {
+            request.addHeader("If-None-Match", ifNoneMatch);
+        }
+        return new ServletWebRequest(request, response);
+    }
+
+    private static String gunzip(byte[] compressed) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static ActiveVoucherCatalog.View view(long version, int size) {
+        List<VoucherPublicResponse> vouchers = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            vouchers.add(new VoucherPublicResponse(
+                    "CODE" + i,
+                    DiscountType.FIXED,
+                    new BigDecimal("10.00"),
+                    new BigDecimal("50.00"),
+                    100 + i,
+                    LocalDateTime.parse("2026-02-18T00:00:00"),
+                    LocalDateTime.parse("2026-02-20T00:00:00")
+            ));
+        }
+        return new ActiveVoucherCatalog.View(version, vouchers);
+    }
+
+    @FunctionalInterface
+    private interface Request {
+        void run() throws IOException;
+    }
+}
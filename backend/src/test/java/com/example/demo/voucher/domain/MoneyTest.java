@@ -0,0 +1,32 @@
+package com.example.demo.voucher.domain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import org.junit.jupiter.api.Test;
+
+class MoneyTest {
+
+    @Test
+    void toMinorShouldConvertAmountsWithAtMostTwoDecimals() {
+        assertThat(Money.toMinor(new BigDecimal("12.34"))).isEqualTo(1234L);
+        assertThat(Money.toMinor(new BigDecimal("12.340"))).isEqualTo(1234L);
+        assertThat(Money.toMinor(new BigDecimal("5"))).isEqualTo(500L);
+        assertThat(Money.toMinor(new BigDecimal("1E+3"))).isEqualTo(100_000L);
+        assertThat(Money.toMinor(BigDecimal.ZERO)).isZero();
+        assertThat(Money.toMinor(new BigDecimal("9999999999999999.99"))).isEqualTo(999_999_999_999_999_999L);
+    }
+
+    @Test
+    void toMinorShouldRefuseAmountsWithoutAnExactMinorUnitForm() {
+        assertThat(Money.toMinor(new BigDecimal("12.345"))).isEqualTo(Money.NOT_EXACT);
+        assertThat(Money.toMinor(new BigDecimal("-1.00"))).isEqualTo(Money.NOT_EXACT);
+        assertThat(Money.toMinor(new BigDecimal("10000000000000000.00"))).isEqualTo(Money.NOT_EXACT);
+    }
+
+    @Test
+    void toDecimalShouldAlwaysHaveTwoDecimals() {
+        assertThat(Money.toDecimal(1234L)).isEqualTo(new BigDecimal("12.34"));
+        assertThat(Money.toDecimal(0L)).isEqualTo(new BigDecimal("0.00"));
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.demo.voucher.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.demo.voucher.api.dto.VoucherPublicResponse;
+import com.example.demo.voucher.domain.DiscountType;
+import com.example.demo.voucher.domain.Voucher;
+import com.example.demo.voucher.domain.VoucherStatus;
+import com.example.demo.voucher.repository.VoucherQuotaBucketRepository;
+import com.example.demo.voucher.repository.VoucherRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ActiveVoucherCatalogTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.parse("2026-02-19T00:00:00");
+    private static final Instant NOW_INSTANT = NOW.toInstant(ZoneOffset.UTC);
+
+    private final VoucherRepository voucherRepository = mock(VoucherRepository.class);
+    private final VoucherQuotaBucketRepository voucherQuotaBucketRepository = mock(VoucherQuotaBucketRepository.class);
+    private final QuotaLeaseService quotaLeaseService = mock(QuotaLeaseService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MutableClock clock = new MutableClock(NOW_INSTANT);
+
+    private final ActiveVoucherCatalog catalog = new ActiveVoucherCatalog(
+            voucherRepository,
+            new StripedQuotaService(voucherQuotaBucketRepository),
+            quotaLeaseService,
+            meterRegistry,
+            Duration.ofSeconds(1),
+            clock
+    );
+
+    @BeforeEach
+    void setUp() {
+        when(quotaLeaseService.outstandingByVoucherId(any())).thenReturn(Map.of());
+    }
+
+    @Test
+    void readsWithinTheStalenessBoundShouldBeServedFromTheSnapshot() {
+        Voucher voucher = voucher(1L, "FIRST", NOW.minusDays(1), NOW.plusDays(1), 5);
+        when(voucherRepository.findByStatusAndEndAtGreaterThanEqual(VoucherStatus.ACTIVE, NOW)).thenReturn(List.of(voucher));
+
+        assertThat(codes(catalog.activeVouchers())).containsExactly("FIRST");
+        clock.advance(Duration.ofMillis(999));
+        assertThat(codes(catalog.activeVouchers())).containsExactly("FIRST");
+
+        verify(voucherRepository, times(1)).findByStatusAndEndAtGreaterThanEqual(any(), any());
+    }
+
+    @Test
+    void refreshShouldReplaceTheCatalogWithTheActiveRange() {
+        Voucher first = voucher(1L, "FIRST", NOW.minusDays(1), NOW.plusDays(1), 5);
+        Voucher second = voucher(2L, "SECOND", NOW.minusDays(1), NOW.plusDays(1), 5);
+        Voucher third = voucher(3L, "THIRD", NOW.minusDays(1), NOW.plusDays(1), 5);
+        when(voucherRepository.findByStatusAndEndAtGreaterThanEqual(VoucherStatus.ACTIVE, NOW)).thenReturn(List.of(first, second));
+        catalog.refresh();
+
+        // FIRST was disabled and THIRD created: neither needs anything but the next range read.
+        LocalDateTime later = NOW.plusSeconds(1);
+        when(voucherRepository.findByStatusAndEndAtGreaterThanEqual(VoucherStatus.ACTIVE, later)).thenReturn(List.of(third, second));
+        clock.advance(Duration.ofSeconds(1));
+
+        assertThat(codes(catalog.activeVouchers())).containsExactly("SECOND", "THIRD");
+        verify(voucherRepository, never()).findQuotaByIdIn(any());
+        assertThat(meterRegistry.get("voucher.catalog.refresh").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    void readsShouldOpenAndCloseVouchersByTheClock() {
+        Voucher voucher = voucher(1L, "SOON", NOW.plusSeconds(2), NOW.plusSeconds(4), 5);
+        when(voucherRepository.findByStatusAndEndAtGreaterThanEqual(any(), any())).thenReturn(List.of(voucher));
+
+        assertThat(catalog.activeVouchers()).isEmpty();
+
+        clock.advance(Duration.ofMillis(2500));
+        assertThat(codes(catalog.activeVouchers())).containsExactly("SOON");
+
+        clock.advance(Duration.ofMillis(500));
+        assertThat(codes(catalog.activeVouchers())).containsExactly("SOON");
+
+        // Ended between refreshes: filtered by the clock before the next range read drops it.
+        clock.advance(Duration.ofMillis(1500));
+        assertThat(catalog.activeVouchers()).isEmpty();
+    }
+
+    @Test
+    void viewVersionShouldChangeOnlyWhenTheListDoes() {
+        Voucher running = voucher(1L, "RUNNING", NOW.minusDays(1), NOW.plusDays(1), 5);
+        Voucher later = voucher(2L, "LATER", NOW.plusSeconds(3), NOW.plusDays(1), 5);
+        when(voucherRepository.findByStatusAndEndAtGreaterThanEqual(any(), any())).thenReturn(List.of(running, later));
+
+        ActiveVoucherCatalog.View first = catalog.view();
+        assertThat(catalog.view()).isSameAs(first);
+
+        // A refresh that finds the same list keeps the version.
+        clock.advance(Duration.ofSeconds(1));
+        assertThat(catalog.view().version()).isEqualTo(first.version());
+
+        clock.advance(Duration.ofSeconds(2));
+        ActiveVoucherCatalog.View started = catalog.view();
+        assertThat(started.version()).isGreaterThan(first.version());
+        assertThat(codes(started.vouchers())).containsExactly("RUNNING", "LATER");
+    }
+
+    @Test
+    void remainingQuotaShouldIncludeBucketsAndOutstandingLeases() {
+        Voucher striped = voucher(1L, "STRIPED", NOW.minusDays(1), NOW.plusDays(1), 0);
+        striped.setQuotaStripes(4);
+        Voucher leased = voucher(2L, "LEASED", NOW.minusDays(1), NOW.plusDays(1), 0);
+        Voucher soldOut = voucher(3L, "SOLDOUT", NOW.minusDays(1), NOW.plusDays(1), 0);
+        VoucherQuotaBucketRepository.QuotaSum bucketSum = mock(VoucherQuotaBucketRepository.QuotaSum.class);
+        when(bucketSum.getVoucherId()).thenReturn(1L);
+        when(bucketSum.getQuotaRemaining()).thenReturn(7L);
+        when(voucherRepository.findByStatusAndEndAtGreaterThanEqual(VoucherStatus.ACTIVE, NOW))
+                .thenReturn(List.of(soldOut, leased, striped));
+        when(voucherQuotaBucketRepository.sumQuotaRemainingByVoucherIds(List.of(1L))).thenReturn(List.of(bucketSum));
+        when(quotaLeaseService.outstandingByVoucherId(any())).thenReturn(Map.of(2L, 3));
+
+        List<VoucherPublicResponse> active = catalog.activeVouchers();
+
+        assertThat(codes(active)).containsExactly("STRIPED", "LEASED");
+        assertThat(active).extracting(VoucherPublicResponse::quotaRemaining).containsExactly(7, 3);
+    }
+
+    @Test
+    void refreshOfAnEmptyRangeShouldLookUpNoQuota() {
+        when(voucherRepository.findByStatusAndEndAtGreaterThanEqual(any(), any())).thenReturn(List.of());
+
+        assertThat(catalog.activeVouchers()).isEmpty();
+
+        verify(quotaLeaseService, never()).outstandingByVoucherId(any());
+        verify(voucherQuotaBucketRepository, never()).sumQuotaRemainingByVoucherIds(any());
+    }
+
+    @Test
+    void lagShouldReportTheAgeOfTheServedSnapshot() {
+        when(voucherRepository.findByStatusAndEndAtGreaterThanEqual(any(), any())).thenReturn(List.of());
+        assertThat(meterRegistry.get("voucher.catalog.lag").gauge().value()).isZero();
+
+        catalog.refresh();
+        clock.advance(Duration.ofMillis(300));
+
+        assertThat(meterRegistry.get("voucher.catalog.lag").gauge().value()).isEqualTo(300.0);
+    }
+
+    private static List<String> codes(List<VoucherPublicResponse> vouchers) {
+        return vouchers.stream().map(VoucherPublicResponse::code).toList();
+    }
+
+    private static Voucher voucher(
+            Long id,
+            String code,
+            LocalDateTime startAt,
+            LocalDateTime endAt,
+            int quotaRemaining
+    ) {
+        return Voucher.builder()
+                .id(id)
+                .code(code)
+                .discountType(DiscountType.FIXED)
+                .discountValue(new BigDecimal("10.00"))
+                .startAt(startAt)
+                .endAt(endAt)
+                .quotaTotal(5)
+                .quotaRemaining(quotaRemaining)
+                .status(VoucherStatus.ACTIVE)
+                .build();
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant instant;
+
+        private MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        private void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.demo.voucher.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.demo.voucher.api.dto.ClaimVoucherRequest;
+import com.example.demo.voucher.api.dto.ClaimVoucherResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+class BulkClaimServiceTest {
+
+    private final VoucherClaimProcessor voucherClaimProcessor = mock(VoucherClaimProcessor.class);
+    private final ClaimReplayCache claimReplayCache = new ClaimReplayCache(new SimpleMeterRegistry(), 100);
+
+    @Test
+    void claimShouldGroupEachChunkByCodeAndAnswerInInputOrder() {
+        BulkClaimService service = new BulkClaimService(voucherClaimProcessor, new VoucherPolicy(), claimReplayCache, 3);
+        when(voucherClaimProcessor.claimBatch(any(), anyList())).thenAnswer(inv -> okFor(inv.getArgument(0), inv.getArgument(1)));
+        List<List<ClaimVoucherResponse>> chunks = new ArrayList<>();
+
+        service.claim(List.of(
+                request("a", "ORDER-1"),
+                request("b", "ORDER-2"),
+                request(" A ", "ORDER-3"),
+                request("b", "ORDER-4")
+        ), chunks::add);
+
+        assertThat(service.chunkSize()).isEqualTo(3);
+        assertThat(chunks).hasSize(2);
+        assertThat(chunks.get(0)).extracting(ClaimVoucherResponse::code, ClaimVoucherResponse::orderId)
+                .containsExactly(
+                        tuple("A", "ORDER-1"),
+                        tuple("B", "ORDER-2"),
+                        tuple("A", "ORDER-3")
+                );
+        assertThat(chunks.get(1)).extracting(ClaimVoucherResponse::orderId).containsExactly("ORDER-4");
+        verify(voucherClaimProcessor).claimBatch(eq("A"), anyList());
+        verify(voucherClaimProcessor, times(2)).claimBatch(eq("B"), anyList());
+        assertThat(claimReplayCache.lookup("A", request("a", "ORDER-3"))).isNotNull();
+    }
+
+    @Test
+    void claimShouldSettleAGroupClaimByClaimWhenTheBatchHitsADuplicate() {
+        BulkClaimService service = new BulkClaimService(voucherClaimProcessor, new VoucherPolicy(), claimReplayCache, 100);
+        when(voucherClaimProcessor.claimBatch(eq("A"), anyList())).thenThrow(new DataIntegrityViolationException("duplicate"));
+        when(voucherClaimProcessor.claim(any())).thenAnswer(inv -> {
+            ClaimVoucherRequest request = inv.getArgument(0);
+            return okFor("A", List.of(request)).get(0);
+        });
+        List<ClaimVoucherResponse> responses = new ArrayList<>();
+
+        service.claim(List.of(request("a", "ORDER-1"), request("a", "ORDER-2")), responses::addAll);
+
+        assertThat(responses).extracting(ClaimVoucherResponse::orderId).containsExactly("ORDER-1", "ORDER-2");
+        verify(voucherClaimProcessor, times(2)).claim(any());
+    }
+
+    private static ClaimVoucherRequest request(String code, String orderId) {
+        return new ClaimVoucherRequest(code, orderId, new BigDecimal("100.00"), null);
+    }
+
+    private static List<ClaimVoucherResponse> okFor(String code, List<ClaimVoucherRequest> requests) {
+        return requests.stream()
+                .map(r -> new ClaimVoucherResponse(true, false, code, r.orderId(), r.orderAmount(), new BigDecimal("10.00"), 1, "ok"))
+                .toList();
+    }
+}
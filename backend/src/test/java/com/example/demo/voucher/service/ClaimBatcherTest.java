@@ -0,0 +1,110 @@
+package com.example.demo.voucher.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.demo.voucher.api.dto.ClaimVoucherRequest;
+import com.example.demo.voucher.api.dto.ClaimVoucherResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+class ClaimBatcherTest {
+
+    private final VoucherClaimProcessor voucherClaimProcessor = mock(VoucherClaimProcessor.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void isEnabledOnlyForBatchedStrategy() {
+        assertThat(batcher(ClaimStrategy.BATCHED, Duration.ZERO, 10).isEnabled()).isTrue();
+        assertThat(batcher(ClaimStrategy.LOCKING, Duration.ZERO, 10).isEnabled()).isFalse();
+    }
+
+    @Test
+    void claimShouldSettleALoneClaimAsABatchOfOne() {
+        ClaimBatcher batcher = batcher(ClaimStrategy.BATCHED, Duration.ZERO, 10);
+        when(voucherClaimProcessor.claimBatch(eq("DEMO10"), anyList())).thenAnswer(inv -> okFor(inv.getArgument(1)));
+
+        ClaimVoucherResponse resp = batcher.claim(request("ORDER-1"));
+
+        assertThat(resp.orderId()).isEqualTo("ORDER-1");
+        assertThat(meterRegistry.get("voucher.claim.batch.size").summary().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("voucher.claim.batch.wait").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void concurrentClaimsForOneCodeShouldShareOneTransaction() throws Exception {
+        ClaimBatcher batcher = batcher(ClaimStrategy.BATCHED, Duration.ofSeconds(5), 4);
+        when(voucherClaimProcessor.claimBatch(eq("DEMO10"), anyList())).thenAnswer(inv -> okFor(inv.getArgument(1)));
+
+        int workers = 4;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        List<Future<ClaimVoucherResponse>> futures = new ArrayList<>();
+        for (int i = 0; i < workers; i++) {
+            String orderId = "ORDER-" + i;
+            futures.add(executor.submit(() -> {
+                start.await();
+                return batcher.claim(request(orderId));
+            }));
+        }
+        start.countDown();
+
+        for (int i = 0; i < workers; i++) {
+            assertThat(futures.get(i).get().orderId()).isEqualTo("ORDER-" + i);
+        }
+        executor.shutdownNow();
+
+        verify(voucherClaimProcessor, times(1)).claimBatch(eq("DEMO10"), anyList());
+        assertThat(meterRegistry.get("voucher.claim.batch.size").summary().max()).isEqualTo(4);
+    }
+
+    @Test
+    void claimShouldFallBackToSingleClaimsWhenTheBatchHitsADuplicate() {
+        ClaimBatcher batcher = batcher(ClaimStrategy.BATCHED, Duration.ZERO, 10);
+        ClaimVoucherResponse idempotent = new ClaimVoucherResponse(true, true, "DEMO10", "ORDER-1", new BigDecimal("100.00"), new BigDecimal("10.00"), 3, "already claimed for this orderId");
+        when(voucherClaimProcessor.claimBatch(eq("DEMO10"), anyList())).thenThrow(new DataIntegrityViolationException("duplicate"));
+        when(voucherClaimProcessor.claim(any())).thenReturn(idempotent);
+
+        assertThat(batcher.claim(request("ORDER-1"))).isEqualTo(idempotent);
+    }
+
+    @Test
+    void claimShouldRethrowWhatTheBatchThrew() {
+        ClaimBatcher batcher = batcher(ClaimStrategy.BATCHED, Duration.ZERO, 10);
+        when(voucherClaimProcessor.claimBatch(eq("DEMO10"), anyList())).thenThrow(new IllegalStateException("boom"));
+
+        assertThatThrownBy(() -> batcher.claim(request("ORDER-1")))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("boom");
+    }
+
+    private ClaimBatcher batcher(ClaimStrategy claimStrategy, Duration window, int maxSize) {
+        return new ClaimBatcher(voucherClaimProcessor, new VoucherPolicy(), meterRegistry, claimStrategy, window, maxSize);
+    }
+
+    private static ClaimVoucherRequest request(String orderId) {
+        return new ClaimVoucherRequest("demo10", orderId, new BigDecimal("100.00"), null);
+    }
+
+    private static List<ClaimVoucherResponse> okFor(List<ClaimVoucherRequest> requests) {
+        return requests.stream()
+                .map(r -> new ClaimVoucherResponse(true, false, "DEMO10", r.orderId(), r.orderAmount(), new BigDecimal("10.00"), 1, "ok"))
+                .toList();
+    }
+}
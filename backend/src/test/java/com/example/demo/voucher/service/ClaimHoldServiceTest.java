@@ -0,0 +1,75 @@
+package com.example.demo.voucher.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.demo.voucher.api.dto.ClaimVoucherRequest;
+import com.example.demo.voucher.api.dto.ClaimVoucherResponse;
+import com.example.demo.voucher.api.dto.ConfirmClaimRequest;
+import com.example.demo.voucher.repository.VoucherClaimHoldRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class ClaimHoldServiceTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.parse("2026-02-19T00:00:00");
+
+    private final VoucherClaimProcessor voucherClaimProcessor = mock(VoucherClaimProcessor.class);
+    private final VoucherClaimHoldRepository voucherClaimHoldRepository = mock(VoucherClaimHoldRepository.class);
+    private final ClaimReplayCache claimReplayCache = new ClaimReplayCache(new SimpleMeterRegistry(), 100);
+    private final Clock clock = Clock.fixed(Instant.parse("2026-02-19T00:00:00Z"), ZoneId.of("UTC"));
+
+    private final ClaimHoldService service = new ClaimHoldService(
+            voucherClaimProcessor,
+            voucherClaimHoldRepository,
+            new VoucherPolicy(),
+            claimReplayCache,
+            Duration.ofMinutes(5),
+            2,
+            clock
+    );
+
+    @Test
+    void reserveShouldHoldUntilTheConfiguredTtl() {
+        ClaimVoucherRequest request = new ClaimVoucherRequest("demo10", "ORDER-1", new BigDecimal("100.00"), null);
+
+        service.reserve(request);
+
+        verify(voucherClaimProcessor).reserveHold(request, NOW.plusMinutes(5));
+    }
+
+    @Test
+    void confirmShouldNormalizeTheKeyAndRememberGrantedClaims() {
+        ClaimVoucherResponse granted = new ClaimVoucherResponse(true, false, "DEMO10", "ORDER-1", new BigDecimal("100.00"), new BigDecimal("10.00"), 4, "ok");
+        when(voucherClaimProcessor.confirmHold("DEMO10", "ORDER-1")).thenReturn(granted);
+
+        assertThat(service.confirm(new ConfirmClaimRequest(" demo10 ", " ORDER-1 "))).isEqualTo(granted);
+        assertThat(claimReplayCache.lookup("DEMO10", new ClaimVoucherRequest("DEMO10", "ORDER-1", new BigDecimal("100.00"), null)))
+                .isNotNull();
+    }
+
+    @Test
+    void releaseExpiredShouldKeepSweepingWhileAFullPageOfVouchersComesBack() {
+        when(voucherClaimHoldRepository.findVoucherIdsExpiredBy(eq(NOW), any()))
+                .thenReturn(List.of(1L, 2L), List.of(3L));
+
+        service.releaseExpired();
+
+        verify(voucherClaimHoldRepository, times(2)).findVoucherIdsExpiredBy(eq(NOW), any());
+        verify(voucherClaimProcessor).releaseExpiredHolds(1L, NOW);
+        verify(voucherClaimProcessor).releaseExpiredHolds(2L, NOW);
+        verify(voucherClaimProcessor).releaseExpiredHolds(3L, NOW);
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.demo.voucher.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.demo.voucher.api.dto.ClaimTicketResponse;
+import com.example.demo.voucher.api.dto.ClaimVoucherRequest;
+import com.example.demo.voucher.domain.ClaimOutboxEntry;
+import com.example.demo.voucher.domain.ClaimOutboxStatus;
+import com.example.demo.voucher.repository.ClaimOutboxRepository;
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+
+class ClaimOutboxServiceTest {
+
+    private final ClaimOutboxRepository claimOutboxRepository = mock(ClaimOutboxRepository.class);
+    private final VoucherClaimProcessor voucherClaimProcessor = mock(VoucherClaimProcessor.class);
+    private final Clock clock = Clock.fixed(Instant.parse("2026-02-19T00:00:00Z"), ZoneId.of("UTC"));
+
+    private final ClaimOutboxService service = new ClaimOutboxService(
+            claimOutboxRepository,
+            voucherClaimProcessor,
+            new VoucherPolicy(),
+            2,
+            50,
+            Duration.ofHours(24),
+            Duration.ofSeconds(1),
+            Duration.ofSeconds(3),
+            clock
+    );
+
+    @Test
+    void enqueueShouldQueueANewClaimAsPending() {
+        when(claimOutboxRepository.insertIfAbsent("DEMO10", "ORDER-1", 7L, new BigDecimal("100.00"))).thenReturn(1);
+
+        ClaimTicketResponse ticket = service.enqueue(new ClaimVoucherRequest(" demo10 ", " ORDER-1 ", new BigDecimal("100.00"), 7L));
+
+        assertThat(ticket).isEqualTo(new ClaimTicketResponse("DEMO10", "ORDER-1", ClaimOutboxStatus.PENDING, null));
+        verify(claimOutboxRepository, never()).findByCodeAndOrderId(any(), any());
+    }
+
+    @Test
+    void enqueueShouldReportTheOriginalTicketForARepeatedOrder() {
+        when(claimOutboxRepository.insertIfAbsent(any(), any(), any(), any())).thenReturn(0);
+        when(claimOutboxRepository.findByCodeAndOrderId("DEMO10", "ORDER-1")).thenReturn(Optional.of(settled()));
+
+        ClaimTicketResponse ticket = service.enqueue(new ClaimVoucherRequest("demo10", "ORDER-1", new BigDecimal("100.00"), null));
+
+        assertThat(ticket.status()).isEqualTo(ClaimOutboxStatus.DONE);
+        assertThat(ticket.result().success()).isTrue();
+        assertThat(ticket.result().discountApplied()).isEqualByComparingTo("10.00");
+    }
+
+    @Test
+    void statusShouldReturnPendingTicketsWithoutAResultAndNullWhenUnknown() {
+        ClaimOutboxEntry pending = ClaimOutboxEntry.builder()
+                .code("DEMO10")
+                .orderId("ORDER-2")
+                .orderAmount(new BigDecimal("100.00"))
+                .status(ClaimOutboxStatus.PENDING)
+                .build();
+        when(claimOutboxRepository.findByCodeAndOrderId("DEMO10", "ORDER-2")).thenReturn(Optional.of(pending));
+        when(claimOutboxRepository.findByCodeAndOrderId("DEMO10", "ORDER-3")).thenReturn(Optional.empty());
+
+        assertThat(service.status("demo10", "ORDER-2")).isEqualTo(new ClaimTicketResponse("DEMO10", "ORDER-2", ClaimOutboxStatus.PENDING, null));
+        assertThat(service.status("demo10", "ORDER-3")).isNull();
+    }
+
+    @Test
+    void drainShouldKeepSettlingACodeWhileBatchesComeBackFull() {
+        when(claimOutboxRepository.findCodesByStatus(eq(ClaimOutboxStatus.PENDING), any())).thenReturn(List.of("HOT", "QUIET"));
+        when(voucherClaimProcessor.settleQueued("HOT", 2)).thenReturn(2, 2, 1);
+        when(voucherClaimProcessor.settleQueued("QUIET", 2)).thenReturn(1);
+
+        service.drain();
+
+        verify(voucherClaimProcessor, times(3)).settleQueued("HOT", 2);
+        verify(voucherClaimProcessor, times(1)).settleQueued("QUIET", 2);
+    }
+
+    @Test
+    void drainShouldKeepSettlingOtherCodesWhenOneFails() {
+        when(claimOutboxRepository.findCodesByStatus(eq(ClaimOutboxStatus.PENDING), any())).thenReturn(List.of("BROKEN", "QUIET"));
+        when(voucherClaimProcessor.settleQueued("BROKEN", 2)).thenThrow(new IllegalStateException("lock wait timeout"));
+        when(voucherClaimProcessor.settleQueued("QUIET", 2)).thenReturn(1);
+
+        service.drain();
+
+        verify(voucherClaimProcessor).settleQueued("BROKEN", 2);
+        verify(voucherClaimProcessor).settleQueued("QUIET", 2);
+    }
+
+    @Test
+    void drainShouldBackOffAFailingCodeWithADoublingCappedDelay() {
+        Clock ticking = mock(Clock.class);
+        Instant start = Instant.parse("2026-02-19T00:00:00Z");
+        when(ticking.instant()).thenReturn(
+                start,
+                start.plusMillis(500),
+                start.plusSeconds(1),
+                start.plusSeconds(2),
+                start.plusSeconds(3),
+                start.plusSeconds(6),
+                start.plusSeconds(9),
+                start.plusSeconds(12)
+        );
+        ClaimOutboxService backingOff = new ClaimOutboxService(
+                claimOutboxRepository, voucherClaimProcessor, new VoucherPolicy(), 2, 50,
+                Duration.ofHours(24), Duration.ofSeconds(1), Duration.ofSeconds(3), ticking);
+        when(claimOutboxRepository.findCodesByStatus(eq(ClaimOutboxStatus.PENDING), any())).thenReturn(List.of("BROKEN"));
+        when(voucherClaimProcessor.settleQueued("BROKEN", 2))
+                .thenThrow(new IllegalStateException("lock wait timeout"))
+                .thenThrow(new IllegalStateException("lock wait timeout"))
+                .thenThrow(new IllegalStateException("lock wait timeout"))
+                .thenThrow(new IllegalStateException("lock wait timeout"))
+                .thenReturn(1);
+
+        backingOff.drain(); // t=0: fails, retry after 1s
+        backingOff.drain(); // t=0.5: backed off
+        backingOff.drain(); // t=1: fails, retry after 2s
+        backingOff.drain(); // t=2: backed off
+        backingOff.drain(); // t=3: fails, retry after 3s (capped)
+        backingOff.drain(); // t=6: fails, retry after 3s
+        backingOff.drain(); // t=9: settles and clears the back-off
+        backingOff.drain(); // t=12: settles straight away
+
+        verify(voucherClaimProcessor, times(6)).settleQueued(eq("BROKEN"), anyInt());
+    }
+
+    @Test
+    void purgeSettledShouldDeleteEntriesOlderThanRetention() {
+        service.purgeSettled();
+
+        verify(claimOutboxRepository).deleteByStatusAndProcessedAtBefore(ClaimOutboxStatus.DONE, Instant.parse("2026-02-18T00:00:00Z"));
+    }
+
+    private static ClaimOutboxEntry settled() {
+        return ClaimOutboxEntry.builder()
+                .code("DEMO10")
+                .orderId("ORDER-1")
+                .orderAmount(new BigDecimal("100.00"))
+                .status(ClaimOutboxStatus.DONE)
+                .success(true)
+                .idempotent(false)
+                .discountApplied(new BigDecimal("10.00"))
+                .quotaRemaining(4)
+                .message("ok")
+                .build();
+    }
+}
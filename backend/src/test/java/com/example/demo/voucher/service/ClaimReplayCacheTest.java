@@ -0,0 +1,94 @@
+package com.example.demo.voucher.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.demo.voucher.api.dto.ClaimVoucherRequest;
+import com.example.demo.voucher.api.dto.ClaimVoucherResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import org.junit.jupiter.api.Test;
+
+class ClaimReplayCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void lookupShouldReplayRecordedGrantsAsIdempotent() {
+        ClaimReplayCache cache = new ClaimReplayCache(meterRegistry, 10);
+        cache.record(granted("ORDER-1"));
+
+        ClaimVoucherResponse replay = cache.lookup("DEMO10", request(" ORDER-1 "));
+
+        assertThat(replay).isEqualTo(new ClaimVoucherResponse(
+                true,
+                true,
+                "DEMO10",
+                "ORDER-1",
+                new BigDecimal("100.00"),
+                new BigDecimal("10.00"),
+                4,
+                "already claimed for this orderId"
+        ));
+        assertThat(cache.lookup("DEMO10", request("ORDER-2"))).isNull();
+        assertThat(cache.lookup("OTHER", request("ORDER-1"))).isNull();
+        assertThat(meterRegistry.get("voucher.claim.replay").tag("result", "hit").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("voucher.claim.replay").tag("result", "miss").counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("voucher.claim.replay.hit.ratio").gauge().value()).isEqualTo(1.0 / 3);
+    }
+
+    @Test
+    void recordShouldIgnoreFailedClaims() {
+        ClaimReplayCache cache = new ClaimReplayCache(meterRegistry, 10);
+        cache.record(new ClaimVoucherResponse(false, false, "DEMO10", "ORDER-1", new BigDecimal("100.00"), null, 0, "voucher quota exhausted"));
+
+        assertThat(cache.lookup("DEMO10", request("ORDER-1"))).isNull();
+        assertThat(cache.hitRatio()).isZero();
+    }
+
+    @Test
+    void cacheShouldStayBoundedAndKeepAnsweringAfterTheFilterIsRebuilt() {
+        ClaimReplayCache cache = new ClaimReplayCache(meterRegistry, 3);
+        for (int i = 0; i < 20; i++) {
+            cache.record(granted("ORDER-" + i));
+        }
+        cache.record(granted("ORDER-19"));
+
+        assertThat(cache.lookup("DEMO10", request("ORDER-0"))).isNull();
+        for (int i = 17; i < 20; i++) {
+            assertThat(cache.lookup("DEMO10", request("ORDER-" + i))).isNotNull();
+        }
+    }
+
+    @Test
+    void zeroMaxEntriesDisablesTheCache() {
+        ClaimReplayCache cache = new ClaimReplayCache(meterRegistry, 0);
+        cache.record(granted("ORDER-1"));
+
+        assertThat(cache.lookup("DEMO10", request("ORDER-1"))).isNull();
+    }
+
+    @Test
+    void bloomFilterShouldNeverMissAnInsertedKey() {
+        ClaimReplayCache.BloomFilter filter = new ClaimReplayCache.BloomFilter(1000);
+        for (int i = 0; i < 1000; i++) {
+            filter.put("ORDER-" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 1000; i++) {
+            assertThat(filter.mightContain("ORDER-" + i)).isTrue();
+            if (filter.mightContain("OTHER-" + i)) {
+                falsePositives++;
+            }
+        }
+        assertThat(falsePositives).isLessThan(50);
+    }
+
+    private static ClaimVoucherRequest request(String orderId) {
+        return new ClaimVoucherRequest("demo10", orderId, new BigDecimal("100.00"), null);
+    }
+
+    private static ClaimVoucherResponse granted(String orderId) {
+        return new ClaimVoucherResponse(true, false, "DEMO10", orderId, new BigDecimal("100.00"), new BigDecimal("10.00"), 4, "ok");
+    }
+}
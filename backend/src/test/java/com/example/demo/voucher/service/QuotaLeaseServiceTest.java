@@ -0,0 +1,213 @@
+package com.example.demo.voucher.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.demo.voucher.api.dto.ClaimVoucherRequest;
+import com.example.demo.voucher.api.dto.ClaimVoucherResponse;
+import com.example.demo.voucher.repository.VoucherQuotaLeaseRepository;
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class QuotaLeaseServiceTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.parse("2026-02-19T00:00:00");
+
+    private final VoucherClaimProcessor voucherClaimProcessor = mock(VoucherClaimProcessor.class);
+    private final VoucherQuotaLeaseRepository voucherQuotaLeaseRepository = mock(VoucherQuotaLeaseRepository.class);
+    private final MutableClock clock = new MutableClock(NOW.toInstant(ZoneOffset.UTC));
+
+    @Test
+    void disabledServiceStillSweepsLeasesLeftBehind() {
+        QuotaLeaseService service = service(ClaimStrategy.LOCKING, 50);
+        when(voucherQuotaLeaseRepository.findIdsExpiredBefore(any())).thenReturn(List.of(99L));
+        when(voucherQuotaLeaseRepository.sumUnitsLeftByVoucherIds(List.of(1L))).thenReturn(List.of(units(1L, 6L)));
+
+        assertThat(service.isEnabled()).isFalse();
+        assertThat(service.outstandingByVoucherId(List.of(1L))).containsEntry(1L, 6);
+        assertThat(service.outstandingByVoucherId(List.of())).isEmpty();
+        service.returnLeases();
+
+        verify(voucherClaimProcessor).returnLease(99L);
+    }
+
+    @Test
+    void claimShouldLeaseOnceAndServeFollowingClaimsFromMemory() {
+        QuotaLeaseService service = service(ClaimStrategy.LEASED, 5);
+        when(voucherClaimProcessor.acquireLease(eq("DEMO10"), eq("node-a"), eq(5), any()))
+                .thenReturn(new QuotaLeaseGrant(7L, 1L, 5, NOW.plusSeconds(30)));
+        when(voucherClaimProcessor.claimFromLease(any(), eq(7L), anyInt())).thenReturn(ok());
+
+        service.claim(request("ORDER-1"));
+        service.claim(request("ORDER-2"));
+
+        verify(voucherClaimProcessor, times(1)).acquireLease(any(), any(), anyInt(), any());
+        verify(voucherClaimProcessor).claimFromLease(any(), eq(7L), eq(4));
+        verify(voucherClaimProcessor).claimFromLease(any(), eq(7L), eq(3));
+    }
+
+    @Test
+    void claimShouldFallBackToTransactionalClaimWhenNothingCanBeLeased() {
+        QuotaLeaseService service = service(ClaimStrategy.LEASED, 5);
+        ClaimVoucherResponse exhausted = new ClaimVoucherResponse(false, false, "DEMO10", "ORDER-1", new BigDecimal("100.00"), null, 0, "voucher quota exhausted");
+        when(voucherClaimProcessor.claim(any())).thenReturn(exhausted);
+
+        assertThat(service.claim(request("ORDER-1"))).isEqualTo(exhausted);
+        verify(voucherClaimProcessor, never()).claimFromLease(any(), any(), anyInt());
+    }
+
+    @Test
+    void failedClaimShouldGiveItsUnitBack() {
+        QuotaLeaseService service = service(ClaimStrategy.LEASED, 1);
+        when(voucherClaimProcessor.acquireLease(any(), any(), anyInt(), any()))
+                .thenReturn(new QuotaLeaseGrant(7L, 1L, 1, NOW.plusSeconds(30)));
+        when(voucherClaimProcessor.claimFromLease(any(), eq(7L), anyInt()))
+                .thenReturn(new ClaimVoucherResponse(false, false, "DEMO10", "ORDER-1", new BigDecimal("1.00"), null, 1, "minimum spend not met"))
+                .thenReturn(ok());
+
+        service.claim(request("ORDER-1"));
+        service.claim(request("ORDER-2"));
+
+        verify(voucherClaimProcessor, times(1)).acquireLease(any(), any(), anyInt(), any());
+        verify(voucherClaimProcessor, times(2)).claimFromLease(any(), eq(7L), eq(0));
+    }
+
+    @Test
+    void lostLeaseShouldBeRetiredAndTheClaimRetriedTransactionally() {
+        QuotaLeaseService service = service(ClaimStrategy.LEASED, 5);
+        when(voucherClaimProcessor.acquireLease(any(), any(), anyInt(), any()))
+                .thenReturn(new QuotaLeaseGrant(7L, 1L, 5, NOW.plusSeconds(30)))
+                .thenReturn(new QuotaLeaseGrant(8L, 1L, 5, NOW.plusSeconds(30)));
+        when(voucherClaimProcessor.claimFromLease(any(), eq(7L), anyInt()))
+                .thenReturn(new ClaimVoucherResponse(false, false, "DEMO10", "ORDER-1", new BigDecimal("100.00"), null, 5, VoucherClaimProcessor.LEASE_LOST));
+        when(voucherClaimProcessor.claimFromLease(any(), eq(8L), anyInt())).thenReturn(ok());
+        when(voucherClaimProcessor.claim(any())).thenReturn(ok());
+
+        assertThat(service.claim(request("ORDER-1"))).isEqualTo(ok());
+        service.claim(request("ORDER-2"));
+        service.returnLeases();
+
+        verify(voucherClaimProcessor).claim(any());
+        verify(voucherClaimProcessor).claimFromLease(any(), eq(8L), eq(4));
+        verify(voucherClaimProcessor).returnLease(7L);
+    }
+
+    @Test
+    void returnLeasesShouldReturnExpiredLocalLeasesAndSweepAbandonedOnes() {
+        QuotaLeaseService service = service(ClaimStrategy.LEASED, 5);
+        when(voucherClaimProcessor.acquireLease(any(), any(), anyInt(), any()))
+                .thenReturn(new QuotaLeaseGrant(7L, 1L, 5, NOW.plusSeconds(30)));
+        when(voucherClaimProcessor.claimFromLease(any(), eq(7L), anyInt())).thenReturn(ok());
+        when(voucherQuotaLeaseRepository.findIdsExpiredBefore(any())).thenReturn(List.of(99L));
+        service.claim(request("ORDER-1"));
+
+        clock.advance(Duration.ofSeconds(31));
+        service.returnLeases();
+
+        verify(voucherClaimProcessor).returnLease(7L);
+        verify(voucherClaimProcessor).returnLease(99L);
+        verify(voucherQuotaLeaseRepository).findIdsExpiredBefore(NOW.plusSeconds(1));
+    }
+
+    @Test
+    void returnAllLeasesShouldReturnLiveLeasesOnShutdown() {
+        QuotaLeaseService service = service(ClaimStrategy.LEASED, 5);
+        when(voucherClaimProcessor.acquireLease(any(), any(), anyInt(), any()))
+                .thenReturn(new QuotaLeaseGrant(7L, 1L, 5, NOW.plusSeconds(30)));
+        when(voucherClaimProcessor.claimFromLease(any(), eq(7L), anyInt())).thenReturn(ok());
+        service.claim(request("ORDER-1"));
+
+        service.returnAllLeases();
+
+        verify(voucherClaimProcessor).returnLease(7L);
+    }
+
+    @Test
+    void returnLeasesShouldCheckpointLiveLeasesIntoUnitsLeft() {
+        QuotaLeaseService service = service(ClaimStrategy.LEASED, 5);
+        when(voucherClaimProcessor.acquireLease(any(), any(), anyInt(), any()))
+                .thenReturn(new QuotaLeaseGrant(7L, 1L, 5, NOW.plusSeconds(30)));
+        when(voucherClaimProcessor.claimFromLease(any(), eq(7L), anyInt())).thenReturn(ok());
+        when(voucherQuotaLeaseRepository.sumUnitsLeftByVoucherIds(List.of(1L))).thenReturn(List.of(units(1L, 3L)));
+        service.claim(request("ORDER-1"));
+        service.claim(request("ORDER-2"));
+
+        service.returnLeases();
+
+        verify(voucherQuotaLeaseRepository).updateUnitsLeft(7L, 3);
+        verify(voucherClaimProcessor, never()).returnLease(7L);
+        assertThat(service.outstanding(1L)).isEqualTo(3);
+    }
+
+    private QuotaLeaseService service(ClaimStrategy claimStrategy, int blockSize) {
+        return new QuotaLeaseService(
+                voucherClaimProcessor,
+                voucherQuotaLeaseRepository,
+                new VoucherPolicy(),
+                claimStrategy,
+                blockSize,
+                Duration.ofSeconds(30),
+                Duration.ofSeconds(30),
+                "node-a",
+                clock
+        );
+    }
+
+    private static ClaimVoucherRequest request(String orderId) {
+        return new ClaimVoucherRequest("demo10", orderId, new BigDecimal("100.00"), null);
+    }
+
+    private static ClaimVoucherResponse ok() {
+        return new ClaimVoucherResponse(true, false, "DEMO10", "ORDER-1", new BigDecimal("100.00"), new BigDecimal("10.00"), 4, "ok");
+    }
+
+    private static VoucherQuotaLeaseRepository.VoucherUnits units(Long voucherId, Long units) {
+        VoucherQuotaLeaseRepository.VoucherUnits row = mock(VoucherQuotaLeaseRepository.VoucherUnits.class);
+        when(row.getVoucherId()).thenReturn(voucherId);
+        when(row.getUnits()).thenReturn(units);
+        return row;
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant instant;
+
+        private MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        private void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
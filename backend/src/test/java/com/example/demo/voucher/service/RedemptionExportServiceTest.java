@@ -0,0 +1,130 @@
+package com.example.demo.voucher.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import com.example.demo.voucher.repository.VoucherRedemptionExport;
+import com.example.demo.voucher.repository.VoucherRedemptionRepository;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+class RedemptionExportServiceTest {
+
+    private static final VoucherRedemptionExport.Filter ALL = new VoucherRedemptionExport.Filter(null, null, null);
+
+    private final VoucherRedemptionRepository voucherRedemptionRepository = mock(VoucherRedemptionRepository.class);
+    private final ObjectMapper objectMapper = JsonMapper.builder().build();
+    private final RedemptionExportService service = new RedemptionExportService(voucherRedemptionRepository, objectMapper);
+
+    @Test
+    void filterShouldNormalizeTheCodeAndRejectAnEmptyRange() {
+        Instant from = Instant.parse("2026-02-18T00:00:00Z");
+
+        assertThat(service.filter(" demo10 ", from, null))
+                .isEqualTo(new VoucherRedemptionExport.Filter("DEMO10", from, null));
+        assertThat(service.filter(null, null, from).code()).isNull();
+        assertThatThrownBy(() -> service.filter(null, from, from))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("from must be before to");
+    }
+
+    @Test
+    void exportShouldWriteOneJsonObjectPerLine() throws IOException {
+        givenRows(row(1L, "DEMO10", "ORDER-1", 7L), row(2L, "DEMO10", "ORDER-2", null));
+
+        String[] lines = export(RedemptionExportFormat.NDJSON).split("\n", -1);
+
+        assertThat(lines).hasSize(3);
+        assertThat(lines[2]).isEmpty();
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertThat(first.get("orderId").asString()).isEqualTo("ORDER-1");
+        assertThat(first.get("buyerId").asLong()).isEqualTo(7L);
+        assertThat(first.get("discountApplied").decimalValue()).isEqualByComparingTo("10.00");
+        assertThat(objectMapper.readTree(lines[1]).get("buyerId").isNull()).isTrue();
+    }
+
+    @Test
+    void exportShouldWriteCsvWithQuotedFieldsWhereNeeded() throws IOException {
+        givenRows(row(1L, "DEMO10", "ORDER-1", 7L), row(2L, "DEMO10", "ORDER \"2\", rush", null));
+
+        assertThat(export(RedemptionExportFormat.CSV)).isEqualTo("""
+                id,voucher_code,order_id,buyer_id,order_amount,discount_applied,claimed_at
+                1,DEMO10,ORDER-1,7,100.00,10.00,2026-02-18T10:15:30Z
+                2,DEMO10,"ORDER ""2"", rush",,100.00,10.00,2026-02-18T10:15:30Z
+                """);
+    }
+
+    @Test
+    void exportShouldRethrowWriteFailures() {
+        // Longer than the buffer, so the row goes straight through to the failing stream.
+        givenRows(row(1L, "DEMO10", "X".repeat(70_000), 7L));
+        OutputStream broken = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("client went away");
+            }
+        };
+
+        for (RedemptionExportFormat format : RedemptionExportFormat.values()) {
+            assertThatThrownBy(() -> service.export(ALL, format, broken))
+                    .isInstanceOf(IOException.class)
+                    .hasMessage("client went away");
+        }
+    }
+
+    @Test
+    void formatShouldBeParsedIgnoringCase() {
+        assertThat(RedemptionExportFormat.of(" CSV ")).isEqualTo(RedemptionExportFormat.CSV);
+        assertThat(RedemptionExportFormat.of("ndjson").contentType()).isEqualTo("application/x-ndjson");
+        assertThatThrownBy(() -> RedemptionExportFormat.of("xml")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void csvFieldShouldQuoteSeparatorsQuotesAndLineBreaks() {
+        assertThat(RedemptionExportService.csvField("PLAIN")).isEqualTo("PLAIN");
+        assertThat(RedemptionExportService.csvField("a,b")).isEqualTo("\"a,b\"");
+        assertThat(RedemptionExportService.csvField("a\"b")).isEqualTo("\"a\"\"b\"");
+        assertThat(RedemptionExportService.csvField("a\nb")).isEqualTo("\"a\nb\"");
+        assertThat(RedemptionExportService.csvField("a\rb")).isEqualTo("\"a\rb\"");
+    }
+
+    private String export(RedemptionExportFormat format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.export(ALL, format, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void givenRows(VoucherRedemptionExport.Row... rows) {
+        doAnswer(invocation -> {
+            List.of(rows).forEach(invocation.getArgument(1, Consumer.class));
+            return null;
+        }).when(voucherRedemptionRepository).exportRedemptions(eq(ALL), any());
+    }
+
+    private static VoucherRedemptionExport.Row row(Long id, String code, String orderId, Long buyerId) {
+        return new VoucherRedemptionExport.Row(
+                id,
+                code,
+                orderId,
+                buyerId,
+                new BigDecimal("100.00"),
+                new BigDecimal("10.00"),
+                Instant.parse("2026-02-18T10:15:30Z")
+        );
+    }
+}
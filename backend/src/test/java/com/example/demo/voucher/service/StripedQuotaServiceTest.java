@@ -0,0 +1,103 @@
+package com.example.demo.voucher.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.demo.voucher.domain.Voucher;
+import com.example.demo.voucher.domain.VoucherQuotaBucket;
+import com.example.demo.voucher.repository.VoucherQuotaBucketRepository;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+class StripedQuotaServiceTest {
+
+    private final VoucherQuotaBucketRepository voucherQuotaBucketRepository = mock(VoucherQuotaBucketRepository.class);
+    private final StripedQuotaService stripedQuotaService = new StripedQuotaService(voucherQuotaBucketRepository);
+
+    @Test
+    void shareSpreadsRemainderOverFirstBuckets() {
+        assertThat(StripedQuotaService.share(10, 4, 0)).isEqualTo(3);
+        assertThat(StripedQuotaService.share(10, 4, 1)).isEqualTo(3);
+        assertThat(StripedQuotaService.share(10, 4, 2)).isEqualTo(2);
+        assertThat(StripedQuotaService.share(10, 4, 3)).isEqualTo(2);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void createBucketsShouldSplitRemainingQuota() {
+        Voucher voucher = Voucher.builder().id(1L).quotaRemaining(10).quotaStripes(3).build();
+
+        stripedQuotaService.createBuckets(voucher);
+
+        ArgumentCaptor<List<VoucherQuotaBucket>> captor = ArgumentCaptor.forClass(List.class);
+        verify(voucherQuotaBucketRepository).saveAll(captor.capture());
+        assertThat(captor.getValue())
+                .extracting(VoucherQuotaBucket::getQuotaRemaining)
+                .containsExactly(4, 3, 3);
+    }
+
+    @Test
+    void tryConsumeShouldFallOverToSiblingBuckets() {
+        Voucher voucher = Voucher.builder().id(1L).quotaStripes(3).build();
+        when(voucherQuotaBucketRepository.decrementIfAvailable(eq(1L), anyInt())).thenReturn(0, 0, 1);
+
+        OptionalInt bucket = stripedQuotaService.tryConsume(voucher, "ORDER-1");
+
+        int home = Math.floorMod("ORDER-1".hashCode(), 3);
+        assertThat(bucket).hasValue((home + 2) % 3);
+    }
+
+    @Test
+    void tryConsumeShouldReturnEmptyWhenAllBucketsDrained() {
+        Voucher voucher = Voucher.builder().id(1L).quotaStripes(2).build();
+
+        assertThat(stripedQuotaService.tryConsume(voucher, "ORDER-1")).isEmpty();
+    }
+
+    @Test
+    void remainingShouldUseSnapshotForUnstripedVouchers() {
+        Voucher plain = Voucher.builder().id(1L).quotaRemaining(5).build();
+        Voucher striped = Voucher.builder().id(2L).quotaRemaining(5).quotaStripes(2).build();
+        when(voucherQuotaBucketRepository.sumQuotaRemaining(2L)).thenReturn(3L);
+
+        assertThat(stripedQuotaService.remaining(plain)).isEqualTo(5);
+        assertThat(stripedQuotaService.remaining(striped)).isEqualTo(3);
+    }
+
+    @Test
+    void remainingByVoucherIdShouldOverlayBucketSums() {
+        Voucher plain = Voucher.builder().id(1L).quotaRemaining(5).build();
+        Voucher striped = Voucher.builder().id(2L).quotaRemaining(5).quotaStripes(2).build();
+        VoucherQuotaBucketRepository.QuotaSum sum = mock(VoucherQuotaBucketRepository.QuotaSum.class);
+        when(sum.getVoucherId()).thenReturn(2L);
+        when(sum.getQuotaRemaining()).thenReturn(1L);
+        when(voucherQuotaBucketRepository.sumQuotaRemainingByVoucherIds(List.of(2L))).thenReturn(List.of(sum));
+
+        Map<Long, Integer> remaining = stripedQuotaService.remainingByVoucherId(List.of(plain, striped));
+
+        assertThat(remaining).containsEntry(1L, 5).containsEntry(2L, 1);
+    }
+
+    @Test
+    void lockAndSumAndRedistributeShouldRewriteBuckets() {
+        Voucher voucher = Voucher.builder().id(1L).quotaStripes(2).build();
+        VoucherQuotaBucket first = VoucherQuotaBucket.builder().bucketNo(0).quotaRemaining(1).build();
+        VoucherQuotaBucket second = VoucherQuotaBucket.builder().bucketNo(1).quotaRemaining(0).build();
+        when(voucherQuotaBucketRepository.findByVoucherIdForUpdate(1L)).thenReturn(List.of(first, second));
+
+        assertThat(stripedQuotaService.lockAndSum(voucher)).isEqualTo(1);
+
+        voucher.setQuotaRemaining(7);
+        stripedQuotaService.redistribute(voucher);
+
+        assertThat(first.getQuotaRemaining()).isEqualTo(4);
+        assertThat(second.getQuotaRemaining()).isEqualTo(3);
+    }
+}
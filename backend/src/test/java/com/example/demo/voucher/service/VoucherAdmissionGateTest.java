@@ -0,0 +1,134 @@
+package com.example.demo.voucher.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.demo.voucher.api.dto.ClaimVoucherResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+class VoucherAdmissionGateTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.parse("2026-02-19T00:00:00");
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MutableClock clock = new MutableClock(NOW.toInstant(ZoneOffset.UTC));
+    private final VoucherAdmissionGate gate = new VoucherAdmissionGate(meterRegistry, Duration.ofSeconds(5), clock);
+
+    @Test
+    void observeShouldCloseOnlyOnOutcomesThatHoldForEveryOrder() {
+        gate.observe(response(true, false, 0, "ok"));
+        gate.observe(response(false, false, 3, "voucher inactive"));
+        gate.observe(response(false, false, 3, "minimum spend not met"));
+        gate.observe(response(true, true, 0, "already claimed for this orderId"));
+
+        assertThat(gate.check("DEMO10")).isEqualTo(new VoucherAdmissionGate.Closed("voucher inactive", 3, clock.millis() + 5000));
+        gate.open("DEMO10");
+        gate.observe(response(true, true, 0, "already claimed for this orderId"));
+        gate.observe(response(false, false, 3, "minimum spend not met"));
+        assertThat(gate.check("DEMO10")).isNull();
+        assertThat(meterRegistry.get("voucher.admission.rejected").tag("reason", "voucher inactive").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectionCountersShouldBeRegisteredUpFrontForEveryReason() {
+        assertThat(meterRegistry.get("voucher.admission.rejected").counters())
+                .extracting(counter -> counter.getId().getTag("reason"))
+                .containsExactlyInAnyOrder("voucher quota exhausted", "voucher not in active period", "voucher inactive", "voucher expired");
+    }
+
+    @Test
+    void openAfterCommitShouldWaitForTheTransactionToCommit() {
+        gate.close("DEMO10", "voucher quota exhausted", 0);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            gate.openAfterCommit("DEMO10");
+
+            assertThat(gate.check("DEMO10")).isNotNull();
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            assertThat(gate.check("DEMO10")).isNull();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void openAfterCommitShouldOpenStraightAwayOutsideATransaction() {
+        gate.close("DEMO10", "voucher quota exhausted", 0);
+
+        gate.openAfterCommit("DEMO10");
+
+        assertThat(gate.check("DEMO10")).isNull();
+    }
+
+    @Test
+    void closedCodesShouldReopenAfterTheTtl() {
+        gate.close("DEMO10", "voucher quota exhausted", 0);
+
+        clock.advance(Duration.ofMillis(4999));
+        assertThat(gate.check("DEMO10")).isNotNull();
+        clock.advance(Duration.ofMillis(1));
+        assertThat(gate.check("DEMO10")).isNull();
+    }
+
+    @Test
+    void closeUntilStartShouldNeverOutliveTheStartOfTheWindow() {
+        gate.closeUntilStart("SOON", NOW.plusSeconds(1), 5);
+        gate.closeUntilStart("LATER", NOW.plusHours(1), 5);
+        gate.closeUntilStart("OPEN", NOW, 5);
+
+        clock.advance(Duration.ofSeconds(1));
+        assertThat(gate.check("SOON")).isNull();
+        assertThat(gate.check("LATER").reason()).isEqualTo("voucher not in active period");
+        assertThat(gate.check("OPEN")).isNull();
+    }
+
+    @Test
+    void zeroTtlDisablesTheGate() {
+        VoucherAdmissionGate disabled = new VoucherAdmissionGate(meterRegistry, Duration.ZERO, clock);
+
+        disabled.close("DEMO10", "voucher inactive", 0);
+
+        assertThat(disabled.check("DEMO10")).isNull();
+    }
+
+    private static ClaimVoucherResponse response(boolean success, boolean idempotent, Integer quotaRemaining, String message) {
+        return new ClaimVoucherResponse(success, idempotent, "DEMO10", "ORDER-1", new BigDecimal("100.00"), null, quotaRemaining, message);
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant instant;
+
+        private MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        private void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,756 @@
+package com.example.demo.voucher.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.demo.voucher.api.dto.ClaimHoldResponse;
+import com.example.demo.voucher.api.dto.ClaimStackedVouchersResponse;
+import com.example.demo.voucher.api.dto.ClaimVoucherRequest;
+import com.example.demo.voucher.api.dto.ClaimVoucherResponse;
+import com.example.demo.voucher.domain.ClaimOutboxEntry;
+import com.example.demo.voucher.domain.ClaimOutboxStatus;
+import com.example.demo.voucher.domain.DiscountType;
+import com.example.demo.voucher.domain.Voucher;
+import com.example.demo.voucher.domain.VoucherClaimHold;
+import com.example.demo.voucher.domain.VoucherQuotaBucket;
+import com.example.demo.voucher.domain.VoucherQuotaLease;
+import com.example.demo.voucher.domain.VoucherRedemption;
+import com.example.demo.voucher.domain.VoucherStatus;
+import com.example.demo.voucher.repository.ClaimOutboxRepository;
+import com.example.demo.voucher.repository.VoucherBuyerClaimsRepository;
+import com.example.demo.voucher.repository.VoucherClaimHoldRepository;
+import com.example.demo.voucher.repository.VoucherQuotaBucketRepository;
+import com.example.demo.voucher.repository.VoucherQuotaLeaseRepository;
+import com.example.demo.voucher.repository.VoucherRedemptionRepository;
+import com.example.demo.voucher.repository.VoucherRepository;
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+class VoucherClaimProcessorTest {
+
+    private static final LocalDateTime EXPIRES_AT = LocalDateTime.parse("2026-02-19T00:00:30");
+
+    private final VoucherRepository voucherRepository = mock(VoucherRepository.class);
+    private final VoucherRedemptionRepository voucherRedemptionRepository = mock(VoucherRedemptionRepository.class);
+    private final VoucherQuotaLeaseRepository voucherQuotaLeaseRepository = mock(VoucherQuotaLeaseRepository.class);
+    private final ClaimOutboxRepository claimOutboxRepository = mock(ClaimOutboxRepository.class);
+    private final VoucherClaimHoldRepository voucherClaimHoldRepository = mock(VoucherClaimHoldRepository.class);
+    private final VoucherBuyerClaimsRepository voucherBuyerClaimsRepository = mock(VoucherBuyerClaimsRepository.class);
+    private final VoucherQuotaBucketRepository voucherQuotaBucketRepository = mock(VoucherQuotaBucketRepository.class);
+    private final Clock clock = Clock.fixed(Instant.parse("2026-02-19T00:00:00Z"), ZoneId.of("UTC"));
+
+    private final VoucherClaimProcessor processor = new VoucherClaimProcessor(
+            voucherRepository,
+            voucherRedemptionRepository,
+            voucherQuotaLeaseRepository,
+            claimOutboxRepository,
+            voucherClaimHoldRepository,
+            voucherBuyerClaimsRepository,
+            new VoucherPolicy(),
+            new StripedQuotaService(voucherQuotaBucketRepository),
+            ClaimStrategy.LEASED,
+            clock
+    );
+
+    @Test
+    void acquireLeaseShouldMoveQuotaOffTheVoucherRow() {
+        Voucher voucher = voucher(3, VoucherStatus.ACTIVE);
+        AtomicReference<VoucherQuotaLease> saved = new AtomicReference<>();
+        when(voucherRepository.findByCodeForUpdate("DEMO10")).thenReturn(Optional.of(voucher));
+        when(voucherQuotaLeaseRepository.save(any())).thenAnswer(inv -> {
+            VoucherQuotaLease lease = inv.getArgument(0);
+            lease.setId(7L);
+            saved.set(lease);
+            return lease;
+        });
+
+        QuotaLeaseGrant grant = processor.acquireLease("DEMO10", "node-a", 50, EXPIRES_AT);
+
+        assertThat(grant).isEqualTo(new QuotaLeaseGrant(7L, 1L, 3, EXPIRES_AT));
+        assertThat(voucher.getQuotaRemaining()).isZero();
+        assertThat(saved.get().getOwner()).isEqualTo("node-a");
+        assertThat(saved.get().getUnitsGranted()).isEqualTo(3);
+        assertThat(saved.get().getUnitsLeft()).isEqualTo(3);
+    }
+
+    @Test
+    void acquireLeaseShouldRefuseMissingStripedOrUnclaimableVouchers() {
+        Voucher striped = voucher(3, VoucherStatus.ACTIVE);
+        striped.setQuotaStripes(4);
+        when(voucherRepository.findByCodeForUpdate("MISSING")).thenReturn(Optional.empty());
+        when(voucherRepository.findByCodeForUpdate("STRIPED")).thenReturn(Optional.of(striped));
+        when(voucherRepository.findByCodeForUpdate("INACTIVE")).thenReturn(Optional.of(voucher(3, VoucherStatus.INACTIVE)));
+
+        assertThat(processor.acquireLease("MISSING", "node-a", 50, EXPIRES_AT)).isNull();
+        assertThat(processor.acquireLease("STRIPED", "node-a", 50, EXPIRES_AT)).isNull();
+        assertThat(processor.acquireLease("INACTIVE", "node-a", 50, EXPIRES_AT)).isNull();
+        verify(voucherQuotaLeaseRepository, never()).save(any());
+    }
+
+    @Test
+    void returnLeaseShouldGiveBackOnlyUnredeemedUnits() {
+        Voucher voucher = voucher(0, VoucherStatus.ACTIVE);
+        VoucherQuotaLease lease = VoucherQuotaLease.builder().id(7L).voucher(voucher).unitsGranted(5).unitsLeft(5).build();
+        when(voucherQuotaLeaseRepository.findByIdForUpdate(7L)).thenReturn(Optional.of(lease));
+        when(voucherRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(voucher));
+        when(voucherRedemptionRepository.countByLeaseId(7L)).thenReturn(2L);
+
+        assertThat(processor.returnLease(7L)).isEqualTo(3);
+        assertThat(voucher.getQuotaRemaining()).isEqualTo(3);
+        verify(voucherQuotaLeaseRepository).delete(lease);
+    }
+
+    @Test
+    void returnLeaseShouldIgnoreLeasesAlreadyReturned() {
+        when(voucherQuotaLeaseRepository.findByIdForUpdate(7L)).thenReturn(Optional.empty());
+
+        assertThat(processor.returnLease(7L)).isZero();
+        verify(voucherRepository, never()).findByIdForUpdate(any());
+        verify(voucherQuotaLeaseRepository, never()).delete(any());
+    }
+
+    @Test
+    void claimFromLeaseShouldInsertTheTaggedRedemptionWithoutLockingTheVoucher() {
+        Voucher voucher = voucher(0, VoucherStatus.ACTIVE);
+        when(voucherRepository.findByCode("DEMO10")).thenReturn(Optional.of(voucher));
+        when(voucherRedemptionRepository.insertFromLease(eq(7L), eq(1L), eq("ORDER-1"), any(), any(), any(), any())).thenReturn(1);
+
+        ClaimVoucherResponse resp = processor.claimFromLease(request("ORDER-1"), 7L, 4);
+
+        assertThat(resp.success()).isTrue();
+        assertThat(resp.quotaRemaining()).isEqualTo(4);
+        verify(voucherRepository, never()).findByCodeForShare(any());
+        verify(voucherRepository, never()).findByCodeForUpdate(any());
+        verify(voucherRedemptionRepository, never()).findByVoucherIdAndOrderId(any(), any());
+        verify(voucherQuotaLeaseRepository, never()).save(any());
+    }
+
+    @Test
+    void claimFromLeaseShouldReportTheLeaseLostOnceItWasReturnedOrSwept() {
+        when(voucherRepository.findByCode("DEMO10")).thenReturn(Optional.of(voucher(5, VoucherStatus.ACTIVE)));
+        when(voucherRedemptionRepository.findByVoucherIdAndOrderId(1L, "ORDER-1")).thenReturn(Optional.empty());
+
+        ClaimVoucherResponse resp = processor.claimFromLease(request("ORDER-1"), 7L, 2);
+
+        assertThat(resp.success()).isFalse();
+        assertThat(resp.message()).isEqualTo(VoucherClaimProcessor.LEASE_LOST);
+        verify(voucherBuyerClaimsRepository, never()).incrementIfBelow(any(), any(), anyInt());
+    }
+
+    @Test
+    void claimFromLeaseShouldReportIdempotentAndRejectedClaims() {
+        Voucher voucher = voucher(0, VoucherStatus.ACTIVE);
+        voucher.setMinSpend(new BigDecimal("500.00"));
+        VoucherRedemption existing = VoucherRedemption.builder()
+                .voucher(voucher)
+                .orderId("ORDER-1")
+                .orderAmount(new BigDecimal("100.00"))
+                .discountApplied(new BigDecimal("10.00"))
+                .build();
+        when(voucherRepository.findByCode("DEMO10")).thenReturn(Optional.of(voucher));
+        when(voucherRepository.findByCode("MISSING")).thenReturn(Optional.empty());
+        when(voucherRedemptionRepository.findByVoucherIdAndOrderId(1L, "ORDER-1")).thenReturn(Optional.of(existing));
+        when(voucherRedemptionRepository.findByVoucherIdAndOrderId(1L, "ORDER-2")).thenReturn(Optional.empty());
+
+        assertThat(processor.claimFromLease(request("ORDER-1"), 7L, 2).idempotent()).isTrue();
+        assertThat(processor.claimFromLease(request("ORDER-2"), 7L, 2).message()).isEqualTo("minimum spend not met");
+        assertThat(processor.claimFromLease(new ClaimVoucherRequest("missing", "ORDER-3", new BigDecimal("100.00"), null), 7L, 2).message())
+                .isEqualTo("voucher not found");
+        verify(voucherRedemptionRepository, never()).insertFromLease(any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void claimFromLeaseShouldReportIdempotentWhenTheInsertFindsTheOrder() {
+        Voucher voucher = voucher(0, VoucherStatus.ACTIVE);
+        VoucherRedemption existing = VoucherRedemption.builder()
+                .voucher(voucher)
+                .orderId("ORDER-1")
+                .orderAmount(new BigDecimal("100.00"))
+                .discountApplied(new BigDecimal("10.00"))
+                .build();
+        when(voucherRepository.findByCode("DEMO10")).thenReturn(Optional.of(voucher));
+        when(voucherRedemptionRepository.findByVoucherIdAndOrderId(1L, "ORDER-1")).thenReturn(Optional.of(existing));
+
+        ClaimVoucherResponse resp = processor.claimFromLease(request("ORDER-1"), 7L, 2);
+
+        assertThat(resp.idempotent()).isTrue();
+        assertThat(resp.quotaRemaining()).isEqualTo(2);
+    }
+
+    @Test
+    void claimFromLeaseShouldUndoTheInsertWhenTheBuyerLimitIsReached() {
+        Voucher voucher = voucher(0, VoucherStatus.ACTIVE);
+        voucher.setMaxClaimsPerBuyer(1);
+        when(voucherRepository.findByCode("DEMO10")).thenReturn(Optional.of(voucher));
+        when(voucherRedemptionRepository.insertFromLease(any(), any(), any(), any(), any(), any(), any())).thenReturn(1);
+
+        ClaimVoucherResponse resp = processor.claimFromLease(
+                new ClaimVoucherRequest("demo10", "ORDER-1", new BigDecimal("100.00"), 9L), 7L, 2);
+
+        assertThat(resp.message()).isEqualTo(VoucherClaimProcessor.BUYER_LIMIT_REACHED);
+        verify(voucherRedemptionRepository).deleteByVoucherIdAndOrderId(1L, "ORDER-1");
+    }
+
+    @Test
+    void claimBatchShouldSettleEveryClaimUnderOneLockAndInsertOnce() {
+        Voucher voucher = voucher(2, VoucherStatus.ACTIVE);
+        voucher.setMinSpend(new BigDecimal("50.00"));
+        VoucherRedemption existing = VoucherRedemption.builder()
+                .voucher(voucher)
+                .orderId("ORDER-0")
+                .orderAmount(new BigDecimal("100.00"))
+                .discountApplied(new BigDecimal("10.00"))
+                .build();
+        when(voucherRepository.findByCodeForUpdate("DEMO10")).thenReturn(Optional.of(voucher));
+        when(voucherRedemptionRepository.findByVoucherIdAndOrderIdIn(any(), any())).thenReturn(List.of(existing));
+
+        List<ClaimVoucherResponse> responses = processor.claimBatch("DEMO10", List.of(
+                request("ORDER-0"),
+                request("ORDER-1"),
+                new ClaimVoucherRequest("demo10", "ORDER-2", new BigDecimal("10.00"), null),
+                request("ORDER-1"),
+                request("ORDER-3"),
+                request("ORDER-4")
+        ));
+
+        assertThat(responses).extracting(ClaimVoucherResponse::message).containsExactly(
+                "already claimed for this orderId",
+                "ok",
+                "minimum spend not met",
+                "already claimed for this orderId",
+                "ok",
+                "voucher quota exhausted"
+        );
+        assertThat(responses).extracting(ClaimVoucherResponse::quotaRemaining).containsExactly(2, 1, 1, 1, 0, 0);
+        assertThat(voucher.getQuotaRemaining()).isZero();
+        verify(voucherRepository, times(1)).findByCodeForUpdate("DEMO10");
+        verify(voucherRedemptionRepository, times(1)).insertAll(argThat(granted -> granted.size() == 2));
+    }
+
+    @Test
+    void claimBatchShouldSkipTheInsertWhenNothingIsGranted() {
+        when(voucherRepository.findByCodeForUpdate("DEMO10")).thenReturn(Optional.of(voucher(0, VoucherStatus.ACTIVE)));
+        when(voucherRedemptionRepository.findByVoucherIdAndOrderIdIn(any(), any())).thenReturn(List.of());
+
+        List<ClaimVoucherResponse> responses = processor.claimBatch("DEMO10", List.of(request("ORDER-1")));
+
+        assertThat(responses).extracting(ClaimVoucherResponse::message).containsExactly("voucher quota exhausted");
+        verify(voucherRedemptionRepository, never()).insertAll(any());
+    }
+
+    @Test
+    void claimBatchShouldReportMissingVouchers() {
+        when(voucherRepository.findByCodeForUpdate("MISSING")).thenReturn(Optional.empty());
+
+        List<ClaimVoucherResponse> responses = processor.claimBatch("MISSING", List.of(request("ORDER-1"), request("ORDER-2")));
+
+        assertThat(responses).extracting(ClaimVoucherResponse::message).containsExactly("voucher not found", "voucher not found");
+    }
+
+    @Test
+    void claimBatchShouldClaimStripedVouchersFromTheirBuckets() {
+        Voucher striped = voucher(3, VoucherStatus.ACTIVE);
+        striped.setQuotaStripes(2);
+        when(voucherRepository.findQuotaStripesByCode("FLASH")).thenReturn(Optional.of(2));
+        when(voucherRepository.findQuotaStripesByCode("GONE")).thenReturn(Optional.of(2));
+        when(voucherRepository.findByCode("FLASH")).thenReturn(Optional.of(striped));
+        when(voucherRepository.findByCode("GONE")).thenReturn(Optional.empty());
+        when(voucherRedemptionRepository.findByVoucherIdAndOrderId(1L, "ORDER-1")).thenReturn(Optional.empty());
+        when(voucherQuotaBucketRepository.decrementIfAvailable(eq(1L), anyInt())).thenReturn(1);
+        when(voucherRedemptionRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+
+        List<ClaimVoucherResponse> responses = processor.claimBatch("FLASH", List.of(request("ORDER-1")));
+
+        assertThat(responses).extracting(ClaimVoucherResponse::success).containsExactly(true);
+        assertThat(processor.claimBatch("GONE", List.of(request("ORDER-1"))))
+                .extracting(ClaimVoucherResponse::message)
+                .containsExactly("voucher not found");
+        verify(voucherRepository, never()).findByCodeForUpdate("FLASH");
+    }
+
+    @Test
+    void claimStackedShouldLockInIdOrderAndCapTheCombinedDiscount() {
+        Voucher shipping = stacked(5L, "SHIP", DiscountType.FIXED, "80.00", 2);
+        Voucher percent = stacked(3L, "PCT", DiscountType.PERCENT, "50.00", 1);
+        Voucher fixed = stacked(4L, "FIX", DiscountType.FIXED, "30.00", 1);
+        when(voucherRepository.findKeysByCodeIn(any())).thenReturn(List.of(key(shipping), key(percent), key(fixed)));
+        when(voucherRepository.findAllByIdForUpdate(any())).thenReturn(List.of(percent, fixed, shipping));
+
+        ClaimStackedVouchersResponse response = processor.claimStacked(List.of("SHIP", "PCT", "FIX"), "ORDER-1", new BigDecimal("100.00"), 9L);
+
+        assertThat(response.success()).isTrue();
+        assertThat(response.idempotent()).isFalse();
+        assertThat(response.claims()).extracting(ClaimVoucherResponse::discountApplied)
+                .containsExactly(new BigDecimal("80.00"), new BigDecimal("10.00"), new BigDecimal("10.00"));
+        assertThat(response.totalDiscount()).isEqualByComparingTo("100.00");
+        assertThat(response.claims()).extracting(ClaimVoucherResponse::quotaRemaining).containsExactly(1, 0, 0);
+        assertThat(shipping.getQuotaRemaining()).isEqualTo(1);
+        assertThat(percent.getQuotaRemaining()).isZero();
+        verify(voucherRepository).findAllByIdForUpdate(argThat(ids -> ids.size() == 3));
+        verify(voucherRedemptionRepository).insertAll(argThat(granted -> granted.size() == 3
+                && granted.stream().allMatch(redemption -> redemption.getBuyerId() == 9L)));
+    }
+
+    @Test
+    void claimStackedShouldClaimNothingWhenAnyCodeIsRejected() {
+        Voucher usable = stacked(1L, "OK", DiscountType.FIXED, "10.00", 2);
+        Voucher exhausted = stacked(2L, "GONE", DiscountType.FIXED, "10.00", 0);
+        when(voucherRepository.findKeysByCodeIn(any())).thenReturn(List.of(key(usable), key(exhausted)));
+        when(voucherRepository.findAllByIdForUpdate(any())).thenReturn(List.of(usable, exhausted));
+
+        ClaimStackedVouchersResponse response = processor.claimStacked(List.of("OK", "GONE"), "ORDER-1", new BigDecimal("100.00"), null);
+
+        assertThat(response.success()).isFalse();
+        assertThat(response.message()).isEqualTo("voucher stack rejected");
+        assertThat(response.claims()).extracting(ClaimVoucherResponse::code, ClaimVoucherResponse::message)
+                .containsExactly(tuple("GONE", "voucher quota exhausted"));
+        assertThat(usable.getQuotaRemaining()).isEqualTo(2);
+        verify(voucherRedemptionRepository, never()).insertAll(any());
+    }
+
+    @Test
+    void claimStackedShouldReportMissingCodesBeforeLockingAnything() {
+        Voucher known = stacked(1L, "OK", DiscountType.FIXED, "10.00", 2);
+        when(voucherRepository.findKeysByCodeIn(any())).thenReturn(List.of(key(known)));
+
+        ClaimStackedVouchersResponse response = processor.claimStacked(List.of("OK", "NOPE"), "ORDER-1", new BigDecimal("100.00"), null);
+
+        assertThat(response.success()).isFalse();
+        assertThat(response.claims()).extracting(ClaimVoucherResponse::message).containsExactly("voucher not found");
+        verify(voucherRepository, never()).findAllByIdForUpdate(any());
+    }
+
+    @Test
+    void claimStackedShouldTreatAFullyRedeemedStackAsIdempotent() {
+        Voucher first = stacked(1L, "A", DiscountType.FIXED, "10.00", 0);
+        Voucher second = stacked(2L, "B", DiscountType.FIXED, "5.00", 0);
+        when(voucherRepository.findKeysByCodeIn(any())).thenReturn(List.of(key(first), key(second)));
+        when(voucherRepository.findAllByIdForUpdate(any())).thenReturn(List.of(first, second));
+        when(voucherRedemptionRepository.findByOrderIdAndVoucherIdIn(eq("ORDER-1"), any())).thenReturn(List.of(
+                redemption(first, "10.00"),
+                redemption(second, "5.00")
+        ));
+
+        ClaimStackedVouchersResponse response = processor.claimStacked(List.of("A", "B"), "ORDER-1", new BigDecimal("100.00"), null);
+
+        assertThat(response.success()).isTrue();
+        assertThat(response.idempotent()).isTrue();
+        assertThat(response.message()).isEqualTo("already claimed for this orderId");
+        assertThat(response.totalDiscount()).isEqualByComparingTo("15.00");
+        verify(voucherRedemptionRepository, never()).insertAll(any());
+    }
+
+    @Test
+    void claimStackedShouldTakeStripedUnitsFromLockedBucketsWithoutLockingTheRow() {
+        Voucher striped = stacked(7L, "FLASH", DiscountType.FIXED, "10.00", 4);
+        striped.setQuotaStripes(2);
+        when(voucherRepository.findKeysByCodeIn(any())).thenReturn(List.of(key(striped)));
+        when(voucherRepository.findAllById(List.of(7L))).thenReturn(List.of(striped));
+        when(voucherQuotaBucketRepository.findByVoucherIdForUpdate(7L)).thenReturn(List.of(
+                VoucherQuotaBucket.builder().voucher(striped).bucketNo(0).quotaRemaining(0).build(),
+                VoucherQuotaBucket.builder().voucher(striped).bucketNo(1).quotaRemaining(3).build()
+        ));
+        when(voucherQuotaBucketRepository.decrementIfAvailable(eq(7L), anyInt())).thenReturn(1);
+
+        ClaimStackedVouchersResponse response = processor.claimStacked(List.of("FLASH"), "ORDER-1", new BigDecimal("100.00"), null);
+
+        assertThat(response.claims()).extracting(ClaimVoucherResponse::quotaRemaining).containsExactly(2);
+        assertThat(striped.getQuotaRemaining()).isEqualTo(4);
+        verify(voucherRepository, never()).findAllByIdForUpdate(any());
+        verify(voucherQuotaBucketRepository).decrementIfAvailable(eq(7L), anyInt());
+        verify(voucherRedemptionRepository).insertAll(argThat(granted -> granted.size() == 1));
+    }
+
+    @Test
+    void settleQueuedShouldRecordEachBatchOutcomeOnItsOutboxEntry() {
+        ClaimOutboxEntry first = queued("ORDER-1");
+        ClaimOutboxEntry second = queued("ORDER-2");
+        when(claimOutboxRepository.findByCodeAndStatusForUpdate(eq("DEMO10"), eq(ClaimOutboxStatus.PENDING), any()))
+                .thenReturn(List.of(first, second));
+        when(voucherRepository.findByCodeForUpdate("DEMO10")).thenReturn(Optional.of(voucher(1, VoucherStatus.ACTIVE)));
+        when(voucherRedemptionRepository.findByVoucherIdAndOrderIdIn(any(), any())).thenReturn(List.of());
+
+        assertThat(processor.settleQueued("DEMO10", 200)).isEqualTo(2);
+
+        assertThat(first.getStatus()).isEqualTo(ClaimOutboxStatus.DONE);
+        assertThat(first.getSuccess()).isTrue();
+        assertThat(first.getDiscountApplied()).isEqualByComparingTo("10.00");
+        assertThat(first.getProcessedAt()).isEqualTo(Instant.parse("2026-02-19T00:00:00Z"));
+        assertThat(second.getSuccess()).isFalse();
+        assertThat(second.getMessage()).isEqualTo("voucher quota exhausted");
+    }
+
+    @Test
+    void settleQueuedShouldDoNothingWhenNothingIsPending() {
+        when(claimOutboxRepository.findByCodeAndStatusForUpdate(eq("DEMO10"), eq(ClaimOutboxStatus.PENDING), any()))
+                .thenReturn(List.of());
+
+        assertThat(processor.settleQueued("DEMO10", 200)).isZero();
+        verify(voucherRepository, never()).findByCodeForUpdate(any());
+    }
+
+    @Test
+    void reserveHoldShouldTakeAUnitAndFixTheDiscount() {
+        Voucher voucher = voucher(2, VoucherStatus.ACTIVE);
+        AtomicReference<VoucherClaimHold> saved = new AtomicReference<>();
+        when(voucherRepository.findByCodeForUpdate("DEMO10")).thenReturn(Optional.of(voucher));
+        when(voucherClaimHoldRepository.save(any())).thenAnswer(inv -> {
+            saved.set(inv.getArgument(0));
+            return inv.getArgument(0);
+        });
+
+        ClaimHoldResponse response = processor.reserveHold(new ClaimVoucherRequest("demo10", " ORDER-1 ", new BigDecimal("100.00"), 9L), EXPIRES_AT);
+
+        assertThat(response).isEqualTo(new ClaimHoldResponse(true, false, "DEMO10", "ORDER-1", new BigDecimal("100.00"), new BigDecimal("10.00"), 1, EXPIRES_AT, "held"));
+        assertThat(voucher.getQuotaRemaining()).isEqualTo(1);
+        assertThat(saved.get().getOrderId()).isEqualTo("ORDER-1");
+        assertThat(saved.get().getBuyerId()).isEqualTo(9L);
+        assertThat(saved.get().getExpiresAt()).isEqualTo(EXPIRES_AT);
+    }
+
+    @Test
+    void reserveHoldShouldRenewAnExistingHoldAndReportRedemptions() {
+        Voucher voucher = voucher(2, VoucherStatus.ACTIVE);
+        VoucherClaimHold hold = hold(voucher, LocalDateTime.parse("2026-02-18T23:59:00"));
+        when(voucherRepository.findByCodeForUpdate("DEMO10")).thenReturn(Optional.of(voucher));
+        when(voucherClaimHoldRepository.findByVoucherIdAndOrderId(1L, "ORDER-1")).thenReturn(Optional.of(hold));
+        when(voucherRedemptionRepository.findByVoucherIdAndOrderId(1L, "ORDER-2")).thenReturn(Optional.of(redemption(voucher, "10.00")));
+
+        ClaimHoldResponse renewed = processor.reserveHold(request("ORDER-1"), EXPIRES_AT);
+        ClaimHoldResponse claimed = processor.reserveHold(request("ORDER-2"), EXPIRES_AT);
+
+        assertThat(renewed.idempotent()).isTrue();
+        assertThat(renewed.message()).isEqualTo("already held for this orderId");
+        assertThat(hold.getExpiresAt()).isEqualTo(EXPIRES_AT);
+        assertThat(claimed.idempotent()).isTrue();
+        assertThat(claimed.expiresAt()).isNull();
+        assertThat(claimed.message()).isEqualTo("already claimed for this orderId");
+        assertThat(voucher.getQuotaRemaining()).isEqualTo(2);
+        verify(voucherClaimHoldRepository, never()).save(any());
+    }
+
+    @Test
+    void reserveHoldShouldRejectStripedMissingAndUnusableVouchers() {
+        when(voucherRepository.findQuotaStripesByCode("STRIPED")).thenReturn(Optional.of(4));
+        when(voucherRepository.findByCodeForUpdate("DEMO10")).thenReturn(Optional.of(voucher(0, VoucherStatus.ACTIVE)));
+
+        assertThat(processor.reserveHold(new ClaimVoucherRequest("striped", "ORDER-1", new BigDecimal("100.00"), null), EXPIRES_AT).message())
+                .isEqualTo("holds are not supported for striped vouchers");
+        assertThat(processor.reserveHold(new ClaimVoucherRequest("missing", "ORDER-1", new BigDecimal("100.00"), null), EXPIRES_AT).message())
+                .isEqualTo("voucher not found");
+        assertThat(processor.reserveHold(request("ORDER-1"), EXPIRES_AT).message()).isEqualTo("voucher quota exhausted");
+        verify(voucherRepository, never()).findByCodeForUpdate("STRIPED");
+        verify(voucherClaimHoldRepository, never()).save(any());
+    }
+
+    @Test
+    void confirmHoldShouldTurnALiveHoldIntoARedemption() {
+        Voucher voucher = voucher(1, VoucherStatus.ACTIVE);
+        VoucherClaimHold hold = hold(voucher, EXPIRES_AT);
+        when(voucherRepository.findByCodeForShare("DEMO10")).thenReturn(Optional.of(voucher));
+        when(voucherClaimHoldRepository.findByVoucherIdAndOrderIdForUpdate(1L, "ORDER-1")).thenReturn(Optional.of(hold));
+        when(voucherRedemptionRepository.insertIfAbsent(any(), any(), any(), any(), any(), any())).thenReturn(1);
+
+        ClaimVoucherResponse response = processor.confirmHold("DEMO10", "ORDER-1");
+
+        assertThat(response).isEqualTo(new ClaimVoucherResponse(true, false, "DEMO10", "ORDER-1", new BigDecimal("100.00"), new BigDecimal("10.00"), 1, "ok"));
+        assertThat(voucher.getQuotaRemaining()).isEqualTo(1);
+        verify(voucherClaimHoldRepository).delete(hold);
+        verify(voucherRedemptionRepository).insertIfAbsent(
+                eq(1L), eq("ORDER-1"), eq(9L), eq(new BigDecimal("100.00")), eq(new BigDecimal("10.00")), any());
+        verify(voucherRepository, never()).findByCodeForUpdate(any());
+    }
+
+    @Test
+    void confirmHoldShouldExpireTheHoldWhenANonLockingClaimInsertedFirst() {
+        Voucher voucher = voucher(1, VoucherStatus.ACTIVE);
+        VoucherClaimHold hold = hold(voucher, EXPIRES_AT);
+        when(voucherRepository.findByCodeForShare("DEMO10")).thenReturn(Optional.of(voucher));
+        when(voucherRedemptionRepository.findByVoucherIdAndOrderId(1L, "ORDER-1"))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(redemption(voucher, "10.00")));
+        when(voucherClaimHoldRepository.findByVoucherIdAndOrderIdForUpdate(1L, "ORDER-1")).thenReturn(Optional.of(hold));
+        when(voucherRedemptionRepository.insertIfAbsent(any(), any(), any(), any(), any(), any())).thenReturn(0);
+
+        ClaimVoucherResponse response = processor.confirmHold("DEMO10", "ORDER-1");
+
+        assertThat(response.success()).isTrue();
+        assertThat(response.idempotent()).isTrue();
+        assertThat(hold.getExpiresAt()).isEqualTo(LocalDateTime.now(clock));
+        verify(voucherClaimHoldRepository, never()).delete(any());
+    }
+
+    @Test
+    void lockingClaimShouldSettleALiveHoldInsteadOfTakingAnotherUnit() {
+        Voucher voucher = voucher(1, VoucherStatus.ACTIVE);
+        voucher.setMaxClaimsPerBuyer(1);
+        VoucherClaimHold hold = hold(voucher, EXPIRES_AT);
+        when(voucherRepository.findByCodeForUpdate("DEMO10")).thenReturn(Optional.of(voucher));
+        when(voucherClaimHoldRepository.findByVoucherIdAndOrderIdForUpdate(1L, "ORDER-1")).thenReturn(Optional.of(hold));
+
+        ClaimVoucherResponse response = processor.claim(new ClaimVoucherRequest("DEMO10", "ORDER-1", new BigDecimal("250.00"), 9L));
+
+        assertThat(response).isEqualTo(new ClaimVoucherResponse(true, false, "DEMO10", "ORDER-1", new BigDecimal("100.00"), new BigDecimal("10.00"), 1, "ok"));
+        assertThat(voucher.getQuotaRemaining()).isEqualTo(1);
+        verify(voucherClaimHoldRepository).delete(hold);
+        verify(voucherRedemptionRepository).save(argThat(redemption ->
+                redemption.getOrderId().equals("ORDER-1") && redemption.getBuyerId() == 9L
+        ));
+        verify(voucherBuyerClaimsRepository, never()).incrementIfBelow(any(), any(), anyInt());
+    }
+
+    @Test
+    void lockingClaimShouldLeaveAnExpiredHoldToTheSweeper() {
+        Voucher voucher = voucher(1, VoucherStatus.ACTIVE);
+        when(voucherRepository.findByCodeForUpdate("DEMO10")).thenReturn(Optional.of(voucher));
+        when(voucherClaimHoldRepository.findByVoucherIdAndOrderIdForUpdate(1L, "ORDER-1"))
+                .thenReturn(Optional.of(hold(voucher, LocalDateTime.parse("2026-02-19T00:00:00"))));
+
+        ClaimVoucherResponse response = processor.claim(request("ORDER-1"));
+
+        assertThat(response.success()).isTrue();
+        assertThat(voucher.getQuotaRemaining()).isZero();
+        verify(voucherClaimHoldRepository, never()).delete(any());
+    }
+
+    @Test
+    void confirmHoldShouldRejectMissingAndExpiredHolds() {
+        Voucher voucher = voucher(1, VoucherStatus.ACTIVE);
+        when(voucherRepository.findByCodeForShare("DEMO10")).thenReturn(Optional.of(voucher));
+        when(voucherClaimHoldRepository.findByVoucherIdAndOrderIdForUpdate(1L, "ORDER-1"))
+                .thenReturn(Optional.of(hold(voucher, LocalDateTime.parse("2026-02-19T00:00:00"))));
+        when(voucherRedemptionRepository.findByVoucherIdAndOrderId(1L, "ORDER-3")).thenReturn(Optional.of(redemption(voucher, "10.00")));
+
+        assertThat(processor.confirmHold("DEMO10", "ORDER-1").message()).isEqualTo("hold expired");
+        assertThat(processor.confirmHold("DEMO10", "ORDER-2").message()).isEqualTo("hold not found");
+        assertThat(processor.confirmHold("DEMO10", "ORDER-3").idempotent()).isTrue();
+        assertThat(processor.confirmHold("MISSING", "ORDER-1").message()).isEqualTo("voucher not found");
+        verify(voucherClaimHoldRepository, never()).delete(any());
+        verify(voucherRedemptionRepository, never()).insertIfAbsent(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void releaseExpiredHoldsShouldReturnTheirUnitsUnderTheRowLock() {
+        Voucher voucher = voucher(0, VoucherStatus.ACTIVE);
+        LocalDateTime now = LocalDateTime.parse("2026-02-19T00:00:00");
+        when(voucherRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(voucher));
+        when(voucherClaimHoldRepository.deleteExpired(1L, now)).thenReturn(3);
+
+        assertThat(processor.releaseExpiredHolds(1L, now)).isEqualTo(3);
+        assertThat(processor.releaseExpiredHolds(2L, now)).isZero();
+        assertThat(voucher.getQuotaRemaining()).isEqualTo(3);
+        verify(voucherClaimHoldRepository, never()).deleteExpired(eq(2L), any());
+    }
+
+    @Test
+    void claimShouldEnforceTheBuyerLimitThroughTheCounterRow() {
+        Voucher voucher = voucher(10, VoucherStatus.ACTIVE);
+        voucher.setMaxClaimsPerBuyer(2);
+        when(voucherRepository.findByCodeForUpdate("DEMO10")).thenReturn(Optional.of(voucher));
+        when(voucherBuyerClaimsRepository.incrementIfBelow(1L, 1L, 2)).thenReturn(1);
+        when(voucherBuyerClaimsRepository.insertFirstClaim(1L, 2L)).thenReturn(1);
+        when(voucherBuyerClaimsRepository.incrementIfBelow(1L, 3L, 2)).thenReturn(0, 1);
+
+        assertThat(processor.claim(new ClaimVoucherRequest("DEMO10", "ORDER-1", new BigDecimal("100.00"), 1L)).success()).isTrue();
+        assertThat(processor.claim(new ClaimVoucherRequest("DEMO10", "ORDER-2", new BigDecimal("100.00"), 2L)).success()).isTrue();
+        assertThat(processor.claim(new ClaimVoucherRequest("DEMO10", "ORDER-3", new BigDecimal("100.00"), 3L)).success()).isTrue();
+        assertThat(processor.claim(new ClaimVoucherRequest("DEMO10", "ORDER-4", new BigDecimal("100.00"), 4L)).message())
+                .isEqualTo(VoucherClaimProcessor.BUYER_LIMIT_REACHED);
+        assertThat(processor.claim(new ClaimVoucherRequest("DEMO10", "ORDER-5", new BigDecimal("100.00"), null)).success()).isTrue();
+
+        assertThat(voucher.getQuotaRemaining()).isEqualTo(6);
+        verify(voucherBuyerClaimsRepository, never()).insertFirstClaim(1L, 1L);
+        verify(voucherRedemptionRepository, times(4)).save(any());
+    }
+
+    @Test
+    void claimBatchAndReserveShouldRejectBuyersAtTheirLimit() {
+        Voucher voucher = voucher(10, VoucherStatus.ACTIVE);
+        voucher.setMaxClaimsPerBuyer(1);
+        when(voucherRepository.findByCodeForUpdate("DEMO10")).thenReturn(Optional.of(voucher));
+
+        List<ClaimVoucherResponse> responses = processor.claimBatch("DEMO10", List.of(
+                new ClaimVoucherRequest("DEMO10", "ORDER-1", new BigDecimal("100.00"), 4L),
+                new ClaimVoucherRequest("DEMO10", "ORDER-2", new BigDecimal("100.00"), 4L)
+        ));
+        ClaimHoldResponse hold = processor.reserveHold(new ClaimVoucherRequest("DEMO10", "ORDER-3", new BigDecimal("100.00"), 4L), EXPIRES_AT);
+
+        assertThat(responses).extracting(ClaimVoucherResponse::message)
+                .containsExactly(VoucherClaimProcessor.BUYER_LIMIT_REACHED, VoucherClaimProcessor.BUYER_LIMIT_REACHED);
+        assertThat(hold.message()).isEqualTo(VoucherClaimProcessor.BUYER_LIMIT_REACHED);
+        assertThat(voucher.getQuotaRemaining()).isEqualTo(10);
+        verify(voucherRedemptionRepository, never()).insertAll(any());
+        verify(voucherClaimHoldRepository, never()).save(any());
+    }
+
+    @Test
+    void claimStackedShouldHandBackBuyerSlotsWhenTheStackIsRejected() {
+        Voucher limited = stacked(1L, "ONCE", DiscountType.FIXED, "10.00", 2);
+        limited.setMaxClaimsPerBuyer(1);
+        Voucher exhausted = stacked(2L, "GONE", DiscountType.FIXED, "10.00", 0);
+        when(voucherRepository.findKeysByCodeIn(any())).thenReturn(List.of(key(limited), key(exhausted)));
+        when(voucherRepository.findAllByIdForUpdate(any())).thenReturn(List.of(limited, exhausted));
+        when(voucherBuyerClaimsRepository.incrementIfBelow(1L, 9L, 1)).thenReturn(1);
+
+        ClaimStackedVouchersResponse response = processor.claimStacked(List.of("ONCE", "GONE"), "ORDER-1", new BigDecimal("100.00"), 9L);
+        ClaimStackedVouchersResponse limitedOut = processor.claimStacked(List.of("ONCE"), "ORDER-2", new BigDecimal("100.00"), 8L);
+
+        assertThat(response.success()).isFalse();
+        assertThat(limitedOut.claims()).extracting(ClaimVoucherResponse::message).containsExactly(VoucherClaimProcessor.BUYER_LIMIT_REACHED);
+        verify(voucherBuyerClaimsRepository).release(1L, 9L, 1);
+        verify(voucherRedemptionRepository, never()).insertAll(any());
+    }
+
+    @Test
+    void claimShouldGiveBackConditionalAndStripedUnitsWhenTheBuyerIsAtTheLimit() {
+        VoucherClaimProcessor conditional = new VoucherClaimProcessor(
+                voucherRepository,
+                voucherRedemptionRepository,
+                voucherQuotaLeaseRepository,
+                claimOutboxRepository,
+                voucherClaimHoldRepository,
+                voucherBuyerClaimsRepository,
+                new VoucherPolicy(),
+                new StripedQuotaService(voucherQuotaBucketRepository),
+                ClaimStrategy.CONDITIONAL_UPDATE,
+                clock
+        );
+        Voucher voucher = voucher(3, VoucherStatus.ACTIVE);
+        voucher.setMaxClaimsPerBuyer(1);
+        Voucher striped = voucher(3, VoucherStatus.ACTIVE);
+        striped.setId(2L);
+        striped.setQuotaStripes(2);
+        striped.setMaxClaimsPerBuyer(1);
+        when(voucherRepository.findByCode("DEMO10")).thenReturn(Optional.of(voucher));
+        when(voucherRepository.decrementQuotaIfClaimable(eq(1L), eq(VoucherStatus.ACTIVE), any())).thenReturn(1);
+        when(voucherRepository.findQuotaStripesByCode("FLASH")).thenReturn(Optional.of(2));
+        when(voucherRepository.findByCode("FLASH")).thenReturn(Optional.of(striped));
+        when(voucherQuotaBucketRepository.decrementIfAvailable(eq(2L), anyInt())).thenReturn(1);
+        when(voucherRedemptionRepository.insertIfAbsent(any(), any(), any(), any(), any(), any())).thenReturn(1);
+
+        assertThat(conditional.claim(request("ORDER-1")).message()).isEqualTo("ok");
+        assertThat(conditional.claim(new ClaimVoucherRequest("DEMO10", "ORDER-2", new BigDecimal("100.00"), 4L)).message())
+                .isEqualTo(VoucherClaimProcessor.BUYER_LIMIT_REACHED);
+        assertThat(processor.claim(new ClaimVoucherRequest("FLASH", "ORDER-3", new BigDecimal("100.00"), 4L)).message())
+                .isEqualTo(VoucherClaimProcessor.BUYER_LIMIT_REACHED);
+
+        verify(voucherRepository).incrementQuota(1L);
+        verify(voucherQuotaBucketRepository).increment(eq(2L), anyInt());
+    }
+
+    @Test
+    void releaseExpiredHoldsShouldHandBackBuyerSlots() {
+        Voucher voucher = voucher(0, VoucherStatus.ACTIVE);
+        voucher.setMaxClaimsPerBuyer(2);
+        LocalDateTime now = LocalDateTime.parse("2026-02-19T00:00:00");
+        when(voucherRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(voucher));
+        when(voucherClaimHoldRepository.countExpiredByBuyer(1L, now)).thenReturn(List.of(new VoucherClaimHoldRepository.BuyerHolds() {
+            @Override
+            public Long getBuyerId() {
+                return 9L;
+            }
+
+            @Override
+            public Long getHolds() {
+                return 2L;
+            }
+        }));
+        when(voucherClaimHoldRepository.deleteExpired(1L, now)).thenReturn(2);
+
+        assertThat(processor.releaseExpiredHolds(1L, now)).isEqualTo(2);
+        verify(voucherBuyerClaimsRepository).release(1L, 9L, 2);
+    }
+
+    private static VoucherClaimHold hold(Voucher voucher, LocalDateTime expiresAt) {
+        return VoucherClaimHold.builder()
+                .voucher(voucher)
+                .orderId("ORDER-1")
+                .buyerId(9L)
+                .orderAmount(new BigDecimal("100.00"))
+                .discountApplied(new BigDecimal("10.00"))
+                .expiresAt(expiresAt)
+                .build();
+    }
+
+    private static Voucher stacked(Long id, String code, DiscountType discountType, String discountValue, int quotaRemaining) {
+        Voucher voucher = voucher(quotaRemaining, VoucherStatus.ACTIVE);
+        voucher.setId(id);
+        voucher.setCode(code);
+        voucher.setDiscountType(discountType);
+        voucher.setDiscountValue(new BigDecimal(discountValue));
+        return voucher;
+    }
+
+    private static VoucherRepository.VoucherKey key(Voucher voucher) {
+        return new VoucherRepository.VoucherKey() {
+            @Override
+            public Long getId() {
+                return voucher.getId();
+            }
+
+            @Override
+            public String getCode() {
+                return voucher.getCode();
+            }
+
+            @Override
+            public Integer getQuotaStripes() {
+                return voucher.getQuotaStripes();
+            }
+        };
+    }
+
+    private static VoucherRedemption redemption(Voucher voucher, String discountApplied) {
+        return VoucherRedemption.builder()
+                .voucher(voucher)
+                .orderId("ORDER-1")
+                .orderAmount(new BigDecimal("100.00"))
+                .discountApplied(new BigDecimal(discountApplied))
+                .build();
+    }
+
+    private static ClaimOutboxEntry queued(String orderId) {
+        return ClaimOutboxEntry.builder()
+                .code("DEMO10")
+                .orderId(orderId)
+                .orderAmount(new BigDecimal("100.00"))
+                .status(ClaimOutboxStatus.PENDING)
+                .build();
+    }
+
+    private static ClaimVoucherRequest request(String orderId) {
+        return new ClaimVoucherRequest("demo10", orderId, new BigDecimal("100.00"), null);
+    }
+
+    private static Voucher voucher(int quotaRemaining, VoucherStatus status) {
+        return Voucher.builder()
+                .id(1L)
+                .code("DEMO10")
+                .discountType(DiscountType.FIXED)
+                .discountValue(new BigDecimal("10.00"))
+                .startAt(LocalDateTime.parse("2026-02-18T00:00:00"))
+                .endAt(LocalDateTime.parse("2026-02-20T00:00:00"))
+                .quotaTotal(5)
+                .quotaRemaining(quotaRemaining)
+                .status(status)
+                .version(0L)
+                .build();
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.demo.voucher.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class VoucherCodesTest {
+
+    private static final String ALPHABET = "aAzZ09-_ \t\nßıéÉ";
+
+    private String sink;
+
+    @Test
+    void normalizeShouldReturnAnAlreadyNormalizedCodeItself() {
+        String code = "DEMO10";
+
+        assertThat(VoucherCodes.normalize(code)).isSameAs(code);
+        assertThat(VoucherCodes.normalize(" demo10\t")).isEqualTo("DEMO10");
+        assertThat(VoucherCodes.normalize("  DEMO10 ")).isEqualTo("DEMO10");
+        assertThat(VoucherCodes.normalize("   ")).isEmpty();
+    }
+
+    @Test
+    void everyMethodShouldAgreeWithTrimAndUpperCase() {
+        Random random = new Random(20);
+        for (int n = 0; n < 20_000; n++) {
+            String code = randomCode(random);
+            String expected = code.trim().toUpperCase(Locale.ROOT);
+
+            assertThat(VoucherCodes.normalize(code)).as(code).isEqualTo(expected);
+            assertThat(VoucherCodes.hash(code)).as(code).isEqualTo(expected.hashCode());
+            assertThat(VoucherCodes.matches(code, expected)).as(code).isTrue();
+            String other = randomCode(random).trim().toUpperCase(Locale.ROOT);
+            assertThat(VoucherCodes.matches(code, other)).as(code + " vs " + other).isEqualTo(expected.equals(other));
+        }
+    }
+
+    @Test
+    void matchesShouldHandleCodesWhoseLengthChangesWhenUpperCased() {
+        assertThat(VoucherCodes.matches(" straße ", "STRASSE")).isTrue();
+        assertThat(VoucherCodes.matches("strasse", "STRAßE")).isFalse();
+        assertThat(VoucherCodes.matches("demo", "DEMO10")).isFalse();
+    }
+
+    // Benchmark: bytes allocated per call for a code sent lower case with padding, and for one sent as
+    // stored. The old normalization built one string for trim and another for the upper case.
+    @Test
+    void hashingAndMatchingShouldNotAllocate() {
+        String raw = "  summer-sale-10 ";
+        String stored = "SUMMER-SALE-10";
+        int calls = 20_000;
+
+        long legacy = allocatedPerCall(calls, () -> sink = raw.trim().toUpperCase(Locale.ROOT));
+        long rawLookup = allocatedPerCall(calls, () -> {
+            if (VoucherCodes.hash(raw) != stored.hashCode() || !VoucherCodes.matches(raw, stored)) {
+                throw new AssertionError(raw);
+            }
+        });
+        long normalized = allocatedPerCall(calls, () -> sink = VoucherCodes.normalize(stored));
+
+        assertThat(legacy).isGreaterThan(0);
+        assertThat(rawLookup * 10).isLessThan(legacy);
+        assertThat(normalized * 10).isLessThan(legacy);
+    }
+
+    private static long allocatedPerCall(int calls, Runnable call) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < calls; i++) {
+            call.run();
+        }
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < calls; i++) {
+            call.run();
+        }
+        return (threads.getCurrentThreadAllocatedBytes() - before) / calls;
+    }
+
+    private static String randomCode(Random random) {
+        StringBuilder code = new StringBuilder();
+        int length = random.nextInt(8);
+        for (int i = 0; i < length; i++) {
+            code.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return code.toString();
+    }
+}
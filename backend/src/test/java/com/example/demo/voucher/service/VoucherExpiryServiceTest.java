@@ -0,0 +1,66 @@
+package com.example.demo.voucher.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.demo.voucher.domain.VoucherStatus;
+import com.example.demo.voucher.repository.VoucherRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class VoucherExpiryServiceTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.parse("2026-02-19T00:00:00");
+
+    private final VoucherRepository voucherRepository = mock(VoucherRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Clock clock = Clock.fixed(Instant.parse("2026-02-19T00:00:00Z"), ZoneId.of("UTC"));
+
+    private final VoucherExpiryService service = new VoucherExpiryService(voucherRepository, meterRegistry, 2, clock);
+
+    @Test
+    void expireVouchersShouldWorkInChunksUntilAShortChunkComesBack() {
+        when(voucherRepository.findIdsToExpire(eq(VoucherStatus.EXPIRED), eq(NOW), any()))
+                .thenReturn(List.of(1L, 2L), List.of(3L));
+        when(voucherRepository.markExpiredVouchers(List.of(1L, 2L), VoucherStatus.EXPIRED, NOW)).thenReturn(2);
+        when(voucherRepository.markExpiredVouchers(List.of(3L), VoucherStatus.EXPIRED, NOW)).thenReturn(1);
+
+        service.expireVouchers();
+
+        verify(voucherRepository, times(2)).findIdsToExpire(eq(VoucherStatus.EXPIRED), eq(NOW), any());
+        assertThat(meterRegistry.get("voucher.expiry.expired").counter().count()).isEqualTo(3.0);
+        assertThat(meterRegistry.get("voucher.expiry.duration").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void expireVouchersShouldNotUpdateWhenNothingHasClosed() {
+        when(voucherRepository.findIdsToExpire(eq(VoucherStatus.EXPIRED), eq(NOW), any())).thenReturn(List.of());
+
+        service.expireVouchers();
+
+        verify(voucherRepository, never()).markExpiredVouchers(any(), any(), any());
+        assertThat(meterRegistry.get("voucher.expiry.expired").counter().count()).isZero();
+    }
+
+    @Test
+    void expireShouldWriteTheGivenIdsInChunks() {
+        when(voucherRepository.markExpiredVouchers(List.of(1L, 2L), VoucherStatus.EXPIRED, NOW)).thenReturn(2);
+        when(voucherRepository.markExpiredVouchers(List.of(3L), VoucherStatus.EXPIRED, NOW)).thenReturn(0);
+
+        service.expire(List.of(1L, 2L, 3L));
+
+        verify(voucherRepository).markExpiredVouchers(List.of(3L), VoucherStatus.EXPIRED, NOW);
+        assertThat(meterRegistry.get("voucher.expiry.expired").counter().count()).isEqualTo(2.0);
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.demo.voucher.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.demo.voucher.api.dto.ClaimVoucherResponse;
+import com.example.demo.voucher.domain.DiscountType;
+import com.example.demo.voucher.domain.Voucher;
+import com.example.demo.voucher.domain.VoucherStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+
+class VoucherIndexTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.parse("2026-02-19T00:00:00");
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MutableClock clock = new MutableClock(NOW.toInstant(ZoneOffset.UTC));
+    private final VoucherIndex index = new VoucherIndex(meterRegistry, Duration.ofSeconds(5), clock);
+
+    @Test
+    void getShouldServeIndexedCopiesUntilTheTtlRunsOut() {
+        assertThat(index.get("DEMO")).isNull();
+        index.put(voucher("DEMO", 3L, VoucherStatus.ACTIVE), 7);
+
+        VoucherIndex.IndexedVoucher indexed = index.get("DEMO");
+        assertThat(indexed.quotaRemaining()).isEqualTo(7);
+        assertThat(indexed.version()).isEqualTo(3L);
+        assertThat(indexed.discountValue()).isEqualByComparingTo("10.00");
+        assertThat(indexed.discountValueMinor()).isEqualTo(1000L);
+
+        clock.advance(Duration.ofSeconds(5));
+        assertThat(index.get("DEMO")).isNull();
+        assertThat(meterRegistry.get("voucher.index.lookups").tag("result", "hit").counter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("voucher.index.lookups").tag("result", "miss").counter().count()).isEqualTo(2.0);
+    }
+
+    @Test
+    void putShouldNotReplaceANewerVersion() {
+        index.put(voucher("DEMO", 4L, VoucherStatus.INACTIVE), 5);
+        VoucherIndex.IndexedVoucher returned = index.put(voucher("DEMO", 3L, VoucherStatus.ACTIVE), 5);
+
+        assertThat(returned.status()).isEqualTo(VoucherStatus.ACTIVE);
+        assertThat(index.get("DEMO").status()).isEqualTo(VoucherStatus.INACTIVE);
+    }
+
+    @Test
+    void invalidateShouldRefuseCopiesReadBeforeTheWriteCommitted() {
+        Voucher voucher = voucher("DEMO", 3L, VoucherStatus.ACTIVE);
+        index.put(voucher, 5);
+
+        index.invalidate(voucher);
+        assertThat(index.get("DEMO")).isNull();
+        index.put(voucher("DEMO", 3L, VoucherStatus.ACTIVE), 5);
+        assertThat(index.get("DEMO")).isNull();
+
+        index.put(voucher("DEMO", 4L, VoucherStatus.INACTIVE), 5);
+        assertThat(index.get("DEMO").status()).isEqualTo(VoucherStatus.INACTIVE);
+    }
+
+    @Test
+    void anExpiredInvalidationShouldNoLongerBlockPuts() {
+        index.invalidate(voucher("DEMO", null, VoucherStatus.ACTIVE));
+        clock.advance(Duration.ofSeconds(5));
+
+        index.put(voucher("DEMO", null, VoucherStatus.ACTIVE), 5);
+
+        assertThat(index.get("DEMO").version()).isZero();
+    }
+
+    @Test
+    void observeShouldOnlyLowerTheIndexedQuota() {
+        index.put(voucher("DEMO", 1L, VoucherStatus.ACTIVE), 5);
+
+        index.observe(claimed("DEMO", 3));
+        index.observe(claimed("DEMO", 4));
+        index.observe(claimed("DEMO", null));
+        index.observe(claimed("OTHER", 0));
+
+        assertThat(index.get("DEMO").quotaRemaining()).isEqualTo(3);
+        assertThat(index.get("OTHER")).isNull();
+    }
+
+    @Test
+    void observeShouldLeaveAnInvalidatedCodeAlone() {
+        index.invalidate(voucher("DEMO", 1L, VoucherStatus.ACTIVE));
+
+        index.observe(claimed("DEMO", 0));
+
+        assertThat(index.get("DEMO")).isNull();
+    }
+
+    @Test
+    void zeroTtlShouldDisableTheIndex() {
+        VoucherIndex disabled = new VoucherIndex(new SimpleMeterRegistry(), Duration.ZERO, clock);
+
+        disabled.put(voucher("DEMO", 1L, VoucherStatus.ACTIVE), 5);
+
+        assertThat(disabled.get("DEMO")).isNull();
+    }
+
+    @Test
+    void getShouldMatchCodesAsSentByClients() {
+        index.put(voucher("DEMO", 1L, VoucherStatus.ACTIVE), 5);
+
+        assertThat(index.get("  demo\t").code()).isEqualTo("DEMO");
+        assertThat(index.get("Demo").code()).isEqualTo("DEMO");
+        assertThat(index.get("DEMO1")).isNull();
+        assertThat(index.get("dem")).isNull();
+    }
+
+    @Test
+    void aFullTableShouldBeRebuiltWithoutItsExpiredEntries() {
+        for (int i = 0; i < 30; i++) {
+            index.put(voucher("OLD" + i, 1L, VoucherStatus.ACTIVE), 5);
+        }
+        clock.advance(Duration.ofSeconds(5));
+        for (int i = 0; i < 100; i++) {
+            index.put(voucher("NEW" + i, 1L, VoucherStatus.ACTIVE), 5);
+        }
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(index.get("new" + i).code()).isEqualTo("NEW" + i);
+        }
+        assertThat(index.get("OLD0")).isNull();
+        index.put(voucher("OLD0", 1L, VoucherStatus.ACTIVE), 5);
+        assertThat(index.get("OLD0").quotaRemaining()).isEqualTo(5);
+    }
+
+    // Benchmark: bytes allocated per hit for a code sent lower case with padding. Normalizing first and
+    // then looking up the string, as before, built two strings per request; the raw lookup builds none.
+    @Test
+    void rawLookupsShouldNotAllocate() {
+        index.put(voucher("SUMMER-SALE-10", 1L, VoucherStatus.ACTIVE), 5);
+        Map<String, VoucherIndex.IndexedVoucher> byCode = new ConcurrentHashMap<>(Map.of("SUMMER-SALE-10", index.get("SUMMER-SALE-10")));
+        String raw = "  summer-sale-10 ";
+        int lookups = 20_000;
+
+        long legacy = allocatedPerLookup(lookups, () -> byCode.get(raw.trim().toUpperCase(Locale.ROOT)));
+        long indexed = allocatedPerLookup(lookups, () -> index.get(raw));
+
+        assertThat(indexed * 10).isLessThan(legacy);
+    }
+
+    private static long allocatedPerLookup(int lookups, Supplier<VoucherIndex.IndexedVoucher> lookup) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < lookups; i++) {
+            assertThat(lookup.get()).isNotNull();
+        }
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < lookups; i++) {
+            if (lookup.get() == null) {
+                throw new AssertionError("miss");
+            }
+        }
+        return (threads.getCurrentThreadAllocatedBytes() - before) / lookups;
+    }
+
+    private static Voucher voucher(String code, Long version, VoucherStatus status) {
+        return Voucher.builder()
+                .id(1L)
+                .code(code)
+                .discountType(DiscountType.FIXED)
+                .discountValue(new BigDecimal("10.00"))
+                .startAt(NOW.minusDays(1))
+                .endAt(NOW.plusDays(1))
+                .quotaTotal(5)
+                .quotaRemaining(5)
+                .status(status)
+                .version(version)
+                .build();
+    }
+
+    private static ClaimVoucherResponse claimed(String code, Integer quotaRemaining) {
+        return new ClaimVoucherResponse(true, false, code, "ORDER-1", new BigDecimal("100.00"), new BigDecimal("10.00"), quotaRemaining, "ok");
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant instant;
+
+        private MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        private void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
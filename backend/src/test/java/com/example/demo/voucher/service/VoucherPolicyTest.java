@@ -2,16 +2,25 @@ package com.example.demo.voucher.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 import com.example.demo.voucher.domain.DiscountType;
+import com.example.demo.voucher.domain.Money;
 import com.example.demo.voucher.domain.Voucher;
 import com.example.demo.voucher.domain.VoucherStatus;
+import com.sun.management.ThreadMXBean;
+import java.lang.management.ManagementFactory;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.function.Supplier;
 import org.junit.jupiter.api.Test;
 
 class VoucherPolicyTest {
 
+    private static final ThreadMXBean THREADS = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
     private final VoucherPolicy voucherPolicy = new VoucherPolicy();
 
     @Test
@@ -43,12 +52,14 @@ class VoucherPolicyTest {
         LocalDateTime now = LocalDateTime.parse("2026-02-19T00:00:00");
 
         Voucher expired = voucher(now.minusDays(1), now.plusDays(1), 5, null, VoucherStatus.EXPIRED);
+        Voucher ended = voucher(now.minusDays(2), now.minusDays(1), 5, null, VoucherStatus.ACTIVE);
         Voucher inactive = voucher(now.minusDays(1), now.plusDays(1), 5, null, VoucherStatus.INACTIVE);
         Voucher outsideWindow = voucher(now.plusDays(1), now.plusDays(2), 5, null, VoucherStatus.ACTIVE);
         Voucher quotaExhausted = voucher(now.minusDays(1), now.plusDays(1), 0, null, VoucherStatus.ACTIVE);
         Voucher minSpend = voucher(now.minusDays(1), now.plusDays(1), 5, new BigDecimal("200.00"), VoucherStatus.ACTIVE);
 
         assertThat(voucherPolicy.validateVoucherUsability(expired, new BigDecimal("100.00"), now)).isEqualTo("voucher expired");
+        assertThat(voucherPolicy.validateVoucherUsability(ended, new BigDecimal("100.00"), now)).isEqualTo("voucher expired");
         assertThat(voucherPolicy.validateVoucherUsability(inactive, new BigDecimal("100.00"), now)).isEqualTo("voucher inactive");
         assertThat(voucherPolicy.validateVoucherUsability(outsideWindow, new BigDecimal("100.00"), now)).isEqualTo("voucher not in active period");
         assertThat(voucherPolicy.validateVoucherUsability(quotaExhausted, new BigDecimal("100.00"), now)).isEqualTo("voucher quota exhausted");
@@ -63,6 +74,25 @@ class VoucherPolicyTest {
         assertThat(voucherPolicy.validateVoucherUsability(voucher, new BigDecimal("100.00"), now)).isNull();
     }
 
+    @Test
+    void validateVoucherUsabilityShouldPreferExplicitQuotaOverSnapshot() {
+        LocalDateTime now = LocalDateTime.parse("2026-02-19T00:00:00");
+        Voucher voucher = voucher(now.minusDays(1), now.plusDays(1), 5, null, VoucherStatus.ACTIVE);
+
+        assertThat(voucherPolicy.validateVoucherUsability(voucher, 0, new BigDecimal("100.00"), now)).isEqualTo("voucher quota exhausted");
+    }
+
+    @Test
+    void isClaimableShouldRequireActiveStatusWindowAndQuota() {
+        LocalDateTime now = LocalDateTime.parse("2026-02-19T00:00:00");
+
+        assertThat(voucherPolicy.isClaimable(voucher(now.minusDays(1), now.plusDays(1), 5, new BigDecimal("500.00"), VoucherStatus.ACTIVE), now)).isTrue();
+        assertThat(voucherPolicy.isClaimable(voucher(now.minusDays(1), now.plusDays(1), 5, null, VoucherStatus.INACTIVE), now)).isFalse();
+        assertThat(voucherPolicy.isClaimable(voucher(now.plusDays(1), now.plusDays(2), 5, null, VoucherStatus.ACTIVE), now)).isFalse();
+        assertThat(voucherPolicy.isClaimable(voucher(now.minusDays(2), now.minusDays(1), 5, null, VoucherStatus.ACTIVE), now)).isFalse();
+        assertThat(voucherPolicy.isClaimable(voucher(now.minusDays(1), now.plusDays(1), 0, null, VoucherStatus.ACTIVE), now)).isFalse();
+    }
+
     @Test
     void ensureVoucherEditableShouldRejectExpiredOrOverclaimedUpdates() {
         LocalDateTime now = LocalDateTime.parse("2026-02-19T00:00:00");
@@ -91,6 +121,93 @@ class VoucherPolicyTest {
                 .isEqualByComparingTo("5.00");
     }
 
+    @Test
+    void calculateDiscountShouldFallBackToDecimalsForAmountsWithoutAMinorUnitForm() {
+        assertThat(voucherPolicy.calculateDiscount(new BigDecimal("100.005"), DiscountType.PERCENT, new BigDecimal("10.00")))
+                .isEqualTo("10.00");
+        assertThat(voucherPolicy.calculateDiscount(new BigDecimal("100.00"), DiscountType.PERCENT, new BigDecimal("12.345")))
+                .isEqualTo("12.35");
+        assertThat(voucherPolicy.calculateDiscount(new BigDecimal("2.005"), DiscountType.FIXED, new BigDecimal("10.00")))
+                .isEqualTo("2.01");
+    }
+
+    // Property check: the minor-unit path and the BigDecimal formula it replaced agree exactly (value
+    // and scale) on random amounts, from single cents up to the largest amounts that fit in a long. The
+    // seed is fixed, so a failure reproduces; a few thousand cases cover every digit count many times.
+    @Test
+    void minorUnitDiscountShouldMatchTheDecimalFormulaOnRandomInputs() {
+        Random random = new Random(21);
+        DiscountType[] types = DiscountType.values();
+        for (int n = 0; n < 5_000; n++) {
+            BigDecimal orderAmount = randomAmount(random);
+            DiscountType type = types[random.nextInt(types.length)];
+            BigDecimal discountValue = type == DiscountType.PERCENT ? randomPercent(random) : randomAmount(random);
+            BigDecimal expected = decimalDiscount(orderAmount, type, discountValue);
+
+            BigDecimal actual = voucherPolicy.calculateDiscount(orderAmount, type, discountValue);
+            long orderMinor = Money.toMinor(orderAmount);
+            long valueMinor = Money.toMinor(discountValue);
+            if (!actual.equals(expected) || orderMinor != Money.NOT_EXACT && valueMinor != Money.NOT_EXACT
+                    && voucherPolicy.calculateDiscount(orderMinor, type, valueMinor) != expected.movePointRight(2).longValueExact()) {
+                throw new AssertionError(type + " " + discountValue + " on " + orderAmount + ": expected " + expected + ", got " + actual);
+            }
+        }
+    }
+
+    // Allocation is counted per thread, so nothing else running in the JVM skews it. The loops are long
+    // enough that the counter's own reads round away.
+    @Test
+    void calculateDiscountShouldAllocateNothingForFixedAndOnlyTwoAmountsForPercent() {
+        assumeTrue(THREADS.isThreadAllocatedMemorySupported() && THREADS.isThreadAllocatedMemoryEnabled());
+        BigDecimal orderAmount = new BigDecimal("250.00");
+        VoucherIndex.IndexedVoucher fixed = VoucherIndex.IndexedVoucher.of(voucher(
+                LocalDateTime.parse("2026-02-18T00:00:00"), LocalDateTime.parse("2026-02-20T00:00:00"), 1, null, VoucherStatus.ACTIVE), 1);
+        Voucher percentVoucher = voucher(
+                LocalDateTime.parse("2026-02-18T00:00:00"), LocalDateTime.parse("2026-02-20T00:00:00"), 1, null, VoucherStatus.ACTIVE);
+        percentVoucher.setDiscountType(DiscountType.PERCENT);
+        percentVoucher.setDiscountValue(new BigDecimal("12.50"));
+        VoucherIndex.IndexedVoucher percent = VoucherIndex.IndexedVoucher.of(percentVoucher, 1);
+
+        assertThat(bytesPerCall(() -> voucherPolicy.calculateDiscount(orderAmount, fixed))).isLessThan(1.0);
+        // The order amount moved to minor units and the result; a BigDecimal is 40 bytes or less.
+        assertThat(bytesPerCall(() -> voucherPolicy.calculateDiscount(orderAmount, percent))).isLessThanOrEqualTo(80.0);
+    }
+
+    private static double bytesPerCall(Supplier<BigDecimal> call) {
+        int calls = 100_000;
+        long before = THREADS.getCurrentThreadAllocatedBytes();
+        for (int n = 0; n < calls; n++) {
+            call.get();
+        }
+        long after = THREADS.getCurrentThreadAllocatedBytes();
+        return (double) (after - before) / calls;
+    }
+
+    private static BigDecimal randomAmount(Random random) {
+        long bound = (long) Math.pow(10, 1 + random.nextInt(18));
+        BigDecimal amount = BigDecimal.valueOf(Math.floorMod(random.nextLong(), bound), 2);
+        // One in eight has a third decimal place, which has no minor-unit form.
+        return random.nextInt(8) == 0 ? amount.add(BigDecimal.valueOf(random.nextInt(10), 3)) : amount;
+    }
+
+    private static BigDecimal randomPercent(Random random) {
+        return BigDecimal.valueOf(random.nextInt(15_001), 2);
+    }
+
+    // calculateDiscount as it was before minor units.
+    private static BigDecimal decimalDiscount(BigDecimal orderAmount, DiscountType discountType, BigDecimal discountValue) {
+        BigDecimal discount;
+        if (discountType == DiscountType.PERCENT) {
+            discount = orderAmount.multiply(discountValue).divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP);
+        } else {
+            discount = discountValue;
+        }
+        if (discount.compareTo(orderAmount) > 0) {
+            return orderAmount.setScale(2, RoundingMode.HALF_UP);
+        }
+        return discount.setScale(2, RoundingMode.HALF_UP);
+    }
+
     private static Voucher voucher(
             LocalDateTime startAt,
             LocalDateTime endAt,
@@ -0,0 +1,154 @@
+package com.example.demo.voucher.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.example.demo.voucher.api.dto.VoucherPublicResponse;
+import com.example.demo.voucher.api.dto.VoucherRecommendationResponse;
+import com.example.demo.voucher.domain.DiscountType;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class VoucherRecommendationsTest {
+
+    private final ActiveVoucherCatalog catalog = mock(ActiveVoucherCatalog.class);
+    private final VoucherPolicy voucherPolicy = new VoucherPolicy();
+    private final VoucherRecommendations recommendations = new VoucherRecommendations(catalog, voucherPolicy);
+
+    @Test
+    void recommendShouldRankBothTypesByTheDiscountOnTheAmount() {
+        when(catalog.view()).thenReturn(new ActiveVoucherCatalog.View(1, List.of(
+                voucher("P10", DiscountType.PERCENT, "10.00", "100.00", 5),
+                voucher("P50", DiscountType.PERCENT, "50.00", "500.00", 5),
+                voucher("F20", DiscountType.FIXED, "20.00", null, 5),
+                voucher("F100", DiscountType.FIXED, "100.00", "200.00", 5)
+        )));
+
+        assertThat(recommendations.recommend(new BigDecimal("150.00"), 3))
+                .extracting(VoucherRecommendationResponse::code, VoucherRecommendationResponse::discountAmount)
+                .containsExactly(
+                        tuple("F20", new BigDecimal("20.00")),
+                        tuple("P10", new BigDecimal("15.00")));
+        assertThat(recommendations.recommend(new BigDecimal("600.00"), 2))
+                .extracting(VoucherRecommendationResponse::code)
+                .containsExactly("P50", "F100");
+    }
+
+    @Test
+    void recommendShouldReturnNothingBelowEveryMinimumSpend() {
+        when(catalog.view()).thenReturn(new ActiveVoucherCatalog.View(1, List.of(
+                voucher("P10", DiscountType.PERCENT, "10.00", "100.00", 5),
+                voucher("F100", DiscountType.FIXED, "100.00", "200.00", 5)
+        )));
+
+        assertThat(recommendations.recommend(new BigDecimal("99.99"), 3)).isEmpty();
+        assertThat(recommendations.recommend(new BigDecimal("100.00"), 3))
+                .extracting(VoucherRecommendationResponse::code)
+                .containsExactly("P10");
+    }
+
+    @Test
+    void recommendShouldRejectBadArguments() {
+        assertThatThrownBy(() -> recommendations.recommend(new BigDecimal("-1.00"), 3))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("orderAmount must be >= 0");
+        assertThatThrownBy(() -> recommendations.recommend(BigDecimal.TEN, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> recommendations.recommend(BigDecimal.TEN, VoucherRecommendations.MAX_LIMIT + 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void recommendShouldAgreeWithPricingEveryVoucher() {
+        Random random = new Random(42);
+        List<VoucherPublicResponse> vouchers = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            boolean percent = random.nextBoolean();
+            vouchers.add(voucher(
+                    "V" + i,
+                    percent ? DiscountType.PERCENT : DiscountType.FIXED,
+                    BigDecimal.valueOf(percent ? 1 + random.nextInt(10_000) : 1 + random.nextInt(50_000), 2).toPlainString(),
+                    random.nextInt(5) == 0 ? null : BigDecimal.valueOf(random.nextInt(100_000), 2).toPlainString(),
+                    1 + random.nextInt(10)
+            ));
+        }
+        when(catalog.view()).thenReturn(new ActiveVoucherCatalog.View(1, vouchers));
+
+        for (int i = 0; i < 2_000; i++) {
+            BigDecimal amount = BigDecimal.valueOf(random.nextInt(120_000), 2);
+            int limit = 1 + random.nextInt(VoucherRecommendations.MAX_LIMIT);
+            List<BigDecimal> expected = vouchers.stream()
+                    .filter(voucher -> voucher.minSpend() == null || voucher.minSpend().compareTo(amount) <= 0)
+                    .map(voucher -> voucherPolicy.calculateDiscount(amount, voucher.discountType(), voucher.discountValue()))
+                    .sorted(Comparator.reverseOrder())
+                    .limit(limit)
+                    .toList();
+
+            assertThat(recommendations.recommend(amount, limit))
+                    .extracting(VoucherRecommendationResponse::discountAmount)
+                    .as("amount %s, limit %d", amount, limit)
+                    .containsExactlyElementsOf(expected);
+        }
+    }
+
+    @Test
+    void rankingShouldBeRebuiltFromTheFirstChangedVoucherOnly() {
+        List<VoucherPublicResponse> first = List.of(
+                voucher("A", DiscountType.FIXED, "5.00", "10.00", 5),
+                voucher("B", DiscountType.FIXED, "7.00", "20.00", 5),
+                voucher("C", DiscountType.FIXED, "3.00", "30.00", 5),
+                voucher("D", DiscountType.FIXED, "9.00", "40.00", 5)
+        );
+        ActiveVoucherCatalog.View view = new ActiveVoucherCatalog.View(1, first);
+        VoucherRecommendations.Ordering initial = recommendations.rankingFor(view).fixed();
+        assertThat(recommendations.rankingFor(view).fixed()).isSameAs(initial);
+
+        VoucherRecommendations.Ordering quotaOnly = recommendations.rankingFor(new ActiveVoucherCatalog.View(2, List.of(
+                voucher("A", DiscountType.FIXED, "5.00", "10.00", 4),
+                first.get(1),
+                first.get(2),
+                voucher("D", DiscountType.FIXED, "9.00", "40.00", 1)
+        ))).fixed();
+        VoucherRecommendations.Ordering valueChanged = recommendations.rankingFor(new ActiveVoucherCatalog.View(3, List.of(
+                first.get(0),
+                first.get(1),
+                voucher("C", DiscountType.FIXED, "8.00", "30.00", 5),
+                first.get(3)
+        ))).fixed();
+
+        for (int i = 0; i < first.size(); i++) {
+            assertThat(quotaOnly.best()[i]).isSameAs(initial.best()[i]);
+        }
+        assertThat(quotaOnly.vouchers()[3].quotaRemaining()).isEqualTo(1);
+        assertThat(valueChanged.best()[1]).isSameAs(initial.best()[1]);
+        assertThat(valueChanged.best()[2]).containsExactly(2, 1, 0);
+        assertThat(valueChanged.best()[3]).containsExactly(3, 2, 1, 0);
+    }
+
+    @Test
+    void rankingShouldNotBeSharedBetweenListsWithTheSameVersion() {
+        recommendations.rankingFor(new ActiveVoucherCatalog.View(1, List.of(voucher("A", DiscountType.FIXED, "5.00", "10.00", 5))));
+
+        assertThat(recommendations.rankingFor(new ActiveVoucherCatalog.View(1, List.of())).fixed().vouchers()).isEmpty();
+    }
+
+    private static VoucherPublicResponse voucher(String code, DiscountType type, String value, String minSpend, int quotaRemaining) {
+        return new VoucherPublicResponse(
+                code,
+                type,
+                new BigDecimal(value),
+                minSpend == null ? null : new BigDecimal(minSpend),
+                quotaRemaining,
+                LocalDateTime.parse("2026-02-18T00:00:00"),
+                LocalDateTime.parse("2026-02-20T00:00:00")
+        );
+    }
+}
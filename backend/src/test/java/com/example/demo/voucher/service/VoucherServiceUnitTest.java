@@ -3,46 +3,122 @@ package com.example.demo.voucher.service;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.example.demo.voucher.api.dto.ClaimStackedVouchersRequest;
+import com.example.demo.voucher.api.dto.ClaimStackedVouchersResponse;
 import com.example.demo.voucher.api.dto.ClaimVoucherRequest;
 import com.example.demo.voucher.api.dto.ClaimVoucherResponse;
 import com.example.demo.voucher.api.dto.CreateVoucherRequest;
 import com.example.demo.voucher.api.dto.CreateVoucherResponse;
 import com.example.demo.voucher.api.dto.EditVoucherRequest;
+import com.example.demo.voucher.api.dto.ValidateVoucherBatchRequest;
 import com.example.demo.voucher.api.dto.ValidateVoucherRequest;
 import com.example.demo.voucher.api.dto.ValidateVoucherResponse;
 import com.example.demo.voucher.api.dto.VoucherPublicResponse;
 import com.example.demo.voucher.domain.DiscountType;
 import com.example.demo.voucher.domain.Voucher;
+import com.example.demo.voucher.domain.VoucherBuyerClaims;
+import com.example.demo.voucher.domain.VoucherQuotaLease;
 import com.example.demo.voucher.domain.VoucherRedemption;
 import com.example.demo.voucher.domain.VoucherStatus;
+import com.example.demo.voucher.repository.ClaimOutboxRepository;
+import com.example.demo.voucher.repository.VoucherBuyerClaimsRepository;
+import com.example.demo.voucher.repository.VoucherClaimHoldRepository;
+import com.example.demo.voucher.repository.VoucherQuotaBucketRepository;
+import com.example.demo.voucher.repository.VoucherQuotaLeaseRepository;
 import com.example.demo.voucher.repository.VoucherRedemptionRepository;
 import com.example.demo.voucher.repository.VoucherRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.math.BigDecimal;
 import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 
 class VoucherServiceUnitTest {
 
     private final VoucherRepository voucherRepository = mock(VoucherRepository.class);
     private final VoucherRedemptionRepository voucherRedemptionRepository = mock(VoucherRedemptionRepository.class);
+    private final VoucherQuotaBucketRepository voucherQuotaBucketRepository = mock(VoucherQuotaBucketRepository.class);
+    private final VoucherQuotaLeaseRepository voucherQuotaLeaseRepository = mock(VoucherQuotaLeaseRepository.class);
+    private final ClaimOutboxRepository claimOutboxRepository = mock(ClaimOutboxRepository.class);
+    private final VoucherBuyerClaimsRepository voucherBuyerClaimsRepository = mock(VoucherBuyerClaimsRepository.class);
+    private final VoucherTimerWheel voucherTimerWheel = mock(VoucherTimerWheel.class);
     private final Clock clock = Clock.fixed(Instant.parse("2026-02-19T00:00:00Z"), ZoneId.of("UTC"));
 
     private VoucherService voucherService;
 
     @BeforeEach
     void setUp() {
-        voucherService = new VoucherService(voucherRepository, voucherRedemptionRepository, new VoucherPolicy(), clock);
+        voucherService = serviceWithStrategy(ClaimStrategy.LOCKING);
+    }
+
+    private VoucherService serviceWithStrategy(ClaimStrategy claimStrategy) {
+        VoucherPolicy voucherPolicy = new VoucherPolicy();
+        StripedQuotaService stripedQuotaService = new StripedQuotaService(voucherQuotaBucketRepository);
+        VoucherClaimProcessor voucherClaimProcessor = new VoucherClaimProcessor(
+                voucherRepository,
+                voucherRedemptionRepository,
+                voucherQuotaLeaseRepository,
+                claimOutboxRepository,
+                mock(VoucherClaimHoldRepository.class),
+                voucherBuyerClaimsRepository,
+                voucherPolicy,
+                stripedQuotaService,
+                claimStrategy,
+                clock
+        );
+        QuotaLeaseService quotaLeaseService = new QuotaLeaseService(
+                voucherClaimProcessor,
+                voucherQuotaLeaseRepository,
+                voucherPolicy,
+                claimStrategy,
+                50,
+                Duration.ofSeconds(30),
+                Duration.ofSeconds(30),
+                "test-node",
+                clock
+        );
+        return new VoucherService(
+                voucherRepository,
+                voucherRedemptionRepository,
+                voucherBuyerClaimsRepository,
+                voucherPolicy,
+                stripedQuotaService,
+                voucherClaimProcessor,
+                quotaLeaseService,
+                new ClaimBatcher(voucherClaimProcessor, voucherPolicy, new SimpleMeterRegistry(), claimStrategy, Duration.ZERO, 100),
+                new ClaimReplayCache(new SimpleMeterRegistry(), 100),
+                new VoucherAdmissionGate(new SimpleMeterRegistry(), Duration.ofSeconds(5), clock),
+                voucherTimerWheel,
+                new ActiveVoucherCatalog(
+                        voucherRepository,
+                        stripedQuotaService,
+                        quotaLeaseService,
+                        new SimpleMeterRegistry(),
+                        Duration.ZERO,
+                        clock
+                ),
+                new VoucherIndex(new SimpleMeterRegistry(), Duration.ofSeconds(5), clock),
+                clock
+        );
     }
 
     @Test
@@ -61,16 +137,29 @@ class VoucherServiceUnitTest {
                 .version(0L)
                 .build();
 
-        when(voucherRepository.findByStatusAndStartAtLessThanEqualAndEndAtGreaterThanEqualAndQuotaRemainingGreaterThan(
-                any(), any(), any(), any()
-        )).thenReturn(List.of(voucher));
-
+        when(voucherRepository.findByStatusAndEndAtGreaterThanEqual(any(), any())).thenReturn(List.of(voucher));
         List<VoucherPublicResponse> resp = voucherService.getActiveVouchers();
         assertThat(resp).hasSize(1);
         assertThat(resp.get(0).code()).isEqualTo("DEMO10");
         assertThat(resp.get(0).quotaRemaining()).isEqualTo(5);
     }
 
+    @Test
+    void adminVoucherPageEtag_changesWithTheContentOnly() {
+        CreateVoucherResponse voucher = new CreateVoucherResponse(1L, "DEMO10", DiscountType.FIXED, new BigDecimal("10.00"),
+                LocalDateTime.parse("2026-02-18T00:00:00"), LocalDateTime.parse("2026-02-20T00:00:00"), null, 5, 5,
+                VoucherStatus.ACTIVE, null);
+        CreateVoucherResponse claimed = new CreateVoucherResponse(1L, "DEMO10", DiscountType.FIXED, new BigDecimal("10.00"),
+                LocalDateTime.parse("2026-02-18T00:00:00"), LocalDateTime.parse("2026-02-20T00:00:00"), null, 5, 4,
+                VoucherStatus.ACTIVE, null);
+
+        String tag = new VoucherService.AdminVoucherPage(List.of(voucher), null).etag();
+
+        assertThat(new VoucherService.AdminVoucherPage(List.of(voucher), null).etag()).isEqualTo(tag);
+        assertThat(new VoucherService.AdminVoucherPage(List.of(claimed), null).etag()).isNotEqualTo(tag);
+        assertThat(new VoucherService.AdminVoucherPage(List.of(voucher), "next").etag()).isNotEqualTo(tag);
+    }
+
     @Test
     void getAdminVouchers_whenStatusNull_returnsAllVouchers() {
         Voucher voucher = Voucher.builder()
@@ -87,9 +176,9 @@ class VoucherServiceUnitTest {
                 .version(0L)
                 .build();
 
-        when(voucherRepository.findAllByOrderByCreatedAtDesc()).thenReturn(List.of(voucher));
+        when(voucherRepository.findAllByOrderByCreatedAtDescIdDesc(Limit.of(101))).thenReturn(List.of(voucher));
 
-        List<CreateVoucherResponse> resp = voucherService.getAdminVouchers(null);
+        List<CreateVoucherResponse> resp = voucherService.getAdminVouchers(null, null, 100).vouchers();
 
         assertThat(resp).hasSize(1);
         assertThat(resp.get(0).code()).isEqualTo("DEMO10");
@@ -112,15 +201,132 @@ class VoucherServiceUnitTest {
                 .version(0L)
                 .build();
 
-        when(voucherRepository.findByStatusOrderByCreatedAtDesc(VoucherStatus.INACTIVE)).thenReturn(List.of(voucher));
+        Voucher ended = Voucher.builder()
+                .id(4L)
+                .code("ENDED")
+                .endAt(LocalDateTime.parse("2026-02-18T00:00:00"))
+                .status(VoucherStatus.INACTIVE)
+                .build();
+
+        when(voucherRepository.findByStatusOrderByCreatedAtDescIdDesc(VoucherStatus.INACTIVE, Limit.of(101))).thenReturn(List.of(voucher, ended));
 
-        List<CreateVoucherResponse> resp = voucherService.getAdminVouchers(VoucherStatus.INACTIVE);
+        List<CreateVoucherResponse> resp = voucherService.getAdminVouchers(VoucherStatus.INACTIVE, null, 100).vouchers();
 
         assertThat(resp).hasSize(1);
         assertThat(resp.get(0).code()).isEqualTo("INACT");
         assertThat(resp.get(0).status()).isEqualTo(VoucherStatus.INACTIVE);
     }
 
+    @Test
+    void getAdminVouchers_whenExpiredRequested_includesVouchersPastTheirEndThatAreNotYetSwept() {
+        Voucher voucher = Voucher.builder()
+                .id(3L)
+                .code("ENDED")
+                .discountType(DiscountType.FIXED)
+                .discountValue(new BigDecimal("10.00"))
+                .startAt(LocalDateTime.parse("2026-02-10T00:00:00"))
+                .endAt(LocalDateTime.parse("2026-02-18T00:00:00"))
+                .minSpend(null)
+                .quotaTotal(5)
+                .quotaRemaining(5)
+                .status(VoucherStatus.ACTIVE)
+                .version(0L)
+                .build();
+
+        when(voucherRepository.findExpired(VoucherStatus.EXPIRED, LocalDateTime.now(clock), Limit.of(101))).thenReturn(List.of(voucher));
+
+        List<CreateVoucherResponse> resp = voucherService.getAdminVouchers(VoucherStatus.EXPIRED, null, 100).vouchers();
+
+        assertThat(resp).extracting(CreateVoucherResponse::status).containsExactly(VoucherStatus.EXPIRED);
+        verify(voucherRepository, never()).markExpiredVouchers(any(), any(), any());
+    }
+
+    @Test
+    void getAdminVouchers_continuesAfterTheLastVoucherOfThePreviousPage() {
+        Instant createdAt = Instant.parse("2026-02-18T00:00:00Z");
+        List<Voucher> firstPage = List.of(
+                pagedVoucher(9L, createdAt.plusSeconds(2)),
+                pagedVoucher(8L, createdAt),
+                pagedVoucher(7L, createdAt));
+        when(voucherRepository.findAllByOrderByCreatedAtDescIdDesc(Limit.of(3))).thenReturn(firstPage);
+        when(voucherRepository.findPageAfter(createdAt, 8L, Limit.of(3))).thenReturn(List.of(pagedVoucher(7L, createdAt)));
+
+        VoucherService.AdminVoucherPage first = voucherService.getAdminVouchers(null, null, 2);
+        VoucherService.AdminVoucherPage second = voucherService.getAdminVouchers(null, first.nextCursor(), 2);
+
+        assertThat(first.vouchers()).extracting(CreateVoucherResponse::id).containsExactly(9L, 8L);
+        assertThat(second.vouchers()).extracting(CreateVoucherResponse::id).containsExactly(7L);
+        assertThat(second.nextCursor()).isNull();
+    }
+
+    @Test
+    void getAdminVouchers_withCursorAndStatus_usesTheMatchingKeysetQuery() {
+        Instant createdAt = Instant.parse("2026-02-18T00:00:00Z");
+        String cursor = AdminVoucherCursor.of(pagedVoucher(5L, createdAt)).encode();
+        when(voucherRepository.findByStatusPageAfter(VoucherStatus.ACTIVE, createdAt, 5L, Limit.of(11)))
+                .thenReturn(List.of(pagedVoucher(4L, createdAt)));
+        when(voucherRepository.findExpiredPageAfter(VoucherStatus.EXPIRED, LocalDateTime.now(clock), createdAt, 5L, Limit.of(11)))
+                .thenReturn(List.of());
+
+        assertThat(voucherService.getAdminVouchers(VoucherStatus.ACTIVE, cursor, 10).vouchers())
+                .extracting(CreateVoucherResponse::id).containsExactly(4L);
+        assertThat(voucherService.getAdminVouchers(VoucherStatus.EXPIRED, cursor, 10).vouchers()).isEmpty();
+    }
+
+    @Test
+    void getAdminVouchers_withoutCursorOrLimit_returnsTheWholeList() {
+        Instant createdAt = Instant.parse("2026-02-18T00:00:00Z");
+        Voucher ended = pagedVoucher(3L, createdAt);
+        ended.setEndAt(LocalDateTime.parse("2026-02-18T12:00:00"));
+        when(voucherRepository.findByStatusOrderByCreatedAtDescIdDesc(VoucherStatus.ACTIVE, Limit.unlimited()))
+                .thenReturn(List.of(pagedVoucher(4L, createdAt), ended, pagedVoucher(2L, createdAt)));
+        String cursor = AdminVoucherCursor.of(pagedVoucher(5L, createdAt)).encode();
+        when(voucherRepository.findPageAfter(createdAt, 5L, Limit.of(VoucherService.DEFAULT_ADMIN_PAGE_SIZE + 1)))
+                .thenReturn(List.of(pagedVoucher(4L, createdAt)));
+
+        VoucherService.AdminVoucherPage all = voucherService.getAdminVouchers(VoucherStatus.ACTIVE, null, null);
+        VoucherService.AdminVoucherPage next = voucherService.getAdminVouchers(null, cursor, null);
+
+        assertThat(all.vouchers()).extracting(CreateVoucherResponse::id).containsExactly(4L, 2L);
+        assertThat(all.nextCursor()).isNull();
+        assertThat(next.vouchers()).extracting(CreateVoucherResponse::id).containsExactly(4L);
+    }
+
+    @Test
+    void getAdminVouchers_whenFilteredRowsFillAFetch_keepsReadingUntilThePageIsFull() {
+        Instant createdAt = Instant.parse("2026-02-18T00:00:00Z");
+        List<Voucher> ended = List.of(pagedVoucher(9L, createdAt), pagedVoucher(8L, createdAt), pagedVoucher(7L, createdAt));
+        ended.forEach(v -> v.setEndAt(LocalDateTime.parse("2026-02-18T12:00:00")));
+        Voucher fifth = pagedVoucher(5L, createdAt);
+        when(voucherRepository.findByStatusOrderByCreatedAtDescIdDesc(VoucherStatus.ACTIVE, Limit.of(3))).thenReturn(ended);
+        when(voucherRepository.findByStatusPageAfter(VoucherStatus.ACTIVE, createdAt, 7L, Limit.of(3)))
+                .thenReturn(List.of(pagedVoucher(6L, createdAt), fifth, pagedVoucher(4L, createdAt)));
+        when(voucherRepository.findByStatusPageAfter(VoucherStatus.ACTIVE, createdAt, 5L, Limit.of(3)))
+                .thenReturn(List.of(pagedVoucher(4L, createdAt)));
+
+        VoucherService.AdminVoucherPage first = voucherService.getAdminVouchers(VoucherStatus.ACTIVE, null, 2);
+        VoucherService.AdminVoucherPage second = voucherService.getAdminVouchers(VoucherStatus.ACTIVE, first.nextCursor(), 2);
+
+        assertThat(first.vouchers()).extracting(CreateVoucherResponse::id).containsExactly(6L, 5L);
+        assertThat(first.nextCursor()).isEqualTo(AdminVoucherCursor.of(fifth).encode());
+        assertThat(second.vouchers()).extracting(CreateVoucherResponse::id).containsExactly(4L);
+        assertThat(second.nextCursor()).isNull();
+    }
+
+    @Test
+    void getAdminVouchers_rejectsBadLimitsAndCursors() {
+        assertThatThrownBy(() -> voucherService.getAdminVouchers(null, null, 0))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("limit must be between 1 and 500");
+        assertThatThrownBy(() -> voucherService.getAdminVouchers(null, null, VoucherService.MAX_ADMIN_PAGE_SIZE + 1))
+                .isInstanceOf(IllegalArgumentException.class);
+        for (String cursor : List.of("not base64!", "bm8tc2VwYXJhdG9y", "bm90LWEtZGF0ZXw3", "MjAyNi0wMi0xOFQwMDowMDowMFp8eA")) {
+            assertThatThrownBy(() -> voucherService.getAdminVouchers(null, cursor, 10))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("invalid cursor");
+        }
+    }
+
     @Test
     void validateVoucher_whenNotFound_returnsInvalid() {
         when(voucherRepository.findByCode("MISSING")).thenReturn(Optional.empty());
@@ -156,6 +362,115 @@ class VoucherServiceUnitTest {
         assertThat(resp.message()).isEqualTo("ok");
     }
 
+    @Test
+    void validateVoucher_repeatCallsAreServedFromTheIndex() {
+        Voucher voucher = conditionalVoucher(25L, "AGAIN", 5);
+        voucher.setMinSpend(new BigDecimal("50.00"));
+        when(voucherRepository.findByCode("AGAIN")).thenReturn(Optional.of(voucher));
+
+        ValidateVoucherResponse first = voucherService.validateVoucher(new ValidateVoucherRequest("again", new BigDecimal("100.00"), null));
+        ValidateVoucherResponse second = voucherService.validateVoucher(new ValidateVoucherRequest(" Again ", new BigDecimal("20.00"), null));
+
+        assertThat(first.valid()).isTrue();
+        assertThat(second.code()).isEqualTo("AGAIN");
+        assertThat(second.message()).isEqualTo("minimum spend not met");
+        verify(voucherRepository, times(1)).findByCode("AGAIN");
+    }
+
+    @Test
+    void validateVouchers_readsEveryIndexMissWithOneQuery() {
+        Voucher warm = conditionalVoucher(26L, "WARM", 5);
+        Voucher cold = conditionalVoucher(27L, "COLD", 5);
+        cold.setMinSpend(new BigDecimal("50.00"));
+        when(voucherRepository.findByCode("WARM")).thenReturn(Optional.of(warm));
+        when(voucherRepository.findByCodeIn(Set.of("COLD", "MISSING"))).thenReturn(List.of(cold));
+        voucherService.validateVoucher(new ValidateVoucherRequest("warm", new BigDecimal("40.00"), null));
+
+        List<ValidateVoucherResponse> responses = voucherService.validateVouchers(new ValidateVoucherBatchRequest(
+                List.of("cold", " Warm ", "missing", "COLD"), new BigDecimal("40.00"), null));
+
+        assertThat(responses).extracting(ValidateVoucherResponse::code).containsExactly("COLD", "WARM", "MISSING", "COLD");
+        assertThat(responses).extracting(ValidateVoucherResponse::message)
+                .containsExactly("minimum spend not met", "ok", "voucher not found", "minimum spend not met");
+        assertThat(responses.get(1).discountAmount()).isEqualTo(new BigDecimal("10.00"));
+        verify(voucherRepository, times(1)).findByCodeIn(any());
+        verify(voucherRepository, never()).findByCode("COLD");
+    }
+
+    @Test
+    void validateVouchers_whenEveryCodeIsIndexed_skipsTheDatabase() {
+        Voucher voucher = conditionalVoucher(28L, "CART", 5);
+        when(voucherRepository.findByCode("CART")).thenReturn(Optional.of(voucher));
+        voucherService.validateVoucher(new ValidateVoucherRequest("cart", new BigDecimal("40.00"), null));
+
+        List<ValidateVoucherResponse> responses = voucherService.validateVouchers(new ValidateVoucherBatchRequest(
+                List.of("cart"), new BigDecimal("40.00"), null));
+
+        assertThat(responses).singleElement().satisfies(resp -> assertThat(resp.valid()).isTrue());
+        verify(voucherRepository, never()).findByCodeIn(any());
+    }
+
+    @Test
+    void validateVouchers_answersClosedCodesFromTheGate() {
+        Voucher early = conditionalVoucher(29L, "EARLY", 5);
+        early.setStartAt(LocalDateTime.parse("2026-02-19T12:00:00"));
+        when(voucherRepository.findByCodeIn(Set.of("EARLY"))).thenReturn(List.of(early));
+        ValidateVoucherBatchRequest request = new ValidateVoucherBatchRequest(List.of("early"), new BigDecimal("40.00"), null);
+
+        ValidateVoucherResponse first = voucherService.validateVouchers(request).get(0);
+        ValidateVoucherResponse second = voucherService.validateVouchers(request).get(0);
+
+        assertThat(first.valid()).isFalse();
+        assertThat(second.valid()).isFalse();
+        assertThat(second.message()).isEqualTo(first.message());
+        verify(voucherRepository, times(1)).findByCodeIn(any());
+    }
+
+    @Test
+    void validateVouchers_withBuyerId_rejectsCodesAtTheBuyerLimit() {
+        Voucher used = conditionalVoucher(30L, "USED", 5);
+        used.setMaxClaimsPerBuyer(2);
+        Voucher spare = conditionalVoucher(31L, "SPARE", 5);
+        spare.setMaxClaimsPerBuyer(2);
+        Voucher open = conditionalVoucher(32L, "OPEN", 5);
+        when(voucherRepository.findByCodeIn(Set.of("USED", "SPARE", "OPEN", "MISSING"))).thenReturn(List.of(used, spare, open));
+        when(voucherBuyerClaimsRepository.findByIdVoucherIdInAndIdBuyerId(Set.of(30L, 31L), 7L)).thenReturn(List.of(
+                new VoucherBuyerClaims(new VoucherBuyerClaims.Key(30L, 7L), 2),
+                new VoucherBuyerClaims(new VoucherBuyerClaims.Key(31L, 7L), 1)));
+
+        List<ValidateVoucherResponse> responses = voucherService.validateVouchers(new ValidateVoucherBatchRequest(
+                List.of("used", "spare", "open", "missing"), new BigDecimal("40.00"), 7L));
+
+        assertThat(responses).extracting(ValidateVoucherResponse::message)
+                .containsExactly("buyer claim limit reached", "ok", "ok", "voucher not found");
+        assertThat(responses.get(0).discountAmount()).isNull();
+        verify(voucherBuyerClaimsRepository, times(1)).findByIdVoucherIdInAndIdBuyerId(any(), eq(7L));
+    }
+
+    @Test
+    void validateVoucher_withBuyerId_andNoClaimsYet_isValid() {
+        Voucher voucher = conditionalVoucher(33L, "FIRST", 5);
+        voucher.setMaxClaimsPerBuyer(1);
+        when(voucherRepository.findByCode("FIRST")).thenReturn(Optional.of(voucher));
+        when(voucherBuyerClaimsRepository.findByIdVoucherIdInAndIdBuyerId(Set.of(33L), 7L)).thenReturn(List.of());
+
+        ValidateVoucherResponse response = voucherService.validateVoucher(new ValidateVoucherRequest("first", new BigDecimal("40.00"), 7L));
+
+        assertThat(response.valid()).isTrue();
+        assertThat(response.discountAmount()).isEqualTo(new BigDecimal("10.00"));
+    }
+
+    @Test
+    void validateVoucher_withBuyerId_skipsCountersForUnlimitedVouchers() {
+        Voucher voucher = conditionalVoucher(34L, "ANYONE", 5);
+        when(voucherRepository.findByCode("ANYONE")).thenReturn(Optional.of(voucher));
+
+        ValidateVoucherResponse response = voucherService.validateVoucher(new ValidateVoucherRequest("anyone", new BigDecimal("40.00"), 7L));
+
+        assertThat(response.valid()).isTrue();
+        verify(voucherBuyerClaimsRepository, never()).findByIdVoucherIdInAndIdBuyerId(any(), any());
+    }
+
     @Test
     void validateVoucher_whenFixedDiscountExceedsOrderAmount_isClamped() {
         Voucher voucher = Voucher.builder()
@@ -383,6 +698,126 @@ class VoucherServiceUnitTest {
         assertThat(savedRedemption.get().getBuyerId()).isEqualTo(123L);
     }
 
+    @Test
+    void claimVoucher_whenRetriedAfterGrant_isAnsweredFromReplayCache() {
+        Voucher voucher = conditionalVoucher(21L, "RETRY", 2);
+        when(voucherRepository.findByCodeForUpdate("RETRY")).thenReturn(Optional.of(voucher));
+        when(voucherRedemptionRepository.findByVoucherIdAndOrderId(21L, "ORDER-1")).thenReturn(Optional.empty());
+        when(voucherRedemptionRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+        ClaimVoucherRequest request = new ClaimVoucherRequest("retry", "ORDER-1", new BigDecimal("100.00"), null);
+
+        ClaimVoucherResponse first = voucherService.claimVoucher(request);
+        ClaimVoucherResponse retry = voucherService.claimVoucher(request);
+
+        assertThat(first.idempotent()).isFalse();
+        assertThat(retry.idempotent()).isTrue();
+        assertThat(retry.message()).isEqualTo("already claimed for this orderId");
+        assertThat(retry.discountApplied()).isEqualTo(first.discountApplied());
+        verify(voucherRepository, times(1)).findByCodeForUpdate("RETRY");
+    }
+
+    @Test
+    void claimVoucher_afterSellOut_isRejectedAtTheGateWithoutLocking() {
+        Voucher voucher = conditionalVoucher(22L, "LAST", 1);
+        VoucherRedemption earlier = VoucherRedemption.builder()
+                .voucher(voucher)
+                .orderId("ORDER-0")
+                .orderAmount(new BigDecimal("100.00"))
+                .discountApplied(new BigDecimal("10.00"))
+                .build();
+        when(voucherRepository.findByCodeForUpdate("LAST")).thenReturn(Optional.of(voucher));
+        when(voucherRedemptionRepository.findByVoucherIdAndOrderId(22L, "ORDER-1")).thenReturn(Optional.empty());
+        when(voucherRedemptionRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+        when(voucherRedemptionRepository.findByVoucherCodeAndOrderId("LAST", "ORDER-0")).thenReturn(Optional.of(earlier));
+
+        ClaimVoucherResponse last = voucherService.claimVoucher(new ClaimVoucherRequest("last", "ORDER-1", new BigDecimal("100.00"), null));
+        ClaimVoucherResponse late = voucherService.claimVoucher(new ClaimVoucherRequest("last", "ORDER-2", new BigDecimal("100.00"), null));
+        ClaimVoucherResponse retry = voucherService.claimVoucher(new ClaimVoucherRequest("last", "ORDER-0", new BigDecimal("100.00"), null));
+        ValidateVoucherResponse validate = voucherService.validateVoucher(new ValidateVoucherRequest("last", new BigDecimal("100.00"), null));
+
+        assertThat(last.quotaRemaining()).isZero();
+        assertThat(late.success()).isFalse();
+        assertThat(late.message()).isEqualTo("voucher quota exhausted");
+        assertThat(retry.idempotent()).isTrue();
+        assertThat(validate.message()).isEqualTo("voucher quota exhausted");
+        verify(voucherRepository, times(1)).findByCodeForUpdate("LAST");
+        verify(voucherRepository, never()).findByCode("LAST");
+    }
+
+    @Test
+    void claimVoucher_beforeStart_gatesUntilTheWindowOpens() {
+        Voucher voucher = conditionalVoucher(23L, "SOON", 5);
+        voucher.setStartAt(LocalDateTime.parse("2026-02-19T00:00:02"));
+        when(voucherRepository.findByCodeForUpdate("SOON")).thenReturn(Optional.of(voucher));
+        when(voucherRepository.findByCode("SOON")).thenReturn(Optional.of(voucher));
+        when(voucherRedemptionRepository.findByVoucherIdAndOrderId(23L, "ORDER-1")).thenReturn(Optional.empty());
+
+        ClaimVoucherResponse early = voucherService.claimVoucher(new ClaimVoucherRequest("soon", "ORDER-1", new BigDecimal("100.00"), null));
+        ClaimVoucherResponse gated = voucherService.claimVoucher(new ClaimVoucherRequest("soon", "ORDER-2", new BigDecimal("100.00"), null));
+
+        assertThat(early.message()).isEqualTo("voucher not in active period");
+        assertThat(gated.message()).isEqualTo("voucher not in active period");
+        verify(voucherRepository, times(1)).findByCodeForUpdate("SOON");
+    }
+
+    @Test
+    void editVoucher_reopensAGatedCode() {
+        Voucher voucher = conditionalVoucher(24L, "REFILL", 0);
+        when(voucherRepository.findByCode("REFILL")).thenReturn(Optional.of(voucher));
+        when(voucherRepository.findById(24L)).thenReturn(Optional.of(voucher));
+
+        assertThat(voucherService.validateVoucher(new ValidateVoucherRequest("refill", new BigDecimal("100.00"), null)).valid()).isFalse();
+        voucherService.editVoucher(24L, new EditVoucherRequest(
+                DiscountType.FIXED,
+                new BigDecimal("10.00"),
+                LocalDateTime.parse("2026-02-18T00:00:00"),
+                LocalDateTime.parse("2026-02-20T00:00:00"),
+                null,
+                10,
+                null,
+                false
+        ));
+
+        assertThat(voucherService.validateVoucher(new ValidateVoucherRequest("refill", new BigDecimal("100.00"), null)).valid()).isTrue();
+    }
+
+    @Test
+    void claimStackedVouchers_whenCodesRepeat_throws() {
+        ClaimStackedVouchersRequest request = new ClaimStackedVouchersRequest(List.of("stack", " STACK "), "ORDER-1", new BigDecimal("100.00"), null);
+
+        assertThatThrownBy(() -> voucherService.claimStackedVouchers(request))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("duplicate voucher code");
+        verify(voucherRepository, never()).findKeysByCodeIn(any());
+    }
+
+    @Test
+    void claimStackedVouchers_whenRedemptionInsertRaces_retriesAndReportsTheExistingClaim() {
+        Voucher voucher = conditionalVoucher(70L, "STACKA", 3);
+        VoucherRepository.VoucherKey key = mock(VoucherRepository.VoucherKey.class);
+        when(key.getId()).thenReturn(70L);
+        when(key.getCode()).thenReturn("STACKA");
+        VoucherRedemption existing = VoucherRedemption.builder()
+                .voucher(voucher)
+                .orderId("ORDER-1")
+                .orderAmount(new BigDecimal("100.00"))
+                .discountApplied(new BigDecimal("10.00"))
+                .build();
+        when(voucherRepository.findKeysByCodeIn(List.of("STACKA"))).thenReturn(List.of(key));
+        when(voucherRepository.findAllByIdForUpdate(any())).thenReturn(List.of(voucher));
+        when(voucherRedemptionRepository.findByOrderIdAndVoucherIdIn(eq("ORDER-1"), any())).thenReturn(List.of(), List.of(existing));
+        doThrow(new DataIntegrityViolationException("duplicate")).when(voucherRedemptionRepository).insertAll(any());
+
+        ClaimStackedVouchersResponse response = voucherService.claimStackedVouchers(
+                new ClaimStackedVouchersRequest(List.of(" stacka "), " ORDER-1 ", new BigDecimal("100.00"), null)
+        );
+
+        assertThat(response.success()).isTrue();
+        assertThat(response.idempotent()).isTrue();
+        assertThat(response.totalDiscount()).isEqualByComparingTo("10.00");
+        verify(voucherRedemptionRepository, times(1)).insertAll(any());
+    }
+
     @Test
     void claimVoucher_whenRedemptionInsertRaces_returnsIdempotentSuccess() {
         Voucher voucher = Voucher.builder()
@@ -448,6 +883,310 @@ class VoucherServiceUnitTest {
         assertThat(resp.quotaRemaining()).isEqualTo(0);
     }
 
+    @Test
+    void claimVoucher_conditionalUpdate_decrementsThenInserts() {
+        Voucher voucher = conditionalVoucher(60L, "COND", 3);
+        when(voucherRepository.findByCode("COND")).thenReturn(Optional.of(voucher));
+        when(voucherRepository.decrementQuotaIfClaimable(eq(60L), eq(VoucherStatus.ACTIVE), any())).thenReturn(1);
+        when(voucherRedemptionRepository.insertIfAbsent(eq(60L), eq("ORDER-1"), eq(7L), any(), any(), any())).thenReturn(1);
+
+        ClaimVoucherResponse resp = serviceWithStrategy(ClaimStrategy.CONDITIONAL_UPDATE).claimVoucher(
+                new ClaimVoucherRequest("cond", " ORDER-1 ", new BigDecimal("100.00"), 7L)
+        );
+
+        assertThat(resp.success()).isTrue();
+        assertThat(resp.idempotent()).isFalse();
+        assertThat(resp.discountApplied()).isEqualTo(new BigDecimal("10.00"));
+        assertThat(resp.quotaRemaining()).isEqualTo(2);
+        verify(voucherRepository, never()).findByCodeForUpdate(any());
+    }
+
+    @Test
+    void claimVoucher_conditionalUpdate_whenDecrementMisses_returnsQuotaExhausted() {
+        Voucher voucher = conditionalVoucher(61L, "CONDX", 1);
+        when(voucherRepository.findByCode("CONDX")).thenReturn(Optional.of(voucher));
+        when(voucherRepository.decrementQuotaIfClaimable(eq(61L), eq(VoucherStatus.ACTIVE), any())).thenReturn(0);
+        VoucherRepository.VoucherState state = state(VoucherStatus.ACTIVE, voucher);
+        when(voucherRepository.findStateById(61L)).thenReturn(Optional.of(state));
+        when(voucherRedemptionRepository.findByVoucherIdAndOrderId(61L, "ORDER-1")).thenReturn(Optional.empty());
+
+        ClaimVoucherResponse resp = serviceWithStrategy(ClaimStrategy.CONDITIONAL_UPDATE).claimVoucher(
+                new ClaimVoucherRequest("condx", "ORDER-1", new BigDecimal("100.00"), null)
+        );
+
+        assertThat(resp.success()).isFalse();
+        assertThat(resp.message()).isEqualTo("voucher quota exhausted");
+        assertThat(resp.quotaRemaining()).isEqualTo(0);
+        verify(voucherRedemptionRepository, never()).insertIfAbsent(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void claimVoucher_conditionalUpdate_whenDisabledBeforeTheDecrement_returnsInactive() {
+        Voucher voucher = conditionalVoucher(65L, "CONDOFF", 3);
+        when(voucherRepository.findByCode("CONDOFF")).thenReturn(Optional.of(voucher));
+        when(voucherRepository.decrementQuotaIfClaimable(eq(65L), eq(VoucherStatus.ACTIVE), any())).thenReturn(0);
+        VoucherRepository.VoucherState state = state(VoucherStatus.INACTIVE, voucher);
+        when(voucherRepository.findStateById(65L)).thenReturn(Optional.of(state));
+
+        ClaimVoucherResponse resp = serviceWithStrategy(ClaimStrategy.CONDITIONAL_UPDATE).claimVoucher(
+                new ClaimVoucherRequest("condoff", "ORDER-1", new BigDecimal("100.00"), null)
+        );
+
+        assertThat(resp.success()).isFalse();
+        assertThat(resp.message()).isEqualTo("voucher inactive");
+    }
+
+    @Test
+    void claimVoucher_conditionalUpdate_whenDeletedBeforeTheDecrement_returnsNotFound() {
+        Voucher voucher = conditionalVoucher(66L, "CONDGONE", 3);
+        when(voucherRepository.findByCode("CONDGONE")).thenReturn(Optional.of(voucher));
+        when(voucherRepository.decrementQuotaIfClaimable(eq(66L), eq(VoucherStatus.ACTIVE), any())).thenReturn(0);
+
+        ClaimVoucherResponse resp = serviceWithStrategy(ClaimStrategy.CONDITIONAL_UPDATE).claimVoucher(
+                new ClaimVoucherRequest("condgone", "ORDER-1", new BigDecimal("100.00"), null)
+        );
+
+        assertThat(resp.message()).isEqualTo("voucher not found");
+    }
+
+    @Test
+    void claimVoucher_conditionalUpdate_whenInsertIgnored_restoresQuotaAndReturnsIdempotent() {
+        Voucher voucher = conditionalVoucher(62L, "CONDDUP", 3);
+        VoucherRedemption redemption = VoucherRedemption.builder()
+                .id(1L)
+                .voucher(voucher)
+                .orderId("ORDER-1")
+                .orderAmount(new BigDecimal("100.00"))
+                .discountApplied(new BigDecimal("10.00"))
+                .build();
+        when(voucherRepository.findByCode("CONDDUP")).thenReturn(Optional.of(voucher));
+        when(voucherRepository.decrementQuotaIfClaimable(eq(62L), eq(VoucherStatus.ACTIVE), any())).thenReturn(1);
+        when(voucherRedemptionRepository.insertIfAbsent(any(), any(), any(), any(), any(), any())).thenReturn(0);
+        when(voucherRedemptionRepository.findByVoucherIdAndOrderId(62L, "ORDER-1")).thenReturn(Optional.of(redemption));
+
+        ClaimVoucherResponse resp = serviceWithStrategy(ClaimStrategy.CONDITIONAL_UPDATE).claimVoucher(
+                new ClaimVoucherRequest("conddup", "ORDER-1", new BigDecimal("100.00"), null)
+        );
+
+        assertThat(resp.success()).isTrue();
+        assertThat(resp.idempotent()).isTrue();
+        verify(voucherRepository).incrementQuota(62L);
+    }
+
+    @Test
+    void claimVoucher_conditionalUpdate_whenSoldOutRetry_returnsIdempotent() {
+        Voucher voucher = conditionalVoucher(63L, "CONDRETRY", 0);
+        VoucherRedemption redemption = VoucherRedemption.builder()
+                .id(1L)
+                .voucher(voucher)
+                .orderId("ORDER-1")
+                .orderAmount(new BigDecimal("100.00"))
+                .discountApplied(new BigDecimal("10.00"))
+                .build();
+        when(voucherRepository.findByCode("CONDRETRY")).thenReturn(Optional.of(voucher));
+        when(voucherRedemptionRepository.findByVoucherIdAndOrderId(63L, "ORDER-1")).thenReturn(Optional.of(redemption));
+
+        ClaimVoucherResponse resp = serviceWithStrategy(ClaimStrategy.CONDITIONAL_UPDATE).claimVoucher(
+                new ClaimVoucherRequest("condretry", "ORDER-1", new BigDecimal("100.00"), null)
+        );
+
+        assertThat(resp.success()).isTrue();
+        assertThat(resp.idempotent()).isTrue();
+        assertThat(resp.quotaRemaining()).isEqualTo(0);
+    }
+
+    @Test
+    void claimVoucher_conditionalUpdate_whenRetried_findsTheOrderThroughTheInsert() {
+        Voucher voucher = conditionalVoucher(64L, "CONDAGAIN", 3);
+        VoucherRedemption redemption = VoucherRedemption.builder()
+                .id(1L)
+                .voucher(voucher)
+                .orderId("ORDER-1")
+                .orderAmount(new BigDecimal("100.00"))
+                .discountApplied(new BigDecimal("10.00"))
+                .build();
+        when(voucherRepository.findByCode("CONDAGAIN")).thenReturn(Optional.of(voucher));
+        when(voucherRepository.decrementQuotaIfClaimable(eq(64L), eq(VoucherStatus.ACTIVE), any())).thenReturn(1);
+        when(voucherRedemptionRepository.insertIfAbsent(any(), any(), any(), any(), any(), any())).thenReturn(0);
+        when(voucherRedemptionRepository.findByVoucherIdAndOrderId(64L, "ORDER-1")).thenReturn(Optional.of(redemption));
+
+        ClaimVoucherResponse resp = serviceWithStrategy(ClaimStrategy.CONDITIONAL_UPDATE).claimVoucher(
+                new ClaimVoucherRequest("condagain", "ORDER-1", new BigDecimal("100.00"), null)
+        );
+
+        assertThat(resp.success()).isTrue();
+        assertThat(resp.idempotent()).isTrue();
+        assertThat(resp.quotaRemaining()).isEqualTo(3);
+        verify(voucherRepository).incrementQuota(64L);
+        verify(voucherRedemptionRepository, times(1)).findByVoucherIdAndOrderId(64L, "ORDER-1");
+    }
+
+    @Test
+    void claimVoucher_conditionalUpdate_whenVoucherMissing_returnsNotFound() {
+        ClaimVoucherResponse resp = serviceWithStrategy(ClaimStrategy.CONDITIONAL_UPDATE).claimVoucher(
+                new ClaimVoucherRequest("nope", "ORDER-1", new BigDecimal("100.00"), null)
+        );
+
+        assertThat(resp.success()).isFalse();
+        assertThat(resp.message()).isEqualTo("voucher not found");
+    }
+
+    @Test
+    void claimVoucher_whenStriped_consumesBucketAndReportsSummedQuota() {
+        Voucher voucher = stripedVoucher(50L, "FLASH", 4);
+
+        when(voucherRepository.findQuotaStripesByCode("FLASH")).thenReturn(Optional.of(4));
+        when(voucherRepository.findByCode("FLASH")).thenReturn(Optional.of(voucher));
+        when(voucherQuotaBucketRepository.decrementIfAvailable(eq(50L), anyInt())).thenReturn(0, 1);
+        when(voucherRedemptionRepository.insertIfAbsent(eq(50L), eq("ORDER-1"), any(), any(), any(), any())).thenReturn(1);
+        when(voucherQuotaBucketRepository.sumQuotaRemaining(50L)).thenReturn(7L);
+
+        ClaimVoucherResponse resp = voucherService.claimVoucher(
+                new ClaimVoucherRequest("flash", "ORDER-1", new BigDecimal("100.00"), null)
+        );
+
+        assertThat(resp.success()).isTrue();
+        assertThat(resp.idempotent()).isFalse();
+        assertThat(resp.quotaRemaining()).isEqualTo(7);
+        assertThat(voucher.getQuotaRemaining()).isEqualTo(8);
+        verify(voucherRedemptionRepository, never()).findByVoucherIdAndOrderId(any(), any());
+    }
+
+    @Test
+    void claimVoucher_whenStripedAndAllBucketsEmpty_returnsQuotaExhausted() {
+        Voucher voucher = stripedVoucher(51L, "FLASH0", 2);
+
+        when(voucherRepository.findQuotaStripesByCode("FLASH0")).thenReturn(Optional.of(2));
+        when(voucherRepository.findByCode("FLASH0")).thenReturn(Optional.of(voucher));
+        VoucherRepository.VoucherState state = state(VoucherStatus.ACTIVE, voucher);
+        when(voucherRepository.findStateById(51L)).thenReturn(Optional.of(state));
+        when(voucherRedemptionRepository.findByVoucherIdAndOrderId(51L, "ORDER-1")).thenReturn(Optional.empty());
+
+        ClaimVoucherResponse resp = voucherService.claimVoucher(
+                new ClaimVoucherRequest("flash0", "ORDER-1", new BigDecimal("100.00"), null)
+        );
+
+        assertThat(resp.success()).isFalse();
+        assertThat(resp.message()).isEqualTo("voucher quota exhausted");
+        assertThat(resp.quotaRemaining()).isEqualTo(0);
+    }
+
+    @Test
+    void claimVoucher_whenStripedRedemptionInsertRaces_releasesBucket() {
+        Voucher voucher = stripedVoucher(52L, "FLASHRACE", 2);
+        VoucherRedemption redemption = VoucherRedemption.builder()
+                .id(1L)
+                .voucher(voucher)
+                .orderId("ORDER-1")
+                .orderAmount(new BigDecimal("100.00"))
+                .discountApplied(new BigDecimal("10.00"))
+                .build();
+
+        when(voucherRepository.findQuotaStripesByCode("FLASHRACE")).thenReturn(Optional.of(2));
+        when(voucherRepository.findByCode("FLASHRACE")).thenReturn(Optional.of(voucher));
+        when(voucherRedemptionRepository.findByVoucherIdAndOrderId(52L, "ORDER-1")).thenReturn(Optional.of(redemption));
+        when(voucherQuotaBucketRepository.decrementIfAvailable(eq(52L), anyInt())).thenReturn(1);
+        when(voucherRedemptionRepository.insertIfAbsent(eq(52L), eq("ORDER-1"), any(), any(), any(), any())).thenReturn(0);
+
+        ClaimVoucherResponse resp = voucherService.claimVoucher(
+                new ClaimVoucherRequest("flashrace", "ORDER-1", new BigDecimal("100.00"), null)
+        );
+
+        assertThat(resp.success()).isTrue();
+        assertThat(resp.idempotent()).isTrue();
+        verify(voucherQuotaBucketRepository).increment(eq(52L), anyInt());
+    }
+
+    @Test
+    void validateVoucher_whenStripedBucketsDrained_returnsQuotaExhausted() {
+        Voucher voucher = stripedVoucher(53L, "FLASHV", 2);
+        when(voucherRepository.findByCode("FLASHV")).thenReturn(Optional.of(voucher));
+        when(voucherQuotaBucketRepository.sumQuotaRemaining(53L)).thenReturn(0L);
+
+        ValidateVoucherResponse resp = voucherService.validateVoucher(new ValidateVoucherRequest("flashv", new BigDecimal("100.00"), null));
+
+        assertThat(resp.valid()).isFalse();
+        assertThat(resp.message()).isEqualTo("voucher quota exhausted");
+    }
+
+    @Test
+    void claimVoucher_leased_claimsFromLeasedUnits() {
+        voucherService = serviceWithStrategy(ClaimStrategy.LEASED);
+        Voucher voucher = conditionalVoucher(60L, "LEASED", 3);
+        when(voucherRepository.findByCodeForUpdate("LEASED")).thenReturn(Optional.of(voucher));
+        when(voucherRepository.findByCode("LEASED")).thenReturn(Optional.of(voucher));
+        when(voucherQuotaLeaseRepository.save(any())).thenAnswer(inv -> {
+            VoucherQuotaLease lease = inv.getArgument(0);
+            lease.setId(7L);
+            return lease;
+        });
+        when(voucherRedemptionRepository.findByVoucherIdAndOrderId(60L, "ORDER-1")).thenReturn(Optional.empty());
+        when(voucherRedemptionRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+
+        ClaimVoucherResponse resp = voucherService.claimVoucher(
+                new ClaimVoucherRequest("leased", "ORDER-1", new BigDecimal("100.00"), null)
+        );
+
+        assertThat(resp.success()).isTrue();
+        assertThat(resp.quotaRemaining()).isEqualTo(2);
+        assertThat(voucher.getQuotaRemaining()).isZero();
+        verify(voucherRepository, never()).markExpiredVouchers(any(), any(), any());
+    }
+
+    @Test
+    void claimVoucher_batched_settlesThroughBatchTransaction() {
+        voucherService = serviceWithStrategy(ClaimStrategy.BATCHED);
+        Voucher voucher = conditionalVoucher(62L, "BATCHED", 3);
+        when(voucherRepository.findByCodeForUpdate("BATCHED")).thenReturn(Optional.of(voucher));
+        when(voucherRedemptionRepository.findByVoucherIdAndOrderIdIn(any(), any())).thenReturn(List.of());
+
+        ClaimVoucherResponse resp = voucherService.claimVoucher(
+                new ClaimVoucherRequest("batched", "ORDER-1", new BigDecimal("100.00"), null)
+        );
+
+        assertThat(resp.success()).isTrue();
+        assertThat(resp.quotaRemaining()).isEqualTo(2);
+        assertThat(voucher.getQuotaRemaining()).isEqualTo(2);
+        verify(voucherRedemptionRepository).insertAll(any());
+    }
+
+    @Test
+    void getActiveVouchers_leased_addsOutstandingLeasedUnits() {
+        voucherService = serviceWithStrategy(ClaimStrategy.LEASED);
+        Voucher voucher = conditionalVoucher(61L, "LEASEDLIST", 0);
+        VoucherQuotaLeaseRepository.VoucherUnits leased = mock(VoucherQuotaLeaseRepository.VoucherUnits.class);
+        when(leased.getVoucherId()).thenReturn(61L);
+        when(leased.getUnits()).thenReturn(4L);
+        when(voucherRepository.findByStatusAndEndAtGreaterThanEqual(any(), any())).thenReturn(List.of(voucher));
+        when(voucherQuotaLeaseRepository.sumUnitsLeftByVoucherIds(any())).thenReturn(List.of(leased));
+
+        List<VoucherPublicResponse> resp = voucherService.getActiveVouchers();
+
+        assertThat(resp).hasSize(1);
+        assertThat(resp.get(0).quotaRemaining()).isEqualTo(4);
+    }
+
+    @Test
+    void createVoucher_withStripes_createsBuckets() {
+        when(voucherRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+
+        CreateVoucherRequest req = new CreateVoucherRequest(
+                "flash",
+                DiscountType.FIXED,
+                new BigDecimal("10.00"),
+                LocalDateTime.parse("2026-02-19T00:00:00"),
+                LocalDateTime.parse("2026-02-20T00:00:00"),
+                null,
+                10,
+                4,
+                null
+        );
+
+        voucherService.createVoucher(req);
+
+        verify(voucherQuotaBucketRepository).saveAll(any());
+    }
+
     @Test
     void createVoucher_whenEndAtNotAfterStartAt_throws() {
         CreateVoucherRequest req = new CreateVoucherRequest(
@@ -457,7 +1196,9 @@ class VoucherServiceUnitTest {
                 LocalDateTime.parse("2026-02-19T00:00:00"),
                 LocalDateTime.parse("2026-02-19T00:00:00"),
                 null,
-                5
+                5,
+                null,
+                null
         );
 
         assertThatThrownBy(() -> voucherService.createVoucher(req))
@@ -474,7 +1215,9 @@ class VoucherServiceUnitTest {
                 LocalDateTime.parse("2026-02-19T00:00:00"),
                 LocalDateTime.parse("2026-02-20T00:00:00"),
                 null,
-                5
+                5,
+                null,
+                null
         );
 
         assertThatThrownBy(() -> voucherService.createVoucher(req))
@@ -493,7 +1236,9 @@ class VoucherServiceUnitTest {
                 LocalDateTime.parse("2026-02-19T00:00:00"),
                 LocalDateTime.parse("2026-02-20T00:00:00"),
                 null,
-                5
+                5,
+                null,
+                null
         );
 
         assertThatThrownBy(() -> voucherService.createVoucher(req))
@@ -525,12 +1270,15 @@ class VoucherServiceUnitTest {
                 LocalDateTime.parse("2026-02-19T00:00:00"),
                 LocalDateTime.parse("2026-02-20T00:00:00"),
                 null,
-                5
+                5,
+                null,
+                null
         );
 
         CreateVoucherResponse resp = voucherService.createVoucher(req);
         assertThat(resp.code()).isEqualTo("DEMO10");
         assertThat(resp.id()).isEqualTo(99L);
+        verify(voucherTimerWheel).schedule(saved);
     }
     @Test
     void editVoucher_whenNotFound_throws() {
@@ -542,7 +1290,9 @@ class VoucherServiceUnitTest {
                 LocalDateTime.parse("2026-02-19T00:00:00"),
                 LocalDateTime.parse("2026-02-20T00:00:00"),
                 null,
-                5
+                5,
+                null,
+                false
         );
 
         assertThatThrownBy(() -> voucherService.editVoucher(1L, req))
@@ -561,7 +1311,9 @@ class VoucherServiceUnitTest {
                 LocalDateTime.parse("2026-02-19T00:00:00"),
                 LocalDateTime.parse("2026-02-19T00:00:00"),
                 null,
-                5
+                5,
+                null,
+                false
         );
 
         assertThatThrownBy(() -> voucherService.editVoucher(1L, req))
@@ -580,7 +1332,9 @@ class VoucherServiceUnitTest {
                 LocalDateTime.parse("2026-02-19T00:00:00"),
                 LocalDateTime.parse("2026-02-20T00:00:00"),
                 null,
-                5
+                5,
+                null,
+                false
         );
 
         assertThatThrownBy(() -> voucherService.editVoucher(1L, req))
@@ -604,7 +1358,9 @@ class VoucherServiceUnitTest {
                 LocalDateTime.parse("2026-02-19T00:00:00"),
                 LocalDateTime.parse("2026-02-20T00:00:00"),
                 null,
-                4 // < 5
+                4 // < 5,
+                null,
+                false
         );
 
         assertThatThrownBy(() -> voucherService.editVoucher(1L, req))
@@ -626,7 +1382,9 @@ class VoucherServiceUnitTest {
                 LocalDateTime.parse("2026-02-19T00:00:00"),
                 LocalDateTime.parse("2026-02-20T00:00:00"),
                 null,
-                5
+                5,
+                null,
+                false
         );
 
         assertThatThrownBy(() -> voucherService.editVoucher(1L, req))
@@ -658,7 +1416,9 @@ class VoucherServiceUnitTest {
                 LocalDateTime.parse("2026-02-20T00:00:00"),
                 LocalDateTime.parse("2026-02-25T00:00:00"),
                 new BigDecimal("50.00"),
-                15
+                15,
+                null,
+                false
         );
 
         CreateVoucherResponse resp = voucherService.editVoucher(1L, req);
@@ -673,6 +1433,44 @@ class VoucherServiceUnitTest {
         
         // QuotaRemaining should be updated based on new total and already claimed (15 - 5 = 10)
         assertThat(resp.quotaRemaining()).isEqualTo(10);
+        verify(voucherTimerWheel).schedule(voucher);
+    }
+
+    @Test
+    void editVoucher_rebuildsBuyerCountersOnlyWhenALimitIsSwitchedOn() {
+        Voucher voucher = conditionalVoucher(1L, "DEMO10", 5);
+        when(voucherRepository.findById(1L)).thenReturn(Optional.of(voucher));
+
+        CreateVoucherResponse limited = voucherService.editVoucher(1L, editRequest(2, false));
+        voucherService.editVoucher(1L, editRequest(3, false));
+        CreateVoucherResponse unlimited = voucherService.editVoucher(1L, editRequest(null, true));
+        voucherService.editVoucher(1L, editRequest(null, true));
+
+        assertThat(limited.maxClaimsPerBuyer()).isEqualTo(2);
+        assertThat(unlimited.maxClaimsPerBuyer()).isNull();
+        verify(voucherBuyerClaimsRepository, times(1)).backfill(1L);
+        verify(voucherBuyerClaimsRepository, times(1)).deleteByVoucherId(1L);
+    }
+
+    @Test
+    void editVoucher_withoutMaxClaimsPerBuyer_keepsTheCurrentLimit() {
+        Voucher voucher = conditionalVoucher(1L, "DEMO10", 5);
+        voucher.setMaxClaimsPerBuyer(2);
+        when(voucherRepository.findById(1L)).thenReturn(Optional.of(voucher));
+
+        CreateVoucherResponse resp = voucherService.editVoucher(1L, editRequest(null, false));
+
+        assertThat(resp.maxClaimsPerBuyer()).isEqualTo(2);
+        verify(voucherBuyerClaimsRepository, never()).deleteByVoucherId(any());
+        verify(voucherBuyerClaimsRepository, never()).backfill(any());
+    }
+
+    @Test
+    void editVoucher_settingAndClearingTheLimitAtOnce_throws() {
+        assertThatThrownBy(() -> voucherService.editVoucher(1L, editRequest(2, true)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("maxClaimsPerBuyer cannot be set and cleared at once");
+        verify(voucherRepository, never()).findById(any());
     }
 
     @Test
@@ -688,6 +1486,7 @@ class VoucherServiceUnitTest {
     void disableVoucher_success_setsStatusToInactive() {
         Voucher voucher = Voucher.builder()
                 .id(1L)
+                .code("OFF")
                 .status(VoucherStatus.ACTIVE)
                 .endAt(LocalDateTime.parse("2026-02-20T00:00:00"))
                 .build();
@@ -697,12 +1496,16 @@ class VoucherServiceUnitTest {
         voucherService.disableVoucher(1L);
 
         assertThat(voucher.getStatus()).isEqualTo(VoucherStatus.INACTIVE);
+        assertThat(voucherService.validateVoucher(new ValidateVoucherRequest("off", new BigDecimal("100.00"), null)).message())
+                .isEqualTo("voucher inactive");
+        verify(voucherRepository, never()).findByCode("OFF");
     }
 
     @Test
     void disableVoucher_whenExpired_setsStatusToExpired() {
         Voucher voucher = Voucher.builder()
                 .id(1L)
+                .code("OLD")
                 .status(VoucherStatus.ACTIVE)
                 .endAt(LocalDateTime.parse("2026-02-18T00:00:00"))
                 .build();
@@ -712,4 +1515,64 @@ class VoucherServiceUnitTest {
 
         assertThat(voucher.getStatus()).isEqualTo(VoucherStatus.EXPIRED);
     }
+
+    private static Voucher stripedVoucher(Long id, String code, int stripes) {
+        return Voucher.builder()
+                .id(id)
+                .code(code)
+                .discountType(DiscountType.FIXED)
+                .discountValue(new BigDecimal("10.00"))
+                .startAt(LocalDateTime.parse("2026-02-18T00:00:00"))
+                .endAt(LocalDateTime.parse("2026-02-20T00:00:00"))
+                .minSpend(null)
+                .quotaTotal(10)
+                .quotaRemaining(8)
+                .quotaStripes(stripes)
+                .status(VoucherStatus.ACTIVE)
+                .version(0L)
+                .build();
+    }
+
+    private static VoucherRepository.VoucherState state(VoucherStatus status, Voucher voucher) {
+        VoucherRepository.VoucherState state = mock(VoucherRepository.VoucherState.class);
+        when(state.getStatus()).thenReturn(status);
+        when(state.getStartAt()).thenReturn(voucher.getStartAt());
+        when(state.getEndAt()).thenReturn(voucher.getEndAt());
+        return state;
+    }
+
+    private static EditVoucherRequest editRequest(Integer maxClaimsPerBuyer, boolean clearMaxClaimsPerBuyer) {
+        return new EditVoucherRequest(
+                DiscountType.FIXED,
+                new BigDecimal("10.00"),
+                LocalDateTime.parse("2026-02-18T00:00:00"),
+                LocalDateTime.parse("2026-02-20T00:00:00"),
+                null,
+                5,
+                maxClaimsPerBuyer,
+                clearMaxClaimsPerBuyer
+        );
+    }
+
+    private static Voucher pagedVoucher(Long id, Instant createdAt) {
+        Voucher voucher = conditionalVoucher(id, "PAGE" + id, 5);
+        voucher.setCreatedAt(createdAt);
+        return voucher;
+    }
+
+    private static Voucher conditionalVoucher(Long id, String code, int quotaRemaining) {
+        return Voucher.builder()
+                .id(id)
+                .code(code)
+                .discountType(DiscountType.FIXED)
+                .discountValue(new BigDecimal("10.00"))
+                .startAt(LocalDateTime.parse("2026-02-18T00:00:00"))
+                .endAt(LocalDateTime.parse("2026-02-20T00:00:00"))
+                .minSpend(null)
+                .quotaTotal(5)
+                .quotaRemaining(quotaRemaining)
+                .status(VoucherStatus.ACTIVE)
+                .version(0L)
+                .build();
+    }
 }
@@ -0,0 +1,136 @@
+package com.example.demo.voucher.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.demo.voucher.domain.Voucher;
+import com.example.demo.voucher.domain.VoucherStatus;
+import com.example.demo.voucher.repository.VoucherRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class VoucherTimerWheelTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.parse("2026-02-19T00:00:00");
+
+    private final VoucherRepository voucherRepository = mock(VoucherRepository.class);
+    private final VoucherExpiryService voucherExpiryService = mock(VoucherExpiryService.class);
+    private final MutableClock clock = new MutableClock(NOW.toInstant(ZoneOffset.UTC));
+    private final VoucherAdmissionGate gate = new VoucherAdmissionGate(new SimpleMeterRegistry(), Duration.ofHours(1), clock);
+
+    // Eight 100ms slots: anything more than 0.8s out has to wait out extra turns of the wheel.
+    private final VoucherTimerWheel wheel = new VoucherTimerWheel(voucherRepository, voucherExpiryService, gate, 100, 8, clock);
+
+    @Test
+    void endShouldFireOnTheFirstTickAfterEndAt_evenSeveralTurnsOut() {
+        wheel.schedule(voucher(1L, "ENDS", NOW.minusDays(1), NOW.plusSeconds(2)));
+
+        clock.advance(Duration.ofSeconds(2));
+        wheel.advance();
+        verify(voucherExpiryService, never()).expire(any());
+
+        clock.advance(Duration.ofMillis(100));
+        wheel.advance();
+        verify(voucherExpiryService).expire(List.of(1L));
+        assertThat(wheel.pending()).isZero();
+    }
+
+    @Test
+    void startShouldReopenTheCodeAtTheGate() {
+        gate.close("LATER", "voucher not in active period", 5);
+        wheel.schedule(voucher(2L, "LATER", NOW.plusMillis(1500), NOW.plusHours(1)));
+
+        clock.advance(Duration.ofMillis(1400));
+        wheel.advance();
+        assertThat(gate.check("LATER")).isNotNull();
+
+        clock.advance(Duration.ofMillis(100));
+        wheel.advance();
+        assertThat(gate.check("LATER")).isNull();
+        assertThat(wheel.pending()).isEqualTo(1);
+    }
+
+    @Test
+    void rescheduleShouldReplaceTheEarlierWindow() {
+        wheel.schedule(voucher(3L, "MOVED", NOW.minusDays(1), NOW.plusSeconds(1)));
+        wheel.schedule(voucher(3L, "MOVED", NOW.minusDays(1), NOW.plusHours(1)));
+
+        clock.advance(Duration.ofSeconds(5));
+        wheel.advance();
+
+        verify(voucherExpiryService, never()).expire(any());
+        assertThat(wheel.pending()).isEqualTo(1);
+    }
+
+    @Test
+    void loadShouldExpireVouchersThatEndedWhileTheServiceWasDown() {
+        VoucherRepository.VoucherWindow ended = window(4L, "ENDED", NOW.minusDays(2), NOW.minusDays(1));
+        VoucherRepository.VoucherWindow running = window(5L, "RUNNING", NOW.minusDays(1), NOW.plusDays(1));
+        when(voucherRepository.findUnexpiredWindows(VoucherStatus.EXPIRED)).thenReturn(List.of(ended, running));
+
+        wheel.load();
+        clock.advance(Duration.ofMillis(100));
+        wheel.advance();
+
+        verify(voucherExpiryService).expire(List.of(4L));
+        assertThat(wheel.pending()).isEqualTo(1);
+    }
+
+    private static Voucher voucher(Long id, String code, LocalDateTime startAt, LocalDateTime endAt) {
+        return Voucher.builder()
+                .id(id)
+                .code(code)
+                .startAt(startAt)
+                .endAt(endAt)
+                .status(VoucherStatus.ACTIVE)
+                .build();
+    }
+
+    private static VoucherRepository.VoucherWindow window(Long id, String code, LocalDateTime startAt, LocalDateTime endAt) {
+        VoucherRepository.VoucherWindow window = mock(VoucherRepository.VoucherWindow.class);
+        when(window.getId()).thenReturn(id);
+        when(window.getCode()).thenReturn(code);
+        when(window.getStartAt()).thenReturn(startAt);
+        when(window.getEndAt()).thenReturn(endAt);
+        return window;
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant instant;
+
+        private MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        private void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
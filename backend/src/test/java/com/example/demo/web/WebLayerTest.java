@@ -1,29 +1,61 @@
 package com.example.demo.web;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.example.demo.config.SecurityConfig;
 import com.example.demo.security.CsrfController;
 import com.example.demo.security.InternalTokenFilter;
+import com.example.demo.voucher.api.ActiveVoucherBodies;
+import com.example.demo.voucher.api.AdminRedemptionController;
 import com.example.demo.voucher.api.AdminVoucherController;
 import com.example.demo.voucher.api.VoucherController;
+import com.example.demo.voucher.api.dto.ClaimHoldResponse;
+import com.example.demo.voucher.api.dto.ClaimStackedVouchersResponse;
+import com.example.demo.voucher.api.dto.ClaimTicketResponse;
 import com.example.demo.voucher.api.dto.ClaimVoucherResponse;
 import com.example.demo.voucher.api.dto.CreateVoucherResponse;
 import com.example.demo.voucher.api.dto.ValidateVoucherResponse;
 import com.example.demo.voucher.api.dto.VoucherPublicResponse;
+import com.example.demo.voucher.api.dto.VoucherRecommendationResponse;
+import com.example.demo.voucher.domain.ClaimOutboxStatus;
 import com.example.demo.voucher.domain.DiscountType;
 import com.example.demo.voucher.domain.VoucherStatus;
+import com.example.demo.voucher.repository.VoucherRedemptionExport;
+import com.example.demo.voucher.service.ActiveVoucherCatalog;
+import com.example.demo.voucher.service.BulkClaimService;
+import com.example.demo.voucher.service.ClaimHoldService;
+import com.example.demo.voucher.service.ClaimOutboxService;
+import com.example.demo.voucher.service.RedemptionExportFormat;
+import com.example.demo.voucher.service.RedemptionExportService;
+import com.example.demo.voucher.service.VoucherRecommendations;
 import com.example.demo.voucher.service.VoucherService;
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
@@ -31,13 +63,15 @@ import org.springframework.context.annotation.Import;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 @WebMvcTest(controllers = {
         VoucherController.class,
         AdminVoucherController.class,
+        AdminRedemptionController.class,
         CsrfController.class
 })
-@Import({SecurityConfig.class, InternalTokenFilter.class, ApiExceptionHandler.class})
+@Import({SecurityConfig.class, InternalTokenFilter.class, ApiExceptionHandler.class, ActiveVoucherBodies.class})
 @TestPropertySource(properties = {
         "app.admin-token=test-admin-token",
         "app.internal-token=test-internal-token",
@@ -45,12 +79,30 @@ import org.springframework.test.web.servlet.MockMvc;
 })
 class WebLayerTest {
 
+    private static final String TWO_CLAIMS = "{\"claims\":[{\"code\":\"DEMO10\",\"orderId\":\"ORDER-1\",\"orderAmount\":100.00},"
+            + "{\"code\":\"DEMO10\",\"orderId\":\"ORDER-2\",\"subtotal\":100.00}]}";
+
     @Autowired
     private MockMvc mockMvc;
 
     @MockitoBean
     private VoucherService voucherService;
 
+    @MockitoBean
+    private ClaimOutboxService claimOutboxService;
+
+    @MockitoBean
+    private BulkClaimService bulkClaimService;
+
+    @MockitoBean
+    private ClaimHoldService claimHoldService;
+
+    @MockitoBean
+    private VoucherRecommendations voucherRecommendations;
+
+    @MockitoBean
+    private RedemptionExportService redemptionExportService;
+
     @Test
     void postAdminVoucher_withoutAdminToken_returns401() throws Exception {
         mockMvc.perform(post("/admin/vouchers")
@@ -105,7 +157,8 @@ class WebLayerTest {
                 null,
                 5,
                 5,
-                VoucherStatus.ACTIVE
+                VoucherStatus.ACTIVE,
+                null
         ));
         mockMvc.perform(post("/admin/vouchers")
                         .header("X-Admin-Token", "test-admin-token")
@@ -135,7 +188,7 @@ class WebLayerTest {
 
     @Test
     void getAdminVouchers_withAdminToken_returns200() throws Exception {
-        when(voucherService.getAdminVouchers(any())).thenReturn(List.of(
+        VoucherService.AdminVoucherPage page = new VoucherService.AdminVoucherPage(List.of(
                 new CreateVoucherResponse(
                         1L,
                         "DEMO10",
@@ -146,15 +199,47 @@ class WebLayerTest {
                         null,
                         5,
                         5,
-                        VoucherStatus.ACTIVE
+                        VoucherStatus.ACTIVE,
+                        null
                 )
-        ));
+        ), null);
+        when(voucherService.getAdminVouchers(any(), any(), any())).thenReturn(page);
 
         mockMvc.perform(get("/admin/vouchers")
                         .header("X-Admin-Token", "test-admin-token"))
                 .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"" + page.etag() + "\""))
+                .andExpect(header().doesNotExist("X-Next-Cursor"))
                 .andExpect(jsonPath("$[0].code").value("DEMO10"))
                 .andExpect(jsonPath("$[0].status").value("ACTIVE"));
+        verify(voucherService).getAdminVouchers(null, null, null);
+    }
+
+    @Test
+    void getAdminVouchers_whenMoreFollow_returnsTheNextCursor() throws Exception {
+        when(voucherService.getAdminVouchers(VoucherStatus.ACTIVE, "page1", 20))
+                .thenReturn(new VoucherService.AdminVoucherPage(List.of(), "page2"));
+
+        mockMvc.perform(get("/admin/vouchers")
+                        .param("status", "ACTIVE")
+                        .param("cursor", "page1")
+                        .param("limit", "20")
+                        .header("X-Admin-Token", "test-admin-token"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", "page2"));
+    }
+
+    @Test
+    void getAdminVouchers_withMatchingEtag_returns304WithoutABody() throws Exception {
+        VoucherService.AdminVoucherPage page = new VoucherService.AdminVoucherPage(List.of(), null);
+        when(voucherService.getAdminVouchers(VoucherStatus.ACTIVE, null, null)).thenReturn(page);
+
+        mockMvc.perform(get("/admin/vouchers")
+                        .param("status", "ACTIVE")
+                        .header("X-Admin-Token", "test-admin-token")
+                        .header("If-None-Match", "\"" + page.etag() + "\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
     }
 
     @Test
@@ -169,7 +254,8 @@ class WebLayerTest {
                 null,
                 10,
                 10,
-                VoucherStatus.ACTIVE
+                VoucherStatus.ACTIVE,
+                null
         ));
         mockMvc.perform(put("/admin/vouchers/1")
                         .header("X-Admin-Token", "test-admin-token")
@@ -206,23 +292,81 @@ class WebLayerTest {
 
     @Test
     void getActiveVouchers_delegatesToService() throws Exception {
-        when(voucherService.getActiveVouchers()).thenReturn(List.of(
-                new VoucherPublicResponse(
-                        "DEMO10",
-                        DiscountType.FIXED,
-                        new BigDecimal("10.00"),
-                        null,
-                        5,
-                        LocalDateTime.parse("2026-02-19T00:00:00"),
-                        LocalDateTime.parse("2026-03-01T00:00:00")
-                )
-        ));
+        when(voucherService.getActiveVoucherView()).thenReturn(activeView(1, "DEMO10"));
 
         mockMvc.perform(get("/vouchers/active"))
                 .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "application/json"))
                 .andExpect(jsonPath("$[0].code").value("DEMO10"));
     }
 
+    @Test
+    void getActiveVouchers_gzipsForClientsThatAcceptIt() throws Exception {
+        when(voucherService.getActiveVoucherView()).thenReturn(activeView(2, "ZIPPED"));
+
+        byte[] body = mockMvc.perform(get("/vouchers/active").header("Accept-Encoding", "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("Vary", "Accept-Encoding"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).contains("\"code\":\"ZIPPED\"");
+        }
+    }
+
+    @Test
+    void getActiveVouchers_withMatchingEtag_returns304() throws Exception {
+        when(voucherService.getActiveVoucherView()).thenReturn(activeView(3, "TAGGED"));
+
+        String etag = mockMvc.perform(get("/vouchers/active"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/vouchers/active").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag));
+    }
+
+    @Test
+    void getRecommendations_delegatesToService() throws Exception {
+        when(voucherRecommendations.recommend(new BigDecimal("150.00"), 3)).thenReturn(List.of(new VoucherRecommendationResponse(
+                "SPRING10",
+                DiscountType.PERCENT,
+                new BigDecimal("10.00"),
+                new BigDecimal("100.00"),
+                new BigDecimal("15.00"),
+                2,
+                LocalDateTime.parse("2026-03-01T00:00:00")
+        )));
+
+        mockMvc.perform(get("/vouchers/recommendations").param("orderAmount", "150.00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].code").value("SPRING10"))
+                .andExpect(jsonPath("$[0].discountAmount").value(15.00));
+    }
+
+    @Test
+    void getRecommendations_whenLimitIsOutOfRange_returnsBadRequest() throws Exception {
+        when(voucherRecommendations.recommend(any(), eq(50))).thenThrow(new IllegalArgumentException("limit must be between 1 and 10"));
+
+        mockMvc.perform(get("/vouchers/recommendations").param("orderAmount", "150.00").param("limit", "50"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("limit must be between 1 and 10"));
+    }
+
+    private static ActiveVoucherCatalog.View activeView(long version, String code) {
+        return new ActiveVoucherCatalog.View(version, List.of(new VoucherPublicResponse(
+                code,
+                DiscountType.FIXED,
+                new BigDecimal("10.00"),
+                null,
+                5,
+                LocalDateTime.parse("2026-02-19T00:00:00"),
+                LocalDateTime.parse("2026-03-01T00:00:00")
+        )));
+    }
+
     @Test
     void postValidate_delegatesToService() throws Exception {
         when(voucherService.validateVoucher(any())).thenReturn(new ValidateVoucherResponse(
@@ -259,6 +403,30 @@ class WebLayerTest {
                 .andExpect(jsonPath("$.discountAmount").value(10.00));
     }
 
+    @Test
+    void postValidateBatch_delegatesToService() throws Exception {
+        when(voucherService.validateVouchers(any())).thenReturn(List.of(
+                new ValidateVoucherResponse(true, "DEMO10", new BigDecimal("100.00"), new BigDecimal("10.00"), "ok"),
+                new ValidateVoucherResponse(false, "NOPE", new BigDecimal("100.00"), null, "voucher not found")
+        ));
+        mockMvc.perform(post("/vouchers/validate/batch")
+                        .header("X-Internal-Token", "test-internal-token")
+                        .contentType(APPLICATION_JSON)
+                        .content("{\"codes\":[\"DEMO10\",\"NOPE\"],\"subtotal\":100.00}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].discountAmount").value(10.00))
+                .andExpect(jsonPath("$[1].valid").value(false));
+    }
+
+    @Test
+    void postValidateBatch_whenCodesAreMissing_returnsBadRequest() throws Exception {
+        mockMvc.perform(post("/vouchers/validate/batch")
+                        .header("X-Internal-Token", "test-internal-token")
+                        .contentType(APPLICATION_JSON)
+                        .content("{\"codes\":[],\"orderAmount\":100.00}"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void postClaim_whenServiceThrowsIllegalArgument_returnsApiResponse() throws Exception {
         when(voucherService.claimVoucher(any())).thenThrow(new IllegalArgumentException("bad request"));
@@ -314,4 +482,225 @@ class WebLayerTest {
                 .andExpect(jsonPath("$.success").value(true))
                 .andExpect(jsonPath("$.quotaRemaining").value(4));
     }
+
+    @Test
+    void postClaimStacked_delegatesToServiceAndValidatesCodes() throws Exception {
+        when(voucherService.claimStackedVouchers(any())).thenReturn(new ClaimStackedVouchersResponse(
+                true,
+                false,
+                "ORDER-1",
+                new BigDecimal("100.00"),
+                new BigDecimal("19.00"),
+                List.of(
+                        new ClaimVoucherResponse(true, false, "SHIP", "ORDER-1", new BigDecimal("100.00"), new BigDecimal("10.00"), 4, "ok"),
+                        new ClaimVoucherResponse(true, false, "PCT10", "ORDER-1", new BigDecimal("100.00"), new BigDecimal("9.00"), 2, "ok")
+                ),
+                "ok"
+        ));
+        mockMvc.perform(post("/vouchers/claim/stacked")
+                        .header("X-Internal-Token", "test-internal-token")
+                        .contentType(APPLICATION_JSON)
+                        .content("{\"codes\":[\"SHIP\",\"PCT10\"],\"orderId\":\"ORDER-1\",\"subtotal\":100.00}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalDiscount").value(19.00))
+                .andExpect(jsonPath("$.claims[1].code").value("PCT10"));
+        mockMvc.perform(post("/vouchers/claim/stacked")
+                        .header("X-Internal-Token", "test-internal-token")
+                        .contentType(APPLICATION_JSON)
+                        .content("{\"codes\":[],\"orderId\":\"ORDER-1\",\"orderAmount\":100.00}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors.codes").exists());
+    }
+
+    @Test
+    void postClaimReserveAndConfirm_delegateToHoldService() throws Exception {
+        when(claimHoldService.reserve(any())).thenReturn(new ClaimHoldResponse(
+                true,
+                false,
+                "DEMO10",
+                "ORDER-1",
+                new BigDecimal("100.00"),
+                new BigDecimal("10.00"),
+                4,
+                LocalDateTime.parse("2026-02-19T10:05:00"),
+                "held"
+        ));
+        when(claimHoldService.confirm(any())).thenReturn(
+                new ClaimVoucherResponse(true, false, "DEMO10", "ORDER-1", new BigDecimal("100.00"), new BigDecimal("10.00"), 4, "ok")
+        );
+
+        mockMvc.perform(post("/vouchers/claim/reserve")
+                        .header("X-Internal-Token", "test-internal-token")
+                        .contentType(APPLICATION_JSON)
+                        .content("{\"code\":\"DEMO10\",\"orderId\":\"ORDER-1\",\"subtotal\":100.00}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("held"))
+                .andExpect(jsonPath("$.expiresAt").exists());
+        mockMvc.perform(post("/vouchers/claim/confirm")
+                        .header("X-Internal-Token", "test-internal-token")
+                        .contentType(APPLICATION_JSON)
+                        .content("{\"code\":\"DEMO10\",\"orderId\":\"ORDER-1\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.discountApplied").value(10.00));
+        mockMvc.perform(post("/vouchers/claim/confirm")
+                        .header("X-Internal-Token", "test-internal-token")
+                        .contentType(APPLICATION_JSON)
+                        .content("{\"code\":\"DEMO10\"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors.orderId").exists());
+    }
+
+    @Test
+    void postClaimBatch_streamsResultsInInputOrder() throws Exception {
+        when(bulkClaimService.chunkSize()).thenReturn(1);
+        when(bulkClaimService.claimChunk(any())).thenReturn(List.of(
+                new ClaimVoucherResponse(true, false, "DEMO10", "ORDER-1", new BigDecimal("100.00"), new BigDecimal("10.00"), 4, "ok")));
+        doAnswer(inv -> {
+            Consumer<List<ClaimVoucherResponse>> sink = inv.getArgument(1);
+            sink.accept(List.of(new ClaimVoucherResponse(false, false, "DEMO10", "ORDER-2", new BigDecimal("100.00"), null, 0, "voucher quota exhausted")));
+            return null;
+        }).when(bulkClaimService).claim(any(), any());
+
+        MvcResult result = mockMvc.perform(post("/vouchers/claim/batch")
+                        .header("X-Internal-Token", "test-internal-token")
+                        .contentType(APPLICATION_JSON)
+                        .content(TWO_CLAIMS))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].orderId").value("ORDER-1"))
+                .andExpect(jsonPath("$[1].message").value("voucher quota exhausted"));
+    }
+
+    @Test
+    void postClaimBatch_endsTheArrayWithAnErrorWhenALaterChunkFails() throws Exception {
+        when(bulkClaimService.chunkSize()).thenReturn(1);
+        when(bulkClaimService.claimChunk(any())).thenReturn(List.of(
+                new ClaimVoucherResponse(true, false, "DEMO10", "ORDER-1", new BigDecimal("100.00"), new BigDecimal("10.00"), 4, "ok")));
+        doThrow(new IllegalStateException("lock wait timeout")).when(bulkClaimService).claim(any(), any());
+
+        MvcResult result = mockMvc.perform(post("/vouchers/claim/batch")
+                        .header("X-Internal-Token", "test-internal-token")
+                        .contentType(APPLICATION_JSON)
+                        .content(TWO_CLAIMS))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].orderId").value("ORDER-1"))
+                .andExpect(jsonPath("$[1].error").value("batch aborted; resend the items after this point"));
+    }
+
+    @Test
+    void postClaimBatch_failsBeforeStreamingWhenTheFirstChunkFails() {
+        when(bulkClaimService.chunkSize()).thenReturn(1);
+        when(bulkClaimService.claimChunk(any())).thenThrow(new IllegalStateException("lock wait timeout"));
+
+        assertThatThrownBy(() -> mockMvc.perform(post("/vouchers/claim/batch")
+                        .header("X-Internal-Token", "test-internal-token")
+                        .contentType(APPLICATION_JSON)
+                        .content(TWO_CLAIMS)))
+                .hasRootCauseInstanceOf(IllegalStateException.class);
+        verify(bulkClaimService, never()).claim(any(), any());
+    }
+
+    @Test
+    void postClaimBatch_rejectsInvalidItems() throws Exception {
+        mockMvc.perform(post("/vouchers/claim/batch")
+                        .header("X-Internal-Token", "test-internal-token")
+                        .contentType(APPLICATION_JSON)
+                        .content("{\"claims\":[{\"code\":\"\",\"orderId\":\"ORDER-1\",\"orderAmount\":100.00}]}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("validation failed"));
+    }
+
+    @Test
+    void getRedemptionExport_streamsTheRequestedFormat() throws Exception {
+        VoucherRedemptionExport.Filter filter = new VoucherRedemptionExport.Filter(
+                "DEMO10", Instant.parse("2026-02-18T00:00:00Z"), Instant.parse("2026-02-19T00:00:00Z"));
+        when(redemptionExportService.filter("demo10", filter.from(), filter.to())).thenReturn(filter);
+        doAnswer(invocation -> {
+            invocation.getArgument(2, OutputStream.class).write("id,voucher_code\n1,DEMO10\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(redemptionExportService).export(eq(filter), eq(RedemptionExportFormat.CSV), any());
+
+        MvcResult result = mockMvc.perform(get("/admin/redemptions/export")
+                        .header("X-Admin-Token", "test-admin-token")
+                        .param("code", "demo10")
+                        .param("from", "2026-02-18T00:00:00Z")
+                        .param("to", "2026-02-19T00:00:00Z")
+                        .param("format", "CSV"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "text/csv"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"redemptions.csv\""));
+        assertThat(result.getResponse().getContentAsString()).isEqualTo("id,voucher_code\n1,DEMO10\n");
+    }
+
+    @Test
+    void getRedemptionExport_whenFormatIsUnknown_returnsBadRequest() throws Exception {
+        mockMvc.perform(get("/admin/redemptions/export")
+                        .header("X-Admin-Token", "test-admin-token")
+                        .param("format", "xml"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("format must be ndjson or csv"));
+    }
+
+    @Test
+    void getRedemptionExport_withoutAdminToken_returns401() throws Exception {
+        mockMvc.perform(get("/admin/redemptions/export"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void postClaimAsync_returns202WithTicket() throws Exception {
+        when(claimOutboxService.enqueue(any())).thenReturn(new ClaimTicketResponse("DEMO10", "ORDER-1", ClaimOutboxStatus.PENDING, null));
+        mockMvc.perform(post("/vouchers/claim/async")
+                        .header("X-Internal-Token", "test-internal-token")
+                        .contentType(APPLICATION_JSON)
+                        .content("{\"code\":\"DEMO10\",\"orderId\":\"ORDER-1\",\"orderAmount\":100.00}"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.status").value("PENDING"))
+                .andExpect(jsonPath("$.orderId").value("ORDER-1"));
+    }
+
+    @Test
+    void getClaimStatus_mapsTicketStateToHttpStatus() throws Exception {
+        ClaimVoucherResponse result = new ClaimVoucherResponse(
+                true,
+                false,
+                "DEMO10",
+                "ORDER-1",
+                new BigDecimal("100.00"),
+                new BigDecimal("10.00"),
+                4,
+                "ok"
+        );
+        when(claimOutboxService.status("DEMO10", "ORDER-1")).thenReturn(new ClaimTicketResponse("DEMO10", "ORDER-1", ClaimOutboxStatus.DONE, result));
+        when(claimOutboxService.status("DEMO10", "ORDER-2")).thenReturn(new ClaimTicketResponse("DEMO10", "ORDER-2", ClaimOutboxStatus.PENDING, null));
+
+        mockMvc.perform(get("/vouchers/claim/status")
+                        .header("X-Internal-Token", "test-internal-token")
+                        .param("code", "DEMO10")
+                        .param("orderId", "ORDER-1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.quotaRemaining").value(4));
+        mockMvc.perform(get("/vouchers/claim/status")
+                        .header("X-Internal-Token", "test-internal-token")
+                        .param("code", "DEMO10")
+                        .param("orderId", "ORDER-2"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.status").value("PENDING"));
+        mockMvc.perform(get("/vouchers/claim/status")
+                        .header("X-Internal-Token", "test-internal-token")
+                        .param("code", "DEMO10")
+                        .param("orderId", "ORDER-3"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("claim ticket not found"));
+    }
 }